@@ -1,5 +1,7 @@
 package parallax.backend.config;
 
+import java.util.Locale;
+
 /**
  * Application-level configuration reader for the Parallax backend.
  * <p>
@@ -15,6 +17,31 @@ public class AppConfig {
     private static final String DEFAULT_ADMIN_EMAIL = "admin@parallax.local";
     private static final String DEFAULT_ADMIN_PASSWORD = "Admin1234!";
     private static final String DEFAULT_PLATE_SERVICE_BASE_URL = "http://localhost:9000";
+    private static final int DEFAULT_BURST_MAX_FRAMES = 10;
+    private static final double DEFAULT_BURST_CONFIDENCE = 0.95;
+    private static final int DEFAULT_BATCH_QUERY_MAX_PLATES = 50_000;
+    private static final int DEFAULT_IMPORT_MAX_ERRORS = 10_000;
+    private static final int DEFAULT_HOTLIST_MAX_PLATES = 1_000_000;
+    private static final int DEFAULT_BLACKLIST_LOG_RETENTION = 10_000;
+    private static final int DEFAULT_DB_READERS = 4;
+    private static final int DEFAULT_DB_ACQUIRE_TIMEOUT_MILLIS = 5_000;
+    private static final int DEFAULT_WRITE_BATCH_SIZE = 256;
+    private static final int DEFAULT_WRITE_BATCH_DELAY_MILLIS = 0;
+    private static final int DEFAULT_WRITE_BEHIND_CAPACITY = 10_000;
+    private static final String DEFAULT_JOURNAL_DIR = "parallax-journal";
+    private static final String DEFAULT_JOURNAL_FSYNC = "interval";
+    private static final int DEFAULT_JOURNAL_FSYNC_INTERVAL_MILLIS = 1_000;
+    private static final int DEFAULT_JOURNAL_SNAPSHOT_RECORDS = 100_000;
+    private static final String DEFAULT_SEGMENT_DIR = "parallax-segments";
+    private static final int DEFAULT_SEGMENT_MEMTABLE_MB = 16;
+    private static final int DEFAULT_USER_CACHE_MB = 32;
+    private static final int DEFAULT_EVENT_BUFFER_SIZE = 256;
+    private static final int DEFAULT_EVENT_MAX_SUBSCRIBERS = 1_000;
+    private static final int DEFAULT_QUERY_CACHE_ENTRIES = 10_000;
+    private static final int DEFAULT_BUFFER_POOL_MB = 32;
+    private static final int DEFAULT_GATE_PORT = 0;
+    private static final int DEFAULT_GATE_THREADS = 1;
+    private static final int DEFAULT_GATE_LOOKUP_THREADS = 4;
 
     /**
      * Flag indicating whether the built-in administrator account is enabled. Resolved from
@@ -41,6 +68,31 @@ public class AppConfig {
             DEFAULT_ADMIN_PASSWORD
     );
 
+    /**
+     * Backing store used for users and vehicles.
+     */
+    public enum StorageMode {
+        /** Volatile in-memory repositories, reset on restart. */
+        MEMORY,
+        /** SQLite repositories stored in the file given by {@link #getDatabaseUrl()}. */
+        SQLITE,
+        /**
+         * In-memory repositories rebuilt from SQLite at startup, with mutations written behind to
+         * SQLite asynchronously.
+         */
+        HYBRID,
+        /**
+         * In-memory repositories recovered at startup from an append-only journal and snapshots in
+         * {@link #getJournalDirectory()}.
+         */
+        JOURNAL,
+        /**
+         * Users in SQLite and vehicles in a disk-resident sorted segment store in
+         * {@link #getSegmentDirectory()}, for registries larger than the heap.
+         */
+        SEGMENTS
+    }
+
     private final String plateServiceBaseUrl = getEnvOrDefault(
             "PARALLAX_PLATE_SERVICE_BASE_URL",
             DEFAULT_PLATE_SERVICE_BASE_URL
@@ -83,6 +135,149 @@ public class AppConfig {
         return "jdbc:sqlite:" + path;
     }
 
+    /**
+        * Returns how many read-only SQLite connections the pool may open. Read from
+        * {@code PARALLAX_DB_READERS}, defaulting to {@value DEFAULT_DB_READERS}.
+        *
+        * @return maximum number of reader connections
+        */
+    public int getDatabaseReaders() {
+        return getIntEnv("PARALLAX_DB_READERS", DEFAULT_DB_READERS);
+    }
+
+    /**
+        * Returns how long a request waits for a pooled database connection before failing. Read from
+        * {@code PARALLAX_DB_ACQUIRE_TIMEOUT_MS}, defaulting to {@value DEFAULT_DB_ACQUIRE_TIMEOUT_MILLIS}.
+        *
+        * @return acquire timeout in milliseconds
+        */
+    public long getDatabaseAcquireTimeoutMillis() {
+        return getIntEnv("PARALLAX_DB_ACQUIRE_TIMEOUT_MS", DEFAULT_DB_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    /**
+        * Returns how many queued SQLite mutations the writer commits in one transaction. Read from
+        * {@code PARALLAX_WRITE_BATCH_SIZE}, defaulting to {@value DEFAULT_WRITE_BATCH_SIZE}; a value of
+        * {@code 1} or less disables group commit and runs one transaction per call.
+        *
+        * @return maximum mutations per transaction
+        */
+    public int getWriteBatchSize() {
+        return getIntEnv("PARALLAX_WRITE_BATCH_SIZE", DEFAULT_WRITE_BATCH_SIZE);
+    }
+
+    /**
+        * Returns how long the writer lingers for further mutations before committing a batch that is
+        * not full. Read from {@code PARALLAX_WRITE_BATCH_DELAY_MS}, defaulting to
+        * {@value DEFAULT_WRITE_BATCH_DELAY_MILLIS}, which commits whatever is queued immediately.
+        *
+        * @return maximum batching delay in milliseconds
+        */
+    public long getWriteBatchDelayMillis() {
+        return getIntEnv("PARALLAX_WRITE_BATCH_DELAY_MS", DEFAULT_WRITE_BATCH_DELAY_MILLIS);
+    }
+
+    /**
+        * Returns how many mutations the hybrid storage mode may hold in memory before they reach
+        * SQLite; writers block once this many are pending. Read from
+        * {@code PARALLAX_WRITE_BEHIND_CAPACITY}, defaulting to {@value DEFAULT_WRITE_BEHIND_CAPACITY}.
+        *
+        * @return maximum pending write-behind mutations
+        */
+    public int getWriteBehindCapacity() {
+        return getIntEnv("PARALLAX_WRITE_BEHIND_CAPACITY", DEFAULT_WRITE_BEHIND_CAPACITY);
+    }
+
+    /**
+        * Returns the directory holding journal segments and snapshots in journal storage mode. Read
+        * from {@code PARALLAX_JOURNAL_DIR}, defaulting to {@value DEFAULT_JOURNAL_DIR}.
+        *
+        * @return journal directory path
+        */
+    public String getJournalDirectory() {
+        return getEnvOrDefault("PARALLAX_JOURNAL_DIR", DEFAULT_JOURNAL_DIR);
+    }
+
+    /**
+        * Returns when journal records are forced to disk: {@code always}, {@code interval} or
+        * {@code never}. Read from {@code PARALLAX_JOURNAL_FSYNC}, defaulting to
+        * {@value DEFAULT_JOURNAL_FSYNC}.
+        *
+        * @return fsync policy name
+        */
+    public String getJournalFsync() {
+        return getEnvOrDefault("PARALLAX_JOURNAL_FSYNC", DEFAULT_JOURNAL_FSYNC);
+    }
+
+    /**
+        * Returns the background fsync interval for the {@code interval} journal policy. Read from
+        * {@code PARALLAX_JOURNAL_FSYNC_INTERVAL_MS}, defaulting to {@value DEFAULT_JOURNAL_FSYNC_INTERVAL_MILLIS}.
+        *
+        * @return fsync interval in milliseconds
+        */
+    public long getJournalFsyncIntervalMillis() {
+        return getIntEnv("PARALLAX_JOURNAL_FSYNC_INTERVAL_MS", DEFAULT_JOURNAL_FSYNC_INTERVAL_MILLIS);
+    }
+
+    /**
+        * Returns after how many journal records a snapshot is written and older segments are
+        * compacted away. Read from {@code PARALLAX_JOURNAL_SNAPSHOT_RECORDS}, defaulting to
+        * {@value DEFAULT_JOURNAL_SNAPSHOT_RECORDS}.
+        *
+        * @return records between snapshots
+        */
+    public long getJournalSnapshotRecords() {
+        return getIntEnv("PARALLAX_JOURNAL_SNAPSHOT_RECORDS", DEFAULT_JOURNAL_SNAPSHOT_RECORDS);
+    }
+
+    /**
+        * Returns the directory holding the vehicle segment store in segments storage mode. Read
+        * from {@code PARALLAX_SEGMENT_DIR}, defaulting to {@value DEFAULT_SEGMENT_DIR}.
+        *
+        * @return segment store directory path
+        */
+    public String getSegmentDirectory() {
+        return getEnvOrDefault("PARALLAX_SEGMENT_DIR", DEFAULT_SEGMENT_DIR);
+    }
+
+    /**
+        * Returns how much data the segment store buffers in memory before writing a new segment.
+        * Read from {@code PARALLAX_SEGMENT_MEMTABLE_MB}, defaulting to
+        * {@value DEFAULT_SEGMENT_MEMTABLE_MB}.
+        *
+        * @return in-memory table size in bytes
+        */
+    public long getSegmentMemtableBytes() {
+        return getIntEnv("PARALLAX_SEGMENT_MEMTABLE_MB", DEFAULT_SEGMENT_MEMTABLE_MB) * 1024L * 1024L;
+    }
+
+    /**
+        * Returns the heap budget for recently used accounts kept in front of SQLite in sqlite and
+        * segments storage mode. Read from {@code PARALLAX_USER_CACHE_MB}, defaulting to
+        * {@value DEFAULT_USER_CACHE_MB}; {@code 0} disables the cache.
+        *
+        * @return user cache size in bytes
+        */
+    public long getUserCacheBytes() {
+        return getIntEnv("PARALLAX_USER_CACHE_MB", DEFAULT_USER_CACHE_MB) * 1024L * 1024L;
+    }
+
+    /**
+        * Returns which repositories the server should use. Read from {@code PARALLAX_STORAGE}
+        * ({@code memory}, {@code sqlite}, {@code hybrid}, {@code journal} or {@code segments}, case-insensitive); unknown values fall back to
+        * {@link StorageMode#MEMORY}.
+        *
+        * @return configured storage mode
+        */
+    public StorageMode getStorageMode() {
+        String value = getEnvOrDefault("PARALLAX_STORAGE", StorageMode.MEMORY.name());
+        try {
+            return StorageMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ignored) {
+            return StorageMode.MEMORY;
+        }
+    }
+
     /**
         * Returns the base URL for the external plate recognition service.
         * The value is resolved from {@code PARALLAX_PLATE_SERVICE_BASE_URL} and defaults to
@@ -94,6 +289,169 @@ public class AppConfig {
         return plateServiceBaseUrl;
     }
 
+    /**
+        * Returns the maximum number of frames of a burst upload that are considered. Frames beyond
+        * this limit are ignored. Read from {@code PARALLAX_BURST_MAX_FRAMES}, defaulting to
+        * {@value DEFAULT_BURST_MAX_FRAMES}.
+        *
+        * @return maximum frames per burst
+        */
+    public int getBurstMaxFrames() {
+        return getIntEnv("PARALLAX_BURST_MAX_FRAMES", DEFAULT_BURST_MAX_FRAMES);
+    }
+
+    /**
+        * Returns the combined confidence at which a plate read across burst frames is considered
+        * confirmed, after which no further frames are sent to the recognition service. Read from
+        * {@code PARALLAX_BURST_CONFIDENCE}, defaulting to {@value DEFAULT_BURST_CONFIDENCE}.
+        *
+        * @return confirmation threshold between 0 and 1
+        */
+    public double getBurstConfidenceThreshold() {
+        return getDoubleEnv("PARALLAX_BURST_CONFIDENCE", DEFAULT_BURST_CONFIDENCE);
+    }
+
+    /**
+        * Returns the maximum number of distinct plates accepted by a single batch query. Read from
+        * {@code PARALLAX_BATCH_QUERY_MAX_PLATES}, defaulting to {@value DEFAULT_BATCH_QUERY_MAX_PLATES}.
+        *
+        * @return maximum plates per batch query
+        */
+    public int getBatchQueryMaxPlates() {
+        return getIntEnv("PARALLAX_BATCH_QUERY_MAX_PLATES", DEFAULT_BATCH_QUERY_MAX_PLATES);
+    }
+
+    /**
+        * Returns how many failed rows a bulk vehicle import reports individually; further failures
+        * are only counted. Read from {@code PARALLAX_IMPORT_MAX_ERRORS}, defaulting to
+        * {@value DEFAULT_IMPORT_MAX_ERRORS}.
+        *
+        * @return maximum error entries per import response
+        */
+    public int getImportMaxErrors() {
+        return getIntEnv("PARALLAX_IMPORT_MAX_ERRORS", DEFAULT_IMPORT_MAX_ERRORS);
+    }
+
+    /**
+        * Returns the maximum number of plates accepted by a single bulk blacklist update. Read from
+        * {@code PARALLAX_HOTLIST_MAX_PLATES}, defaulting to {@value DEFAULT_HOTLIST_MAX_PLATES}.
+        *
+        * @return maximum plates per bulk blacklist update
+        */
+    public int getHotlistMaxPlates() {
+        return getIntEnv("PARALLAX_HOTLIST_MAX_PLATES", DEFAULT_HOTLIST_MAX_PLATES);
+    }
+
+    /**
+        * Returns how many blacklist changes are retained for delta synchronization. Edge caches
+        * that fall further behind receive a full snapshot instead. Read from
+        * {@code PARALLAX_BLACKLIST_LOG_RETENTION}, defaulting to {@value DEFAULT_BLACKLIST_LOG_RETENTION}.
+        *
+        * @return number of retained blacklist changes
+        */
+    public int getBlacklistLogRetention() {
+        return getIntEnv("PARALLAX_BLACKLIST_LOG_RETENTION", DEFAULT_BLACKLIST_LOG_RETENTION);
+    }
+
+    /**
+        * Returns how many events are buffered per event-stream subscriber. A subscriber that falls
+        * this far behind is disconnected. Read from {@code PARALLAX_EVENT_BUFFER_SIZE}, defaulting to
+        * {@value DEFAULT_EVENT_BUFFER_SIZE}.
+        *
+        * @return per-subscriber event buffer size
+        */
+    public int getEventBufferSize() {
+        return getIntEnv("PARALLAX_EVENT_BUFFER_SIZE", DEFAULT_EVENT_BUFFER_SIZE);
+    }
+
+    /**
+        * Returns the maximum number of concurrent event-stream subscribers. Read from
+        * {@code PARALLAX_EVENT_MAX_SUBSCRIBERS}, defaulting to {@value DEFAULT_EVENT_MAX_SUBSCRIBERS}.
+        *
+        * @return subscriber limit
+        */
+    public int getEventMaxSubscribers() {
+        return getIntEnv("PARALLAX_EVENT_MAX_SUBSCRIBERS", DEFAULT_EVENT_MAX_SUBSCRIBERS);
+    }
+
+    /**
+        * Returns how many plates the plate query endpoint keeps pre-serialized responses for. Read
+        * from {@code PARALLAX_QUERY_CACHE_ENTRIES}, defaulting to {@value DEFAULT_QUERY_CACHE_ENTRIES};
+        * a value of {@code 0} disables the cache.
+        *
+        * @return maximum cached plates
+        */
+    public int getQueryCacheEntries() {
+        return getIntEnv("PARALLAX_QUERY_CACHE_ENTRIES", DEFAULT_QUERY_CACHE_ENTRIES);
+    }
+
+    /**
+        * Returns how much memory the shared request and response buffer pool may keep for reuse.
+        * Read from {@code PARALLAX_BUFFER_POOL_MB}, defaulting to {@value DEFAULT_BUFFER_POOL_MB};
+        * {@code 0} disables reuse.
+        *
+        * @return maximum retained buffer bytes
+        */
+    public long getBufferPoolBytes() {
+        return getIntEnv("PARALLAX_BUFFER_POOL_MB", DEFAULT_BUFFER_POOL_MB) * 1024L * 1024L;
+    }
+
+    /**
+        * Returns the TCP port of the binary plate lookup listener for gate controllers. Read from
+        * {@code PARALLAX_GATE_PORT}, defaulting to {@value DEFAULT_GATE_PORT}, which leaves the
+        * listener off.
+        *
+        * @return gate listener port, or {@code 0} if disabled
+        */
+    public int getGatePort() {
+        return getIntEnv("PARALLAX_GATE_PORT", DEFAULT_GATE_PORT);
+    }
+
+    /**
+        * Returns how many event loop threads serve gate controller connections. Read from
+        * {@code PARALLAX_GATE_THREADS}, defaulting to {@value DEFAULT_GATE_THREADS}.
+        *
+        * @return gate event loop threads
+        */
+    public int getGateThreads() {
+        return getIntEnv("PARALLAX_GATE_THREADS", DEFAULT_GATE_THREADS);
+    }
+
+    /**
+        * Returns how many threads look up the plates requested by gate controllers. Read from
+        * {@code PARALLAX_GATE_LOOKUP_THREADS}, defaulting to {@value DEFAULT_GATE_LOOKUP_THREADS};
+        * {@code 0} answers lookups on the event loops.
+        *
+        * @return gate lookup threads
+        */
+    public int getGateLookupThreads() {
+        return getIntEnv("PARALLAX_GATE_LOOKUP_THREADS", DEFAULT_GATE_LOOKUP_THREADS);
+    }
+
+    private static int getIntEnv(String key, int defaultValue) {
+        String value = System.getenv(key);
+        if (value != null && !value.isBlank()) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException ignored) {
+                // fall through to default
+            }
+        }
+        return defaultValue;
+    }
+
+    private static double getDoubleEnv(String key, double defaultValue) {
+        String value = System.getenv(key);
+        if (value != null && !value.isBlank()) {
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NumberFormatException ignored) {
+                // fall through to default
+            }
+        }
+        return defaultValue;
+    }
+
     private static boolean getBooleanEnv(String key, boolean defaultValue) {
         String value = System.getenv(key);
         if (value == null || value.isBlank()) {
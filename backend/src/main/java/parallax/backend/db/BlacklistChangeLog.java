@@ -0,0 +1,154 @@
+package parallax.backend.db;
+
+import parallax.backend.model.BlacklistSync;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Monotonically versioned, bounded log of plate-level blacklist changes.
+ * <p>
+ * Each recorded change receives the next version number. Edge caches remember the version they
+ * last applied and ask for the changes after it; when that version has already been evicted from
+ * the retention window (or belongs to a different log instance, e.g. before a restart) the caller
+ * must fall back to a full snapshot. The {@link #getLogId() log id} is random per instance so
+ * that versions from a previous process are never mistaken for current ones.
+ * </p>
+ * <p>
+ * Repositories must apply a change to their own state <em>before</em> recording it, and read
+ * {@link #currentVersion()} <em>before</em> building a snapshot. A snapshot can then only be
+ * newer than its version, never older, and replaying the delta on top of it converges.
+ * </p>
+ */
+public class BlacklistChangeLog {
+    /** Default number of changes retained before older versions require a snapshot. */
+    public static final int DEFAULT_RETENTION = 10_000;
+
+    private final String logId = UUID.randomUUID().toString();
+    private final int retention;
+    private final Deque<Change> changes = new ArrayDeque<>();
+    private long version;
+    private long floorVersion;
+
+    /**
+     * Creates a log retaining {@value #DEFAULT_RETENTION} changes.
+     */
+    public BlacklistChangeLog() {
+        this(DEFAULT_RETENTION);
+    }
+
+    /**
+     * Creates a log retaining at most {@code retention} changes.
+     *
+     * @param retention number of changes kept for delta queries; must be positive
+     */
+    public BlacklistChangeLog(int retention) {
+        if (retention <= 0) {
+            throw new IllegalArgumentException("Retention must be positive");
+        }
+        this.retention = retention;
+    }
+
+    /**
+     * Returns the random identifier of this log instance.
+     *
+     * @return log identifier
+     */
+    public String getLogId() {
+        return logId;
+    }
+
+    /**
+     * Returns the version of the most recent change, or {@code 0} if nothing was recorded yet.
+     *
+     * @return current version
+     */
+    public synchronized long currentVersion() {
+        return version;
+    }
+
+    /**
+     * Records the new blacklist state of a plate and assigns it the next version, evicting the
+     * oldest change when the retention window is full.
+     *
+     * @param plate       normalized license plate
+     * @param blacklisted whether the plate is now blacklisted
+     * @return version assigned to the change
+     */
+    public synchronized long record(String plate, boolean blacklisted) {
+        version++;
+        changes.addLast(new Change(version, plate, blacklisted));
+        if (changes.size() > retention) {
+            floorVersion = changes.removeFirst().version;
+        }
+        return version;
+    }
+
+    /**
+     * Records the new state of many plates under a single version, so that clients never observe
+     * part of a bulk update. Older changes are evicted as in {@link #record(String, boolean)}; a
+     * bulk update larger than the retention window therefore forces clients from before it to take
+     * a snapshot.
+     *
+     * @param states new blacklist state per normalized plate
+     * @return version assigned to the changes, or the current version if {@code states} is empty
+     */
+    public synchronized long recordAll(Map<String, Boolean> states) {
+        if (states.isEmpty()) {
+            return version;
+        }
+        version++;
+        for (Map.Entry<String, Boolean> state : states.entrySet()) {
+            changes.addLast(new Change(version, state.getKey(), state.getValue()));
+            if (changes.size() > retention) {
+                floorVersion = changes.removeFirst().version;
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Collapses the changes after {@code sinceVersion} into the latest state per plate.
+     *
+     * @param logId        log identifier the caller's version belongs to
+     * @param sinceVersion last version the caller has applied
+     * @return delta up to the current version, or {@code null} when the request cannot be answered
+     *         from the retained window and a snapshot is required
+     */
+    public synchronized BlacklistSync deltaSince(String logId, long sinceVersion) {
+        if (!this.logId.equals(logId) || sinceVersion < floorVersion || sinceVersion > version) {
+            return null;
+        }
+        Map<String, Boolean> latest = new HashMap<>();
+        Iterator<Change> newestFirst = changes.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Change change = newestFirst.next();
+            if (change.version <= sinceVersion) {
+                break;
+            }
+            latest.putIfAbsent(change.plate, change.blacklisted);
+        }
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        latest.forEach((plate, blacklisted) -> (blacklisted ? added : removed).add(plate));
+        return BlacklistSync.delta(this.logId, version, added, removed);
+    }
+
+    private static final class Change {
+        private final long version;
+        private final String plate;
+        private final boolean blacklisted;
+
+        private Change(long version, String plate, boolean blacklisted) {
+            this.version = version;
+            this.plate = plate;
+            this.blacklisted = blacklisted;
+        }
+    }
+}
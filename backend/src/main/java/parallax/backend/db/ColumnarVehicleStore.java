@@ -0,0 +1,432 @@
+package parallax.backend.db;
+
+import parallax.backend.model.PlateKey;
+import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Column-oriented copy of the vehicle attributes that registry-wide scans read.
+ * <p>
+ * Each attribute lives in its own primitive array: the plate as its {@link PlateKey}, the owner
+ * id, the make as a {@link StringDictionary} code, the model year as a {@code short}, and a byte of
+ * flags. The arrays are allocated in chunks of 65,536 rows, so appending never copies existing
+ * rows, and a scan walks a few contiguous arrays instead of visiting one object per vehicle. Scans
+ * split the chunks across the common {@link ForkJoinPool}.
+ * </p>
+ * <p>
+ * Rows are addressed by the index {@link #append(Vehicle)} returns. Removing a row leaves a
+ * tombstone that scans skip, and a later append reuses the index. Plates that cannot be packed
+ * (more than twelve characters, or characters other than {@code 0-9A-Z-}) and years that are not
+ * a plain {@code short} are kept in side maps. Mutations are serialized on the store;
+ * scans and row reads do not lock, so a scan running alongside a writer may see the row being
+ * changed in either state.
+ * </p>
+ */
+public final class ColumnarVehicleStore {
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final long IRREGULAR_PLATE = 0;
+    private static final byte LIVE = 1;
+    private static final byte BLACKLISTED = 2;
+    private static final byte HAS_YEAR = 4;
+    private static final byte IRREGULAR_YEAR = 8;
+    private static final Chunk EMPTY = new Chunk(0);
+
+    private final StringDictionary dictionary;
+    private final Map<Integer, String> irregularPlates = new ConcurrentHashMap<>();
+    private final Map<Integer, String> irregularYears = new ConcurrentHashMap<>();
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int rows;
+    private int live;
+    private int[] free = new int[16];
+    private int freeCount;
+
+    /**
+     * Creates an empty store with its own make dictionary.
+     */
+    public ColumnarVehicleStore() {
+        this(new StringDictionary());
+    }
+
+    /**
+     * Creates an empty store encoding makes through {@code dictionary}, so the store can share the
+     * codes of the repository it mirrors.
+     */
+    ColumnarVehicleStore(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Adds a vehicle, reusing the index of a removed row if there is one.
+     *
+     * @param vehicle vehicle with its plate normalized and its owner id set
+     * @return row index of the vehicle
+     */
+    public synchronized int append(Vehicle vehicle) {
+        int row;
+        if (freeCount > 0) {
+            row = free[--freeCount];
+        } else {
+            row = rows;
+            Chunk[] current = chunks;
+            if (row >>> CHUNK_SHIFT == current.length) {
+                current = Arrays.copyOf(current, current.length + 1);
+                current[current.length - 1] = new Chunk(CHUNK_SIZE);
+                chunks = current;
+            }
+        }
+        Chunk chunk = chunks[row >>> CHUNK_SHIFT];
+        int i = row & (CHUNK_SIZE - 1);
+
+        String plate = vehicle.getLicenseNumber();
+        long packed = PlateKey.pack(plate);
+        if (packed == IRREGULAR_PLATE && plate != null) {
+            irregularPlates.put(row, plate);
+        }
+        byte flags = vehicle.isBlacklisted() ? (byte) (LIVE | BLACKLISTED) : LIVE;
+        short year = 0;
+        if (vehicle.getYear() != null) {
+            Short encoded = CompactVehicle.encodeYear(vehicle.getYear());
+            if (encoded != null) {
+                year = encoded;
+                flags |= HAS_YEAR;
+            } else {
+                irregularYears.put(row, vehicle.getYear());
+                flags |= IRREGULAR_YEAR;
+            }
+        }
+        chunk.plates[i] = packed;
+        chunk.owners[i] = vehicle.getOwnerId();
+        chunk.makes[i] = dictionary.encode(vehicle.getMake());
+        chunk.years[i] = year;
+        chunk.flags[i] = flags;
+        live++;
+        if (row == rows) {
+            rows = row + 1;
+        }
+        return row;
+    }
+
+    /**
+     * Removes a row, leaving a tombstone until its index is reused.
+     *
+     * @param row row index returned by {@link #append(Vehicle)}
+     */
+    public synchronized void remove(int row) {
+        Chunk chunk = liveChunk(row);
+        int i = row & (CHUNK_SIZE - 1);
+        chunk.flags[i] = 0;
+        irregularPlates.remove(row);
+        irregularYears.remove(row);
+        live--;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, free.length * 2);
+        }
+        free[freeCount++] = row;
+    }
+
+    /**
+     * Sets the blacklist flag of a row.
+     *
+     * @param row         row index
+     * @param blacklisted new flag
+     */
+    public synchronized void setBlacklisted(int row, boolean blacklisted) {
+        Chunk chunk = liveChunk(row);
+        int i = row & (CHUNK_SIZE - 1);
+        chunk.flags[i] = (byte) (blacklisted ? chunk.flags[i] | BLACKLISTED : chunk.flags[i] & ~BLACKLISTED);
+    }
+
+    /**
+     * Moves a row to another owner.
+     *
+     * @param row     row index
+     * @param ownerId new owner id
+     */
+    public synchronized void setOwnerId(int row, long ownerId) {
+        liveChunk(row).owners[row & (CHUNK_SIZE - 1)] = ownerId;
+    }
+
+    /**
+     * Returns the number of rows that are not removed.
+     *
+     * @return live row count
+     */
+    public synchronized int size() {
+        return live;
+    }
+
+    /**
+     * Returns the owner id of a row.
+     *
+     * @param row row index
+     * @return owner id
+     */
+    public long getOwnerId(int row) {
+        return chunks[row >>> CHUNK_SHIFT].owners[row & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * Returns the plate of a row.
+     *
+     * @param row row index
+     * @return plate, may be {@code null}
+     */
+    public String getPlate(int row) {
+        long packed = chunks[row >>> CHUNK_SHIFT].plates[row & (CHUNK_SIZE - 1)];
+        return packed == IRREGULAR_PLATE ? irregularPlates.get(row) : PlateKey.unpack(packed);
+    }
+
+    /**
+     * Counts the live rows in total, blacklisted, per make and per model year.
+     *
+     * @return registry statistics
+     */
+    public VehicleStats statistics() {
+        Tally tally = scan((chunk, base, length) -> {
+            Tally counts = new Tally(dictionary.size() + 1);
+            for (int i = 0; i < length; i++) {
+                byte flags = chunk.flags[i];
+                if ((flags & LIVE) == 0) {
+                    continue;
+                }
+                counts.total++;
+                if ((flags & BLACKLISTED) != 0) {
+                    counts.blacklisted++;
+                }
+                counts.countMake(chunk.makes[i]);
+                if ((flags & HAS_YEAR) != 0) {
+                    counts.years[chunk.years[i] - Short.MIN_VALUE]++;
+                } else if ((flags & IRREGULAR_YEAR) != 0) {
+                    String year = irregularYears.get(base + i);
+                    if (year != null) {
+                        counts.otherYears.merge(year, 1L, Long::sum);
+                    }
+                }
+            }
+            return counts;
+        }, Tally::merge);
+
+        Map<String, Long> makes = new TreeMap<>();
+        for (int code = 1; code < tally.makes.length; code++) {
+            if (tally.makes[code] > 0) {
+                makes.put(dictionary.decode(code), (long) tally.makes[code]);
+            }
+        }
+        Map<String, Long> years = new TreeMap<>(tally.otherYears);
+        for (int index = 0; index < tally.years.length; index++) {
+            if (tally.years[index] > 0) {
+                years.put(Short.toString((short) (index + Short.MIN_VALUE)), (long) tally.years[index]);
+            }
+        }
+        return new VehicleStats(tally.total, tally.blacklisted, makes, years);
+    }
+
+    /**
+     * Returns the live rows whose plate is one of {@code plates} and, with
+     * {@code includeBlacklisted}, every live blacklisted row as well.
+     *
+     * @param plates             normalized plates to match
+     * @param includeBlacklisted whether to also return all blacklisted rows
+     * @return matching row indexes in ascending order
+     */
+    public int[] matchPlates(Collection<String> plates, boolean includeBlacklisted) {
+        if (plates.isEmpty() && !includeBlacklisted) {
+            return new int[0];
+        }
+        long[] packed = new long[plates.size()];
+        int packedCount = 0;
+        Set<String> irregular = new HashSet<>();
+        for (String plate : plates) {
+            long value = PlateKey.pack(plate);
+            if (value == IRREGULAR_PLATE) {
+                irregular.add(plate);
+            } else {
+                packed[packedCount++] = value;
+            }
+        }
+        long[] sorted = Arrays.copyOf(packed, packedCount);
+        Arrays.sort(sorted);
+
+        RowList matches = scan((chunk, base, length) -> {
+            RowList found = new RowList();
+            for (int i = 0; i < length; i++) {
+                byte flags = chunk.flags[i];
+                if ((flags & LIVE) == 0) {
+                    continue;
+                }
+                long plate = chunk.plates[i];
+                boolean match;
+                if (includeBlacklisted && (flags & BLACKLISTED) != 0) {
+                    match = true;
+                } else if (plate == IRREGULAR_PLATE) {
+                    match = !irregular.isEmpty() && irregular.contains(irregularPlates.get(base + i));
+                } else {
+                    match = Arrays.binarySearch(sorted, plate) >= 0;
+                }
+                if (match) {
+                    found.add(base + i);
+                }
+            }
+            return found;
+        }, RowList::append);
+        return Arrays.copyOf(matches.rows, matches.size);
+    }
+
+    private Chunk liveChunk(int row) {
+        Chunk chunk = row < rows ? chunks[row >>> CHUNK_SHIFT] : null;
+        if (chunk == null || (chunk.flags[row & (CHUNK_SIZE - 1)] & LIVE) == 0) {
+            throw new IllegalArgumentException("No live row " + row);
+        }
+        return chunk;
+    }
+
+    /**
+     * Runs {@code leaf} over every chunk in parallel and combines the results in chunk order.
+     */
+    private <T> T scan(ChunkScan<T> leaf, BinaryOperator<T> merge) {
+        int limit = rows;
+        Chunk[] current = chunks;
+        int count = (limit + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+        if (count == 0) {
+            return leaf.scan(EMPTY, 0, 0);
+        }
+        return ForkJoinPool.commonPool().invoke(new ScanTask<>(current, limit, 0, count, leaf, merge));
+    }
+
+    /**
+     * Scan of the first {@code length} rows of one chunk, whose first row has index {@code base}.
+     */
+    private interface ChunkScan<T> {
+        T scan(Chunk chunk, int base, int length);
+    }
+
+    /**
+     * Splits a range of chunks in halves until single chunks remain.
+     */
+    private static final class ScanTask<T> extends RecursiveTask<T> {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunk[] chunks;
+        private final int limit;
+        private final int from;
+        private final int to;
+        private final ChunkScan<T> leaf;
+        private final BinaryOperator<T> merge;
+
+        private ScanTask(Chunk[] chunks, int limit, int from, int to, ChunkScan<T> leaf, BinaryOperator<T> merge) {
+            this.chunks = chunks;
+            this.limit = limit;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.merge = merge;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from == 1) {
+                int base = from << CHUNK_SHIFT;
+                return leaf.scan(chunks[from], base, Math.min(CHUNK_SIZE, limit - base));
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask<T> left = new ScanTask<>(chunks, limit, from, middle, leaf, merge);
+            left.fork();
+            T right = new ScanTask<>(chunks, limit, middle, to, leaf, merge).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+
+    private static final class Chunk {
+        private final long[] plates;
+        private final long[] owners;
+        private final int[] makes;
+        private final short[] years;
+        private final byte[] flags;
+
+        private Chunk(int size) {
+            plates = new long[size];
+            owners = new long[size];
+            makes = new int[size];
+            years = new short[size];
+            flags = new byte[size];
+        }
+    }
+
+    /**
+     * Partial counts of one or more chunks.
+     */
+    private static final class Tally {
+        private long total;
+        private long blacklisted;
+        private int[] makes;
+        private final int[] years = new int[1 << Short.SIZE];
+        private final Map<String, Long> otherYears = new HashMap<>();
+
+        private Tally(int makeCodes) {
+            makes = new int[makeCodes];
+        }
+
+        private void countMake(int code) {
+            if (code == 0) {
+                return;
+            }
+            if (code >= makes.length) {
+                makes = Arrays.copyOf(makes, code + 1);
+            }
+            makes[code]++;
+        }
+
+        private Tally merge(Tally other) {
+            total += other.total;
+            blacklisted += other.blacklisted;
+            if (other.makes.length > makes.length) {
+                makes = Arrays.copyOf(makes, other.makes.length);
+            }
+            for (int i = 0; i < other.makes.length; i++) {
+                makes[i] += other.makes[i];
+            }
+            for (int i = 0; i < years.length; i++) {
+                years[i] += other.years[i];
+            }
+            other.otherYears.forEach((year, count) -> otherYears.merge(year, count, Long::sum));
+            return this;
+        }
+    }
+
+    /**
+     * Growable list of row indexes.
+     */
+    private static final class RowList {
+        private int[] rows = new int[16];
+        private int size;
+
+        private void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        private RowList append(RowList other) {
+            if (size + other.size > rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(size + other.size, rows.length * 2));
+            }
+            System.arraycopy(other.rows, 0, rows, size, other.size);
+            size += other.size;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package parallax.backend.db;
+
+import parallax.backend.model.Vehicle;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+
+/**
+ * Immutable in-memory form of a {@link Vehicle}, used by {@link InMemoryVehicleRepository} to
+ * keep large registries small.
+ * <p>
+ * The owner is not stored; it is implied by the owner list holding the record. Make and model are
+ * codes in a {@link StringDictionary}, the year is a {@code short}, the creation time is epoch
+ * milliseconds, and the blacklist flag is a bit in {@code flags}. Only the plate remains a string.
+ * Values that these fields cannot reproduce exactly, such as a year of {@code "n/a"} or a
+ * timestamp with sub-millisecond digits, are kept verbatim in an {@link Irregular} record instead,
+ * so decoding always returns what was stored.
+ * </p>
+ */
+class CompactVehicle {
+    private static final byte BLACKLISTED = 1;
+    private static final byte HAS_YEAR = 2;
+    private static final byte HAS_CREATED_AT = 4;
+
+    private final String licenseNumber;
+    private final int row;
+    private final int make;
+    private final int model;
+    private final long createdAt;
+    private final short year;
+    private final byte flags;
+
+    private CompactVehicle(String licenseNumber, int row, int make, int model, long createdAt, short year, byte flags) {
+        this.licenseNumber = licenseNumber;
+        this.row = row;
+        this.make = make;
+        this.model = model;
+        this.createdAt = createdAt;
+        this.year = year;
+        this.flags = flags;
+    }
+
+    /**
+     * Encodes a vehicle; the owner is left to the caller.
+     *
+     * @param vehicle    vehicle to encode, with its plate already normalized
+     * @param dictionary dictionary for make and model
+     * @param row        row of the vehicle in the repository's {@link ColumnarVehicleStore}
+     * @return compact record
+     */
+    static CompactVehicle of(Vehicle vehicle, StringDictionary dictionary, int row) {
+        int make = dictionary.encode(vehicle.getMake());
+        int model = dictionary.encode(vehicle.getModel());
+        byte flags = vehicle.isBlacklisted() ? BLACKLISTED : 0;
+        Short year = encodeYear(vehicle.getYear());
+        Long createdAt = encodeCreatedAt(vehicle.getCreatedAt());
+        if (year == null || createdAt == null) {
+            return new Irregular(vehicle.getLicenseNumber(), row, make, model, flags, vehicle.getYear(), vehicle.getCreatedAt());
+        }
+        if (vehicle.getYear() != null) {
+            flags |= HAS_YEAR;
+        }
+        if (vehicle.getCreatedAt() != null) {
+            flags |= HAS_CREATED_AT;
+        }
+        return new CompactVehicle(vehicle.getLicenseNumber(), row, make, model, createdAt, year, flags);
+    }
+
+    /**
+     * Returns the normalized plate.
+     *
+     * @return plate, may be {@code null}
+     */
+    String getLicenseNumber() {
+        return licenseNumber;
+    }
+
+    /**
+     * Returns the row of the vehicle in the repository's {@link ColumnarVehicleStore}.
+     *
+     * @return row index
+     */
+    int getRow() {
+        return row;
+    }
+
+    /**
+     * Indicates whether the plate is blacklisted.
+     *
+     * @return blacklist flag
+     */
+    boolean isBlacklisted() {
+        return (flags & BLACKLISTED) != 0;
+    }
+
+    /**
+     * Returns a copy of this record with the given blacklist flag.
+     *
+     * @param blacklisted new flag
+     * @return this record if the flag is unchanged, otherwise an updated copy
+     */
+    CompactVehicle withBlacklisted(boolean blacklisted) {
+        if (blacklisted == isBlacklisted()) {
+            return this;
+        }
+        byte updated = (byte) (blacklisted ? flags | BLACKLISTED : flags & ~BLACKLISTED);
+        return copy(updated);
+    }
+
+    /**
+     * Decodes the record into a new vehicle owned by {@code username}.
+     *
+     * @param dictionary dictionary the record was encoded with
+     * @param ownerId    owner id of the list holding the record
+     * @param username   owner username of the list holding the record
+     * @return new vehicle
+     */
+    Vehicle toVehicle(StringDictionary dictionary, long ownerId, String username) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setOwnerId(ownerId);
+        vehicle.setUsername(username);
+        vehicle.setLicenseNumber(licenseNumber);
+        vehicle.setMake(dictionary.decode(make));
+        vehicle.setModel(dictionary.decode(model));
+        vehicle.setYear(getYear());
+        vehicle.setCreatedAt(getCreatedAt());
+        vehicle.setBlacklisted(isBlacklisted());
+        return vehicle;
+    }
+
+    /**
+     * Returns the model year as originally given.
+     *
+     * @return year, may be {@code null}
+     */
+    String getYear() {
+        return (flags & HAS_YEAR) != 0 ? Short.toString(year) : null;
+    }
+
+    /**
+     * Returns the ISO-8601 creation time as originally given.
+     *
+     * @return creation time, may be {@code null}
+     */
+    String getCreatedAt() {
+        return (flags & HAS_CREATED_AT) != 0 ? Instant.ofEpochMilli(createdAt).toString() : null;
+    }
+
+    /**
+     * Returns a copy of this record with other flags.
+     */
+    CompactVehicle copy(byte flags) {
+        return new CompactVehicle(licenseNumber, row, make, model, createdAt, year, flags);
+    }
+
+    /**
+     * Returns the year as a {@code short} if its decimal form reproduces {@code value}; {@code 0}
+     * for {@code null}; otherwise {@code null}.
+     */
+    static Short encodeYear(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            short year = Short.parseShort(value);
+            return Short.toString(year).equals(value) ? year : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the epoch milliseconds of an ISO-8601 instant if {@link Instant#toString()} of them
+     * reproduces {@code value}; {@code 0} for {@code null}; otherwise {@code null}.
+     */
+    private static Long encodeCreatedAt(String value) {
+        if (value == null) {
+            return 0L;
+        }
+        try {
+            long millis = Instant.parse(value).toEpochMilli();
+            return Instant.ofEpochMilli(millis).toString().equals(value) ? millis : null;
+        } catch (DateTimeException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Record whose year or creation time is kept as the original string.
+     */
+    private static final class Irregular extends CompactVehicle {
+        private final String rawYear;
+        private final String rawCreatedAt;
+
+        private Irregular(String licenseNumber, int row, int make, int model, byte flags, String rawYear,
+                          String rawCreatedAt) {
+            super(licenseNumber, row, make, model, 0, (short) 0, flags);
+            this.rawYear = rawYear;
+            this.rawCreatedAt = rawCreatedAt;
+        }
+
+        @Override
+        String getYear() {
+            return rawYear;
+        }
+
+        @Override
+        String getCreatedAt() {
+            return rawCreatedAt;
+        }
+
+        @Override
+        CompactVehicle copy(byte flags) {
+            CompactVehicle base = this;
+            return new Irregular(base.licenseNumber, base.row, base.make, base.model, flags, rawYear, rawCreatedAt);
+        }
+    }
+}
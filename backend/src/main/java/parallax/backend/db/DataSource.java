@@ -2,36 +2,425 @@ package parallax.backend.db;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Minimal JDBC data source wrapper intended as a seam for future SQLite support.
+ * Small JDBC connection pool used by the SQLite-backed repositories.
  * <p>
- * The current backend uses in-memory repositories, but this class centralizes connection
- * creation so repository implementations can transition to a persistent database without
- * altering call sites.
+ * SQLite allows one writer at a time but, in WAL mode, any number of concurrent readers that
+ * never block on the writer. The pool therefore keeps one dedicated writer connection and up to
+ * {@code readerCount} read-only connections, opened lazily and reused for the lifetime of the
+ * pool. Each pooled connection carries its own {@link StatementCache}, so prepared statements
+ * survive across leases. Callers that cannot get a connection within the acquire timeout receive
+ * a {@link SQLTransientConnectionException}.
+ * </p>
+ * <p>
+ * In-memory SQLite URLs and non-SQLite URLs get no separate readers; reads share the writer.
  * </p>
  */
-public class DataSource {
+public class DataSource implements AutoCloseable {
+    private static final int BUSY_TIMEOUT_MILLIS = 5_000;
+    private static final int DEFAULT_READER_COUNT = 4;
+    private static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 5_000;
+
     private final String url;
+    private final long acquireTimeoutMillis;
+    private final Pool writer;
+    private final Pool readers;
+    private volatile String writerSynchronous = "NORMAL";
+    private volatile boolean closed;
 
     /**
-        * Creates a data source pointing at the provided JDBC URL.
+        * Creates a pool with {@value DEFAULT_READER_COUNT} readers and a
+        * {@value DEFAULT_ACQUIRE_TIMEOUT_MILLIS} ms acquire timeout.
         *
         * @param url JDBC connection string, typically {@code jdbc:sqlite:<file>} for SQLite
         */
     public DataSource(String url) {
+        this(url, DEFAULT_READER_COUNT, DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    /**
+        * Creates a pool with explicit sizing.
+        *
+        * @param url                  JDBC connection string
+        * @param readerCount          maximum number of read-only connections
+        * @param acquireTimeoutMillis how long to wait for a free connection before failing
+        */
+    public DataSource(String url, int readerCount, long acquireTimeoutMillis) {
         this.url = url;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.writer = new Pool("writer", 1, false);
+        boolean separateReaders = url.startsWith("jdbc:sqlite:") && !url.contains(":memory:") && readerCount > 0;
+        this.readers = separateReaders ? new Pool("reader", readerCount, true) : writer;
     }
 
     /**
-        * Opens a new JDBC connection using the configured URL.
-        * Callers are responsible for closing the returned connection.
+        * Returns the JDBC URL connections are opened against.
         *
-        * @return a new {@link Connection} to the configured database
-        * @throws SQLException if the underlying driver cannot establish a connection
+        * @return JDBC connection string
         */
-    public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url);
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+        * Leases the writer connection. Only one writer lease exists at a time, so a sequence of
+        * statements executed under one lease is not interleaved with other writes.
+        *
+        * @return lease to close when done
+        * @throws SQLException if the connection cannot be opened or the acquire timeout expires
+        */
+    public Lease acquireWriter() throws SQLException {
+        return writer.acquire();
+    }
+
+    /**
+        * Leases a read-only connection. Readers see the last committed state and never wait for
+        * an in-progress write.
+        *
+        * @return lease to close when done
+        * @throws SQLException if the connection cannot be opened or the acquire timeout expires
+        */
+    public Lease acquireReader() throws SQLException {
+        if (readers != writer && writer.created.get() == 0) {
+            // A read-only connection cannot create the database file, so the writer opens it first.
+            writer.acquire().close();
+        }
+        return readers.acquire();
+    }
+
+    /**
+        * Returns a snapshot of pool usage counters.
+        *
+        * @return current pool metrics
+        */
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(writer.metrics(), readers == writer ? null : readers.metrics());
+    }
+
+    /**
+        * Sets the {@code synchronous} level of the writer connection, by default {@code NORMAL}.
+        * The level is applied to the current writer connection and to any writer connection the
+        * pool opens later to replace it.
+        *
+        * @param level SQLite synchronous level, e.g. {@code FULL}
+        * @throws SQLException if the writer connection cannot be acquired or configured
+        */
+    void setWriterSynchronous(String level) throws SQLException {
+        writerSynchronous = level;
+        try (Lease lease = acquireWriter();
+             Statement statement = lease.getConnection().createStatement()) {
+            if (url.startsWith("jdbc:sqlite:")) {
+                statement.execute("PRAGMA synchronous=" + level);
+            }
+        }
+    }
+
+    /**
+        * Closes all idle connections. Leases still outstanding are closed when returned.
+        */
+    @Override
+    public void close() {
+        closed = true;
+        writer.closeIdle();
+        if (readers != writer) {
+            readers.closeIdle();
+        }
+    }
+
+    private Connection open(boolean readOnly) throws SQLException {
+        Properties properties = new Properties();
+        if (readOnly) {
+            // SQLITE_OPEN_READONLY
+            properties.setProperty("open_mode", "1");
+        }
+        Connection connection = DriverManager.getConnection(url, properties);
+        if (url.startsWith("jdbc:sqlite:")) {
+            try (Statement statement = connection.createStatement()) {
+                if (!readOnly) {
+                    statement.execute("PRAGMA journal_mode=WAL");
+                    statement.execute("PRAGMA synchronous=" + writerSynchronous);
+                }
+                statement.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MILLIS);
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * A leased pooled connection. Closing the lease returns the connection to the pool; the
+     * connection itself must not be closed by the caller.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final Pool pool;
+        private final StatementCache statements;
+        private boolean released;
+
+        private Lease(Pool pool, StatementCache statements) {
+            this.pool = pool;
+            this.statements = statements;
+        }
+
+        /**
+         * Returns the cached prepared statement for {@code sql} on this connection.
+         *
+         * @param sql statement text
+         * @return prepared statement with cleared parameters
+         * @throws SQLException if the statement cannot be prepared
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            return statements.get(sql);
+        }
+
+        /**
+         * Returns the underlying connection, e.g. for transaction control.
+         *
+         * @return pooled connection
+         */
+        public Connection getConnection() {
+            return statements.getConnection();
+        }
+
+        /**
+         * Returns the connection to the pool, rolling back any transaction left open.
+         */
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            pool.release(statements);
+        }
+    }
+
+    /**
+     * Point-in-time usage counters of the writer and reader pools.
+     */
+    public static final class PoolMetrics {
+        private final ConnectionMetrics writer;
+        private final ConnectionMetrics readers;
+
+        private PoolMetrics(ConnectionMetrics writer, ConnectionMetrics readers) {
+            this.writer = writer;
+            this.readers = readers;
+        }
+
+        /**
+         * Returns counters of the writer connection.
+         *
+         * @return writer metrics
+         */
+        public ConnectionMetrics getWriter() {
+            return writer;
+        }
+
+        /**
+         * Returns counters of the read-only connections, or {@code null} when reads share the writer.
+         *
+         * @return reader metrics
+         */
+        public ConnectionMetrics getReaders() {
+            return readers;
+        }
+    }
+
+    /**
+     * Usage counters of one group of pooled connections.
+     */
+    public static final class ConnectionMetrics {
+        private final int maxSize;
+        private final int created;
+        private final int inUse;
+        private final long acquired;
+        private final long timeouts;
+        private final double averageWaitMillis;
+        private final double maxWaitMillis;
+
+        private ConnectionMetrics(int maxSize, int created, int inUse, long acquired, long timeouts,
+                                  double averageWaitMillis, double maxWaitMillis) {
+            this.maxSize = maxSize;
+            this.created = created;
+            this.inUse = inUse;
+            this.acquired = acquired;
+            this.timeouts = timeouts;
+            this.averageWaitMillis = averageWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        /**
+         * Returns the maximum number of connections in this group.
+         *
+         * @return maximum connections
+         */
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * Returns how many connections are currently open, leased or idle.
+         *
+         * @return open connections
+         */
+        public int getCreated() {
+            return created;
+        }
+
+        /**
+         * Returns how many connections are currently leased.
+         *
+         * @return leased connections
+         */
+        public int getInUse() {
+            return inUse;
+        }
+
+        /**
+         * Returns the number of successful acquisitions.
+         *
+         * @return successful acquisitions
+         */
+        public long getAcquired() {
+            return acquired;
+        }
+
+        /**
+         * Returns the number of acquisitions that failed because the timeout expired.
+         *
+         * @return timed-out acquisitions
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /**
+         * Returns the mean time callers waited for a connection.
+         *
+         * @return average wait in milliseconds
+         */
+        public double getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        /**
+         * Returns the longest time a caller waited for a connection.
+         *
+         * @return maximum wait in milliseconds
+         */
+        public double getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+    }
+
+    private final class Pool {
+        private final String name;
+        private final int maxSize;
+        private final boolean readOnly;
+        private final Semaphore permits;
+        private final ConcurrentLinkedQueue<StatementCache> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger inUse = new AtomicInteger();
+        private final AtomicLong acquired = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        private Pool(String name, int maxSize, boolean readOnly) {
+            this.name = name;
+            this.maxSize = maxSize;
+            this.readOnly = readOnly;
+            this.permits = new Semaphore(maxSize, true);
+        }
+
+        private Lease acquire() throws SQLException {
+            if (closed) {
+                throw new SQLException("Data source is closed");
+            }
+            long start = System.nanoTime();
+            try {
+                if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    timeouts.incrementAndGet();
+                    throw new SQLTransientConnectionException(
+                            "Timed out after " + acquireTimeoutMillis + " ms waiting for a " + name + " connection");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted while waiting for a " + name + " connection", e);
+            }
+            long waited = System.nanoTime() - start;
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+            StatementCache statements = idle.poll();
+            if (statements == null) {
+                try {
+                    statements = new StatementCache(open(readOnly));
+                    created.incrementAndGet();
+                } catch (SQLException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+            acquired.incrementAndGet();
+            inUse.incrementAndGet();
+            return new Lease(this, statements);
+        }
+
+        private void release(StatementCache statements) {
+            inUse.decrementAndGet();
+            try {
+                Connection connection = statements.getConnection();
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                if (closed) {
+                    statements.close();
+                } else {
+                    idle.offer(statements);
+                }
+            } catch (SQLException e) {
+                // Drop a connection that cannot be reset; a new one is opened on demand.
+                created.decrementAndGet();
+                try {
+                    statements.close();
+                } catch (SQLException ignored) {
+                    // already unusable
+                }
+            } finally {
+                permits.release();
+            }
+        }
+
+        private void closeIdle() {
+            StatementCache statements;
+            while ((statements = idle.poll()) != null) {
+                try {
+                    statements.close();
+                } catch (SQLException ignored) {
+                    // closing on shutdown
+                }
+            }
+        }
+
+        private ConnectionMetrics metrics() {
+            long count = acquired.get();
+            double averageWait = count == 0 ? 0 : totalWaitNanos.get() / (double) count / 1_000_000.0;
+            return new ConnectionMetrics(maxSize, created.get(), inUse.get(), count, timeouts.get(),
+                    averageWait, maxWaitNanos.get() / 1_000_000.0);
+        }
     }
 }
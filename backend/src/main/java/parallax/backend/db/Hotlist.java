@@ -0,0 +1,117 @@
+package parallax.backend.db;
+
+import parallax.backend.model.BlacklistUpdate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Normalized arguments of {@link VehicleRepository#updateBlacklist(Collection, Collection, boolean)},
+ * shared by the repository implementations.
+ */
+final class Hotlist {
+    private final Map<String, Boolean> targets;
+    private final boolean replace;
+
+    private Hotlist(Map<String, Boolean> targets, boolean replace) {
+        this.targets = targets;
+        this.replace = replace;
+    }
+
+    /**
+     * Normalizes the requested plates; a plate listed in both collections is blacklisted.
+     *
+     * @param blacklisted plates to blacklist
+     * @param cleared     plates to clear, ignored with {@code replace}
+     * @param replace     whether {@code blacklisted} is the complete blacklist
+     * @return normalized hotlist
+     */
+    static Hotlist of(Collection<String> blacklisted, Collection<String> cleared, boolean replace) {
+        Map<String, Boolean> targets = new HashMap<>();
+        if (!replace && cleared != null) {
+            for (String plate : cleared) {
+                String normalized = normalize(plate);
+                if (normalized != null) {
+                    targets.put(normalized, false);
+                }
+            }
+        }
+        if (blacklisted != null) {
+            for (String plate : blacklisted) {
+                String normalized = normalize(plate);
+                if (normalized != null) {
+                    targets.put(normalized, true);
+                }
+            }
+        }
+        return new Hotlist(targets, replace);
+    }
+
+    /**
+     * Returns the requested state per plate.
+     *
+     * @return normalized plate to requested blacklist state
+     */
+    Map<String, Boolean> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Indicates whether plates missing from {@link #getTargets()} are cleared.
+     *
+     * @return {@code true} for a full replacement
+     */
+    boolean isReplace() {
+        return replace;
+    }
+
+    /**
+     * Returns the state a vehicle with the given plate should have after the update.
+     *
+     * @param plate normalized plate
+     * @return requested state, or {@code null} when the plate is not affected
+     */
+    Boolean targetFor(String plate) {
+        Boolean target = targets.get(plate);
+        return target != null || !replace ? target : Boolean.FALSE;
+    }
+
+    /**
+     * Summarizes an applied update.
+     *
+     * @param logId   change log identifier
+     * @param version change log version the changes were recorded under
+     * @param changes new state per plate whose plate-level state changed
+     * @param matched requested plates that at least one vehicle is registered under
+     * @return outcome reported to the caller
+     */
+    BlacklistUpdate summarize(String logId, long version, Map<String, Boolean> changes, Set<String> matched) {
+        int listed = 0;
+        for (boolean blacklisted : changes.values()) {
+            if (blacklisted) {
+                listed++;
+            }
+        }
+        List<String> unmatched = new ArrayList<>();
+        for (String plate : targets.keySet()) {
+            if (!matched.contains(plate)) {
+                unmatched.add(plate);
+            }
+        }
+        Collections.sort(unmatched);
+        return new BlacklistUpdate(logId, version, listed, changes.size() - listed, unmatched);
+    }
+
+    private static String normalize(String plate) {
+        if (plate == null || plate.isBlank()) {
+            return null;
+        }
+        return plate.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -6,27 +6,44 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
  * In-memory implementation of {@link UserRepository} for demos and tests.
  * <p>
- * User data is held in a concurrent map and therefore reset on every server restart. The class
- * also seeds a demo account for quick manual testing. This implementation will be replaced by a
- * SQLite-backed repository when persistence is introduced.
+ * User data is held in memory and therefore reset on every server restart. Users are keyed by
+ * their numeric id, with a lowercase email index on the side, so a contact change only moves one
+ * index entry. Lookups do not lock; mutations are serialized on the repository. The class also
+ * seeds a demo account for quick manual testing.
  * </p>
  */
 public class InMemoryUserRepository implements UserRepository {
-    // TODO: replace in-memory map with real SQLite queries using DataSource
-    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final LongMap<User> users = new LongMap<>();
+    private final Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
 
     /**
      * Creates the repository with a pre-seeded demo user to simplify local testing.
      */
     public InMemoryUserRepository() {
-        // TODO: replace in-memory map with real SQLite queries using DataSource
-        User demo = new User("demo@parallax.test", "demo@parallax.test", "Demo User", "DemoPass123");
-        users.put(demo.getUsername().toLowerCase(Locale.ROOT), demo);
+        createUser(new User("demo@parallax.test", "demo@parallax.test", "Demo User", "DemoPass123"));
+    }
+
+    /**
+     * Gives a user that is about to be created the id {@link #createUser(User)} would assign, so
+     * wrappers can record it before the user reaches this repository: the id of the stored user
+     * with the same email, or a new one. Users that already carry an id are left unchanged.
+     *
+     * @param user user to be created
+     * @return id of the user
+     */
+    long assignId(User user) {
+        if (user.getId() <= 0) {
+            Long existingId = idsByEmail.get(normalizeEmail(user));
+            user.setId(existingId != null ? existingId : lastId.incrementAndGet());
+        }
+        return user.getId();
     }
 
     @Override
@@ -34,9 +51,7 @@ public class InMemoryUserRepository implements UserRepository {
         if (identifier == null || password == null) {
             return Optional.empty();
         }
-        // TODO: replace in-memory map with real SQLite queries using DataSource
-        String key = identifier.toLowerCase(Locale.ROOT);
-        User user = users.get(key);
+        User user = lookup(identifier);
         if (user != null && password.equals(user.getPassword())) {
             return Optional.of(user);
         }
@@ -66,8 +81,15 @@ public class InMemoryUserRepository implements UserRepository {
         if (email == null) {
             return Optional.empty();
         }
-        // TODO: replace with SQLite query filtering by email
-        return Optional.ofNullable(users.get(email.toLowerCase(Locale.ROOT)));
+        return Optional.ofNullable(lookup(email));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<User> findById(long id) {
+        return Optional.ofNullable(users.get(id));
     }
 
     /**
@@ -81,7 +103,6 @@ public class InMemoryUserRepository implements UserRepository {
         if (phoneCountry == null || phoneDigits == null) {
             return Optional.empty();
         }
-        // TODO: replace with SQLite query filtering by phone
         String signature = (phoneCountry + phoneDigits).replaceAll("\\D", "");
         return users.values().stream()
                 .filter(u -> u.getPhoneCountry() != null && u.getPhone() != null)
@@ -92,47 +113,50 @@ public class InMemoryUserRepository implements UserRepository {
     /**
      * {@inheritDoc}
      * <p>
-     * This implementation performs an insert-or-replace into the in-memory map using a
-     * lowercased email/username as the key. Email and username are normalized to lowercase.
+     * This implementation performs an insert-or-replace keyed by the lowercased email/username.
+     * Email and username are normalized to lowercase. An id set on {@code user} is kept, which lets
+     * restored users retain theirs.
      * </p>
      */
     @Override
-    public User createUser(User user) {
+    public synchronized User createUser(User user) {
         if (user == null || user.getUsername() == null) {
             throw new IllegalArgumentException("User and username must not be null");
         }
 
         // Normalize email/username to lowercase, test期望这里是全小写形式
-        String normalizedEmail;
-        if (user.getEmail() != null && !user.getEmail().isBlank()) {
-            normalizedEmail = user.getEmail().trim().toLowerCase(Locale.ROOT);
-        } else {
-            normalizedEmail = user.getUsername().trim().toLowerCase(Locale.ROOT);
-        }
-
+        String normalizedEmail = normalizeEmail(user);
         user.setUsername(normalizedEmail);
         user.setEmail(normalizedEmail);
 
-        // TODO: replace with INSERT statement against SQLite
-        users.put(normalizedEmail, user);
+        Long existingId = idsByEmail.get(normalizedEmail);
+        assignId(user);
+        lastId.accumulateAndGet(user.getId(), Math::max);
+        if (existingId != null && existingId != user.getId()) {
+            users.remove(existingId);
+        }
+        User replaced = users.put(user.getId(), user);
+        if (replaced != null && !replaced.getUsername().equals(normalizedEmail)) {
+            idsByEmail.remove(replaced.getUsername(), user.getId());
+        }
+        idsByEmail.put(normalizedEmail, user.getId());
         return user;
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * Updating contact details may change the map key; when the username changes the associated
-     * entry is reinserted under the new normalized email.
+     * The user keeps its id; when the username changes only the email index entry moves.
      * </p>
      */
     @Override
-    public Optional<User> updateContact(String username, String newEmail, String phoneCountry, String phone) {
+    public synchronized Optional<User> updateContact(String username, String newEmail, String phoneCountry, String phone) {
         if (username == null || newEmail == null) {
             return Optional.empty();
         }
 
         String key = username.toLowerCase(Locale.ROOT);
-        User existing = users.get(key);
+        User existing = lookup(key);
         if (existing == null) {
             return Optional.empty();
         }
@@ -144,8 +168,8 @@ public class InMemoryUserRepository implements UserRepository {
         existing.setPhone(phone);
 
         if (!newKey.equals(key)) {
-            users.remove(key);
-            users.put(newKey, existing);
+            idsByEmail.put(newKey, existing.getId());
+            idsByEmail.remove(key);
         }
 
         return Optional.of(existing);
@@ -162,7 +186,7 @@ public class InMemoryUserRepository implements UserRepository {
         if (username == null || newPassword == null) {
             return Optional.empty();
         }
-        User existing = users.get(username.toLowerCase(Locale.ROOT));
+        User existing = lookup(username);
         if (existing == null) {
             return Optional.empty();
         }
@@ -177,11 +201,12 @@ public class InMemoryUserRepository implements UserRepository {
      * </p>
      */
     @Override
-    public boolean deleteUser(String username) {
+    public synchronized boolean deleteUser(String username) {
         if (username == null) {
             return false;
         }
-        return users.remove(username.toLowerCase(Locale.ROOT)) != null;
+        Long id = idsByEmail.remove(username.toLowerCase(Locale.ROOT));
+        return id != null && users.remove(id) != null;
     }
 
     /**
@@ -193,4 +218,16 @@ public class InMemoryUserRepository implements UserRepository {
         return users.values().stream()
                 .collect(Collectors.toUnmodifiableMap(User::getUsername, u -> u));
     }
+
+    private static String normalizeEmail(User user) {
+        if (user.getEmail() != null && !user.getEmail().isBlank()) {
+            return user.getEmail().trim().toLowerCase(Locale.ROOT);
+        }
+        return user.getUsername().trim().toLowerCase(Locale.ROOT);
+    }
+
+    private User lookup(String email) {
+        Long id = idsByEmail.get(email.toLowerCase(Locale.ROOT));
+        return id != null ? users.get(id) : null;
+    }
 }
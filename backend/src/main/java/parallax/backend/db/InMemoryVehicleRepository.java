@@ -1,28 +1,103 @@
 package parallax.backend.db;
 
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.BlacklistUpdate;
 import parallax.backend.model.User;
 import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
 import parallax.backend.model.VehicleWithOwner;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * In-memory implementation of {@link VehicleRepository} for local development and testing.
  * <p>
- * Vehicle data is stored per user in synchronized lists held in memory, so all registrations and
- * blacklist flags are cleared when the server restarts. A persistent SQLite-backed repository will
- * replace this class once available.
+ * Vehicle data is stored per user in memory, so all registrations and blacklist flags are cleared
+ * when the server restarts. Plate-level blacklist changes are recorded in a
+ * {@link BlacklistChangeLog} for delta synchronization.
+ * </p>
+ * <p>
+ * Owners are keyed by a numeric owner id, with a lowercase username index on the side. Renaming
+ * an owner through {@link #reassignVehicles(String, String)} keeps the id and moves one index
+ * entry instead of re-filing the owner's vehicles under a new key.
+ * </p>
+ * <p>
+ * Each owner's vehicles are kept as a chain of immutable list versions. Writers are serialized by
+ * a single lock, replace the lists they change instead of modifying them, and then publish the
+ * commit as the new committed version, so a multi-owner change such as
+ * {@link #updateBlacklist(Collection, Collection, boolean)} becomes visible as one step.
+ * Point lookups read the newest list of each owner without locking. Long-running readers open a
+ * {@link Snapshot}, which sees the repository exactly as of one committed version for as long as
+ * it stays open, without blocking writers. Superseded list versions are dropped once no open
+ * snapshot can see them.
+ * </p>
+ * <p>
+ * Vehicles are stored as {@link CompactVehicle} records, with make and model encoded through a
+ * shared {@link StringDictionary}, and decoded into new {@link Vehicle} instances only when they
+ * are returned. The owner's username is kept once per owner list rather than once per vehicle.
+ * </p>
+ * <p>
+ * Writers also mirror the current state of every vehicle into a {@link ColumnarVehicleStore}.
+ * {@link #getStatistics()} and the hotlist matching in
+ * {@link #updateBlacklist(Collection, Collection, boolean)} scan its columns in parallel instead of
+ * walking every owner list.
  * </p>
  */
 public class InMemoryVehicleRepository implements VehicleRepository {
-    // TODO: replace in-memory map with real SQLite queries using DataSource
-    private final Map<String, List<Vehicle>> vehiclesByUser = new ConcurrentHashMap<>();
+    /**
+     * Order in which duplicate registrations of a plate are resolved: earliest creation time first,
+     * then owner username. Both survive a journal snapshot, unlike owner ids and list positions
+     * across owners, so a recovered repository and a {@link MappedVehicleSnapshot} written in this
+     * order pick the same vehicle.
+     */
+    static final Comparator<Vehicle> REGISTRATION_ORDER =
+            (a, b) -> compareRegistration(a.getCreatedAt(), a.getUsername(), b.getCreatedAt(), b.getUsername());
+
+    private final LongMap<Bucket> vehiclesByOwner = new LongMap<>();
+    private final Map<String, Long> ownerIds = new ConcurrentHashMap<>();
+    private final BlacklistChangeLog blacklistLog;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final TreeMap<Long, Integer> openSnapshots = new TreeMap<>();
+    private final ArrayDeque<Bucket> emptiedOwners = new ArrayDeque<>();
+    private final StringDictionary dictionary = new StringDictionary();
+    private final ColumnarVehicleStore columns = new ColumnarVehicleStore(dictionary);
+    private long lastOwnerId;
+    private volatile long committedVersion;
+
+    /**
+     * Creates an empty repository with a default-sized blacklist change log.
+     */
+    public InMemoryVehicleRepository() {
+        this(new BlacklistChangeLog());
+    }
+
+    /**
+     * Creates an empty repository recording blacklist changes into the given log.
+     *
+     * @param blacklistLog change log used for blacklist delta synchronization
+     */
+    public InMemoryVehicleRepository(BlacklistChangeLog blacklistLog) {
+        this.blacklistLog = blacklistLog;
+    }
 
     private String normalizeLicense(String licenseNumber) {
         if (licenseNumber == null) {
@@ -34,8 +109,9 @@ public class InMemoryVehicleRepository implements VehicleRepository {
     /**
      * {@inheritDoc}
      * <p>
-     * Vehicles are moved between user buckets, and the username field on each vehicle is updated
-     * to reflect the new owner.
+     * When the new owner has no vehicles, the old owner is renamed: it keeps its owner id and its
+     * records, and only the username index entry moves. Otherwise the records are merged into the
+     * existing owner. Either way the change is one commit.
      * </p>
      */
     @Override
@@ -47,15 +123,38 @@ public class InMemoryVehicleRepository implements VehicleRepository {
         String oldKey = oldUsername.toLowerCase(Locale.ROOT);
         String newKey = newUsername.toLowerCase(Locale.ROOT);
 
-        List<Vehicle> existing = vehiclesByUser.remove(oldKey);
-        if (existing == null || existing.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        existing.forEach(vehicle -> vehicle.setUsername(newUsername));
-        vehiclesByUser.computeIfAbsent(newKey, k -> Collections.synchronizedList(new ArrayList<>()))
-                .addAll(existing);
-        return new ArrayList<>(existing);
+        return write(commit -> {
+            Bucket source = bucket(oldKey);
+            if (source == null || source.head.vehicles.isEmpty()) {
+                return Collections.<Vehicle>emptyList();
+            }
+            Bucket target = oldKey.equals(newKey) ? source : bucket(newKey);
+            if (target != null && target != source && target.head.vehicles.isEmpty()) {
+                target = null;
+            }
+            List<CompactVehicle> moved = source.head.vehicles;
+            if (target == source) {
+                commit.put(source, newUsername, moved);
+            } else if (target == null) {
+                commit.put(source, newUsername, moved);
+                ownerIds.put(newKey, source.ownerId);
+                ownerIds.remove(oldKey, source.ownerId);
+                target = source;
+            } else {
+                List<CompactVehicle> merged = new ArrayList<>(target.head.vehicles);
+                merged.addAll(moved);
+                for (CompactVehicle record : moved) {
+                    columns.setOwnerId(record.getRow(), target.ownerId);
+                }
+                commit.put(source, source.head.owner, Collections.emptyList());
+                commit.put(target, target.head.owner, merged);
+            }
+            List<Vehicle> result = new ArrayList<>(moved.size());
+            for (CompactVehicle record : moved) {
+                result.add(record.toVehicle(dictionary, target.ownerId, newUsername));
+            }
+            return result;
+        });
     }
 
     /**
@@ -66,8 +165,8 @@ public class InMemoryVehicleRepository implements VehicleRepository {
         if (username == null) {
             return Collections.emptyList();
         }
-        // TODO: replace with SELECT query filtered by username
-        return new ArrayList<>(vehiclesByUser.getOrDefault(username.toLowerCase(Locale.ROOT), Collections.emptyList()));
+        Bucket bucket = bucket(username.toLowerCase(Locale.ROOT));
+        return bucket == null ? new ArrayList<>() : decode(bucket, bucket.head);
     }
 
     /**
@@ -79,11 +178,17 @@ public class InMemoryVehicleRepository implements VehicleRepository {
         if (username == null || normalizedLicense == null) {
             return Optional.empty();
         }
-        // TODO: replace with SELECT query filtered by username + license
-        return vehiclesByUser.getOrDefault(username.toLowerCase(Locale.ROOT), Collections.emptyList())
-                .stream()
-                .filter(v -> normalizedLicense.equals(normalizeLicense(v.getLicenseNumber())))
-                .findFirst();
+        Bucket bucket = bucket(username.toLowerCase(Locale.ROOT));
+        if (bucket == null) {
+            return Optional.empty();
+        }
+        ListVersion list = bucket.head;
+        for (CompactVehicle record : list.vehicles) {
+            if (normalizedLicense.equals(record.getLicenseNumber())) {
+                return Optional.of(record.toVehicle(dictionary, bucket.ownerId, list.owner));
+            }
+        }
+        return Optional.empty();
     }
 
     /**
@@ -96,6 +201,10 @@ public class InMemoryVehicleRepository implements VehicleRepository {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * When a plate is registered more than once, the earliest registration wins, as defined by
+     * {@link #REGISTRATION_ORDER} and, within one owner, by position in the owner's list.
+     * </p>
      */
     @Override
     public Optional<Vehicle> findByPlate(String licenseNumber) {
@@ -103,17 +212,95 @@ public class InMemoryVehicleRepository implements VehicleRepository {
         if (normalizedLicense == null) {
             return Optional.empty();
         }
-        return vehiclesByUser.values().stream()
-                .flatMap(List::stream)
-                .filter(v -> normalizedLicense.equals(normalizeLicense(v.getLicenseNumber())))
-                .findFirst();
+        Vehicle match = null;
+        for (Bucket bucket : vehiclesByOwner.values()) {
+            ListVersion list = bucket.head;
+            for (CompactVehicle record : list.vehicles) {
+                if (normalizedLicense.equals(record.getLicenseNumber())
+                        && (match == null || registeredBefore(record, list.owner, match))) {
+                    match = record.toVehicle(dictionary, bucket.ownerId, list.owner);
+                }
+            }
+        }
+        return Optional.ofNullable(match);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All requested plates are resolved during a single pass over the user buckets. Duplicate
+     * registrations are resolved as in {@link #findByPlate(String)}.
+     * </p>
+     */
+    @Override
+    public Map<String, Vehicle> findByPlates(Collection<String> licenseNumbers) {
+        if (licenseNumbers == null || licenseNumbers.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Set<String> wanted = new HashSet<>();
+        for (String licenseNumber : licenseNumbers) {
+            String normalizedLicense = normalizeLicense(licenseNumber);
+            if (normalizedLicense != null) {
+                wanted.add(normalizedLicense);
+            }
+        }
+
+        Map<String, Vehicle> matches = new HashMap<>();
+        for (Bucket bucket : vehiclesByOwner.values()) {
+            ListVersion list = bucket.head;
+            for (CompactVehicle record : list.vehicles) {
+                String plate = record.getLicenseNumber();
+                if (plate == null || !wanted.contains(plate)) {
+                    continue;
+                }
+                Vehicle match = matches.get(plate);
+                if (match == null || registeredBefore(record, list.owner, match)) {
+                    matches.put(plate, record.toVehicle(dictionary, bucket.ownerId, list.owner));
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static boolean registeredBefore(CompactVehicle record, String owner, Vehicle match) {
+        return compareRegistration(record.getCreatedAt(), owner, match.getCreatedAt(), match.getUsername()) < 0;
+    }
+
+    private static int compareRegistration(String createdAt, String owner, String otherCreatedAt, String otherOwner) {
+        Instant time = parseCreatedAt(createdAt);
+        Instant otherTime = parseCreatedAt(otherCreatedAt);
+        if (time != null || otherTime != null) {
+            if (time == null) {
+                return 1;
+            }
+            if (otherTime == null) {
+                return -1;
+            }
+            int byTime = time.compareTo(otherTime);
+            if (byTime != 0) {
+                return byTime;
+            }
+        }
+        return String.CASE_INSENSITIVE_ORDER.compare(owner == null ? "" : owner, otherOwner == null ? "" : otherOwner);
+    }
+
+    private static Instant parseCreatedAt(String createdAt) {
+        if (createdAt == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(createdAt);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
     }
 
     /**
      * {@inheritDoc}
      * <p>
      * Vehicles are appended to the owner's list without further validation; callers should perform
-     * uniqueness checks before adding.
+     * uniqueness checks before adding. The vehicle is stored as a {@link CompactVehicle}; the
+     * instance passed in only has its plate normalized and its owner id set.
      * </p>
      */
     @Override
@@ -121,16 +308,46 @@ public class InMemoryVehicleRepository implements VehicleRepository {
         if (vehicle == null || vehicle.getUsername() == null) {
             throw new IllegalArgumentException("Vehicle and username must not be null");
         }
+        addVehicles(Collections.singletonList(vehicle));
+    }
 
-        // 关键修改：写入前规范化车牌为大写，保证后面读出来也是 ABC123 这种形式
-        String normalizedLicense = normalizeLicense(vehicle.getLicenseNumber());
-        vehicle.setLicenseNumber(normalizedLicense);
-
-        // TODO: replace with INSERT against SQLite
-        String key = vehicle.getUsername().toLowerCase(Locale.ROOT);
-        vehiclesByUser
-                .computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>()))
-                .add(vehicle);
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All vehicles become visible in one commit. Vehicles of an existing owner are listed under
+     * the owner's username as first registered.
+     * </p>
+     */
+    @Override
+    public void addVehicles(Collection<Vehicle> vehicles) {
+        for (Vehicle vehicle : vehicles) {
+            if (vehicle == null || vehicle.getUsername() == null) {
+                throw new IllegalArgumentException("Vehicle and username must not be null");
+            }
+            // 关键修改：写入前规范化车牌为大写，保证后面读出来也是 ABC123 这种形式
+            vehicle.setLicenseNumber(normalizeLicense(vehicle.getLicenseNumber()));
+        }
+        if (vehicles.isEmpty()) {
+            return;
+        }
+        write(commit -> {
+            Map<Bucket, List<CompactVehicle>> changed = new HashMap<>();
+            Map<Bucket, String> owners = new HashMap<>();
+            for (Vehicle vehicle : vehicles) {
+                Bucket bucket = bucketForWrite(vehicle.getUsername());
+                vehicle.setOwnerId(bucket.ownerId);
+                owners.computeIfAbsent(bucket, key -> key.head.vehicles.isEmpty() ? vehicle.getUsername() : key.head.owner);
+                changed.computeIfAbsent(bucket, key -> new ArrayList<>(key.head.vehicles))
+                        .add(CompactVehicle.of(vehicle, dictionary, columns.append(vehicle)));
+            }
+            changed.forEach((bucket, owned) -> commit.put(bucket, owners.get(bucket), owned));
+            for (Vehicle vehicle : vehicles) {
+                if (vehicle.isBlacklisted() && vehicle.getLicenseNumber() != null) {
+                    blacklistLog.record(vehicle.getLicenseNumber(), true);
+                }
+            }
+            return null;
+        });
     }
 
     /**
@@ -142,12 +359,14 @@ public class InMemoryVehicleRepository implements VehicleRepository {
         if (username == null || normalizedLicense == null) {
             return;
         }
-        // TODO: replace with DELETE against SQLite
-        List<Vehicle> list = vehiclesByUser.get(username.toLowerCase(Locale.ROOT));
-        if (list == null) {
-            return;
-        }
-        list.removeIf(v -> normalizedLicense.equals(normalizeLicense(v.getLicenseNumber())));
+        String key = username.toLowerCase(Locale.ROOT);
+        write(commit -> {
+            Bucket bucket = bucket(key);
+            if (bucket != null) {
+                recordRemovals(removeMatching(commit, bucket, normalizedLicense));
+            }
+            return null;
+        });
     }
 
     /**
@@ -158,7 +377,16 @@ public class InMemoryVehicleRepository implements VehicleRepository {
         if (username == null) {
             return;
         }
-        vehiclesByUser.remove(username.toLowerCase(Locale.ROOT));
+        String key = username.toLowerCase(Locale.ROOT);
+        write(commit -> {
+            Bucket bucket = bucket(key);
+            if (bucket != null && !bucket.head.vehicles.isEmpty()) {
+                List<CompactVehicle> removed = bucket.head.vehicles;
+                commit.put(bucket, bucket.head.owner, Collections.emptyList());
+                recordRemovals(removed);
+            }
+            return null;
+        });
     }
 
     /**
@@ -173,35 +401,183 @@ public class InMemoryVehicleRepository implements VehicleRepository {
         if (normalizedLicense == null) {
             return false;
         }
-        boolean removed = false;
-        for (List<Vehicle> vehicles : vehiclesByUser.values()) {
-            removed |= vehicles.removeIf(v -> normalizedLicense.equals(normalizeLicense(v.getLicenseNumber())));
-        }
-        return removed;
+        return write(commit -> {
+            List<CompactVehicle> removed = new ArrayList<>();
+            for (Bucket bucket : vehiclesByOwner.values()) {
+                removed.addAll(removeMatching(commit, bucket, normalizedLicense));
+            }
+            recordRemovals(removed);
+            return !removed.isEmpty();
+        });
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * Blacklist status is stored directly on the vehicle record within the in-memory map.
+     * The registration that {@link #findByPlate(String)} returns, the earliest by
+     * {@link #REGISTRATION_ORDER}, is replaced by an updated record, which is returned. Only actual
+     * changes are recorded in the blacklist change log.
      * </p>
      */
     @Override
     public Optional<Vehicle> updateBlacklistStatus(String licenseNumber, boolean blacklisted) {
-        Optional<Vehicle> match = findByLicense(licenseNumber);
-        match.ifPresent(vehicle -> vehicle.setBlacklisted(blacklisted));
-        return match;
+        String normalizedLicense = normalizeLicense(licenseNumber);
+        if (normalizedLicense == null) {
+            return Optional.empty();
+        }
+        return write(commit -> {
+            Bucket target = null;
+            ListVersion targetList = null;
+            int targetIndex = -1;
+            for (Bucket bucket : vehiclesByOwner.values()) {
+                ListVersion list = bucket.head;
+                List<CompactVehicle> vehicles = list.vehicles;
+                for (int i = 0; i < vehicles.size(); i++) {
+                    CompactVehicle record = vehicles.get(i);
+                    if (normalizedLicense.equals(record.getLicenseNumber())
+                            && (target == null || compareRegistration(record.getCreatedAt(), list.owner,
+                            targetList.vehicles.get(targetIndex).getCreatedAt(), targetList.owner) < 0)) {
+                        target = bucket;
+                        targetList = list;
+                        targetIndex = i;
+                    }
+                }
+            }
+            if (target == null) {
+                return Optional.<Vehicle>empty();
+            }
+            CompactVehicle record = targetList.vehicles.get(targetIndex);
+            CompactVehicle updated = record.withBlacklisted(blacklisted);
+            if (updated != record) {
+                List<CompactVehicle> replaced = new ArrayList<>(targetList.vehicles);
+                replaced.set(targetIndex, updated);
+                commit.put(target, targetList.owner, replaced);
+                columns.setBlacklisted(updated.getRow(), blacklisted);
+                blacklistLog.record(normalizedLicense, isPlateBlacklisted(normalizedLicense));
+            }
+            return Optional.of(updated.toVehicle(dictionary, target.ownerId, targetList.owner));
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A parallel scan of the plate and flag columns finds the owners holding a listed plate or, for
+     * a full replacement, a blacklisted vehicle. Only those owners' lists are updated, and they are
+     * published as one commit, which the change log records as one version.
+     * </p>
+     */
+    @Override
+    public BlacklistUpdate updateBlacklist(Collection<String> blacklisted, Collection<String> cleared, boolean replace) {
+        Hotlist hotlist = Hotlist.of(blacklisted, cleared, replace);
+        return write(commit -> {
+            Set<Long> owners = new HashSet<>();
+            for (int row : columns.matchPlates(hotlist.getTargets().keySet(), hotlist.isReplace())) {
+                owners.add(columns.getOwnerId(row));
+            }
+            Map<String, Boolean> before = new HashMap<>();
+            Set<String> matched = new HashSet<>();
+            for (long ownerId : owners) {
+                Bucket bucket = vehiclesByOwner.get(ownerId);
+                List<CompactVehicle> vehicles = bucket.head.vehicles;
+                List<CompactVehicle> replaced = null;
+                for (int i = 0; i < vehicles.size(); i++) {
+                    CompactVehicle record = vehicles.get(i);
+                    String plate = record.getLicenseNumber();
+                    Boolean target = plate == null ? null : hotlist.targetFor(plate);
+                    if (target == null) {
+                        continue;
+                    }
+                    if (hotlist.getTargets().containsKey(plate)) {
+                        matched.add(plate);
+                    }
+                    before.merge(plate, record.isBlacklisted(), Boolean::logicalOr);
+                    if (record.isBlacklisted() != target) {
+                        if (replaced == null) {
+                            replaced = new ArrayList<>(vehicles);
+                        }
+                        replaced.set(i, record.withBlacklisted(target));
+                        columns.setBlacklisted(record.getRow(), target);
+                    }
+                }
+                if (replaced != null) {
+                    commit.put(bucket, bucket.head.owner, replaced);
+                }
+            }
+            Map<String, Boolean> changes = new HashMap<>();
+            before.forEach((plate, wasBlacklisted) -> {
+                boolean blacklistedNow = hotlist.targetFor(plate);
+                if (wasBlacklisted != blacklistedNow) {
+                    changes.put(plate, blacklistedNow);
+                }
+            });
+            long version = blacklistLog.recordAll(changes);
+            return hotlist.summarize(blacklistLog.getLogId(), version, changes, matched);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The log version is read before the snapshot is taken, so a concurrent change may already be
+     * contained in the snapshot and be delivered again by the next delta; applying it twice is
+     * harmless.
+     * </p>
+     */
+    @Override
+    public BlacklistSync getBlacklistChanges(String logId, long sinceVersion) {
+        BlacklistSync delta = blacklistLog.deltaSince(logId, sinceVersion);
+        if (delta != null) {
+            return delta;
+        }
+        long version = blacklistLog.currentVersion();
+        Set<String> plates = new TreeSet<>();
+        try (Snapshot snapshot = snapshot()) {
+            snapshot.forEachRecord(record -> {
+                if (record.isBlacklisted() && record.getLicenseNumber() != null) {
+                    plates.add(record.getLicenseNumber());
+                }
+            });
+        }
+        return BlacklistSync.snapshot(blacklistLog.getLogId(), version, new ArrayList<>(plates));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Counted by a parallel scan of the column store, which reflects the latest commits; a
+     * statistics call running alongside a writer may count a vehicle being changed in either state.
+     * </p>
+     */
+    @Override
+    public VehicleStats getStatistics() {
+        return columns.statistics();
+    }
+
+    /**
+     * Opens a consistent read view of the repository as of the latest committed version. The view
+     * does not change while writers continue, and keeps the list versions it needs alive until it
+     * is closed.
+     *
+     * @return snapshot to close when done
+     */
+    public Snapshot snapshot() {
+        synchronized (openSnapshots) {
+            long version = committedVersion;
+            openSnapshots.merge(version, 1, Integer::sum);
+            return new Snapshot(version);
+        }
     }
 
     /**
-     * Returns a flat copy of all vehicles held in memory.
+     * Returns a flat copy of all vehicles held in memory, as of one committed version.
      *
      * @return list of every vehicle across all users
      */
     public List<Vehicle> findAll() {
-        return vehiclesByUser.values().stream()
-                .flatMap(List::stream)
-                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        try (Snapshot snapshot = snapshot()) {
+            return snapshot.findAll();
+        }
     }
 
     /**
@@ -210,29 +586,355 @@ public class InMemoryVehicleRepository implements VehicleRepository {
     @Override
     public List<VehicleWithOwner> findAllWithOwners(UserRepository userRepository) {
         List<VehicleWithOwner> results = new ArrayList<>();
-        for (Vehicle vehicle : findAll()) {
-            VehicleWithOwner enriched = new VehicleWithOwner();
-            enriched.setUsername(vehicle.getUsername());
-            enriched.setLicenseNumber(vehicle.getLicenseNumber());
-            enriched.setMake(vehicle.getMake());
-            enriched.setModel(vehicle.getModel());
-            enriched.setYear(vehicle.getYear());
-            enriched.setBlacklisted(vehicle.isBlacklisted());
-            enriched.setCreatedAt(vehicle.getCreatedAt());
-
-            String ownerKey = vehicle.getUsername();
-            if (ownerKey != null) {
-                userRepository.findByEmail(ownerKey).ifPresent((User user) -> {
-                    enriched.setOwnerUsername(user.getUsername());
-                    enriched.setOwnerEmail(user.getEmail());
-                    enriched.setOwnerPhone(user.getPhoneCountry() != null
-                            ? user.getPhoneCountry() + (user.getPhone() == null ? "" : user.getPhone())
-                            : user.getPhone());
-                    enriched.setOwnerPhoneCountry(user.getPhoneCountry());
-                });
-            }
-            results.add(enriched);
-        }
+        forEachWithOwner(userRepository, results::add);
         return results;
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Iterates a {@link Snapshot}, so the vehicles passed to {@code action} reflect one committed
+     * version however long the iteration takes, while writers proceed concurrently.
+     * </p>
+     */
+    @Override
+    public void forEachWithOwner(UserRepository userRepository, Consumer<? super VehicleWithOwner> action) {
+        try (Snapshot snapshot = snapshot()) {
+            snapshot.forEach(vehicle -> {
+                VehicleWithOwner enriched = new VehicleWithOwner();
+                enriched.setUsername(vehicle.getUsername());
+                enriched.setLicenseNumber(vehicle.getLicenseNumber());
+                enriched.setMake(vehicle.getMake());
+                enriched.setModel(vehicle.getModel());
+                enriched.setYear(vehicle.getYear());
+                enriched.setBlacklisted(vehicle.isBlacklisted());
+                enriched.setCreatedAt(vehicle.getCreatedAt());
+
+                String ownerKey = vehicle.getUsername();
+                if (ownerKey != null) {
+                    userRepository.findByEmail(ownerKey).ifPresent((User user) -> {
+                        enriched.setOwnerUsername(user.getUsername());
+                        enriched.setOwnerEmail(user.getEmail());
+                        enriched.setOwnerPhone(user.getPhoneCountry() != null
+                                ? user.getPhoneCountry() + (user.getPhone() == null ? "" : user.getPhone())
+                                : user.getPhone());
+                        enriched.setOwnerPhoneCountry(user.getPhoneCountry());
+                    });
+                }
+                action.accept(enriched);
+            });
+        }
+    }
+
+    /**
+     * Runs one change under the write lock and publishes it as the next committed version.
+     */
+    private <T> T write(Function<Commit, T> change) {
+        writeLock.lock();
+        try {
+            Commit commit = new Commit(committedVersion + 1, oldestVisibleVersion());
+            T result = change.apply(commit);
+            if (commit.changed) {
+                committedVersion = commit.version;
+                dropEmptiedOwners();
+            }
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the oldest version an open or future snapshot can read.
+     */
+    private long oldestVisibleVersion() {
+        synchronized (openSnapshots) {
+            return openSnapshots.isEmpty() ? committedVersion : openSnapshots.firstKey();
+        }
+    }
+
+    /**
+     * Removes owners left empty by earlier commits, with their index entries, once no snapshot can
+     * see their former contents. Called under the write lock.
+     */
+    private void dropEmptiedOwners() {
+        long oldest = oldestVisibleVersion();
+        int pending = emptiedOwners.size();
+        for (int i = 0; i < pending; i++) {
+            Bucket bucket = emptiedOwners.poll();
+            if (vehiclesByOwner.get(bucket.ownerId) != bucket || !bucket.head.vehicles.isEmpty()) {
+                continue;
+            }
+            if (bucket.head.version <= oldest) {
+                vehiclesByOwner.remove(bucket.ownerId, bucket);
+                ownerIds.remove(bucket.head.owner.toLowerCase(Locale.ROOT), bucket.ownerId);
+            } else {
+                emptiedOwners.add(bucket);
+            }
+        }
+    }
+
+    private Bucket bucket(String key) {
+        Long ownerId = ownerIds.get(key);
+        return ownerId == null ? null : vehiclesByOwner.get(ownerId);
+    }
+
+    /**
+     * Returns the owner of {@code username}, registering a new owner id if there is none. Called
+     * under the write lock.
+     */
+    private Bucket bucketForWrite(String username) {
+        String key = username.toLowerCase(Locale.ROOT);
+        Bucket bucket = bucket(key);
+        if (bucket == null) {
+            bucket = new Bucket(++lastOwnerId, username);
+            vehiclesByOwner.put(bucket.ownerId, bucket);
+            ownerIds.put(key, bucket.ownerId);
+        }
+        return bucket;
+    }
+
+    /**
+     * Decodes one list version of an owner into new vehicles.
+     */
+    private List<Vehicle> decode(Bucket bucket, ListVersion list) {
+        List<Vehicle> vehicles = new ArrayList<>(list.vehicles.size());
+        for (CompactVehicle record : list.vehicles) {
+            vehicles.add(record.toVehicle(dictionary, bucket.ownerId, list.owner));
+        }
+        return vehicles;
+    }
+
+    private List<CompactVehicle> removeMatching(Commit commit, Bucket bucket, String normalizedLicense) {
+        List<CompactVehicle> vehicles = bucket.head.vehicles;
+        List<CompactVehicle> removed = new ArrayList<>();
+        List<CompactVehicle> kept = new ArrayList<>(vehicles.size());
+        for (CompactVehicle record : vehicles) {
+            if (normalizedLicense.equals(record.getLicenseNumber())) {
+                removed.add(record);
+            } else {
+                kept.add(record);
+            }
+        }
+        if (!removed.isEmpty()) {
+            commit.put(bucket, bucket.head.owner, kept);
+        }
+        return removed;
+    }
+
+    /**
+     * Releases the column rows of removed vehicles and records the new plate state for every one
+     * that was blacklisted. Another owner may still hold a blacklisted vehicle with the same plate,
+     * in which case the plate stays listed.
+     */
+    private void recordRemovals(List<CompactVehicle> removed) {
+        for (CompactVehicle record : removed) {
+            columns.remove(record.getRow());
+        }
+        for (CompactVehicle record : removed) {
+            if (record.isBlacklisted() && record.getLicenseNumber() != null) {
+                blacklistLog.record(record.getLicenseNumber(), isPlateBlacklisted(record.getLicenseNumber()));
+            }
+        }
+    }
+
+    private boolean isPlateBlacklisted(String normalizedLicense) {
+        for (Bucket bucket : vehiclesByOwner.values()) {
+            for (CompactVehicle record : bucket.head.vehicles) {
+                if (record.isBlacklisted() && normalizedLicense.equals(record.getLicenseNumber())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Consistent read view of the repository as of one committed version.
+     * <p>
+     * A snapshot must be closed, typically with try-with-resources; until then, the list versions
+     * it can see are retained. Snapshots are cheap to open and may be used from one thread at a
+     * time.
+     * </p>
+     */
+    public final class Snapshot implements AutoCloseable {
+        private final long version;
+        private boolean closed;
+
+        private Snapshot(long version) {
+            this.version = version;
+        }
+
+        /**
+         * Returns the committed version this snapshot reads.
+         *
+         * @return repository version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Passes every vehicle visible in this snapshot to {@code action}.
+         *
+         * @param action receiver of each vehicle
+         */
+        public void forEach(Consumer<? super Vehicle> action) {
+            ensureOpen();
+            for (Bucket bucket : vehiclesByOwner.values()) {
+                ListVersion visible = bucket.visibleAt(version);
+                if (visible != null) {
+                    for (CompactVehicle record : visible.vehicles) {
+                        action.accept(record.toVehicle(dictionary, bucket.ownerId, visible.owner));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Passes every record visible in this snapshot to {@code action} without decoding it.
+         */
+        private void forEachRecord(Consumer<CompactVehicle> action) {
+            ensureOpen();
+            for (Bucket bucket : vehiclesByOwner.values()) {
+                ListVersion visible = bucket.visibleAt(version);
+                if (visible != null) {
+                    for (CompactVehicle record : visible.vehicles) {
+                        action.accept(record);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the vehicles visible in this snapshot.
+         *
+         * @return list of every vehicle across all users
+         */
+        public List<Vehicle> findAll() {
+            List<Vehicle> vehicles = new ArrayList<>();
+            forEach(vehicles::add);
+            return vehicles;
+        }
+
+        /**
+         * Returns the vehicles of one owner visible in this snapshot. The owner is looked up by the
+         * name it had at the snapshot's version, so owners renamed since are found under their old
+         * name.
+         *
+         * @param username owner username/email
+         * @return copy of the owner's vehicles
+         */
+        public List<Vehicle> findByUsername(String username) {
+            ensureOpen();
+            if (username == null) {
+                return new ArrayList<>();
+            }
+            String key = username.toLowerCase(Locale.ROOT);
+            Bucket indexed = bucket(key);
+            ListVersion visible = indexed == null ? null : indexed.visibleAt(version);
+            if (visible != null && visible.owner.equalsIgnoreCase(key)) {
+                return decode(indexed, visible);
+            }
+            for (Bucket bucket : vehiclesByOwner.values()) {
+                visible = bucket.visibleAt(version);
+                if (visible != null && visible.owner.equalsIgnoreCase(key) && !visible.vehicles.isEmpty()) {
+                    return decode(bucket, visible);
+                }
+            }
+            return new ArrayList<>();
+        }
+
+        /**
+         * Releases the snapshot so the list versions only it could see can be dropped.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            synchronized (openSnapshots) {
+                openSnapshots.computeIfPresent(version, (key, count) -> count == 1 ? null : count - 1);
+            }
+        }
+
+        private void ensureOpen() {
+            if (closed) {
+                throw new IllegalStateException("Snapshot is closed");
+            }
+        }
+    }
+
+    /**
+     * Changes made by one writer, installed as list versions stamped with the commit's version.
+     */
+    private final class Commit {
+        private final long version;
+        private final long oldestVisible;
+        private boolean changed;
+
+        private Commit(long version, long oldestVisible) {
+            this.version = version;
+            this.oldestVisible = oldestVisible;
+        }
+
+        /**
+         * Installs a new list and owner name for an owner and drops the versions no snapshot can
+         * see anymore.
+         */
+        private void put(Bucket bucket, String owner, List<CompactVehicle> vehicles) {
+            List<CompactVehicle> published = vehicles.isEmpty() ? Collections.emptyList()
+                    : Collections.unmodifiableList(new ArrayList<>(vehicles));
+            ListVersion previous = bucket.head;
+            ListVersion head = new ListVersion(version, owner, published,
+                    previous.version == version ? previous.previous : previous);
+            for (ListVersion node = head; node != null; node = node.previous) {
+                if (node.version <= oldestVisible) {
+                    node.previous = null;
+                    break;
+                }
+            }
+            bucket.head = head;
+            if (published.isEmpty()) {
+                emptiedOwners.add(bucket);
+            }
+            changed = true;
+        }
+    }
+
+    /**
+     * Version chain of one owner's name and vehicles, newest first.
+     */
+    private static final class Bucket {
+        private final long ownerId;
+        private volatile ListVersion head;
+
+        private Bucket(long ownerId, String owner) {
+            this.ownerId = ownerId;
+            this.head = new ListVersion(0, owner, Collections.emptyList(), null);
+        }
+
+        private ListVersion visibleAt(long version) {
+            ListVersion node = head;
+            while (node != null && node.version > version) {
+                node = node.previous;
+            }
+            return node;
+        }
+    }
+
+    private static final class ListVersion {
+        private final long version;
+        private final String owner;
+        private final List<CompactVehicle> vehicles;
+        private volatile ListVersion previous;
+
+        private ListVersion(long version, String owner, List<CompactVehicle> vehicles, ListVersion previous) {
+            this.version = version;
+            this.owner = owner;
+            this.vehicles = vehicles;
+            this.previous = previous;
+        }
+    }
 }
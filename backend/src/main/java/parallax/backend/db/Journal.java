@@ -0,0 +1,959 @@
+package parallax.backend.db;
+
+import parallax.backend.model.User;
+import parallax.backend.model.Vehicle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only mutation log with periodic snapshots for the in-memory repositories.
+ * <p>
+ * Every user and vehicle mutation is appended to the current log segment
+ * ({@code journal-<sequence>.log}) as a compact binary record, framed by its length and CRC32,
+ * before it is applied to the heap. How often the segment is forced to disk is governed by the
+ * {@link FsyncPolicy}. After {@code snapshotEveryRecords} records a background thread starts a
+ * new segment, writes the complete heap state to {@code snapshot-<sequence>.bin} and then deletes
+ * the segments and snapshots it supersedes, which keeps the log compact.
+ * </p>
+ * <p>
+ * Recovery loads the newest snapshot and replays the segments written after it. Snapshots are
+ * split into one chunk per core, partitioned by owner so that per-owner registration order is kept,
+ * and the chunks are decoded and loaded in parallel. Log tail records are checksummed and decoded
+ * in parallel but applied in log order, since their mutations span owners. A torn record at the end
+ * of a segment, left by a crash mid-append, ends replay of that segment.
+ * </p>
+ * <p>
+ * Every snapshot is accompanied by a {@link MappedVehicleSnapshot} of the plate index
+ * ({@code plates-<sequence>.idx}). When the newest snapshot has no log written after it, as after
+ * {@link #snapshotAndClose()}, startup only maps that file and loads the heap in the background:
+ * plate lookups are answered from the mapped file right away, while mutations and all other reads
+ * wait in {@link #awaitRecovery()} until the heap is complete.
+ * </p>
+ */
+public class Journal implements AutoCloseable {
+    /**
+     * When appended records are forced to disk.
+     */
+    public enum FsyncPolicy {
+        /** Force after every record; a mutation is durable once the call returns. */
+        ALWAYS,
+        /** Force in the background at a fixed interval; a power loss may lose the last interval. */
+        INTERVAL,
+        /** Leave flushing to the operating system. */
+        NEVER;
+
+        /**
+         * Parses a policy name case-insensitively.
+         *
+         * @param value        policy name, may be {@code null}
+         * @param defaultValue policy returned for missing or unknown names
+         * @return parsed policy
+         */
+        public static FsyncPolicy parse(String value, FsyncPolicy defaultValue) {
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ignored) {
+                return defaultValue;
+            }
+        }
+    }
+
+    static final byte USER_CREATE = 1;
+    static final byte USER_UPDATE_CONTACT = 2;
+    static final byte USER_UPDATE_PASSWORD = 3;
+    static final byte USER_DELETE = 4;
+    static final byte VEHICLE_ADD = 10;
+    static final byte VEHICLE_REMOVE = 11;
+    static final byte VEHICLE_REMOVE_USER = 12;
+    static final byte VEHICLE_REMOVE_PLATE = 13;
+    static final byte VEHICLE_BLACKLIST = 14;
+    static final byte VEHICLE_REASSIGN = 15;
+    static final byte VEHICLE_BLACKLIST_BULK = 16;
+
+    private static final int SEGMENT_MAGIC = 0x504A4C31;
+    private static final int SNAPSHOT_MAGIC = 0x50534E31;
+    private static final int FRAME_HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long snapshotEveryRecords;
+    private final InMemoryUserRepository users;
+    private final InMemoryVehicleRepository vehicles;
+    private final ReentrantLock order = new ReentrantLock();
+    private final ScheduledExecutorService background;
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+    private volatile FileChannel segment;
+    private volatile long sequence;
+    private volatile boolean dirty;
+    private long recordsSinceSnapshot;
+    private long platesSequence;
+    private volatile long lastSnapshotMillis;
+    private final CountDownLatch recovered = new CountDownLatch(1);
+    private volatile MappedVehicleSnapshot mappedPlates;
+    private volatile RepositoryException recoveryFailure;
+    private final boolean mappedStartup;
+    private final long recoveredRecords;
+    private volatile long recoveryMillis;
+
+    /**
+     * Recovers the heap repositories from {@code directory} and opens a new log segment.
+     *
+     * @param directory            directory holding snapshots and log segments; created if missing
+     * @param fsyncPolicy          when appended records are forced to disk
+     * @param fsyncIntervalMillis  force interval for {@link FsyncPolicy#INTERVAL}
+     * @param snapshotEveryRecords number of appended records after which a snapshot is taken
+     * @param users                heap user repository, expected to be freshly created
+     * @param vehicles             heap vehicle repository, expected to be empty
+     */
+    public Journal(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis, long snapshotEveryRecords,
+                   InMemoryUserRepository users, InMemoryVehicleRepository vehicles) {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.snapshotEveryRecords = Math.max(1, snapshotEveryRecords);
+        this.users = users;
+        this.vehicles = vehicles;
+        this.background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parallax-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Files.createDirectories(directory);
+            long start = System.nanoTime();
+            TreeMap<Long, Path> segments = list("journal-", ".log");
+            TreeMap<Long, Path> snapshotFiles = list("snapshot-", ".bin");
+            long snapshotSequence = snapshotFiles.isEmpty() ? 0 : snapshotFiles.lastKey();
+            Collection<Path> tail = segments.tailMap(snapshotSequence, true).values();
+            Path platesFile = directory.resolve(fileName("plates-", snapshotSequence, ".idx"));
+            MappedVehicleSnapshot mapped = null;
+            if (Files.exists(platesFile)) {
+                platesSequence = snapshotSequence;
+                if (snapshotSequence > 0 && isEmpty(tail)) {
+                    mapped = openMapped(platesFile);
+                }
+            }
+            long replayed = 0;
+            if (mapped != null) {
+                mappedPlates = mapped;
+                Path snapshotFile = snapshotFiles.lastEntry().getValue();
+                background.execute(() -> finishRecovery(snapshotFile, start));
+            } else {
+                if (snapshotSequence > 0) {
+                    loadSnapshot(snapshotFiles.lastEntry().getValue());
+                }
+                for (Path file : tail) {
+                    replayed += replaySegment(file);
+                }
+                this.recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                recovered.countDown();
+            }
+            this.mappedStartup = mapped != null;
+            this.recoveredRecords = replayed;
+            this.recordsSinceSnapshot = replayed;
+
+            long last = Math.max(snapshotSequence, segments.isEmpty() ? 0 : segments.lastKey());
+            this.sequence = last + 1;
+            this.segment = openSegment(sequence);
+        } catch (IOException e) {
+            background.shutdownNow();
+            throw new RepositoryException("Failed to recover journal in " + directory, e);
+        }
+
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            long interval = Math.max(1, fsyncIntervalMillis);
+            background.scheduleWithFixedDelay(this::forceIfDirty, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Appends a mutation record and then applies the mutation to the heap, both under one lock so
+     * that log order equals heap order.
+     *
+     * @param heapWrite in-memory mutation
+     * @param op        record type
+     * @param fields    record fields: {@link String} (may be {@code null}) or {@link Boolean}
+     * @param <T>       result type of the heap mutation
+     * @return result of {@code heapWrite}
+     */
+    <T> T write(Supplier<T> heapWrite, byte op, Object... fields) {
+        return write(heapWrite, encode(op, fields));
+    }
+
+    /**
+     * Appends an already encoded record and then applies the mutation to the heap.
+     *
+     * @param heapWrite in-memory mutation
+     * @param payload   record produced by {@link #encode}, {@link #userRecord} or {@link #vehicleRecord}
+     * @param <T>       result type of the heap mutation
+     * @return result of {@code heapWrite}
+     */
+    <T> T write(Supplier<T> heapWrite, byte[] payload) {
+        awaitRecovery();
+        boolean snapshotDue;
+        T result;
+        order.lock();
+        try {
+            append(payload);
+            result = heapWrite.get();
+            snapshotDue = ++recordsSinceSnapshot >= snapshotEveryRecords;
+        } finally {
+            order.unlock();
+        }
+        if (snapshotDue && snapshotRunning.compareAndSet(false, true)) {
+            background.execute(() -> {
+                try {
+                    snapshot();
+                } catch (RepositoryException ignored) {
+                    // retried once the next record is appended
+                } finally {
+                    snapshotRunning.set(false);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Starts a new log segment, writes the current heap state as a snapshot and deletes the log
+     * segments and snapshots it replaces.
+     */
+    public void snapshot() {
+        awaitRecovery();
+        long start = System.nanoTime();
+        long snapshotSequence;
+        List<User> userCopies = new ArrayList<>();
+        List<Vehicle> vehicleCopies = new ArrayList<>();
+        order.lock();
+        try {
+            FileChannel previous = segment;
+            previous.force(false);
+            snapshotSequence = sequence + 1;
+            segment = openSegment(snapshotSequence);
+            sequence = snapshotSequence;
+            previous.close();
+            for (User user : users.findAllUsers().values()) {
+                userCopies.add(new User(user));
+            }
+            for (Vehicle vehicle : vehicles.findAll()) {
+                vehicleCopies.add(new Vehicle(vehicle));
+            }
+            recordsSinceSnapshot = 0;
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to rotate journal segment", e);
+        } finally {
+            order.unlock();
+        }
+
+        try {
+            // The mapped index keeps the first vehicle written for a plate, so it is written in the
+            // order the recovered repository resolves duplicates in. The sort is stable, which
+            // keeps each owner's list order for ties.
+            List<Vehicle> registrationOrder = new ArrayList<>(vehicleCopies);
+            registrationOrder.sort(InMemoryVehicleRepository.REGISTRATION_ORDER);
+            MappedVehicleSnapshot.write(directory.resolve(fileName("plates-", snapshotSequence, ".idx")),
+                    registrationOrder);
+            writeSnapshot(snapshotSequence, userCopies, vehicleCopies);
+            for (Path file : list("journal-", ".log").headMap(snapshotSequence, false).values()) {
+                Files.deleteIfExists(file);
+            }
+            for (Path file : list("snapshot-", ".bin").headMap(snapshotSequence, false).values()) {
+                Files.deleteIfExists(file);
+            }
+            for (Path file : list("plates-", ".idx").headMap(snapshotSequence, false).values()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to write journal snapshot", e);
+        }
+        order.lock();
+        try {
+            platesSequence = snapshotSequence;
+        } finally {
+            order.unlock();
+        }
+        snapshots.incrementAndGet();
+        lastSnapshotMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Blocks until the heap repositories are fully recovered. Returns immediately unless the
+     * journal started from a mapped plate index and is still loading the snapshot.
+     *
+     * @throws RepositoryException if loading the snapshot in the background failed
+     */
+    public void awaitRecovery() {
+        try {
+            recovered.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while waiting for journal recovery", e);
+        }
+        if (recoveryFailure != null) {
+            throw recoveryFailure;
+        }
+    }
+
+    /**
+     * Returns the mapped plate index while the heap is still being loaded, or {@code null} once
+     * the heap is authoritative. No mutation can be applied before the heap is loaded, so the
+     * mapped index is exact for as long as it is returned.
+     *
+     * @return mapped plate index, or {@code null}
+     */
+    MappedVehicleSnapshot getMappedPlates() {
+        return mappedPlates;
+    }
+
+    /**
+     * Returns a snapshot of journal counters.
+     *
+     * @return current journal metrics
+     */
+    public Metrics getMetrics() {
+        return new Metrics(fsyncPolicy.name(), sequence, appended.get(), snapshots.get(), lastSnapshotMillis,
+                mappedStartup, recovered.getCount() > 0, recoveredRecords, recoveryMillis);
+    }
+
+    /**
+     * Takes a final snapshot, unless nothing was appended since the last one, and closes the
+     * journal. The next start then needs no log replay and can serve plate lookups from the mapped
+     * plate index while the heap loads. Intended as the shutdown hook of the server.
+     */
+    public void snapshotAndClose() {
+        boolean current;
+        order.lock();
+        try {
+            current = recordsSinceSnapshot == 0 && platesSequence > 0;
+        } finally {
+            order.unlock();
+        }
+        if (!current && recoveryFailure == null) {
+            snapshot();
+        }
+        close();
+    }
+
+    /**
+     * Forces the current segment to disk and stops background work.
+     */
+    @Override
+    public void close() {
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        order.lock();
+        try {
+            segment.force(false);
+            segment.close();
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to close journal", e);
+        } finally {
+            order.unlock();
+        }
+    }
+
+    private void finishRecovery(Path snapshotFile, long start) {
+        try {
+            loadSnapshot(snapshotFile);
+            recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            mappedPlates = null;
+        } catch (IOException | RuntimeException e) {
+            // plate lookups keep being served from the mapped index
+            recoveryFailure = new RepositoryException("Failed to recover journal in " + directory, e);
+        } finally {
+            recovered.countDown();
+        }
+    }
+
+    private static MappedVehicleSnapshot openMapped(Path file) {
+        try {
+            return MappedVehicleSnapshot.open(file);
+        } catch (IOException e) {
+            // fall back to loading the snapshot before serving
+            return null;
+        }
+    }
+
+    private static boolean isEmpty(Collection<Path> segments) throws IOException {
+        for (Path file : segments) {
+            if (Files.size(file) > 4) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void append(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        try {
+            while (frame.hasRemaining()) {
+                segment.write(frame);
+            }
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                segment.force(false);
+            } else {
+                dirty = true;
+            }
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to append to journal", e);
+        }
+        appended.incrementAndGet();
+    }
+
+    private void forceIfDirty() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            segment.force(false);
+        } catch (ClosedChannelException ignored) {
+            // rotated concurrently; the old segment was forced before it was closed
+        } catch (IOException e) {
+            dirty = true;
+        }
+    }
+
+    private FileChannel openSegment(long segmentSequence) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(fileName("journal-", segmentSequence, ".log")),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        channel.write(ByteBuffer.allocate(4).putInt(SEGMENT_MAGIC).flip());
+        return channel;
+    }
+
+    private TreeMap<Long, Path> list(String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (var stream = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) stream::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    try {
+                        files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), file);
+                    } catch (NumberFormatException ignored) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private static String fileName(String prefix, long fileSequence, String suffix) {
+        return String.format(Locale.ROOT, "%s%016d%s", prefix, fileSequence, suffix);
+    }
+
+    /**
+     * Replays one log segment and returns the number of records applied.
+     */
+    private long replaySegment(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < 4 || buffer.getInt() != SEGMENT_MAGIC) {
+            return 0;
+        }
+        List<ByteBuffer> frames = new ArrayList<>();
+        List<Integer> checksums = new ArrayList<>();
+        while (buffer.remaining() >= FRAME_HEADER_BYTES) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 1 || length > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            frames.add(payload);
+            checksums.add(checksum);
+        }
+
+        List<Record> records = IntStream.range(0, frames.size()).parallel()
+                .mapToObj(i -> Record.decode(frames.get(i), checksums.get(i)))
+                .toList();
+        long applied = 0;
+        for (Record record : records) {
+            if (record == null) {
+                // torn or corrupt record: everything after it in this segment is unreliable
+                break;
+            }
+            try {
+                apply(record);
+            } catch (RuntimeException ignored) {
+                // the mutation failed the same way when it was first executed
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    private void apply(Record record) {
+        String[] f = record.strings;
+        switch (record.op) {
+            case USER_CREATE -> users.createUser(toUser(f));
+            case USER_UPDATE_CONTACT -> users.updateContact(f[0], f[1], f[2], f[3]);
+            case USER_UPDATE_PASSWORD -> users.updatePassword(f[0], f[1]);
+            case USER_DELETE -> users.deleteUser(f[0]);
+            case VEHICLE_ADD -> vehicles.addVehicle(toVehicle(f, record.flag));
+            case VEHICLE_REMOVE -> vehicles.removeVehicle(f[0], f[1]);
+            case VEHICLE_REMOVE_USER -> vehicles.removeVehiclesForUser(f[0]);
+            case VEHICLE_REMOVE_PLATE -> vehicles.removeByLicense(f[0]);
+            case VEHICLE_BLACKLIST -> vehicles.updateBlacklistStatus(f[0], record.flag);
+            case VEHICLE_REASSIGN -> vehicles.reassignVehicles(f[0], f[1]);
+            case VEHICLE_BLACKLIST_BULK -> vehicles.updateBlacklist(Arrays.asList(f).subList(0, record.split),
+                    Arrays.asList(f).subList(record.split, f.length), record.flag);
+            default -> throw new IllegalStateException("Unknown journal record type " + record.op);
+        }
+    }
+
+    private void loadSnapshot(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < 8 || buffer.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a journal snapshot: " + file);
+        }
+        int chunkCount = buffer.getInt();
+        List<ByteBuffer> userChunks = new ArrayList<>();
+        List<ByteBuffer> vehicleChunks = new ArrayList<>();
+        List<Integer> checksums = new ArrayList<>();
+        for (int i = 0; i < chunkCount * 2; i++) {
+            int length = buffer.getInt();
+            checksums.add(buffer.getInt());
+            ByteBuffer chunk = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            (i < chunkCount ? userChunks : vehicleChunks).add(chunk);
+        }
+
+        // Users first, so that vehicles loaded afterwards find their owners.
+        loadChunks(userChunks, checksums.subList(0, chunkCount), file);
+        loadChunks(vehicleChunks, checksums.subList(chunkCount, chunkCount * 2), file);
+    }
+
+    private void loadChunks(List<ByteBuffer> chunks, List<Integer> checksums, Path file) throws IOException {
+        boolean intact = IntStream.range(0, chunks.size()).parallel().allMatch(i -> {
+            ByteBuffer chunk = chunks.get(i);
+            if (checksum(chunk) != checksums.get(i)) {
+                return false;
+            }
+            while (chunk.hasRemaining()) {
+                int length = readVarInt(chunk);
+                ByteBuffer payload = chunk.slice(chunk.position(), length);
+                chunk.position(chunk.position() + length);
+                Record record = Record.decode(payload);
+                if (record == null) {
+                    return false;
+                }
+                apply(record);
+            }
+            return true;
+        });
+        if (!intact) {
+            throw new IOException("Journal snapshot is corrupt: " + file);
+        }
+    }
+
+    private void writeSnapshot(long snapshotSequence, List<User> userCopies, List<Vehicle> vehicleCopies) throws IOException {
+        int chunkCount = Runtime.getRuntime().availableProcessors();
+        ByteArrayOutputStream[] userChunks = new ByteArrayOutputStream[chunkCount];
+        ByteArrayOutputStream[] vehicleChunks = new ByteArrayOutputStream[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            userChunks[i] = new ByteArrayOutputStream();
+            vehicleChunks[i] = new ByteArrayOutputStream();
+        }
+        for (User user : userCopies) {
+            writeChunkRecord(userChunks[partition(user.getUsername(), chunkCount)], userRecord(user));
+        }
+        for (Vehicle vehicle : vehicleCopies) {
+            writeChunkRecord(vehicleChunks[partition(vehicle.getUsername(), chunkCount)], vehicleRecord(vehicle));
+        }
+
+        Path temporary = directory.resolve(fileName("snapshot-", snapshotSequence, ".tmp"));
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(channel, ByteBuffer.allocate(8).putInt(SNAPSHOT_MAGIC).putInt(chunkCount).flip());
+            for (ByteArrayOutputStream chunk : userChunks) {
+                writeChunk(channel, chunk.toByteArray());
+            }
+            for (ByteArrayOutputStream chunk : vehicleChunks) {
+                writeChunk(channel, chunk.toByteArray());
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(fileName("snapshot-", snapshotSequence, ".bin")),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static int partition(String owner, int chunkCount) {
+        String key = owner == null ? "" : owner.toLowerCase(Locale.ROOT);
+        return Math.floorMod(key.hashCode(), chunkCount);
+    }
+
+    private static void writeChunkRecord(ByteArrayOutputStream chunk, byte[] payload) {
+        writeVarInt(chunk, payload.length);
+        chunk.write(payload, 0, payload.length);
+    }
+
+    private static void writeChunk(FileChannel channel, byte[] chunk) throws IOException {
+        write(channel, ByteBuffer.allocate(FRAME_HEADER_BYTES).putInt(chunk.length)
+                .putInt(checksum(ByteBuffer.wrap(chunk))).flip());
+        write(channel, ByteBuffer.wrap(chunk));
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Encodes a user creation. The id is written after the profile fields, where logs from before
+     * user ids existed end; such records replay with a newly assigned id.
+     */
+    static byte[] userRecord(User user) {
+        return encode(USER_CREATE, user.getUsername(), user.getEmail(), user.getDisplayName(), user.getPassword(),
+                user.getFirstName(), user.getLastName(), user.getCountry(), user.getBirthMonth(), user.getBirthDay(),
+                user.getBirthYear(), user.getPhoneCountry(), user.getPhone(), user.getContactMethod(), user.getCreatedAt(),
+                user.getId() > 0 ? Long.toString(user.getId()) : null);
+    }
+
+    static byte[] vehicleRecord(Vehicle vehicle) {
+        return encode(VEHICLE_ADD, vehicle.getUsername(), vehicle.getLicenseNumber(), vehicle.getMake(),
+                vehicle.getModel(), vehicle.getYear(), vehicle.getCreatedAt(), vehicle.isBlacklisted());
+    }
+
+    /**
+     * Decodes a record produced by {@link #vehicleRecord(Vehicle)}.
+     *
+     * @throws IllegalArgumentException if {@code record} is not a vehicle record
+     */
+    static Vehicle decodeVehicle(byte[] record) {
+        Record decoded = Record.decode(ByteBuffer.wrap(record));
+        if (decoded == null || decoded.op != VEHICLE_ADD) {
+            throw new IllegalArgumentException("Not a vehicle record");
+        }
+        return toVehicle(decoded.strings, decoded.flag);
+    }
+
+    private static User toUser(String[] f) {
+        User user = new User(f[0], f[1], f[2], f[3]);
+        user.setFirstName(f[4]);
+        user.setLastName(f[5]);
+        user.setCountry(f[6]);
+        user.setBirthMonth(f[7]);
+        user.setBirthDay(f[8]);
+        user.setBirthYear(f[9]);
+        user.setPhoneCountry(f[10]);
+        user.setPhone(f[11]);
+        user.setContactMethod(f[12]);
+        user.setCreatedAt(f[13]);
+        if (f.length > 14 && f[14] != null) {
+            user.setId(Long.parseLong(f[14]));
+        }
+        return user;
+    }
+
+    private static Vehicle toVehicle(String[] f, boolean blacklisted) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername(f[0]);
+        vehicle.setLicenseNumber(f[1]);
+        vehicle.setMake(f[2]);
+        vehicle.setModel(f[3]);
+        vehicle.setYear(f[4]);
+        vehicle.setCreatedAt(f[5]);
+        vehicle.setBlacklisted(blacklisted);
+        return vehicle;
+    }
+
+    /**
+     * Encodes a record payload: the type byte followed by each field. Strings are written as a
+     * varint of their UTF-8 length plus one ({@code 0} for {@code null}) and the bytes; booleans
+     * as one byte.
+     */
+    static byte[] encode(byte op, Object... fields) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(op);
+        for (Object field : fields) {
+            if (field instanceof Boolean) {
+                out.write((Boolean) field ? 1 : 0);
+            } else if (field == null) {
+                writeVarInt(out, 0);
+            } else {
+                byte[] bytes = ((String) field).getBytes(StandardCharsets.UTF_8);
+                writeVarInt(out, bytes.length + 1);
+                out.write(bytes, 0, bytes.length);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes a bulk blacklist update: the type byte, the replace flag, then the plates to
+     * blacklist and the plates to clear, each as a varint count followed by the strings.
+     */
+    static byte[] hotlistRecord(Collection<String> blacklisted, Collection<String> cleared, boolean replace) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        out.write(VEHICLE_BLACKLIST_BULK);
+        out.write(replace ? 1 : 0);
+        for (Collection<String> plates : List.of(
+                blacklisted == null ? List.<String>of() : blacklisted, cleared == null ? List.<String>of() : cleared)) {
+            writeVarInt(out, plates.size());
+            for (String plate : plates) {
+                byte[] bytes = plate == null ? null : plate.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(out, bytes == null ? 0 : bytes.length + 1);
+                if (bytes != null) {
+                    out.write(bytes, 0, bytes.length);
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * A decoded log record: its type, string fields in order and the trailing boolean, if any.
+     */
+    private static final class Record {
+        private final byte op;
+        private final String[] strings;
+        private final boolean flag;
+        private final int split;
+
+        private Record(byte op, String[] strings, boolean flag) {
+            this(op, strings, flag, strings.length);
+        }
+
+        private Record(byte op, String[] strings, boolean flag, int split) {
+            this.op = op;
+            this.strings = strings;
+            this.flag = flag;
+            this.split = split;
+        }
+
+        /**
+         * Decodes a payload, returning {@code null} when it fails its checksum or is malformed.
+         */
+        private static Record decode(ByteBuffer payload, int expectedChecksum) {
+            return checksum(payload) == expectedChecksum ? decode(payload) : null;
+        }
+
+        /**
+         * Decodes a payload whose integrity is already known, returning {@code null} when it is
+         * malformed.
+         */
+        private static Record decode(ByteBuffer payload) {
+            try {
+                ByteBuffer in = payload.duplicate();
+                byte op = in.get();
+                if (op == VEHICLE_BLACKLIST_BULK) {
+                    boolean replace = in.get() != 0;
+                    String[] blacklisted = readStrings(in, readVarInt(in));
+                    String[] cleared = readStrings(in, readVarInt(in));
+                    String[] strings = Arrays.copyOf(blacklisted, blacklisted.length + cleared.length);
+                    System.arraycopy(cleared, 0, strings, blacklisted.length, cleared.length);
+                    return new Record(op, strings, replace, blacklisted.length);
+                }
+                int stringCount = switch (op) {
+                    case USER_CREATE -> 14;
+                    case USER_UPDATE_CONTACT -> 4;
+                    case USER_UPDATE_PASSWORD, VEHICLE_REMOVE, VEHICLE_REASSIGN -> 2;
+                    case USER_DELETE, VEHICLE_REMOVE_USER, VEHICLE_REMOVE_PLATE, VEHICLE_BLACKLIST -> 1;
+                    case VEHICLE_ADD -> 6;
+                    default -> -1;
+                };
+                if (stringCount < 0) {
+                    return null;
+                }
+                String[] strings = readStrings(in, stringCount);
+                if (op == USER_CREATE && in.hasRemaining()) {
+                    strings = Arrays.copyOf(strings, stringCount + 1);
+                    strings[stringCount] = readStrings(in, 1)[0];
+                }
+                boolean flag = (op == VEHICLE_ADD || op == VEHICLE_BLACKLIST) && in.get() != 0;
+                return new Record(op, strings, flag);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        private static String[] readStrings(ByteBuffer in, int count) {
+            if (count < 0 || count > in.remaining()) {
+                throw new IllegalArgumentException("Bad string count " + count);
+            }
+            String[] strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                int length = readVarInt(in) - 1;
+                if (length >= 0) {
+                    strings[i] = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+                    in.position(in.position() + length);
+                }
+            }
+            return strings;
+        }
+    }
+
+    /**
+     * Point-in-time journal counters.
+     */
+    public static final class Metrics {
+        private final String fsyncPolicy;
+        private final long segment;
+        private final long appended;
+        private final long snapshots;
+        private final long lastSnapshotMillis;
+        private final boolean mappedStartup;
+        private final boolean recovering;
+        private final long recoveredRecords;
+        private final long recoveryMillis;
+
+        private Metrics(String fsyncPolicy, long segment, long appended, long snapshots, long lastSnapshotMillis,
+                        boolean mappedStartup, boolean recovering, long recoveredRecords, long recoveryMillis) {
+            this.fsyncPolicy = fsyncPolicy;
+            this.segment = segment;
+            this.appended = appended;
+            this.snapshots = snapshots;
+            this.lastSnapshotMillis = lastSnapshotMillis;
+            this.mappedStartup = mappedStartup;
+            this.recovering = recovering;
+            this.recoveredRecords = recoveredRecords;
+            this.recoveryMillis = recoveryMillis;
+        }
+
+        /**
+         * Returns the configured fsync policy.
+         *
+         * @return policy name
+         */
+        public String getFsyncPolicy() {
+            return fsyncPolicy;
+        }
+
+        /**
+         * Returns the sequence number of the segment currently appended to.
+         *
+         * @return current segment sequence
+         */
+        public long getSegment() {
+            return segment;
+        }
+
+        /**
+         * Returns the number of records appended since startup.
+         *
+         * @return appended records
+         */
+        public long getAppended() {
+            return appended;
+        }
+
+        /**
+         * Returns the number of snapshots written since startup.
+         *
+         * @return snapshots written
+         */
+        public long getSnapshots() {
+            return snapshots;
+        }
+
+        /**
+         * Returns how long the most recent snapshot took.
+         *
+         * @return snapshot duration in milliseconds
+         */
+        public long getLastSnapshotMillis() {
+            return lastSnapshotMillis;
+        }
+
+        /**
+         * Returns whether startup mapped the plate index and loaded the heap in the background.
+         *
+         * @return {@code true} for a mapped startup
+         */
+        public boolean isMappedStartup() {
+            return mappedStartup;
+        }
+
+        /**
+         * Returns whether the heap is still being loaded, with plate lookups served from the
+         * mapped plate index.
+         *
+         * @return {@code true} while recovery is in progress
+         */
+        public boolean isRecovering() {
+            return recovering;
+        }
+
+        /**
+         * Returns the number of log records replayed on top of the snapshot at startup.
+         *
+         * @return replayed records
+         */
+        public long getRecoveredRecords() {
+            return recoveredRecords;
+        }
+
+        /**
+         * Returns how long startup recovery took, including a background load after a mapped
+         * startup; {@code 0} while it is still in progress.
+         *
+         * @return recovery duration in milliseconds
+         */
+        public long getRecoveryMillis() {
+            return recoveryMillis;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package parallax.backend.db;
+
+import parallax.backend.model.User;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link UserRepository} that serves every read from an {@link InMemoryUserRepository} and
+ * records every mutation in a {@link Journal} before applying it, so the heap can be rebuilt after
+ * a restart. Reads wait until the journal has finished loading the heap.
+ */
+public class JournaledUserRepository implements UserRepository {
+    private final InMemoryUserRepository memory;
+    private final Journal journal;
+
+    /**
+     * Wraps a heap repository that {@code journal} recovers into.
+     *
+     * @param memory  heap repository serving reads
+     * @param journal journal recovering into {@code memory}
+     */
+    public JournaledUserRepository(InMemoryUserRepository memory, Journal journal) {
+        this.memory = memory;
+        this.journal = journal;
+    }
+
+    @Override
+    public Optional<User> findByIdentifierAndPassword(String identifier, String password) {
+        journal.awaitRecovery();
+        return memory.findByIdentifierAndPassword(identifier, password);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        journal.awaitRecovery();
+        return memory.findByEmail(email);
+    }
+
+    @Override
+    public Optional<User> findById(long id) {
+        journal.awaitRecovery();
+        return memory.findById(id);
+    }
+
+    @Override
+    public Optional<User> findByPhone(String phoneCountry, String phoneDigits) {
+        journal.awaitRecovery();
+        return memory.findByPhone(phoneCountry, phoneDigits);
+    }
+
+    @Override
+    public User createUser(User user) {
+        if (user == null || user.getUsername() == null) {
+            throw new IllegalArgumentException("User and username must not be null");
+        }
+        journal.awaitRecovery();
+        memory.assignId(user);
+        byte[] record = Journal.userRecord(user);
+        return journal.write(() -> memory.createUser(user), record);
+    }
+
+    @Override
+    public Optional<User> updateContact(String username, String newEmail, String phoneCountry, String phone) {
+        return journal.write(() -> memory.updateContact(username, newEmail, phoneCountry, phone),
+                Journal.USER_UPDATE_CONTACT, username, newEmail, phoneCountry, phone);
+    }
+
+    @Override
+    public Optional<User> updatePassword(String username, String newPassword) {
+        return journal.write(() -> memory.updatePassword(username, newPassword),
+                Journal.USER_UPDATE_PASSWORD, username, newPassword);
+    }
+
+    @Override
+    public boolean deleteUser(String username) {
+        return journal.write(() -> memory.deleteUser(username), Journal.USER_DELETE, username);
+    }
+
+    @Override
+    public Map<String, User> findAllUsers() {
+        journal.awaitRecovery();
+        return memory.findAllUsers();
+    }
+}
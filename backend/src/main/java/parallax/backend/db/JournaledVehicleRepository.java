@@ -0,0 +1,142 @@
+package parallax.backend.db;
+
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.BlacklistUpdate;
+import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
+import parallax.backend.model.VehicleWithOwner;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * {@link VehicleRepository} that serves every read from an {@link InMemoryVehicleRepository} and
+ * records every mutation in a {@link Journal} before applying it, so the heap can be rebuilt after
+ * a restart.
+ * <p>
+ * While the journal is still loading the heap after a mapped startup, plate lookups are answered
+ * from its {@link MappedVehicleSnapshot} and every other call waits for the load to finish.
+ * </p>
+ */
+public class JournaledVehicleRepository implements VehicleRepository {
+    private final InMemoryVehicleRepository memory;
+    private final Journal journal;
+
+    /**
+     * Wraps a heap repository that {@code journal} recovers into.
+     *
+     * @param memory  heap repository serving reads
+     * @param journal journal recovering into {@code memory}
+     */
+    public JournaledVehicleRepository(InMemoryVehicleRepository memory, Journal journal) {
+        this.memory = memory;
+        this.journal = journal;
+    }
+
+    @Override
+    public List<Vehicle> reassignVehicles(String oldUsername, String newUsername) {
+        return journal.write(() -> memory.reassignVehicles(oldUsername, newUsername),
+                Journal.VEHICLE_REASSIGN, oldUsername, newUsername);
+    }
+
+    @Override
+    public List<Vehicle> findByUsername(String username) {
+        journal.awaitRecovery();
+        return memory.findByUsername(username);
+    }
+
+    @Override
+    public Optional<Vehicle> findByUsernameAndLicense(String username, String licenseNumber) {
+        journal.awaitRecovery();
+        return memory.findByUsernameAndLicense(username, licenseNumber);
+    }
+
+    @Override
+    public Optional<Vehicle> findByLicense(String licenseNumber) {
+        return findByPlate(licenseNumber);
+    }
+
+    @Override
+    public Optional<Vehicle> findByPlate(String licenseNumber) {
+        MappedVehicleSnapshot mapped = journal.getMappedPlates();
+        return mapped != null ? mapped.find(licenseNumber) : memory.findByPlate(licenseNumber);
+    }
+
+    @Override
+    public Map<String, Vehicle> findByPlates(Collection<String> licenseNumbers) {
+        MappedVehicleSnapshot mapped = journal.getMappedPlates();
+        return mapped != null ? mapped.find(licenseNumbers) : memory.findByPlates(licenseNumbers);
+    }
+
+    @Override
+    public void addVehicle(Vehicle vehicle) {
+        if (vehicle == null || vehicle.getUsername() == null) {
+            throw new IllegalArgumentException("Vehicle and username must not be null");
+        }
+        byte[] record = Journal.vehicleRecord(vehicle);
+        journal.write(() -> {
+            memory.addVehicle(vehicle);
+            return null;
+        }, record);
+    }
+
+    @Override
+    public void removeVehicle(String username, String licenseNumber) {
+        journal.write(() -> {
+            memory.removeVehicle(username, licenseNumber);
+            return null;
+        }, Journal.VEHICLE_REMOVE, username, licenseNumber);
+    }
+
+    @Override
+    public void removeVehiclesForUser(String username) {
+        journal.write(() -> {
+            memory.removeVehiclesForUser(username);
+            return null;
+        }, Journal.VEHICLE_REMOVE_USER, username);
+    }
+
+    @Override
+    public boolean removeByLicense(String licenseNumber) {
+        return journal.write(() -> memory.removeByLicense(licenseNumber), Journal.VEHICLE_REMOVE_PLATE, licenseNumber);
+    }
+
+    @Override
+    public Optional<Vehicle> updateBlacklistStatus(String licenseNumber, boolean blacklisted) {
+        return journal.write(() -> memory.updateBlacklistStatus(licenseNumber, blacklisted),
+                Journal.VEHICLE_BLACKLIST, licenseNumber, blacklisted);
+    }
+
+    @Override
+    public BlacklistUpdate updateBlacklist(Collection<String> blacklisted, Collection<String> cleared, boolean replace) {
+        return journal.write(() -> memory.updateBlacklist(blacklisted, cleared, replace),
+                Journal.hotlistRecord(blacklisted, cleared, replace));
+    }
+
+    @Override
+    public BlacklistSync getBlacklistChanges(String logId, long sinceVersion) {
+        journal.awaitRecovery();
+        return memory.getBlacklistChanges(logId, sinceVersion);
+    }
+
+    @Override
+    public VehicleStats getStatistics() {
+        journal.awaitRecovery();
+        return memory.getStatistics();
+    }
+
+    @Override
+    public List<VehicleWithOwner> findAllWithOwners(UserRepository userRepository) {
+        journal.awaitRecovery();
+        return memory.findAllWithOwners(userRepository);
+    }
+
+    @Override
+    public void forEachWithOwner(UserRepository userRepository, Consumer<? super VehicleWithOwner> action) {
+        journal.awaitRecovery();
+        memory.forEachWithOwner(userRepository, action);
+    }
+}
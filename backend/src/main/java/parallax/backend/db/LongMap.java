@@ -0,0 +1,192 @@
+package parallax.backend.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hash map from primitive {@code long} keys to values, used for surrogate id lookups without boxing
+ * the keys.
+ * <p>
+ * Entries live in an open-addressing table with linear probing. Reads never lock: entries are
+ * immutable and published through an {@link AtomicReferenceArray}, and a resized table replaces
+ * the old one through a volatile field. Mutations are serialized on the map. Removed entries leave
+ * a tombstone that probes skip until the next resize. Iteration through {@link #values()} is
+ * weakly consistent, like that of {@link java.util.concurrent.ConcurrentHashMap}.
+ * </p>
+ *
+ * @param <V> value type
+ */
+final class LongMap<V> {
+    private static final int MIN_CAPACITY = 16;
+    private static final Entry<Object> TOMBSTONE = new Entry<>(0, null);
+
+    private volatile AtomicReferenceArray<Entry<V>> table = new AtomicReferenceArray<>(MIN_CAPACITY);
+    private int size;
+    private int used;
+
+    /**
+     * Returns the value mapped to {@code key}.
+     *
+     * @param key key to look up
+     * @return mapped value, or {@code null} if absent
+     */
+    V get(long key) {
+        AtomicReferenceArray<Entry<V>> current = table;
+        int mask = current.length() - 1;
+        for (int i = spread(key) & mask; ; i = (i + 1) & mask) {
+            Entry<V> entry = current.get(i);
+            if (entry == null) {
+                return null;
+            }
+            if (entry != TOMBSTONE && entry.key == key) {
+                return entry.value;
+            }
+        }
+    }
+
+    /**
+     * Maps {@code key} to {@code value}.
+     *
+     * @param key   key to map
+     * @param value value, not {@code null}
+     * @return previously mapped value, or {@code null}
+     */
+    synchronized V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        if ((used + 1) * 2 > table.length()) {
+            resize();
+        }
+        AtomicReferenceArray<Entry<V>> current = table;
+        int mask = current.length() - 1;
+        int free = -1;
+        for (int i = spread(key) & mask; ; i = (i + 1) & mask) {
+            Entry<V> entry = current.get(i);
+            if (entry == null) {
+                if (free < 0) {
+                    free = i;
+                    used++;
+                }
+                current.set(free, new Entry<>(key, value));
+                size++;
+                return null;
+            }
+            if (entry == TOMBSTONE) {
+                if (free < 0) {
+                    free = i;
+                }
+            } else if (entry.key == key) {
+                current.set(i, new Entry<>(key, value));
+                return entry.value;
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping for {@code key}.
+     *
+     * @param key key to remove
+     * @return removed value, or {@code null} if absent
+     */
+    @SuppressWarnings("unchecked")
+    synchronized V remove(long key) {
+        AtomicReferenceArray<Entry<V>> current = table;
+        int mask = current.length() - 1;
+        for (int i = spread(key) & mask; ; i = (i + 1) & mask) {
+            Entry<V> entry = current.get(i);
+            if (entry == null) {
+                return null;
+            }
+            if (entry != TOMBSTONE && entry.key == key) {
+                current.set(i, (Entry<V>) TOMBSTONE);
+                size--;
+                return entry.value;
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping for {@code key} only while it maps to {@code value}.
+     *
+     * @param key   key to remove
+     * @param value expected value, compared by identity
+     * @return {@code true} if the mapping was removed
+     */
+    synchronized boolean remove(long key, V value) {
+        if (get(key) != value) {
+            return false;
+        }
+        remove(key);
+        return true;
+    }
+
+    /**
+     * Returns the number of mappings.
+     *
+     * @return mapping count
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the mapped values in table order.
+     *
+     * @return new list of values
+     */
+    List<V> values() {
+        AtomicReferenceArray<Entry<V>> current = table;
+        List<V> values = new ArrayList<>();
+        for (int i = 0; i < current.length(); i++) {
+            Entry<V> entry = current.get(i);
+            if (entry != null && entry != TOMBSTONE) {
+                values.add(entry.value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Rebuilds the table without tombstones, growing it when live entries would fill more than a
+     * quarter of it.
+     */
+    private void resize() {
+        AtomicReferenceArray<Entry<V>> current = table;
+        int capacity = MIN_CAPACITY;
+        while (capacity < (size + 1) * 4) {
+            capacity <<= 1;
+        }
+        AtomicReferenceArray<Entry<V>> resized = new AtomicReferenceArray<>(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < current.length(); i++) {
+            Entry<V> entry = current.get(i);
+            if (entry == null || entry == TOMBSTONE) {
+                continue;
+            }
+            int slot = spread(entry.key) & mask;
+            while (resized.get(slot) != null) {
+                slot = (slot + 1) & mask;
+            }
+            resized.set(slot, entry);
+        }
+        used = size;
+        table = resized;
+    }
+
+    private static int spread(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static final class Entry<V> {
+        private final long key;
+        private final V value;
+
+        private Entry(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package parallax.backend.db;
+
+import parallax.backend.model.Vehicle;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-only, memory-mapped plate index over a fixed set of vehicles.
+ * <p>
+ * The file is laid out so that it can be queried in place, without parsing it first:
+ * </p>
+ * <ul>
+ *     <li>a 16-byte header: magic, vehicle count, slot count (a power of two) and a reserved int;</li>
+ *     <li>an open-addressing hash table of {@code slotCount} 8-byte slots, each holding the
+ *     {@link String#hashCode()} of the normalized plate and the absolute file offset of its record
+ *     ({@code 0} marks an empty slot);</li>
+ *     <li>the vehicle records: a blacklist byte followed by owner, plate, make, model, year and
+ *     creation time, each as an unsigned 16-bit UTF-8 length ({@code 0xFFFF} for {@code null})
+ *     and the bytes.</li>
+ * </ul>
+ * <p>
+ * Opening a snapshot only maps the file, so lookups are available immediately and the operating
+ * system pages in just the slots and records they touch. Offsets are 32-bit, which limits a
+ * snapshot to 2 GiB. When a plate is registered more than once, the vehicle written first wins;
+ * writing vehicles in {@link InMemoryVehicleRepository#REGISTRATION_ORDER} makes that the vehicle
+ * {@link InMemoryVehicleRepository#findByPlate(String)} returns. Vehicles returned are detached
+ * copies decoded from the file.
+ * </p>
+ */
+public final class MappedVehicleSnapshot {
+    private static final int MAGIC = 0x504D5631;
+    private static final int HEADER_BYTES = 16;
+    private static final int SLOT_BYTES = 8;
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int mask;
+
+    private MappedVehicleSnapshot(MappedByteBuffer buffer, int count, int slotCount) {
+        this.buffer = buffer;
+        this.count = count;
+        this.mask = slotCount - 1;
+    }
+
+    /**
+     * Writes {@code vehicles} to {@code file}, replacing it atomically.
+     *
+     * @param file     target file
+     * @param vehicles vehicles to index; for duplicate plates the earlier one wins
+     * @throws IOException if the file cannot be written or exceeds 2 GiB
+     */
+    public static void write(Path file, List<Vehicle> vehicles) throws IOException {
+        int slotCount = Integer.highestOneBit(Math.max(2, vehicles.size() * 2 - 1)) << 1;
+        int[] slots = new int[slotCount * 2];
+        long recordsStart = HEADER_BYTES + (long) slotCount * SLOT_BYTES;
+        if (recordsStart > Integer.MAX_VALUE) {
+            throw new IOException("Too many vehicles for a mapped snapshot: " + vehicles.size());
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(recordsStart);
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            long offset = recordsStart;
+            for (Vehicle vehicle : vehicles) {
+                if (offset > Integer.MAX_VALUE) {
+                    throw new IOException("Mapped snapshot exceeds 2 GiB: " + file);
+                }
+                String plate = normalize(vehicle.getLicenseNumber());
+                if (plate != null) {
+                    int hash = plate.hashCode();
+                    int slot = spread(hash) & (slotCount - 1);
+                    while (slots[slot * 2 + 1] != 0) {
+                        slot = (slot + 1) & (slotCount - 1);
+                    }
+                    slots[slot * 2] = hash;
+                    slots[slot * 2 + 1] = (int) offset;
+                }
+                out.writeByte(vehicle.isBlacklisted() ? 1 : 0);
+                offset += 1;
+                offset += writeString(out, vehicle.getUsername());
+                offset += writeString(out, plate);
+                offset += writeString(out, vehicle.getMake());
+                offset += writeString(out, vehicle.getModel());
+                offset += writeString(out, vehicle.getYear());
+                offset += writeString(out, vehicle.getCreatedAt());
+            }
+            out.flush();
+
+            ByteBuffer table = ByteBuffer.allocate((int) recordsStart);
+            table.putInt(MAGIC).putInt(vehicles.size()).putInt(slotCount).putInt(0);
+            table.asIntBuffer().put(slots);
+            table.rewind();
+            long position = 0;
+            while (table.hasRemaining()) {
+                position += channel.write(table, position);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Maps an existing snapshot read-only.
+     *
+     * @param file snapshot written by {@link #write(Path, List)}
+     * @return mapped snapshot
+     * @throws IOException if the file cannot be mapped or is not a snapshot
+     */
+    public static MappedVehicleSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a mapped vehicle snapshot: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int count = buffer.getInt(4);
+            int slotCount = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || count < 0 || Integer.bitCount(slotCount) != 1
+                    || HEADER_BYTES + (long) slotCount * SLOT_BYTES > size) {
+                throw new IOException("Not a mapped vehicle snapshot: " + file);
+            }
+            return new MappedVehicleSnapshot(buffer, count, slotCount);
+        }
+    }
+
+    /**
+     * Returns the number of vehicles in the snapshot.
+     *
+     * @return vehicle count
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Looks up a vehicle by plate, normalized the same way as the in-memory repository.
+     *
+     * @param licenseNumber plate to look up
+     * @return decoded vehicle, or empty if the plate is not in the snapshot
+     */
+    public Optional<Vehicle> find(String licenseNumber) {
+        String plate = normalize(licenseNumber);
+        if (plate == null) {
+            return Optional.empty();
+        }
+        byte[] key = plate.getBytes(StandardCharsets.UTF_8);
+        int hash = plate.hashCode();
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int position = HEADER_BYTES + slot * SLOT_BYTES;
+            int offset = buffer.getInt(position + 4);
+            if (offset == 0) {
+                return Optional.empty();
+            }
+            if (buffer.getInt(position) == hash && plateEquals(offset, key)) {
+                return Optional.of(decode(offset));
+            }
+        }
+    }
+
+    /**
+     * Looks up several plates at once.
+     *
+     * @param licenseNumbers plates to look up
+     * @return vehicles keyed by normalized plate; plates not in the snapshot are absent
+     */
+    public Map<String, Vehicle> find(Collection<String> licenseNumbers) {
+        Map<String, Vehicle> matches = new HashMap<>();
+        if (licenseNumbers == null) {
+            return matches;
+        }
+        for (String licenseNumber : licenseNumbers) {
+            find(licenseNumber).ifPresent(vehicle -> matches.putIfAbsent(vehicle.getLicenseNumber(), vehicle));
+        }
+        return matches;
+    }
+
+    private boolean plateEquals(int offset, byte[] key) {
+        int position = offset + 1;
+        position += 2 + stringLength(position);
+        int length = buffer.getShort(position) & 0xFFFF;
+        if (length != key.length) {
+            return false;
+        }
+        byte[] stored = new byte[length];
+        buffer.get(position + 2, stored);
+        return Arrays.equals(stored, key);
+    }
+
+    private Vehicle decode(int offset) {
+        int[] position = {offset + 1};
+        Vehicle vehicle = new Vehicle();
+        vehicle.setBlacklisted(buffer.get(offset) != 0);
+        vehicle.setUsername(readString(position));
+        vehicle.setLicenseNumber(readString(position));
+        vehicle.setMake(readString(position));
+        vehicle.setModel(readString(position));
+        vehicle.setYear(readString(position));
+        vehicle.setCreatedAt(readString(position));
+        return vehicle;
+    }
+
+    private int stringLength(int position) {
+        int length = buffer.getShort(position) & 0xFFFF;
+        return length == NULL_LENGTH ? 0 : length;
+    }
+
+    private String readString(int[] position) {
+        int length = buffer.getShort(position[0]) & 0xFFFF;
+        position[0] += 2;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position[0], bytes);
+        position[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(NULL_LENGTH);
+            return 2;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_LENGTH) {
+            throw new IOException("Field too long for a mapped snapshot: " + bytes.length + " bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+        return 2 + bytes.length;
+    }
+
+    private static String normalize(String licenseNumber) {
+        return licenseNumber == null ? null : licenseNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
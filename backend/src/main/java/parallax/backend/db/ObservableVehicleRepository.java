@@ -0,0 +1,221 @@
+package parallax.backend.db;
+
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.BlacklistUpdate;
+import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
+import parallax.backend.model.VehicleWithOwner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link VehicleRepository} that passes every call to another repository and tells registered
+ * {@link VehicleChangeListener}s which plates a mutation touched once it has been applied.
+ * <p>
+ * Reassigning vehicles to another owner does not change any plate's registration or blacklist
+ * state and is not reported. Mutations whose plates are only known to the underlying repository,
+ * removing all vehicles of a user and replacing the whole blacklist, are reported through
+ * {@link VehicleChangeListener#allChanged()}. Asynchronous writes are reported when their future
+ * completes, whether or not the write succeeded.
+ * </p>
+ */
+public class ObservableVehicleRepository implements VehicleRepository {
+    private final VehicleRepository delegate;
+    private final List<VehicleChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a repository reporting the mutations made through it to {@code delegate}.
+     *
+     * @param delegate repository holding the vehicles
+     */
+    public ObservableVehicleRepository(VehicleRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Registers a listener for changes made from now on.
+     *
+     * @param listener listener to notify
+     */
+    public void addListener(VehicleChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public List<Vehicle> reassignVehicles(String oldUsername, String newUsername) {
+        return delegate.reassignVehicles(oldUsername, newUsername);
+    }
+
+    @Override
+    public List<Vehicle> findByUsername(String username) {
+        return delegate.findByUsername(username);
+    }
+
+    @Override
+    public Optional<Vehicle> findByUsernameAndLicense(String username, String licenseNumber) {
+        return delegate.findByUsernameAndLicense(username, licenseNumber);
+    }
+
+    @Override
+    public Optional<Vehicle> findByLicense(String licenseNumber) {
+        return delegate.findByLicense(licenseNumber);
+    }
+
+    @Override
+    public Optional<Vehicle> findByPlate(String licenseNumber) {
+        return delegate.findByPlate(licenseNumber);
+    }
+
+    @Override
+    public Map<String, Vehicle> findByPlates(Collection<String> licenseNumbers) {
+        return delegate.findByPlates(licenseNumbers);
+    }
+
+    @Override
+    public void addVehicle(Vehicle vehicle) {
+        try {
+            delegate.addVehicle(vehicle);
+        } finally {
+            platesChanged(vehicle == null ? null : Collections.singletonList(vehicle.getLicenseNumber()));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> addVehicleAsync(Vehicle vehicle) {
+        List<String> plates = vehicle == null ? null : Collections.singletonList(vehicle.getLicenseNumber());
+        return delegate.addVehicleAsync(vehicle).whenComplete((result, failure) -> platesChanged(plates));
+    }
+
+    @Override
+    public void addVehicles(Collection<Vehicle> vehicles) {
+        List<String> plates = new ArrayList<>(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            if (vehicle != null) {
+                plates.add(vehicle.getLicenseNumber());
+            }
+        }
+        try {
+            delegate.addVehicles(vehicles);
+        } finally {
+            platesChanged(plates);
+        }
+    }
+
+    @Override
+    public void removeVehicle(String username, String licenseNumber) {
+        try {
+            delegate.removeVehicle(username, licenseNumber);
+        } finally {
+            platesChanged(Collections.singletonList(licenseNumber));
+        }
+    }
+
+    @Override
+    public void removeVehiclesForUser(String username) {
+        try {
+            delegate.removeVehiclesForUser(username);
+        } finally {
+            allChanged();
+        }
+    }
+
+    @Override
+    public boolean removeByLicense(String licenseNumber) {
+        try {
+            return delegate.removeByLicense(licenseNumber);
+        } finally {
+            platesChanged(Collections.singletonList(licenseNumber));
+        }
+    }
+
+    @Override
+    public Optional<Vehicle> updateBlacklistStatus(String licenseNumber, boolean blacklisted) {
+        try {
+            return delegate.updateBlacklistStatus(licenseNumber, blacklisted);
+        } finally {
+            platesChanged(Collections.singletonList(licenseNumber));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Optional<Vehicle>> updateBlacklistStatusAsync(String licenseNumber, boolean blacklisted) {
+        return delegate.updateBlacklistStatusAsync(licenseNumber, blacklisted)
+                .whenComplete((result, failure) -> platesChanged(Collections.singletonList(licenseNumber)));
+    }
+
+    @Override
+    public BlacklistUpdate updateBlacklist(Collection<String> blacklisted, Collection<String> cleared, boolean replace) {
+        try {
+            return delegate.updateBlacklist(blacklisted, cleared, replace);
+        } finally {
+            if (replace) {
+                allChanged();
+            } else {
+                List<String> plates = new ArrayList<>();
+                if (blacklisted != null) {
+                    plates.addAll(blacklisted);
+                }
+                if (cleared != null) {
+                    plates.addAll(cleared);
+                }
+                platesChanged(plates);
+            }
+        }
+    }
+
+    @Override
+    public BlacklistSync getBlacklistChanges(String logId, long sinceVersion) {
+        return delegate.getBlacklistChanges(logId, sinceVersion);
+    }
+
+    @Override
+    public VehicleStats getStatistics() {
+        return delegate.getStatistics();
+    }
+
+    @Override
+    public List<VehicleWithOwner> findAllWithOwners(UserRepository userRepository) {
+        return delegate.findAllWithOwners(userRepository);
+    }
+
+    @Override
+    public void forEachWithOwner(UserRepository userRepository, Consumer<? super VehicleWithOwner> action) {
+        delegate.forEachWithOwner(userRepository, action);
+    }
+
+    /**
+     * Normalizes the plates and notifies every listener; {@code null} plates are skipped.
+     */
+    private void platesChanged(Collection<String> plates) {
+        if (plates == null || listeners.isEmpty()) {
+            return;
+        }
+        List<String> normalized = new ArrayList<>(plates.size());
+        for (String plate : plates) {
+            if (plate != null) {
+                normalized.add(plate.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        if (normalized.isEmpty()) {
+            return;
+        }
+        for (VehicleChangeListener listener : listeners) {
+            listener.platesChanged(normalized);
+        }
+    }
+
+    private void allChanged() {
+        for (VehicleChangeListener listener : listeners) {
+            listener.allChanged();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package parallax.backend.db;
+
+/**
+ * Unchecked wrapper for storage failures in database-backed repositories.
+ * <p>
+ * The repository interfaces do not declare checked exceptions, so JDBC errors are rethrown as
+ * this type and surface to the HTTP layer as internal server errors.
+ * </p>
+ */
+public class RepositoryException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates an exception describing a failed storage operation.
+     *
+     * @param message description of the operation that failed
+     * @param cause   underlying storage error
+     */
+    public RepositoryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
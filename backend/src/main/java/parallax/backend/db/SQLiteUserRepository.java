@@ -0,0 +1,442 @@
+package parallax.backend.db;
+
+import parallax.backend.model.User;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+
+/**
+ * SQLite-backed implementation of {@link UserRepository}.
+ * <p>
+ * Users are stored in the {@code users} table keyed by the lowercased email/username, so email
+ * lookups use the primary key index. Each row also carries the numeric {@code id} of the user,
+ * unique and kept across contact changes; databases created before ids existed are migrated by
+ * numbering their rows on open. New ids come from the persisted counter in
+ * {@code user_id_sequence}, which only moves forward, so the id of a deleted user is never handed
+ * out again. Phone logins look up a precomputed digits-only
+ * {@code phone_signature} column through its own index instead of scanning every user. Lookups
+ * run on the read-only connections of the {@link DataSource}; each mutation runs in one
+ * transaction on its writer connection, either directly or, when a {@link WritePipeline} is
+ * supplied, group-committed with other queued mutations. Prepared statements are cached per
+ * pooled connection.
+ * </p>
+ */
+public class SQLiteUserRepository implements UserRepository {
+    private static final String COLUMNS = "id, username, email, display_name, password, first_name, last_name, country, "
+            + "birth_month, birth_day, birth_year, phone_country, phone, contact_method, created_at";
+
+    private static final String SELECT_BY_USERNAME = "SELECT " + COLUMNS + " FROM users WHERE username = ?";
+    private static final String SELECT_BY_PHONE = "SELECT " + COLUMNS + " FROM users WHERE phone_signature = ? LIMIT 1";
+    private static final String SELECT_BY_ID = "SELECT " + COLUMNS + " FROM users WHERE id = ?";
+    private static final String SELECT_ALL = "SELECT " + COLUMNS + " FROM users";
+    private static final String SELECT_ID = "SELECT id FROM users WHERE username = ?";
+    private static final String ADVANCE_ID = "UPDATE user_id_sequence SET last_id = last_id + 1";
+    private static final String RESERVE_ID = "UPDATE user_id_sequence SET last_id = MAX(last_id, ?)";
+    private static final String SELECT_LAST_ID = "SELECT last_id FROM user_id_sequence";
+    private static final String UPSERT = "INSERT INTO users (" + COLUMNS + ", phone_signature) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (username) DO UPDATE SET id = excluded.id, email = excluded.email, "
+            + "display_name = excluded.display_name, password = excluded.password, first_name = excluded.first_name, "
+            + "last_name = excluded.last_name, country = excluded.country, birth_month = excluded.birth_month, "
+            + "birth_day = excluded.birth_day, birth_year = excluded.birth_year, phone_country = excluded.phone_country, "
+            + "phone = excluded.phone, contact_method = excluded.contact_method, created_at = excluded.created_at, "
+            + "phone_signature = excluded.phone_signature";
+    private static final String DELETE_ID_CONFLICT = "DELETE FROM users WHERE id = ? AND username <> ?";
+    private static final String UPDATE_CONTACT = "UPDATE users SET username = ?, email = ?, phone_country = ?, phone = ?, "
+            + "phone_signature = ? WHERE username = ?";
+    private static final String UPDATE_PASSWORD = "UPDATE users SET password = ? WHERE username = ?";
+    private static final String DELETE = "DELETE FROM users WHERE username = ?";
+
+    private final DataSource dataSource;
+    private final WritePipeline writePipeline;
+
+    /**
+     * Creates the repository on the given data source and creates the schema if needed.
+     *
+     * @param dataSource pool pointing at the SQLite database file
+     */
+    public SQLiteUserRepository(DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    /**
+     * Creates the repository and routes its mutations through a group-commit pipeline.
+     *
+     * @param dataSource    pool pointing at the SQLite database file
+     * @param writePipeline pipeline on the same data source, or {@code null} for one transaction per call
+     */
+    public SQLiteUserRepository(DataSource dataSource, WritePipeline writePipeline) {
+        this.dataSource = dataSource;
+        this.writePipeline = writePipeline;
+        try (DataSource.Lease lease = dataSource.acquireWriter();
+             Statement statement = lease.getConnection().createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS users ("
+                    + "username TEXT PRIMARY KEY, "
+                    + "id INTEGER, "
+                    + "email TEXT, "
+                    + "display_name TEXT, "
+                    + "password TEXT, "
+                    + "first_name TEXT, "
+                    + "last_name TEXT, "
+                    + "country TEXT, "
+                    + "birth_month TEXT, "
+                    + "birth_day TEXT, "
+                    + "birth_year TEXT, "
+                    + "phone_country TEXT, "
+                    + "phone TEXT, "
+                    + "contact_method TEXT, "
+                    + "created_at TEXT, "
+                    + "phone_signature TEXT)");
+            if (!hasColumn(statement, "users", "id")) {
+                statement.execute("ALTER TABLE users ADD COLUMN id INTEGER");
+                statement.execute("UPDATE users SET id = rowid");
+            }
+            statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_users_id ON users (id)");
+            statement.execute("CREATE TABLE IF NOT EXISTS user_id_sequence (last_id INTEGER NOT NULL)");
+            statement.execute("INSERT INTO user_id_sequence (last_id) SELECT COALESCE(MAX(id), 0) FROM users "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM user_id_sequence)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_users_phone_signature ON users (phone_signature)");
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to open user storage", e);
+        }
+    }
+
+    /**
+     * Returns the JDBC URL of the database this repository stores users in.
+     *
+     * @return JDBC connection string
+     */
+    String getDatabaseUrl() {
+        return dataSource.getUrl();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The identifier is tried as an email first and then as a phone signature.
+     * </p>
+     */
+    @Override
+    public Optional<User> findByIdentifierAndPassword(String identifier, String password) {
+        if (identifier == null || password == null) {
+            return Optional.empty();
+        }
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            Optional<User> byEmail = selectOne(lease, SELECT_BY_USERNAME, identifier.toLowerCase(Locale.ROOT));
+            if (byEmail.isPresent() && password.equals(byEmail.get().getPassword())) {
+                return byEmail;
+            }
+
+            Optional<User> byPhone = selectOne(lease, SELECT_BY_PHONE, identifier.replaceAll("\\D", ""));
+            if (byPhone.isPresent() && password.equals(byPhone.get().getPassword())) {
+                return byPhone;
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to load user", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return read(SELECT_BY_USERNAME, email.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<User> findById(long id) {
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            PreparedStatement statement = lease.prepare(SELECT_BY_ID);
+            statement.setLong(1, id);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? Optional.of(readUser(rs)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to load user", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<User> findByPhone(String phoneCountry, String phoneDigits) {
+        if (phoneCountry == null || phoneDigits == null) {
+            return Optional.empty();
+        }
+        return read(SELECT_BY_PHONE, (phoneCountry + phoneDigits).replaceAll("\\D", ""));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Performs an insert-or-replace keyed by the lowercased email/username, matching the
+     * in-memory implementation. A replaced row keeps its id unless {@code user} carries one; new
+     * users without an id get the next value of the id counter, and ids supplied by the caller
+     * move the counter past them.
+     * </p>
+     */
+    @Override
+    public User createUser(User user) {
+        if (user == null || user.getUsername() == null) {
+            throw new IllegalArgumentException("User and username must not be null");
+        }
+
+        String normalizedEmail;
+        if (user.getEmail() != null && !user.getEmail().isBlank()) {
+            normalizedEmail = user.getEmail().trim().toLowerCase(Locale.ROOT);
+        } else {
+            normalizedEmail = user.getUsername().trim().toLowerCase(Locale.ROOT);
+        }
+        user.setUsername(normalizedEmail);
+        user.setEmail(normalizedEmail);
+
+        return write("Failed to store user", transaction -> {
+            DataSource.Lease lease = transaction.getLease();
+            long id = user.getId() > 0 ? reserveId(lease, user.getId()) : assignId(lease, normalizedEmail);
+            PreparedStatement conflict = lease.prepare(DELETE_ID_CONFLICT);
+            conflict.setLong(1, id);
+            conflict.setString(2, normalizedEmail);
+            conflict.executeUpdate();
+
+            PreparedStatement statement = lease.prepare(UPSERT);
+            statement.setLong(1, id);
+            statement.setString(2, user.getUsername());
+            statement.setString(3, user.getEmail());
+            statement.setString(4, user.getDisplayName());
+            statement.setString(5, user.getPassword());
+            statement.setString(6, user.getFirstName());
+            statement.setString(7, user.getLastName());
+            statement.setString(8, user.getCountry());
+            statement.setString(9, user.getBirthMonth());
+            statement.setString(10, user.getBirthDay());
+            statement.setString(11, user.getBirthYear());
+            statement.setString(12, user.getPhoneCountry());
+            statement.setString(13, user.getPhone());
+            statement.setString(14, user.getContactMethod());
+            statement.setString(15, user.getCreatedAt());
+            statement.setString(16, phoneSignature(user.getPhoneCountry(), user.getPhone()));
+            statement.executeUpdate();
+            user.setId(id);
+            return user;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When the email changes, an existing record under the new email is replaced, as in the
+     * in-memory implementation. The updated row keeps its id.
+     * </p>
+     */
+    @Override
+    public Optional<User> updateContact(String username, String newEmail, String phoneCountry, String phone) {
+        if (username == null || newEmail == null) {
+            return Optional.empty();
+        }
+        String key = username.toLowerCase(Locale.ROOT);
+        String newKey = newEmail.toLowerCase(Locale.ROOT);
+        return write("Failed to update user contact", transaction -> {
+            DataSource.Lease lease = transaction.getLease();
+            Optional<User> existing = selectOne(lease, SELECT_BY_USERNAME, key);
+            if (existing.isEmpty()) {
+                return existing;
+            }
+
+            if (!newKey.equals(key)) {
+                PreparedStatement delete = lease.prepare(DELETE);
+                delete.setString(1, newKey);
+                delete.executeUpdate();
+            }
+            PreparedStatement statement = lease.prepare(UPDATE_CONTACT);
+            statement.setString(1, newKey);
+            statement.setString(2, newKey);
+            statement.setString(3, phoneCountry);
+            statement.setString(4, phone);
+            statement.setString(5, phoneSignature(phoneCountry, phone));
+            statement.setString(6, key);
+            statement.executeUpdate();
+
+            User user = existing.get();
+            user.setUsername(newKey);
+            user.setEmail(newKey);
+            user.setPhoneCountry(phoneCountry);
+            user.setPhone(phone);
+            return Optional.of(user);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<User> updatePassword(String username, String newPassword) {
+        if (username == null || newPassword == null) {
+            return Optional.empty();
+        }
+        String key = username.toLowerCase(Locale.ROOT);
+        return write("Failed to update password", transaction -> {
+            DataSource.Lease lease = transaction.getLease();
+            PreparedStatement statement = lease.prepare(UPDATE_PASSWORD);
+            statement.setString(1, newPassword);
+            statement.setString(2, key);
+            if (statement.executeUpdate() == 0) {
+                return Optional.<User>empty();
+            }
+            return selectOne(lease, SELECT_BY_USERNAME, key);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean deleteUser(String username) {
+        if (username == null) {
+            return false;
+        }
+        return write("Failed to delete user", transaction -> {
+            PreparedStatement statement = transaction.getLease().prepare(DELETE);
+            statement.setString(1, username.toLowerCase(Locale.ROOT));
+            return statement.executeUpdate() > 0;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, User> findAllUsers() {
+        Map<String, User> users = new HashMap<>();
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            PreparedStatement statement = lease.prepare(SELECT_ALL);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    User user = readUser(rs);
+                    users.put(user.getUsername(), user);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to list users", e);
+        }
+        return Map.copyOf(users);
+    }
+
+    private <T> T write(String failure, WritePipeline.WriteTask<T> task) {
+        try {
+            if (writePipeline != null) {
+                return writePipeline.submit(task).join();
+            }
+            return WritePipeline.runInTransaction(dataSource, task);
+        } catch (SQLException e) {
+            throw new RepositoryException(failure, e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RepositoryException(failure, e.getCause());
+        }
+    }
+
+    /**
+     * Returns the id of the stored user with the given email, or takes the next id from the
+     * counter.
+     */
+    private static long assignId(DataSource.Lease lease, String username) throws SQLException {
+        PreparedStatement existing = lease.prepare(SELECT_ID);
+        existing.setString(1, username);
+        try (ResultSet rs = existing.executeQuery()) {
+            if (rs.next() && rs.getLong(1) > 0) {
+                return rs.getLong(1);
+            }
+        }
+        lease.prepare(ADVANCE_ID).executeUpdate();
+        try (ResultSet rs = lease.prepare(SELECT_LAST_ID).executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Moves the id counter past an id assigned outside this repository.
+     */
+    private static long reserveId(DataSource.Lease lease, long id) throws SQLException {
+        PreparedStatement reserve = lease.prepare(RESERVE_ID);
+        reserve.setLong(1, id);
+        reserve.executeUpdate();
+        return id;
+    }
+
+    private static boolean hasColumn(Statement statement, String table, String column) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Optional<User> read(String sql, String value) {
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            return selectOne(lease, sql, value);
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to load user", e);
+        }
+    }
+
+    private Optional<User> selectOne(DataSource.Lease lease, String sql, String value) throws SQLException {
+        PreparedStatement statement = lease.prepare(sql);
+        statement.setString(1, value);
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? Optional.of(readUser(rs)) : Optional.empty();
+        }
+    }
+
+    private static User readUser(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong(1));
+        user.setUsername(rs.getString(2));
+        user.setEmail(rs.getString(3));
+        user.setDisplayName(rs.getString(4));
+        user.setPassword(rs.getString(5));
+        user.setFirstName(rs.getString(6));
+        user.setLastName(rs.getString(7));
+        user.setCountry(rs.getString(8));
+        user.setBirthMonth(rs.getString(9));
+        user.setBirthDay(rs.getString(10));
+        user.setBirthYear(rs.getString(11));
+        user.setPhoneCountry(rs.getString(12));
+        user.setPhone(rs.getString(13));
+        user.setContactMethod(rs.getString(14));
+        user.setCreatedAt(rs.getString(15));
+        return user;
+    }
+
+    /**
+     * Digits-only concatenation of country code and number, or {@code null} when either part is
+     * missing so that such users never match a phone login.
+     */
+    private static String phoneSignature(String phoneCountry, String phone) {
+        if (phoneCountry == null || phone == null) {
+            return null;
+        }
+        return (phoneCountry + phone).replaceAll("\\D", "");
+    }
+}
@@ -0,0 +1,830 @@
+package parallax.backend.db;
+
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.BlacklistUpdate;
+import parallax.backend.model.User;
+import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
+import parallax.backend.model.VehicleWithOwner;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * SQLite-backed implementation of {@link VehicleRepository}.
+ * <p>
+ * Vehicles are stored in the {@code vehicles} table with the plate already normalized, so plate
+ * lookups use {@code idx_vehicles_plate} directly and per-owner queries use
+ * {@code idx_vehicles_owner}. Vehicles refer to their owner by the numeric id of a
+ * {@code vehicle_owners} row, which holds the owner's lowercased key and display username once, so
+ * renaming an owner updates a single row. Rows keep their insertion order through the integer
+ * primary key; where several owners register the same plate, the oldest registration is the one
+ * returned by plate lookups. Reads run on the pooled read-only connections of the {@link DataSource} and
+ * therefore never wait for a write; each mutation runs its whole read-modify-write sequence in
+ * one transaction on the writer connection, either directly or, when a {@link WritePipeline} is
+ * supplied, group-committed together with other queued mutations. Prepared statements are cached
+ * per pooled connection. Blacklist changes are recorded in a {@link BlacklistChangeLog} exactly as
+ * in {@link InMemoryVehicleRepository}, after commit on the writer so that log order matches
+ * commit order.
+ * </p>
+ */
+public class SQLiteVehicleRepository implements VehicleRepository {
+    /** Number of placeholders of the cached multi-plate lookup; larger requests are chunked. */
+    private static final int PLATE_BATCH_SIZE = 64;
+
+    private static final String COLUMNS = "o.username, v.license_number, v.make, v.model, v.year, v.blacklisted, "
+            + "v.created_at, v.owner_id";
+    private static final String FROM = " FROM vehicles v JOIN vehicle_owners o ON o.id = v.owner_id ";
+    private static final String OWNER_ID = "(SELECT id FROM vehicle_owners WHERE owner_key = ?)";
+
+    private static final String INSERT = "INSERT INTO vehicles (owner_id, license_number, make, model, year, blacklisted, "
+            + "created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_OWNER_ID = "SELECT id FROM vehicle_owners WHERE owner_key = ?";
+    private static final String INSERT_OWNER = "INSERT INTO vehicle_owners (owner_key, username) VALUES (?, ?)";
+    private static final String SELECT_BY_OWNER = "SELECT " + COLUMNS + FROM + "WHERE o.owner_key = ? ORDER BY v.id";
+    private static final String SELECT_BY_OWNER_AND_PLATE = "SELECT " + COLUMNS + FROM
+            + "WHERE o.owner_key = ? AND v.license_number = ? ORDER BY v.id LIMIT 1";
+    private static final String SELECT_BY_PLATE = "SELECT v.id, " + COLUMNS + FROM
+            + "WHERE v.license_number = ? ORDER BY v.id LIMIT 1";
+    private static final String SELECT_BY_PLATES = "SELECT " + COLUMNS + FROM + "WHERE v.license_number IN ("
+            + String.join(", ", Collections.nCopies(PLATE_BATCH_SIZE, "?")) + ") ORDER BY v.id";
+    private static final String SELECT_ALL = "SELECT " + COLUMNS + FROM + "ORDER BY v.id";
+    private static final String SELECT_ALL_WITH_OWNERS = "SELECT " + COLUMNS + ", u.username, u.email, u.phone_country, "
+            + "u.phone" + FROM + "LEFT JOIN users u ON u.username = o.owner_key ORDER BY v.id";
+    private static final String SELECT_BLACKLISTED_PLATES = "SELECT DISTINCT license_number FROM vehicles "
+            + "WHERE blacklisted = 1 AND license_number IS NOT NULL ORDER BY license_number";
+    private static final String SELECT_BLACKLISTED_BY_OWNER = "SELECT DISTINCT license_number FROM vehicles "
+            + "WHERE owner_id = " + OWNER_ID + " AND blacklisted = 1 AND license_number IS NOT NULL";
+    private static final String EXISTS_BLACKLISTED_PLATE = "SELECT 1 FROM vehicles "
+            + "WHERE license_number = ? AND blacklisted = 1 LIMIT 1";
+    private static final String COUNT_BLACKLISTED_BY_OWNER_AND_PLATE = "SELECT COUNT(*) FROM vehicles "
+            + "WHERE owner_id = " + OWNER_ID + " AND license_number = ? AND blacklisted = 1";
+    private static final String COUNT_BLACKLISTED_BY_PLATE = "SELECT COUNT(*) FROM vehicles "
+            + "WHERE license_number = ? AND blacklisted = 1";
+    private static final String COUNT_VEHICLES = "SELECT COUNT(*), COALESCE(SUM(blacklisted), 0) FROM vehicles";
+    private static final String COUNT_BY_MAKE = "SELECT make, COUNT(*) FROM vehicles WHERE make IS NOT NULL GROUP BY make";
+    private static final String COUNT_BY_YEAR = "SELECT year, COUNT(*) FROM vehicles WHERE year IS NOT NULL GROUP BY year";
+    private static final String RENAME_OWNER = "UPDATE vehicle_owners SET owner_key = ?, username = ? WHERE id = ?";
+    private static final String MOVE_VEHICLES = "UPDATE vehicles SET owner_id = ? WHERE owner_id = ?";
+    private static final String DELETE_OWNER = "DELETE FROM vehicle_owners WHERE id = ?";
+    private static final String DELETE_OWNER_BY_KEY = "DELETE FROM vehicle_owners WHERE owner_key = ?";
+    private static final String UPDATE_BLACKLIST = "UPDATE vehicles SET blacklisted = ? WHERE id = ?";
+    private static final String CREATE_HOTLIST = "CREATE TEMP TABLE IF NOT EXISTS hotlist ("
+            + "plate TEXT PRIMARY KEY, blacklisted INTEGER NOT NULL, requested INTEGER NOT NULL)";
+    private static final String INSERT_HOTLIST = "INSERT OR REPLACE INTO hotlist (plate, blacklisted, requested) VALUES (?, ?, 1)";
+    private static final String INSERT_HOTLIST_OTHERS = "INSERT OR IGNORE INTO hotlist (plate, blacklisted, requested) "
+            + "SELECT DISTINCT license_number, 0, 0 FROM vehicles WHERE blacklisted = 1 AND license_number IS NOT NULL";
+    private static final String SELECT_HOTLIST_CHANGES = "SELECT h.plate, h.blacklisted FROM hotlist h "
+            + "WHERE h.blacklisted <> (SELECT MAX(v.blacklisted) FROM vehicles v WHERE v.license_number = h.plate)";
+    private static final String SELECT_HOTLIST_MATCHED = "SELECT h.plate FROM hotlist h "
+            + "WHERE h.requested = 1 AND EXISTS (SELECT 1 FROM vehicles v WHERE v.license_number = h.plate)";
+    private static final String UPDATE_FROM_HOTLIST = "UPDATE vehicles SET blacklisted = ? WHERE blacklisted <> ? "
+            + "AND license_number IN (SELECT plate FROM hotlist WHERE blacklisted = ?)";
+    private static final String CLEAR_HOTLIST = "DELETE FROM hotlist";
+    private static final String DELETE_BY_OWNER_AND_PLATE = "DELETE FROM vehicles WHERE owner_id = " + OWNER_ID
+            + " AND license_number = ?";
+    private static final String DELETE_BY_OWNER = "DELETE FROM vehicles WHERE owner_id = " + OWNER_ID;
+    private static final String DELETE_BY_PLATE = "DELETE FROM vehicles WHERE license_number = ?";
+
+    private final DataSource dataSource;
+    private final BlacklistChangeLog blacklistLog;
+    private final WritePipeline writePipeline;
+
+    /**
+     * Creates the repository on the given data source with a default-sized blacklist change log.
+     *
+     * @param dataSource pool pointing at the SQLite database file
+     */
+    public SQLiteVehicleRepository(DataSource dataSource) {
+        this(dataSource, new BlacklistChangeLog());
+    }
+
+    /**
+     * Creates the repository on the given data source and creates the schema if needed.
+     *
+     * @param dataSource   pool pointing at the SQLite database file
+     * @param blacklistLog change log used for blacklist delta synchronization
+     */
+    public SQLiteVehicleRepository(DataSource dataSource, BlacklistChangeLog blacklistLog) {
+        this(dataSource, blacklistLog, null);
+    }
+
+    /**
+     * Creates the repository and routes its mutations through a group-commit pipeline.
+     *
+     * @param dataSource    pool pointing at the SQLite database file
+     * @param blacklistLog  change log used for blacklist delta synchronization
+     * @param writePipeline pipeline on the same data source, or {@code null} for one transaction per call
+     */
+    public SQLiteVehicleRepository(DataSource dataSource, BlacklistChangeLog blacklistLog, WritePipeline writePipeline) {
+        this.dataSource = dataSource;
+        this.blacklistLog = blacklistLog;
+        this.writePipeline = writePipeline;
+        try (DataSource.Lease lease = dataSource.acquireWriter();
+             Statement statement = lease.getConnection().createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS vehicle_owners ("
+                    + "id INTEGER PRIMARY KEY, "
+                    + "owner_key TEXT NOT NULL UNIQUE, "
+                    + "username TEXT NOT NULL)");
+            statement.execute("CREATE TABLE IF NOT EXISTS vehicles ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "owner_id INTEGER NOT NULL, "
+                    + "license_number TEXT, "
+                    + "make TEXT, "
+                    + "model TEXT, "
+                    + "year TEXT, "
+                    + "blacklisted INTEGER NOT NULL DEFAULT 0, "
+                    + "created_at TEXT)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_vehicles_plate ON vehicles (license_number)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_vehicles_owner ON vehicles (owner_id, license_number)");
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to open vehicle storage", e);
+        }
+    }
+
+    private String normalizeLicense(String licenseNumber) {
+        if (licenseNumber == null) {
+            return null;
+        }
+        return licenseNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When the new owner has no vehicles, only the owner row is renamed. Otherwise the vehicles
+     * are moved to the existing owner row and the old one is deleted.
+     * </p>
+     */
+    @Override
+    public List<Vehicle> reassignVehicles(String oldUsername, String newUsername) {
+        if (oldUsername == null || newUsername == null) {
+            return Collections.emptyList();
+        }
+        String oldKey = oldUsername.toLowerCase(Locale.ROOT);
+        String newKey = newUsername.toLowerCase(Locale.ROOT);
+        return write("Failed to reassign vehicles", transaction -> {
+            DataSource.Lease lease = transaction.getLease();
+            List<Vehicle> existing = selectList(lease, SELECT_BY_OWNER, oldKey);
+            if (existing.isEmpty()) {
+                return Collections.<Vehicle>emptyList();
+            }
+            long oldId = existing.get(0).getOwnerId();
+            Long targetId = oldKey.equals(newKey) ? null : selectOwnerId(lease, newKey);
+            if (targetId == null) {
+                PreparedStatement rename = lease.prepare(RENAME_OWNER);
+                rename.setString(1, newKey);
+                rename.setString(2, newUsername);
+                rename.setLong(3, oldId);
+                rename.executeUpdate();
+            } else {
+                PreparedStatement move = lease.prepare(MOVE_VEHICLES);
+                move.setLong(1, targetId);
+                move.setLong(2, oldId);
+                move.executeUpdate();
+                PreparedStatement delete = lease.prepare(DELETE_OWNER);
+                delete.setLong(1, oldId);
+                delete.executeUpdate();
+            }
+            long ownerId = targetId == null ? oldId : targetId;
+            existing.forEach(vehicle -> {
+                vehicle.setUsername(newUsername);
+                vehicle.setOwnerId(ownerId);
+            });
+            return existing;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Vehicle> findByUsername(String username) {
+        if (username == null) {
+            return Collections.emptyList();
+        }
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            return selectList(lease, SELECT_BY_OWNER, username.toLowerCase(Locale.ROOT));
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to load vehicles", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Vehicle> findByUsernameAndLicense(String username, String licenseNumber) {
+        String normalizedLicense = normalizeLicense(licenseNumber);
+        if (username == null || normalizedLicense == null) {
+            return Optional.empty();
+        }
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            List<Vehicle> matches = selectList(lease, SELECT_BY_OWNER_AND_PLATE,
+                    username.toLowerCase(Locale.ROOT), normalizedLicense);
+            return matches.isEmpty() ? Optional.empty() : Optional.of(matches.get(0));
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to load vehicle", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Vehicle> findByLicense(String licenseNumber) {
+        return findByPlate(licenseNumber);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Vehicle> findByPlate(String licenseNumber) {
+        String normalizedLicense = normalizeLicense(licenseNumber);
+        if (normalizedLicense == null) {
+            return Optional.empty();
+        }
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            PreparedStatement statement = lease.prepare(SELECT_BY_PLATE);
+            statement.setString(1, normalizedLicense);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? Optional.of(readVehicle(rs, 2)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to look up plate", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Plates are resolved in chunks of {@value #PLATE_BATCH_SIZE} through one cached
+     * {@code IN (...)} statement; a short final chunk repeats its last plate to fill the
+     * remaining placeholders.
+     * </p>
+     */
+    @Override
+    public Map<String, Vehicle> findByPlates(Collection<String> licenseNumbers) {
+        if (licenseNumbers == null || licenseNumbers.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Set<String> wanted = new LinkedHashSet<>();
+        for (String licenseNumber : licenseNumbers) {
+            String normalizedLicense = normalizeLicense(licenseNumber);
+            if (normalizedLicense != null) {
+                wanted.add(normalizedLicense);
+            }
+        }
+        if (wanted.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<String> plates = new ArrayList<>(wanted);
+        Map<String, Vehicle> matches = new HashMap<>();
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            PreparedStatement statement = lease.prepare(SELECT_BY_PLATES);
+            for (int start = 0; start < plates.size(); start += PLATE_BATCH_SIZE) {
+                int end = Math.min(start + PLATE_BATCH_SIZE, plates.size());
+                for (int i = 0; i < PLATE_BATCH_SIZE; i++) {
+                    statement.setString(i + 1, plates.get(Math.min(start + i, end - 1)));
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        Vehicle vehicle = readVehicle(rs, 1);
+                        matches.putIfAbsent(vehicle.getLicenseNumber(), vehicle);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to look up plates", e);
+        }
+        return matches;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The license plate is normalized before it is stored, as in the in-memory implementation.
+     * </p>
+     */
+    @Override
+    public void addVehicle(Vehicle vehicle) {
+        join(addVehicleAsync(vehicle));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * With a {@link WritePipeline} the returned future completes once the batch containing the
+     * insert has committed.
+     * </p>
+     */
+    @Override
+    public CompletableFuture<Void> addVehicleAsync(Vehicle vehicle) {
+        if (vehicle == null || vehicle.getUsername() == null) {
+            throw new IllegalArgumentException("Vehicle and username must not be null");
+        }
+        vehicle.setLicenseNumber(normalizeLicense(vehicle.getLicenseNumber()));
+
+        return writeAsync("Failed to store vehicle", transaction -> {
+            insert(transaction, vehicle, new HashMap<>());
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All vehicles are inserted in one transaction, or one task of a {@link WritePipeline} batch.
+     * </p>
+     */
+    @Override
+    public void addVehicles(Collection<Vehicle> vehicles) {
+        for (Vehicle vehicle : vehicles) {
+            if (vehicle == null || vehicle.getUsername() == null) {
+                throw new IllegalArgumentException("Vehicle and username must not be null");
+            }
+            vehicle.setLicenseNumber(normalizeLicense(vehicle.getLicenseNumber()));
+        }
+        if (vehicles.isEmpty()) {
+            return;
+        }
+        write("Failed to store vehicles", transaction -> {
+            Map<String, Long> ownerIds = new HashMap<>();
+            for (Vehicle vehicle : vehicles) {
+                insert(transaction, vehicle, ownerIds);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Inserts one vehicle, creating its owner row on first use.
+     *
+     * @param ownerIds owner ids already resolved in this transaction, by owner key
+     */
+    private void insert(WritePipeline.Transaction transaction, Vehicle vehicle, Map<String, Long> ownerIds)
+            throws SQLException {
+        DataSource.Lease lease = transaction.getLease();
+        String ownerKey = vehicle.getUsername().toLowerCase(Locale.ROOT);
+        Long ownerId = ownerIds.get(ownerKey);
+        if (ownerId == null) {
+            ownerId = selectOwnerId(lease, ownerKey);
+            if (ownerId == null) {
+                PreparedStatement owner = lease.prepare(INSERT_OWNER);
+                owner.setString(1, ownerKey);
+                owner.setString(2, vehicle.getUsername());
+                owner.executeUpdate();
+                ownerId = selectOwnerId(lease, ownerKey);
+            }
+            ownerIds.put(ownerKey, ownerId);
+        }
+        vehicle.setOwnerId(ownerId);
+
+        String normalizedLicense = vehicle.getLicenseNumber();
+        PreparedStatement statement = lease.prepare(INSERT);
+        statement.setLong(1, ownerId);
+        statement.setString(2, normalizedLicense);
+        statement.setString(3, vehicle.getMake());
+        statement.setString(4, vehicle.getModel());
+        statement.setString(5, vehicle.getYear());
+        statement.setInt(6, vehicle.isBlacklisted() ? 1 : 0);
+        statement.setString(7, vehicle.getCreatedAt());
+        statement.executeUpdate();
+        if (vehicle.isBlacklisted() && normalizedLicense != null) {
+            transaction.afterCommit(() -> blacklistLog.record(normalizedLicense, true));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeVehicle(String username, String licenseNumber) {
+        String normalizedLicense = normalizeLicense(licenseNumber);
+        if (username == null || normalizedLicense == null) {
+            return;
+        }
+        String ownerKey = username.toLowerCase(Locale.ROOT);
+        write("Failed to remove vehicle", transaction -> {
+            DataSource.Lease lease = transaction.getLease();
+            boolean wasBlacklisted = count(lease, COUNT_BLACKLISTED_BY_OWNER_AND_PLATE, ownerKey, normalizedLicense) > 0;
+            PreparedStatement statement = lease.prepare(DELETE_BY_OWNER_AND_PLATE);
+            statement.setString(1, ownerKey);
+            statement.setString(2, normalizedLicense);
+            statement.executeUpdate();
+            if (wasBlacklisted) {
+                recordAfterCommit(transaction, normalizedLicense, isPlateBlacklisted(lease, normalizedLicense));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeVehiclesForUser(String username) {
+        if (username == null) {
+            return;
+        }
+        String ownerKey = username.toLowerCase(Locale.ROOT);
+        write("Failed to remove vehicles", transaction -> {
+            DataSource.Lease lease = transaction.getLease();
+            List<String> blacklistedPlates = selectPlates(lease, SELECT_BLACKLISTED_BY_OWNER, ownerKey);
+            PreparedStatement statement = lease.prepare(DELETE_BY_OWNER);
+            statement.setString(1, ownerKey);
+            statement.executeUpdate();
+            PreparedStatement owner = lease.prepare(DELETE_OWNER_BY_KEY);
+            owner.setString(1, ownerKey);
+            owner.executeUpdate();
+            for (String plate : blacklistedPlates) {
+                recordAfterCommit(transaction, plate, isPlateBlacklisted(lease, plate));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeByLicense(String licenseNumber) {
+        String normalizedLicense = normalizeLicense(licenseNumber);
+        if (normalizedLicense == null) {
+            return false;
+        }
+        return write("Failed to remove vehicle", transaction -> {
+            DataSource.Lease lease = transaction.getLease();
+            boolean wasBlacklisted = count(lease, COUNT_BLACKLISTED_BY_PLATE, normalizedLicense) > 0;
+            PreparedStatement statement = lease.prepare(DELETE_BY_PLATE);
+            statement.setString(1, normalizedLicense);
+            boolean removed = statement.executeUpdate() > 0;
+            if (wasBlacklisted) {
+                recordAfterCommit(transaction, normalizedLicense, false);
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the oldest registration of the plate is updated, matching the vehicle returned by
+     * {@link #findByPlate(String)}. Only actual changes are recorded in the blacklist change log.
+     * </p>
+     */
+    @Override
+    public Optional<Vehicle> updateBlacklistStatus(String licenseNumber, boolean blacklisted) {
+        return join(updateBlacklistStatusAsync(licenseNumber, blacklisted));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * With a {@link WritePipeline} the returned future completes once the batch containing the
+     * update has committed.
+     * </p>
+     */
+    @Override
+    public CompletableFuture<Optional<Vehicle>> updateBlacklistStatusAsync(String licenseNumber, boolean blacklisted) {
+        String normalizedLicense = normalizeLicense(licenseNumber);
+        if (normalizedLicense == null) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return writeAsync("Failed to update blacklist status", transaction -> {
+            DataSource.Lease lease = transaction.getLease();
+            PreparedStatement select = lease.prepare(SELECT_BY_PLATE);
+            select.setString(1, normalizedLicense);
+            long id;
+            Vehicle vehicle;
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.<Vehicle>empty();
+                }
+                id = rs.getLong(1);
+                vehicle = readVehicle(rs, 2);
+            }
+            if (vehicle.isBlacklisted() != blacklisted) {
+                PreparedStatement update = lease.prepare(UPDATE_BLACKLIST);
+                update.setInt(1, blacklisted ? 1 : 0);
+                update.setLong(2, id);
+                update.executeUpdate();
+                vehicle.setBlacklisted(blacklisted);
+                recordAfterCommit(transaction, normalizedLicense, isPlateBlacklisted(lease, normalizedLicense));
+            }
+            return Optional.of(vehicle);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The plates are loaded into a temporary table on the writer connection and the flags are
+     * changed with set-based updates, all in one transaction. The changed plates are recorded in
+     * the change log as one version after the commit.
+     * </p>
+     */
+    @Override
+    public BlacklistUpdate updateBlacklist(Collection<String> blacklisted, Collection<String> cleared, boolean replace) {
+        Hotlist hotlist = Hotlist.of(blacklisted, cleared, replace);
+        Map<String, Boolean> changes = new HashMap<>();
+        Set<String> matched = new HashSet<>();
+        long[] version = new long[1];
+        write("Failed to update blacklist", transaction -> {
+            DataSource.Lease lease = transaction.getLease();
+            changes.clear();
+            matched.clear();
+            try (Statement statement = lease.getConnection().createStatement()) {
+                statement.execute(CREATE_HOTLIST);
+            }
+            PreparedStatement insert = lease.prepare(INSERT_HOTLIST);
+            for (Map.Entry<String, Boolean> target : hotlist.getTargets().entrySet()) {
+                insert.setString(1, target.getKey());
+                insert.setInt(2, target.getValue() ? 1 : 0);
+                insert.executeUpdate();
+            }
+            if (hotlist.isReplace()) {
+                lease.prepare(INSERT_HOTLIST_OTHERS).executeUpdate();
+            }
+            try (ResultSet rs = lease.prepare(SELECT_HOTLIST_CHANGES).executeQuery()) {
+                while (rs.next()) {
+                    changes.put(rs.getString(1), rs.getInt(2) != 0);
+                }
+            }
+            try (ResultSet rs = lease.prepare(SELECT_HOTLIST_MATCHED).executeQuery()) {
+                while (rs.next()) {
+                    matched.add(rs.getString(1));
+                }
+            }
+            PreparedStatement update = lease.prepare(UPDATE_FROM_HOTLIST);
+            for (int state = 0; state <= 1; state++) {
+                update.setInt(1, state);
+                update.setInt(2, state);
+                update.setInt(3, state);
+                update.executeUpdate();
+            }
+            lease.prepare(CLEAR_HOTLIST).executeUpdate();
+            transaction.afterCommit(() -> version[0] = blacklistLog.recordAll(changes));
+            return null;
+        });
+        return hotlist.summarize(blacklistLog.getLogId(), version[0], changes, matched);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The log version is read before the snapshot query, so a concurrent change may be delivered
+     * again by the next delta; applying it twice is harmless.
+     * </p>
+     */
+    @Override
+    public BlacklistSync getBlacklistChanges(String logId, long sinceVersion) {
+        BlacklistSync delta = blacklistLog.deltaSince(logId, sinceVersion);
+        if (delta != null) {
+            return delta;
+        }
+        long version = blacklistLog.currentVersion();
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            return BlacklistSync.snapshot(blacklistLog.getLogId(), version,
+                    selectPlates(lease, SELECT_BLACKLISTED_PLATES));
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to load blacklist", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Counted by aggregate queries on one reader connection.
+     * </p>
+     */
+    @Override
+    public VehicleStats getStatistics() {
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            long total;
+            long blacklisted;
+            try (ResultSet rs = lease.prepare(COUNT_VEHICLES).executeQuery()) {
+                rs.next();
+                total = rs.getLong(1);
+                blacklisted = rs.getLong(2);
+            }
+            return new VehicleStats(total, blacklisted, selectCounts(lease, COUNT_BY_MAKE),
+                    selectCounts(lease, COUNT_BY_YEAR));
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to count vehicles", e);
+        }
+    }
+
+    /**
+     * Returns all stored vehicles in registration order.
+     *
+     * @return list of every vehicle across all users
+     */
+    public List<Vehicle> findAll() {
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            return selectList(lease, SELECT_ALL);
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to load vehicles", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<VehicleWithOwner> findAllWithOwners(UserRepository userRepository) {
+        List<VehicleWithOwner> results = new ArrayList<>();
+        forEachWithOwner(userRepository, results::add);
+        return results;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Rows are read through a cursor on one pooled reader connection, which stays leased until
+     * the iteration ends. When {@code userRepository} is a {@link SQLiteUserRepository} on the
+     * same database, directly or behind a {@link TieredUserRepository}, owners are resolved with
+     * a single join instead of one user lookup per vehicle.
+     * </p>
+     */
+    @Override
+    public void forEachWithOwner(UserRepository userRepository, Consumer<? super VehicleWithOwner> action) {
+        UserRepository owners = userRepository instanceof TieredUserRepository
+                ? ((TieredUserRepository) userRepository).getStore() : userRepository;
+        boolean joined = owners instanceof SQLiteUserRepository
+                && dataSource.getUrl().equals(((SQLiteUserRepository) owners).getDatabaseUrl());
+        try (DataSource.Lease lease = dataSource.acquireReader()) {
+            PreparedStatement statement = lease.prepare(joined ? SELECT_ALL_WITH_OWNERS : SELECT_ALL);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    Vehicle vehicle = readVehicle(rs, 1);
+                    VehicleWithOwner enriched = toVehicleWithOwner(vehicle);
+                    if (joined) {
+                        if (rs.getString(9) != null) {
+                            setOwner(enriched, rs.getString(9), rs.getString(10), rs.getString(11), rs.getString(12));
+                        }
+                    } else if (vehicle.getUsername() != null) {
+                        userRepository.findByEmail(vehicle.getUsername()).ifPresent((User user) ->
+                                setOwner(enriched, user.getUsername(), user.getEmail(), user.getPhoneCountry(), user.getPhone()));
+                    }
+                    action.accept(enriched);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to list vehicles", e);
+        }
+    }
+
+    private static VehicleWithOwner toVehicleWithOwner(Vehicle vehicle) {
+        VehicleWithOwner enriched = new VehicleWithOwner();
+        enriched.setUsername(vehicle.getUsername());
+        enriched.setLicenseNumber(vehicle.getLicenseNumber());
+        enriched.setMake(vehicle.getMake());
+        enriched.setModel(vehicle.getModel());
+        enriched.setYear(vehicle.getYear());
+        enriched.setBlacklisted(vehicle.isBlacklisted());
+        enriched.setCreatedAt(vehicle.getCreatedAt());
+        return enriched;
+    }
+
+    private static void setOwner(VehicleWithOwner enriched, String username, String email, String phoneCountry, String phone) {
+        enriched.setOwnerUsername(username);
+        enriched.setOwnerEmail(email);
+        enriched.setOwnerPhone(phoneCountry != null ? phoneCountry + (phone == null ? "" : phone) : phone);
+        enriched.setOwnerPhoneCountry(phoneCountry);
+    }
+
+    private <T> T write(String failure, WritePipeline.WriteTask<T> task) {
+        return join(writeAsync(failure, task));
+    }
+
+    private <T> CompletableFuture<T> writeAsync(String failure, WritePipeline.WriteTask<T> task) {
+        if (writePipeline != null) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            writePipeline.submit(task).whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(error instanceof RuntimeException ? error : new RepositoryException(failure, error));
+                }
+            });
+            return result;
+        }
+        try {
+            return CompletableFuture.completedFuture(WritePipeline.runInTransaction(dataSource, task));
+        } catch (SQLException e) {
+            throw new RepositoryException(failure, e);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // writeAsync only fails futures with unchecked exceptions
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private void recordAfterCommit(WritePipeline.Transaction transaction, String plate, boolean blacklisted) {
+        transaction.afterCommit(() -> blacklistLog.record(plate, blacklisted));
+    }
+
+    private static Long selectOwnerId(DataSource.Lease lease, String ownerKey) throws SQLException {
+        PreparedStatement statement = lease.prepare(SELECT_OWNER_ID);
+        statement.setString(1, ownerKey);
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : null;
+        }
+    }
+
+    private boolean isPlateBlacklisted(DataSource.Lease lease, String normalizedLicense) throws SQLException {
+        PreparedStatement statement = lease.prepare(EXISTS_BLACKLISTED_PLATE);
+        statement.setString(1, normalizedLicense);
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    private long count(DataSource.Lease lease, String sql, String... params) throws SQLException {
+        PreparedStatement statement = bind(lease, sql, params);
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private List<String> selectPlates(DataSource.Lease lease, String sql, String... params) throws SQLException {
+        PreparedStatement statement = bind(lease, sql, params);
+        List<String> plates = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                plates.add(rs.getString(1));
+            }
+        }
+        return plates;
+    }
+
+    private Map<String, Long> selectCounts(DataSource.Lease lease, String sql) throws SQLException {
+        Map<String, Long> counts = new TreeMap<>();
+        try (ResultSet rs = lease.prepare(sql).executeQuery()) {
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        return counts;
+    }
+
+    private List<Vehicle> selectList(DataSource.Lease lease, String sql, String... params) throws SQLException {
+        PreparedStatement statement = bind(lease, sql, params);
+        List<Vehicle> vehicles = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                vehicles.add(readVehicle(rs, 1));
+            }
+        }
+        return vehicles;
+    }
+
+    private PreparedStatement bind(DataSource.Lease lease, String sql, String... params) throws SQLException {
+        PreparedStatement statement = lease.prepare(sql);
+        for (int i = 0; i < params.length; i++) {
+            statement.setString(i + 1, params[i]);
+        }
+        return statement;
+    }
+
+    /**
+     * Reads the {@link #COLUMNS} of the current row starting at column {@code offset}.
+     */
+    private static Vehicle readVehicle(ResultSet rs, int offset) throws SQLException {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername(rs.getString(offset));
+        vehicle.setLicenseNumber(rs.getString(offset + 1));
+        vehicle.setMake(rs.getString(offset + 2));
+        vehicle.setModel(rs.getString(offset + 3));
+        vehicle.setYear(rs.getString(offset + 4));
+        vehicle.setBlacklisted(rs.getInt(offset + 5) != 0);
+        vehicle.setCreatedAt(rs.getString(offset + 6));
+        vehicle.setOwnerId(rs.getLong(offset + 7));
+        return vehicle;
+    }
+}
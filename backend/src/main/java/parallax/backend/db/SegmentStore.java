@@ -0,0 +1,880 @@
+package parallax.backend.db;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Disk-resident, ordered key-value store built from immutable {@link SortedSegment} files.
+ * <p>
+ * Writes are appended to a write-ahead log ({@code wal-<sequence>.log}) and applied to an
+ * in-memory sorted table. Once the table holds {@code memtableBytes} of data it is frozen, a new
+ * table and log are started, and a background thread writes the frozen table out as a new segment
+ * ({@code segment-<sequence>.sst}). Reads consult the active table, the frozen tables and then the
+ * segments from newest to oldest; the first entry found for a key wins, and a tombstone hides any
+ * older value.
+ * </p>
+ * <p>
+ * Segments are merged size-tiered: whenever the {@value #MERGE_FANOUT} newest segments are of the
+ * same size tier (a factor of four apart), they are merged into one, which cascades upwards. The
+ * number of segments thus grows only logarithmically with the data, and each level is rewritten a
+ * bounded number of times. Merges that include the oldest segment drop tombstones. The set of live
+ * segments and the oldest log still needed are recorded in a {@code MANIFEST} file that is replaced
+ * atomically, so a crash during a flush or merge leaves the previous state intact.
+ * </p>
+ * <p>
+ * Keys are compared as unsigned bytes. Keys are grouped by their bytes up to the first zero byte
+ * (see {@link SortedSegment}); {@link #scan(byte[])} with a prefix that ends in that zero byte, and
+ * {@link #get(byte[])}, skip segments whose Bloom filter rules the group out.
+ * </p>
+ */
+public class SegmentStore implements AutoCloseable {
+    private static final int MERGE_FANOUT = 4;
+    private static final int MAX_FROZEN_TABLES = 4;
+    private static final int WAL_MAGIC = 0x50574C31;
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final String MANIFEST = "MANIFEST";
+
+    private final Path directory;
+    private final Journal.FsyncPolicy fsyncPolicy;
+    private final long memtableBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final ScheduledExecutorService background;
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+    private volatile View view;
+    private volatile FileChannel wal;
+    private volatile boolean dirty;
+    private long nextFileSequence;
+    private volatile long lastFlushMillis;
+    private volatile long lastMergeMillis;
+    private volatile String lastError;
+
+    /**
+     * Opens the store in {@code directory}, replaying any log not yet flushed to a segment.
+     *
+     * @param directory           directory holding the manifest, logs and segments; created if missing
+     * @param fsyncPolicy         when log appends are forced to disk
+     * @param fsyncIntervalMillis force interval for {@link Journal.FsyncPolicy#INTERVAL}
+     * @param memtableBytes       approximate size of the in-memory table before it is flushed
+     */
+    public SegmentStore(Path directory, Journal.FsyncPolicy fsyncPolicy, long fsyncIntervalMillis, long memtableBytes) {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.memtableBytes = Math.max(1, memtableBytes);
+        try {
+            Files.createDirectories(directory);
+            long walFloor = 0;
+            List<SortedSegment> segments = new ArrayList<>();
+            Path manifest = directory.resolve(MANIFEST);
+            if (Files.exists(manifest)) {
+                for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split(" ", 2);
+                    if (parts[0].equals("wal")) {
+                        walFloor = Long.parseLong(parts[1]);
+                    } else if (parts[0].equals("segment")) {
+                        segments.add(0, SortedSegment.open(directory.resolve(parts[1])));
+                    }
+                }
+            }
+            long maxSequence = walFloor;
+            for (Map.Entry<Long, Path> file : list("segment-", ".sst").entrySet()) {
+                maxSequence = Math.max(maxSequence, file.getKey());
+                if (segments.stream().noneMatch(segment -> segment.getFile().equals(file.getValue()))) {
+                    // written by a flush or merge that did not reach the manifest
+                    Files.deleteIfExists(file.getValue());
+                }
+            }
+
+            ConcurrentSkipListMap<byte[], byte[]> recovered = new ConcurrentSkipListMap<>(Arrays::compareUnsigned);
+            long recoveredBytes = 0;
+            long firstWal = -1;
+            for (Map.Entry<Long, Path> file : list("wal-", ".log").entrySet()) {
+                maxSequence = Math.max(maxSequence, file.getKey());
+                if (file.getKey() < walFloor) {
+                    Files.deleteIfExists(file.getValue());
+                    continue;
+                }
+                if (firstWal < 0) {
+                    firstWal = file.getKey();
+                }
+                recoveredBytes += replay(file.getValue(), recovered);
+            }
+            this.nextFileSequence = maxSequence + 1;
+            long walSequence = nextFileSequence++;
+            this.wal = openWal(walSequence);
+            Memtable active = new Memtable(firstWal < 0 ? walSequence : firstWal, recovered, recoveredBytes);
+            this.view = new View(active, Collections.emptyList(), Collections.unmodifiableList(segments));
+        } catch (IOException | RuntimeException e) {
+            throw new RepositoryException("Failed to open segment store in " + directory, e);
+        }
+
+        this.background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parallax-segments");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (fsyncPolicy == Journal.FsyncPolicy.INTERVAL) {
+            long interval = Math.max(1, fsyncIntervalMillis);
+            background.scheduleWithFixedDelay(this::forceIfDirty, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Looks up one key.
+     *
+     * @param key key to look up
+     * @return the current value, or {@code null} if the key is absent or deleted
+     */
+    public byte[] get(byte[] key) {
+        View current = view;
+        byte[] value = current.active.entries.get(key);
+        for (int i = 0; value == null && i < current.frozen.size(); i++) {
+            value = current.frozen.get(i).entries.get(key);
+        }
+        for (int i = 0; value == null && i < current.segments.size(); i++) {
+            value = current.segments.get(i).get(key);
+        }
+        return value == SortedSegment.TOMBSTONE ? null : value;
+    }
+
+    /**
+     * Iterates the live entries whose keys start with {@code prefix}, in key order. The iteration
+     * reflects the store as of the call, plus possibly later writes to the in-memory table.
+     *
+     * @param prefix key prefix; empty to iterate the whole store
+     * @return iterator over matching entries
+     */
+    public Iterator<Entry> scan(byte[] prefix) {
+        View current = view;
+        boolean wholeGroup = prefix.length > 0 && SortedSegment.groupLength(prefix, prefix.length) == prefix.length
+                && prefix[prefix.length - 1] == 0;
+        List<Iterator<Entry>> sources = new ArrayList<>();
+        sources.add(tableIterator(current.active, prefix));
+        for (Memtable table : current.frozen) {
+            sources.add(tableIterator(table, prefix));
+        }
+        for (SortedSegment segment : current.segments) {
+            if (!wholeGroup || segment.mightContainGroup(prefix, prefix.length)) {
+                sources.add(segment.iterator(prefix));
+            }
+        }
+        Iterator<Entry> merged = new MergingIterator(sources);
+        return new Iterator<>() {
+            private Entry next = advance();
+
+            private Entry advance() {
+                while (merged.hasNext()) {
+                    Entry entry = merged.next();
+                    if (!startsWith(entry.key, prefix)) {
+                        return null;
+                    }
+                    if (entry.value != SortedSegment.TOMBSTONE) {
+                        return entry;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Entry next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Entry entry = next;
+                next = advance();
+                return entry;
+            }
+        };
+    }
+
+    /**
+     * Applies a batch of puts and deletes atomically with respect to recovery: the batch is one
+     * log record, so after a crash either all or none of it is replayed. Blocks while
+     * {@value #MAX_FROZEN_TABLES} tables are waiting to be flushed.
+     *
+     * @param batch changes to apply
+     */
+    public void write(Batch batch) {
+        if (batch.entries.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (view.frozen.size() >= MAX_FROZEN_TABLES) {
+                flushed.awaitUninterruptibly();
+            }
+            appendWal(batch.entries);
+            Memtable active = view.active;
+            for (Entry entry : batch.entries) {
+                active.entries.put(entry.key, entry.value);
+                active.bytes += entry.key.length + entry.value.length + 16;
+            }
+            writes.addAndGet(batch.entries.size());
+            if (active.bytes >= memtableBytes) {
+                rotate();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Freezes the in-memory table and waits until every frozen table has been written to a
+     * segment, so that the log can be discarded.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            if (!view.active.entries.isEmpty()) {
+                rotate();
+            }
+            while (!view.frozen.isEmpty()) {
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of store counters.
+     *
+     * @return current store metrics
+     */
+    public Metrics getMetrics() {
+        View current = view;
+        long segmentBytes = 0;
+        long segmentEntries = 0;
+        long indexEntries = 0;
+        for (SortedSegment segment : current.segments) {
+            segmentBytes += segment.getFileBytes();
+            segmentEntries += segment.getEntryCount();
+            indexEntries += segment.getIndexEntries();
+        }
+        long memtableEntries = current.active.entries.size();
+        for (Memtable table : current.frozen) {
+            memtableEntries += table.entries.size();
+        }
+        return new Metrics(current.segments.size(), segmentBytes, segmentEntries, indexEntries, memtableEntries,
+                current.frozen.size(), writes.get(), flushes.get(), merges.get(), lastFlushMillis, lastMergeMillis,
+                lastError);
+    }
+
+    /**
+     * Flushes all in-memory data to segments, waits for background work and closes the log.
+     */
+    @Override
+    public void close() {
+        flush();
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            wal.force(false);
+            wal.close();
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to close segment store", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Freezes the active table and starts a new one with its own log. Called with the lock held.
+     */
+    private void rotate() {
+        View current = view;
+        try {
+            wal.force(false);
+            wal.close();
+            long walSequence = nextFileSequence++;
+            wal = openWal(walSequence);
+            List<Memtable> frozen = new ArrayList<>();
+            frozen.add(current.active);
+            frozen.addAll(current.frozen);
+            view = new View(new Memtable(walSequence, new ConcurrentSkipListMap<>(Arrays::compareUnsigned), 0),
+                    Collections.unmodifiableList(frozen), current.segments);
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to rotate segment store log", e);
+        }
+        background.execute(this::flushOldest);
+    }
+
+    private void flushOldest() {
+        long start = System.nanoTime();
+        Memtable table;
+        List<SortedSegment> segments;
+        long sequence;
+        lock.lock();
+        try {
+            if (view.frozen.isEmpty()) {
+                return;
+            }
+            table = view.frozen.get(view.frozen.size() - 1);
+            segments = view.segments;
+            sequence = nextFileSequence++;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            Iterator<Entry> entries = table.entries.entrySet().stream()
+                    .map(e -> new Entry(e.getKey(), e.getValue())).iterator();
+            SortedSegment segment = SortedSegment.write(directory.resolve(fileName("segment-", sequence, ".sst")),
+                    entries, table.entries.size(), segments.isEmpty());
+            long walFloor;
+            lock.lock();
+            try {
+                List<Memtable> frozen = new ArrayList<>(view.frozen);
+                frozen.remove(table);
+                List<SortedSegment> updated = new ArrayList<>();
+                updated.add(segment);
+                updated.addAll(view.segments);
+                walFloor = frozen.isEmpty() ? view.active.firstWal : frozen.get(frozen.size() - 1).firstWal;
+                writeManifest(walFloor, updated);
+                view = new View(view.active, Collections.unmodifiableList(frozen), Collections.unmodifiableList(updated));
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            for (Path file : list("wal-", ".log").headMap(walFloor, false).values()) {
+                Files.deleteIfExists(file);
+            }
+            flushes.incrementAndGet();
+            lastFlushMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            mergeTiers();
+        } catch (IOException | RuntimeException e) {
+            lastError = e.getMessage();
+            background.schedule(this::flushOldest, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Merges the newest run of same-tier segments while it reaches {@value #MERGE_FANOUT}.
+     */
+    private void mergeTiers() throws IOException {
+        while (true) {
+            List<SortedSegment> segments = view.segments;
+            int run = 1;
+            int tier = tier(segments.get(0));
+            while (run < segments.size() && tier(segments.get(run)) == tier) {
+                run++;
+            }
+            if (run < MERGE_FANOUT) {
+                return;
+            }
+            long start = System.nanoTime();
+            List<SortedSegment> inputs = segments.subList(0, run);
+            long sequence;
+            lock.lock();
+            try {
+                sequence = nextFileSequence++;
+            } finally {
+                lock.unlock();
+            }
+            List<Iterator<Entry>> sources = new ArrayList<>();
+            long expectedGroups = 0;
+            for (SortedSegment input : inputs) {
+                sources.add(input.iterator(new byte[0]));
+                expectedGroups += input.getEntryCount();
+            }
+            SortedSegment merged = SortedSegment.write(directory.resolve(fileName("segment-", sequence, ".sst")),
+                    new MergingIterator(sources), expectedGroups, run == segments.size());
+
+            lock.lock();
+            try {
+                List<SortedSegment> updated = new ArrayList<>(view.segments);
+                int position = updated.indexOf(inputs.get(0));
+                updated.removeAll(inputs);
+                updated.add(position, merged);
+                List<Memtable> frozen = view.frozen;
+                writeManifest(frozen.isEmpty() ? view.active.firstWal : frozen.get(frozen.size() - 1).firstWal, updated);
+                view = new View(view.active, frozen, Collections.unmodifiableList(updated));
+            } finally {
+                lock.unlock();
+            }
+            for (SortedSegment input : inputs) {
+                // readers still holding the old view keep their mapping until it is collected
+                Files.deleteIfExists(input.getFile());
+            }
+            merges.incrementAndGet();
+            lastMergeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    private int tier(SortedSegment segment) {
+        long units = Math.max(1, segment.getFileBytes() / Math.max(1, memtableBytes / 4));
+        return (63 - Long.numberOfLeadingZeros(units)) / 2;
+    }
+
+    private void writeManifest(long walFloor, List<SortedSegment> segmentsNewestFirst) throws IOException {
+        StringBuilder manifest = new StringBuilder("wal ").append(walFloor).append('\n');
+        for (int i = segmentsNewestFirst.size() - 1; i >= 0; i--) {
+            manifest.append("segment ").append(segmentsNewestFirst.get(i).getFile().getFileName()).append('\n');
+        }
+        Path temporary = directory.resolve(MANIFEST + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(manifest.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void appendWal(List<Entry> entries) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64 * entries.size());
+        try {
+            SortedSegment.writeVarInt(payload, entries.size());
+            for (Entry entry : entries) {
+                SortedSegment.writeVarInt(payload, entry.key.length);
+                payload.write(entry.key);
+                SortedSegment.writeVarInt(payload, entry.value == SortedSegment.TOMBSTONE ? 0 : entry.value.length + 1);
+                payload.write(entry.value);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + bytes.length);
+        frame.putInt(bytes.length).putInt((int) crc.getValue()).put(bytes).flip();
+        try {
+            while (frame.hasRemaining()) {
+                wal.write(frame);
+            }
+            if (fsyncPolicy == Journal.FsyncPolicy.ALWAYS) {
+                wal.force(false);
+            } else {
+                dirty = true;
+            }
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to append to segment store log", e);
+        }
+    }
+
+    /**
+     * Replays one log into {@code table}, stopping at a torn or corrupt record, and returns the
+     * approximate number of bytes replayed.
+     */
+    private static long replay(Path file, ConcurrentSkipListMap<byte[], byte[]> table) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < 4 || buffer.getInt() != WAL_MAGIC) {
+            return 0;
+        }
+        long bytes = 0;
+        while (buffer.remaining() >= FRAME_HEADER_BYTES) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 1 || length > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            int count = SortedSegment.readVarInt(payload);
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[SortedSegment.readVarInt(payload)];
+                payload.get(key);
+                int valueLength = SortedSegment.readVarInt(payload) - 1;
+                byte[] value = SortedSegment.TOMBSTONE;
+                if (valueLength >= 0) {
+                    value = new byte[valueLength];
+                    payload.get(value);
+                }
+                table.put(key, value);
+                bytes += key.length + value.length + 16;
+            }
+        }
+        return bytes;
+    }
+
+    private void forceIfDirty() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            wal.force(false);
+        } catch (ClosedChannelException ignored) {
+            // rotated concurrently; the old log was forced before it was closed
+        } catch (IOException e) {
+            dirty = true;
+        }
+    }
+
+    private FileChannel openWal(long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(fileName("wal-", sequence, ".log")),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        channel.write(ByteBuffer.allocate(4).putInt(WAL_MAGIC).flip());
+        return channel;
+    }
+
+    private TreeMap<Long, Path> list(String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (var stream = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) stream::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    try {
+                        files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), file);
+                    } catch (NumberFormatException ignored) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private static String fileName(String prefix, long sequence, String suffix) {
+        return String.format(Locale.ROOT, "%s%016d%s", prefix, sequence, suffix);
+    }
+
+    private static Iterator<Entry> tableIterator(Memtable table, byte[] prefix) {
+        return table.entries.tailMap(prefix, true).entrySet().stream()
+                .map(e -> new Entry(e.getKey(), e.getValue())).iterator();
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * A key and its value; the value is {@link SortedSegment#TOMBSTONE} for a deleted key inside
+     * the store and never for entries returned by {@link #scan(byte[])}.
+     */
+    public static final class Entry {
+        private final byte[] key;
+        private final byte[] value;
+
+        Entry(byte[] key, byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Returns the key.
+         *
+         * @return key bytes
+         */
+        public byte[] getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value.
+         *
+         * @return value bytes
+         */
+        public byte[] getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Puts and deletes applied together by {@link #write(Batch)}.
+     */
+    public static final class Batch {
+        private final List<Entry> entries = new ArrayList<>();
+
+        /**
+         * Adds a put.
+         *
+         * @param key   key to set
+         * @param value new value
+         * @return this batch
+         */
+        public Batch put(byte[] key, byte[] value) {
+            entries.add(new Entry(key, value == SortedSegment.TOMBSTONE ? new byte[0] : value));
+            return this;
+        }
+
+        /**
+         * Adds a delete.
+         *
+         * @param key key to remove
+         * @return this batch
+         */
+        public Batch delete(byte[] key) {
+            entries.add(new Entry(key, SortedSegment.TOMBSTONE));
+            return this;
+        }
+    }
+
+    /**
+     * In-memory sorted table and the first log whose records it holds.
+     */
+    private static final class Memtable {
+        private final long firstWal;
+        private final ConcurrentSkipListMap<byte[], byte[]> entries;
+        private long bytes;
+
+        private Memtable(long firstWal, ConcurrentSkipListMap<byte[], byte[]> entries, long bytes) {
+            this.firstWal = firstWal;
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Immutable read view: active table, frozen tables and segments, each newest first.
+     */
+    private static final class View {
+        private final Memtable active;
+        private final List<Memtable> frozen;
+        private final List<SortedSegment> segments;
+
+        private View(Memtable active, List<Memtable> frozen, List<SortedSegment> segments) {
+            this.active = active;
+            this.frozen = frozen;
+            this.segments = segments;
+        }
+    }
+
+    /**
+     * Merges sorted sources given newest first; for equal keys only the newest entry is returned.
+     */
+    private static final class MergingIterator implements Iterator<Entry> {
+        private final PriorityQueue<Source> heads = new PriorityQueue<>((a, b) -> {
+            int comparison = Arrays.compareUnsigned(a.head.key, b.head.key);
+            return comparison != 0 ? comparison : Integer.compare(a.rank, b.rank);
+        });
+
+        private MergingIterator(List<Iterator<Entry>> sources) {
+            for (int rank = 0; rank < sources.size(); rank++) {
+                Source source = new Source(sources.get(rank), rank);
+                if (source.advance()) {
+                    heads.add(source);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Entry next() {
+            Source newest = heads.poll();
+            if (newest == null) {
+                throw new NoSuchElementException();
+            }
+            Entry entry = newest.head;
+            if (newest.advance()) {
+                heads.add(newest);
+            }
+            while (!heads.isEmpty() && Arrays.equals(heads.peek().head.key, entry.key)) {
+                Source shadowed = heads.poll();
+                if (shadowed.advance()) {
+                    heads.add(shadowed);
+                }
+            }
+            return entry;
+        }
+
+        private static final class Source {
+            private final Iterator<Entry> iterator;
+            private final int rank;
+            private Entry head;
+
+            private Source(Iterator<Entry> iterator, int rank) {
+                this.iterator = iterator;
+                this.rank = rank;
+            }
+
+            private boolean advance() {
+                head = iterator.hasNext() ? iterator.next() : null;
+                return head != null;
+            }
+        }
+    }
+
+    /**
+     * Point-in-time store counters.
+     */
+    public static final class Metrics {
+        private final int segments;
+        private final long segmentBytes;
+        private final long segmentEntries;
+        private final long indexEntries;
+        private final long memtableEntries;
+        private final int pendingFlushes;
+        private final long writes;
+        private final long flushes;
+        private final long merges;
+        private final long lastFlushMillis;
+        private final long lastMergeMillis;
+        private final String lastError;
+
+        private Metrics(int segments, long segmentBytes, long segmentEntries, long indexEntries, long memtableEntries,
+                        int pendingFlushes, long writes, long flushes, long merges, long lastFlushMillis,
+                        long lastMergeMillis, String lastError) {
+            this.segments = segments;
+            this.segmentBytes = segmentBytes;
+            this.segmentEntries = segmentEntries;
+            this.indexEntries = indexEntries;
+            this.memtableEntries = memtableEntries;
+            this.pendingFlushes = pendingFlushes;
+            this.writes = writes;
+            this.flushes = flushes;
+            this.merges = merges;
+            this.lastFlushMillis = lastFlushMillis;
+            this.lastMergeMillis = lastMergeMillis;
+            this.lastError = lastError;
+        }
+
+        /**
+         * Returns the number of live segment files.
+         *
+         * @return segment count
+         */
+        public int getSegments() {
+            return segments;
+        }
+
+        /**
+         * Returns the total size of the live segment files.
+         *
+         * @return bytes on disk
+         */
+        public long getSegmentBytes() {
+            return segmentBytes;
+        }
+
+        /**
+         * Returns the number of entries across segments, including shadowed ones and tombstones.
+         *
+         * @return segment entries
+         */
+        public long getSegmentEntries() {
+            return segmentEntries;
+        }
+
+        /**
+         * Returns the number of sparse index keys held on the heap.
+         *
+         * @return index entries
+         */
+        public long getIndexEntries() {
+            return indexEntries;
+        }
+
+        /**
+         * Returns the number of entries in the active and frozen in-memory tables.
+         *
+         * @return in-memory entries
+         */
+        public long getMemtableEntries() {
+            return memtableEntries;
+        }
+
+        /**
+         * Returns the number of frozen tables waiting to be written as segments.
+         *
+         * @return pending flushes
+         */
+        public int getPendingFlushes() {
+            return pendingFlushes;
+        }
+
+        /**
+         * Returns the number of puts and deletes applied since startup.
+         *
+         * @return applied writes
+         */
+        public long getWrites() {
+            return writes;
+        }
+
+        /**
+         * Returns the number of in-memory tables flushed to segments since startup.
+         *
+         * @return flushes
+         */
+        public long getFlushes() {
+            return flushes;
+        }
+
+        /**
+         * Returns the number of segment merges since startup.
+         *
+         * @return merges
+         */
+        public long getMerges() {
+            return merges;
+        }
+
+        /**
+         * Returns how long the most recent flush took.
+         *
+         * @return flush duration in milliseconds
+         */
+        public long getLastFlushMillis() {
+            return lastFlushMillis;
+        }
+
+        /**
+         * Returns how long the most recent merge took.
+         *
+         * @return merge duration in milliseconds
+         */
+        public long getLastMergeMillis() {
+            return lastMergeMillis;
+        }
+
+        /**
+         * Returns the message of the most recent failed flush or merge, if any.
+         *
+         * @return last error message or {@code null}
+         */
+        public String getLastError() {
+            return lastError;
+        }
+    }
+}
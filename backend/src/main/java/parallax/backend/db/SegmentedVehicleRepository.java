@@ -0,0 +1,548 @@
+package parallax.backend.db;
+
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.BlacklistUpdate;
+import parallax.backend.model.User;
+import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
+import parallax.backend.model.VehicleWithOwner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Disk-resident {@link VehicleRepository} for registries larger than the heap, stored in a
+ * {@link SegmentStore}.
+ * <p>
+ * Every vehicle is held under two keys. The plate key ({@code 'p'}, normalized plate, zero byte,
+ * 8-byte registration sequence) maps to the encoded vehicle, so all registrations of a plate are
+ * adjacent and the first registered comes first. The owner key ({@code 'o'}, lower-cased owner,
+ * zero byte, sequence) maps to the plate, so an owner's vehicles are listed in registration order.
+ * A plate lookup is a scan of one key group, which the segment Bloom filters and sparse indexes
+ * turn into one or two page reads per segment that holds the plate. Vehicles returned are decoded
+ * copies; changing them has no effect on the store.
+ * </p>
+ * <p>
+ * Mutations are serialized by a lock and each is written as one atomic batch. Full scans
+ * ({@link #findAllWithOwners} and the blacklist snapshot in {@link #getBlacklistChanges}) return
+ * vehicles in plate order.
+ * </p>
+ */
+public class SegmentedVehicleRepository implements VehicleRepository {
+    private static final byte PLATE = 'p';
+    private static final byte OWNER = 'o';
+    private static final byte[] SEQUENCE_KEY = {'s'};
+
+    private final SegmentStore store;
+    private final BlacklistChangeLog blacklistLog;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private long nextSequence;
+
+    /**
+     * Creates a repository over {@code store}, continuing its registration sequence.
+     *
+     * @param store        store holding the vehicles
+     * @param blacklistLog change log used for blacklist delta synchronization
+     */
+    public SegmentedVehicleRepository(SegmentStore store, BlacklistChangeLog blacklistLog) {
+        this.store = store;
+        this.blacklistLog = blacklistLog;
+        byte[] sequence = store.get(SEQUENCE_KEY);
+        this.nextSequence = sequence == null ? 0 : ByteBuffer.wrap(sequence).getLong();
+    }
+
+    @Override
+    public List<Vehicle> reassignVehicles(String oldUsername, String newUsername) {
+        if (oldUsername == null || newUsername == null) {
+            return Collections.emptyList();
+        }
+        String newOwner = newUsername.toLowerCase(Locale.ROOT);
+        writeLock.lock();
+        try {
+            List<Vehicle> moved = new ArrayList<>();
+            SegmentStore.Batch batch = new SegmentStore.Batch();
+            for (OwnedPlate owned : ownedPlates(oldUsername)) {
+                byte[] plateKey = key(PLATE, owned.plate, owned.sequence);
+                byte[] record = store.get(plateKey);
+                if (record == null) {
+                    continue;
+                }
+                Vehicle vehicle = Journal.decodeVehicle(record);
+                vehicle.setUsername(newUsername);
+                batch.put(plateKey, Journal.vehicleRecord(vehicle))
+                        .delete(owned.key)
+                        .put(key(OWNER, newOwner, owned.sequence), owned.plate.getBytes(StandardCharsets.UTF_8));
+                moved.add(vehicle);
+            }
+            store.write(batch);
+            return moved;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Vehicle> findByUsername(String username) {
+        if (username == null) {
+            return Collections.emptyList();
+        }
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (OwnedPlate owned : ownedPlates(username)) {
+            byte[] record = store.get(key(PLATE, owned.plate, owned.sequence));
+            if (record != null) {
+                vehicles.add(Journal.decodeVehicle(record));
+            }
+        }
+        return vehicles;
+    }
+
+    @Override
+    public Optional<Vehicle> findByUsernameAndLicense(String username, String licenseNumber) {
+        String plate = normalizeLicense(licenseNumber);
+        if (username == null || plate == null) {
+            return Optional.empty();
+        }
+        return registrations(plate).stream()
+                .map(registration -> registration.vehicle)
+                .filter(vehicle -> username.equalsIgnoreCase(vehicle.getUsername()))
+                .findFirst();
+    }
+
+    @Override
+    public Optional<Vehicle> findByLicense(String licenseNumber) {
+        return findByPlate(licenseNumber);
+    }
+
+    @Override
+    public Optional<Vehicle> findByPlate(String licenseNumber) {
+        String plate = normalizeLicense(licenseNumber);
+        if (plate == null) {
+            return Optional.empty();
+        }
+        Iterator<SegmentStore.Entry> entries = store.scan(prefix(PLATE, plate));
+        return entries.hasNext() ? Optional.of(Journal.decodeVehicle(entries.next().getValue())) : Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each plate is an independent lookup, so the cost grows with the number of plates requested
+     * rather than with the registry size.
+     * </p>
+     */
+    @Override
+    public Map<String, Vehicle> findByPlates(Collection<String> licenseNumbers) {
+        if (licenseNumbers == null || licenseNumbers.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Vehicle> matches = new HashMap<>();
+        for (String licenseNumber : licenseNumbers) {
+            String plate = normalizeLicense(licenseNumber);
+            if (plate != null && !matches.containsKey(plate)) {
+                findByPlate(plate).ifPresent(vehicle -> matches.put(plate, vehicle));
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public void addVehicle(Vehicle vehicle) {
+        addVehicles(Collections.singletonList(vehicle));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All vehicles are written as one segment store batch.
+     * </p>
+     */
+    @Override
+    public void addVehicles(Collection<Vehicle> vehicles) {
+        for (Vehicle vehicle : vehicles) {
+            if (vehicle == null || vehicle.getUsername() == null) {
+                throw new IllegalArgumentException("Vehicle and username must not be null");
+            }
+            String plate = normalizeLicense(vehicle.getLicenseNumber());
+            if (plate == null) {
+                throw new IllegalArgumentException("License number must not be null");
+            }
+            vehicle.setLicenseNumber(plate);
+        }
+        if (vehicles.isEmpty()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            long sequence = nextSequence;
+            SegmentStore.Batch batch = new SegmentStore.Batch();
+            for (Vehicle vehicle : vehicles) {
+                String plate = vehicle.getLicenseNumber();
+                batch.put(key(PLATE, plate, sequence), Journal.vehicleRecord(vehicle))
+                        .put(key(OWNER, vehicle.getUsername().toLowerCase(Locale.ROOT), sequence),
+                                plate.getBytes(StandardCharsets.UTF_8));
+                sequence++;
+            }
+            store.write(batch.put(SEQUENCE_KEY, ByteBuffer.allocate(Long.BYTES).putLong(sequence).array()));
+            nextSequence = sequence;
+            for (Vehicle vehicle : vehicles) {
+                if (vehicle.isBlacklisted()) {
+                    blacklistLog.record(vehicle.getLicenseNumber(), true);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeVehicle(String username, String licenseNumber) {
+        String plate = normalizeLicense(licenseNumber);
+        if (username == null || plate == null) {
+            return;
+        }
+        removeRegistrations(plate, vehicle -> username.equalsIgnoreCase(vehicle.getUsername()));
+    }
+
+    @Override
+    public void removeVehiclesForUser(String username) {
+        if (username == null) {
+            return;
+        }
+        List<Vehicle> removed = new ArrayList<>();
+        writeLock.lock();
+        try {
+            SegmentStore.Batch batch = new SegmentStore.Batch();
+            for (OwnedPlate owned : ownedPlates(username)) {
+                byte[] plateKey = key(PLATE, owned.plate, owned.sequence);
+                byte[] record = store.get(plateKey);
+                if (record != null) {
+                    removed.add(Journal.decodeVehicle(record));
+                }
+                batch.delete(plateKey).delete(owned.key);
+            }
+            store.write(batch);
+            recordRemovals(removed);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeByLicense(String licenseNumber) {
+        String plate = normalizeLicense(licenseNumber);
+        if (plate == null) {
+            return false;
+        }
+        return removeRegistrations(plate, vehicle -> true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * As in the in-memory repository, only the first registration of the plate is updated, and
+     * only actual changes are recorded in the blacklist change log.
+     * </p>
+     */
+    @Override
+    public Optional<Vehicle> updateBlacklistStatus(String licenseNumber, boolean blacklisted) {
+        String plate = normalizeLicense(licenseNumber);
+        if (plate == null) {
+            return Optional.empty();
+        }
+        writeLock.lock();
+        try {
+            List<Registration> registrations = registrations(plate);
+            if (registrations.isEmpty()) {
+                return Optional.empty();
+            }
+            Registration first = registrations.get(0);
+            Vehicle vehicle = first.vehicle;
+            if (vehicle.isBlacklisted() == blacklisted) {
+                return Optional.of(vehicle);
+            }
+            vehicle.setBlacklisted(blacklisted);
+            store.write(new SegmentStore.Batch().put(first.key, Journal.vehicleRecord(vehicle)));
+            blacklistLog.record(plate, isPlateBlacklisted(plate));
+            return Optional.of(vehicle);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All changed vehicle records are written as one segment store batch. A full replacement scans
+     * every plate key; a diff only visits the listed plates.
+     * </p>
+     */
+    @Override
+    public BlacklistUpdate updateBlacklist(Collection<String> blacklisted, Collection<String> cleared, boolean replace) {
+        Hotlist hotlist = Hotlist.of(blacklisted, cleared, replace);
+        Map<String, Boolean> before = new HashMap<>();
+        Set<String> matched = new HashSet<>();
+        writeLock.lock();
+        try {
+            SegmentStore.Batch batch = new SegmentStore.Batch();
+            if (hotlist.isReplace()) {
+                Iterator<SegmentStore.Entry> entries = store.scan(new byte[]{PLATE});
+                while (entries.hasNext()) {
+                    SegmentStore.Entry entry = entries.next();
+                    applyHotlist(hotlist, new Registration(entry.getKey(), Journal.decodeVehicle(entry.getValue())),
+                            batch, before, matched);
+                }
+            } else {
+                for (String plate : hotlist.getTargets().keySet()) {
+                    for (Registration registration : registrations(plate)) {
+                        applyHotlist(hotlist, registration, batch, before, matched);
+                    }
+                }
+            }
+            store.write(batch);
+            Map<String, Boolean> changes = new HashMap<>();
+            before.forEach((plate, wasBlacklisted) -> {
+                boolean blacklistedNow = hotlist.targetFor(plate);
+                if (wasBlacklisted != blacklistedNow) {
+                    changes.put(plate, blacklistedNow);
+                }
+            });
+            long version = blacklistLog.recordAll(changes);
+            return hotlist.summarize(blacklistLog.getLogId(), version, changes, matched);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Without a usable delta the snapshot is built by a full scan of the plate keys.
+     * </p>
+     */
+    @Override
+    public BlacklistSync getBlacklistChanges(String logId, long sinceVersion) {
+        BlacklistSync delta = blacklistLog.deltaSince(logId, sinceVersion);
+        if (delta != null) {
+            return delta;
+        }
+        long version = blacklistLog.currentVersion();
+        Set<String> plates = new TreeSet<>();
+        Iterator<SegmentStore.Entry> entries = store.scan(new byte[]{PLATE});
+        while (entries.hasNext()) {
+            Vehicle vehicle = Journal.decodeVehicle(entries.next().getValue());
+            if (vehicle.isBlacklisted()) {
+                plates.add(vehicle.getLicenseNumber());
+            }
+        }
+        return BlacklistSync.snapshot(blacklistLog.getLogId(), version, new ArrayList<>(plates));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Counted by a full scan of the plate keys.
+     * </p>
+     */
+    @Override
+    public VehicleStats getStatistics() {
+        long total = 0;
+        long blacklisted = 0;
+        Map<String, Long> makes = new TreeMap<>();
+        Map<String, Long> years = new TreeMap<>();
+        Iterator<SegmentStore.Entry> entries = store.scan(new byte[]{PLATE});
+        while (entries.hasNext()) {
+            Vehicle vehicle = Journal.decodeVehicle(entries.next().getValue());
+            total++;
+            if (vehicle.isBlacklisted()) {
+                blacklisted++;
+            }
+            if (vehicle.getMake() != null) {
+                makes.merge(vehicle.getMake(), 1L, Long::sum);
+            }
+            if (vehicle.getYear() != null) {
+                years.merge(vehicle.getYear(), 1L, Long::sum);
+            }
+        }
+        return new VehicleStats(total, blacklisted, makes, years);
+    }
+
+    @Override
+    public List<VehicleWithOwner> findAllWithOwners(UserRepository userRepository) {
+        List<VehicleWithOwner> results = new ArrayList<>();
+        forEachWithOwner(userRepository, results::add);
+        return results;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Walks the plate index of the segment store, so only the current entry is held in memory.
+     * </p>
+     */
+    @Override
+    public void forEachWithOwner(UserRepository userRepository, Consumer<? super VehicleWithOwner> action) {
+        Iterator<SegmentStore.Entry> entries = store.scan(new byte[]{PLATE});
+        while (entries.hasNext()) {
+            Vehicle vehicle = Journal.decodeVehicle(entries.next().getValue());
+            VehicleWithOwner enriched = new VehicleWithOwner();
+            enriched.setUsername(vehicle.getUsername());
+            enriched.setLicenseNumber(vehicle.getLicenseNumber());
+            enriched.setMake(vehicle.getMake());
+            enriched.setModel(vehicle.getModel());
+            enriched.setYear(vehicle.getYear());
+            enriched.setBlacklisted(vehicle.isBlacklisted());
+            enriched.setCreatedAt(vehicle.getCreatedAt());
+            if (vehicle.getUsername() != null) {
+                userRepository.findByEmail(vehicle.getUsername()).ifPresent((User user) -> {
+                    enriched.setOwnerUsername(user.getUsername());
+                    enriched.setOwnerEmail(user.getEmail());
+                    enriched.setOwnerPhone(user.getPhoneCountry() != null
+                            ? user.getPhoneCountry() + (user.getPhone() == null ? "" : user.getPhone())
+                            : user.getPhone());
+                    enriched.setOwnerPhoneCountry(user.getPhoneCountry());
+                });
+            }
+            action.accept(enriched);
+        }
+    }
+
+    private boolean removeRegistrations(String plate, Predicate<Vehicle> filter) {
+        List<Vehicle> removed = new ArrayList<>();
+        writeLock.lock();
+        try {
+            SegmentStore.Batch batch = new SegmentStore.Batch();
+            for (Registration registration : registrations(plate)) {
+                if (filter.test(registration.vehicle)) {
+                    long sequence = sequenceOf(registration.key);
+                    batch.delete(registration.key)
+                            .delete(key(OWNER, registration.vehicle.getUsername().toLowerCase(Locale.ROOT), sequence));
+                    removed.add(registration.vehicle);
+                }
+            }
+            store.write(batch);
+            recordRemovals(removed);
+        } finally {
+            writeLock.unlock();
+        }
+        return !removed.isEmpty();
+    }
+
+    /**
+     * Records the new plate state for every removed vehicle that was blacklisted. Another owner may
+     * still hold a blacklisted vehicle with the same plate, in which case the plate stays listed.
+     * Called under the write lock so change log versions follow the order of the store writes.
+     */
+    private void recordRemovals(List<Vehicle> removed) {
+        for (Vehicle vehicle : removed) {
+            if (vehicle.isBlacklisted()) {
+                blacklistLog.record(vehicle.getLicenseNumber(), isPlateBlacklisted(vehicle.getLicenseNumber()));
+            }
+        }
+    }
+
+    private static void applyHotlist(Hotlist hotlist, Registration registration, SegmentStore.Batch batch,
+                                     Map<String, Boolean> before, Set<String> matched) {
+        Vehicle vehicle = registration.vehicle;
+        String plate = vehicle.getLicenseNumber();
+        Boolean target = hotlist.targetFor(plate);
+        if (target == null) {
+            return;
+        }
+        if (hotlist.getTargets().containsKey(plate)) {
+            matched.add(plate);
+        }
+        before.merge(plate, vehicle.isBlacklisted(), Boolean::logicalOr);
+        if (vehicle.isBlacklisted() != target) {
+            vehicle.setBlacklisted(target);
+            batch.put(registration.key, Journal.vehicleRecord(vehicle));
+        }
+    }
+
+    private boolean isPlateBlacklisted(String plate) {
+        return registrations(plate).stream().anyMatch(registration -> registration.vehicle.isBlacklisted());
+    }
+
+    private List<Registration> registrations(String plate) {
+        List<Registration> registrations = new ArrayList<>();
+        Iterator<SegmentStore.Entry> entries = store.scan(prefix(PLATE, plate));
+        while (entries.hasNext()) {
+            SegmentStore.Entry entry = entries.next();
+            registrations.add(new Registration(entry.getKey(), Journal.decodeVehicle(entry.getValue())));
+        }
+        return registrations;
+    }
+
+    private List<OwnedPlate> ownedPlates(String username) {
+        List<OwnedPlate> owned = new ArrayList<>();
+        Iterator<SegmentStore.Entry> entries = store.scan(prefix(OWNER, username.toLowerCase(Locale.ROOT)));
+        while (entries.hasNext()) {
+            SegmentStore.Entry entry = entries.next();
+            owned.add(new OwnedPlate(entry.getKey(), new String(entry.getValue(), StandardCharsets.UTF_8),
+                    sequenceOf(entry.getKey())));
+        }
+        return owned;
+    }
+
+    private static byte[] prefix(byte family, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(bytes.length + 2).put(family).put(bytes).put((byte) 0).array();
+    }
+
+    private static byte[] key(byte family, String value, long sequence) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(bytes.length + 2 + Long.BYTES).put(family).put(bytes).put((byte) 0)
+                .putLong(sequence).array();
+    }
+
+    private static long sequenceOf(byte[] key) {
+        return ByteBuffer.wrap(key, key.length - Long.BYTES, Long.BYTES).getLong();
+    }
+
+    private static String normalizeLicense(String licenseNumber) {
+        return licenseNumber == null ? null : licenseNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * A vehicle together with its plate key.
+     */
+    private static final class Registration {
+        private final byte[] key;
+        private final Vehicle vehicle;
+
+        private Registration(byte[] key, Vehicle vehicle) {
+            this.key = key;
+            this.vehicle = vehicle;
+        }
+    }
+
+    /**
+     * An owner key with the plate and sequence it points to.
+     */
+    private static final class OwnedPlate {
+        private final byte[] key;
+        private final String plate;
+        private final long sequence;
+
+        private OwnedPlate(byte[] key, String plate, long sequence) {
+            this.key = key;
+            this.plate = plate;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package parallax.backend.db;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable, memory-mapped file of key-sorted entries; the on-disk unit of a {@link SegmentStore}.
+ * <p>
+ * Entries are packed into blocks of about {@value #BLOCK_BYTES} bytes. Within a block every key is
+ * stored as the length of the prefix it shares with the previous key followed by the remaining
+ * bytes, so runs of similar plate keys cost a few bytes each. Only the first key of each block is
+ * held on the heap, as a sparse index: a point lookup binary-searches it and then scans a single
+ * block, touching one or two pages of the mapping.
+ * </p>
+ * <p>
+ * Each segment also carries a blocked Bloom filter over key groups, a group being a key up to and
+ * including its first zero byte (or the whole key if it has none). All probe bits of a group fall
+ * into one 64-byte line, so ruling a segment out costs a single page, which keeps lookups cheap
+ * however many segments exist.
+ * </p>
+ * <p>
+ * Layout: blocks, the sparse index ({@code int} block count, then per block a varint key length,
+ * the key and a {@code long} offset), the Bloom filter lines and a 32-byte footer ({@code long}
+ * index offset, {@code long} filter offset, {@code int} entry count, {@code int} filter line count,
+ * {@code int} reserved, {@code int} magic). Blocks are mapped in 1 GiB windows that overlap by
+ * 1 MiB, so a segment may exceed the 2 GiB limit of a single mapping while every block stays inside
+ * one window.
+ * </p>
+ */
+final class SortedSegment {
+    /** Value marking a deleted key; compared by identity. */
+    static final byte[] TOMBSTONE = new byte[0];
+
+    private static final int MAGIC = 0x50535331;
+    private static final int BLOCK_BYTES = 4096;
+    private static final int MAX_ENTRY_BYTES = 64 * 1024;
+    private static final int FOOTER_BYTES = 32;
+    private static final long WINDOW_BYTES = 1L << 30;
+    private static final long WINDOW_OVERLAP = 1L << 20;
+    private static final int LINE_BYTES = 64;
+    private static final int FILTER_PROBES = 6;
+    private static final int FILTER_BITS_PER_GROUP = 10;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Path file;
+    private final long fileBytes;
+    private final int entryCount;
+    private final byte[][] blockKeys;
+    private final long[] blockOffsets;
+    private final long dataEnd;
+    private final MappedByteBuffer[] windows;
+    private final MappedByteBuffer filter;
+    private final int filterLines;
+
+    private SortedSegment(Path file, long fileBytes, int entryCount, byte[][] blockKeys, long[] blockOffsets,
+                          long dataEnd, MappedByteBuffer[] windows, MappedByteBuffer filter, int filterLines) {
+        this.file = file;
+        this.fileBytes = fileBytes;
+        this.entryCount = entryCount;
+        this.blockKeys = blockKeys;
+        this.blockOffsets = blockOffsets;
+        this.dataEnd = dataEnd;
+        this.windows = windows;
+        this.filter = filter;
+        this.filterLines = filterLines;
+    }
+
+    /**
+     * Writes sorted entries to {@code file}, replacing it atomically, and maps the result.
+     *
+     * @param file           target file
+     * @param entries        entries in ascending unsigned key order without duplicate keys
+     * @param expectedGroups upper bound on the number of key groups, used to size the Bloom filter
+     * @param dropTombstones whether deleted keys are omitted, which is only safe when no older
+     *                       segment can hold a value for them
+     * @return the mapped segment
+     * @throws IOException if the file cannot be written or an entry exceeds 64 KiB
+     */
+    static SortedSegment write(Path file, Iterator<SegmentStore.Entry> entries, long expectedGroups,
+                               boolean dropTombstones) throws IOException {
+        int filterLines = (int) Math.min(Integer.MAX_VALUE / LINE_BYTES,
+                Math.max(1, expectedGroups * FILTER_BITS_PER_GROUP / (LINE_BYTES * 8) + 1));
+        long[] filterBits = new long[filterLines * (LINE_BYTES / Long.BYTES)];
+        List<byte[]> keys = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_BYTES * 2);
+            long offset = 0;
+            int count = 0;
+            byte[] previous = EMPTY;
+            byte[] previousGroup = null;
+            while (entries.hasNext()) {
+                SegmentStore.Entry entry = entries.next();
+                byte[] key = entry.getKey();
+                byte[] value = entry.getValue();
+                if (dropTombstones && value == TOMBSTONE) {
+                    continue;
+                }
+                if (key.length + value.length > MAX_ENTRY_BYTES) {
+                    throw new IOException("Segment entry exceeds " + MAX_ENTRY_BYTES + " bytes");
+                }
+                if (block.size() == 0) {
+                    keys.add(key);
+                    offsets.add(offset);
+                    previous = EMPTY;
+                }
+                int shared = sharedPrefix(previous, key);
+                writeVarInt(block, shared);
+                writeVarInt(block, key.length - shared);
+                block.write(key, shared, key.length - shared);
+                writeVarInt(block, value == TOMBSTONE ? 0 : value.length + 1);
+                block.write(value, 0, value.length);
+                previous = key;
+                count++;
+
+                int groupLength = groupLength(key, key.length);
+                if (previousGroup == null || !Arrays.equals(previousGroup, 0, previousGroup.length, key, 0, groupLength)) {
+                    previousGroup = Arrays.copyOf(key, groupLength);
+                    addToFilter(filterBits, filterLines, key, groupLength);
+                }
+                if (block.size() >= BLOCK_BYTES) {
+                    block.writeTo(out);
+                    offset += block.size();
+                    block.reset();
+                }
+            }
+            block.writeTo(out);
+            offset += block.size();
+
+            long indexOffset = offset;
+            long filterOffset = indexOffset + Integer.BYTES;
+            out.writeInt(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                writeVarInt(out, keys.get(i).length);
+                out.write(keys.get(i));
+                out.writeLong(offsets.get(i));
+                filterOffset += varIntBytes(keys.get(i).length) + keys.get(i).length + Long.BYTES;
+            }
+            for (long bits : filterBits) {
+                out.writeLong(bits);
+            }
+            out.writeLong(indexOffset);
+            out.writeLong(filterOffset);
+            out.writeInt(count);
+            out.writeInt(filterLines);
+            out.writeInt(0);
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(file);
+    }
+
+    /**
+     * Maps an existing segment and loads its sparse index.
+     *
+     * @param file segment written by {@link #write}
+     * @return the mapped segment
+     * @throws IOException if the file cannot be read or is not a segment
+     */
+    static SortedSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FOOTER_BYTES) {
+                throw new IOException("Not a sorted segment: " + file);
+            }
+            ByteBuffer footer = read(channel, size - FOOTER_BYTES, FOOTER_BYTES);
+            long indexOffset = footer.getLong();
+            long filterOffset = footer.getLong();
+            int entryCount = footer.getInt();
+            int filterLines = footer.getInt();
+            footer.getInt();
+            if (footer.getInt() != MAGIC || indexOffset < 0 || filterOffset < indexOffset
+                    || filterOffset + (long) filterLines * LINE_BYTES != size - FOOTER_BYTES) {
+                throw new IOException("Not a sorted segment: " + file);
+            }
+
+            ByteBuffer index = read(channel, indexOffset, (int) (filterOffset - indexOffset));
+            int blocks = index.getInt();
+            byte[][] blockKeys = new byte[blocks][];
+            long[] blockOffsets = new long[blocks];
+            for (int i = 0; i < blocks; i++) {
+                blockKeys[i] = new byte[readVarInt(index)];
+                index.get(blockKeys[i]);
+                blockOffsets[i] = index.getLong();
+            }
+
+            MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((indexOffset + WINDOW_BYTES - 1) / WINDOW_BYTES)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = i * WINDOW_BYTES;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(indexOffset - start, WINDOW_BYTES + WINDOW_OVERLAP));
+            }
+            MappedByteBuffer filter = channel.map(FileChannel.MapMode.READ_ONLY, filterOffset,
+                    (long) filterLines * LINE_BYTES);
+            return new SortedSegment(file, size, entryCount, blockKeys, blockOffsets, indexOffset, windows,
+                    filter, filterLines);
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getFileBytes() {
+        return fileBytes;
+    }
+
+    int getEntryCount() {
+        return entryCount;
+    }
+
+    int getIndexEntries() {
+        return blockKeys.length;
+    }
+
+    /**
+     * Returns whether the segment may hold keys of the group {@code key[0, groupLength)}. A
+     * {@code false} answer is definite.
+     */
+    boolean mightContainGroup(byte[] key, int groupLength) {
+        long hash = hash(key, groupLength);
+        int line = (int) Long.remainderUnsigned(hash, filterLines);
+        long probes = mix(hash);
+        for (int i = 0; i < FILTER_PROBES; i++) {
+            int bit = (int) ((probes >>> (i * 9)) & (LINE_BYTES * 8 - 1));
+            long word = filter.getLong(line * LINE_BYTES + (bit >>> 6) * Long.BYTES);
+            if ((word & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks up one key.
+     *
+     * @return the value, {@link #TOMBSTONE} if the key was deleted, or {@code null} if the segment
+     * has no entry for it
+     */
+    byte[] get(byte[] key) {
+        if (!mightContainGroup(key, groupLength(key, key.length))) {
+            return null;
+        }
+        int blockIndex = floorBlock(key);
+        if (blockIndex < 0) {
+            return null;
+        }
+        ByteBuffer block = block(blockIndex);
+        byte[] previous = EMPTY;
+        while (block.hasRemaining()) {
+            byte[] current = readKey(block, previous);
+            int comparison = Arrays.compareUnsigned(current, key);
+            if (comparison == 0) {
+                return readValue(block);
+            }
+            if (comparison > 0) {
+                return null;
+            }
+            skipValue(block);
+            previous = current;
+        }
+        return null;
+    }
+
+    /**
+     * Iterates entries with keys greater than or equal to {@code from}, tombstones included.
+     */
+    Iterator<SegmentStore.Entry> iterator(byte[] from) {
+        return new SegmentIterator(Math.max(0, floorBlock(from)), from);
+    }
+
+    /**
+     * Returns the length of the group prefix of {@code key[0, length)}: up to and including the
+     * first zero byte, or the whole key.
+     */
+    static int groupLength(byte[] key, int length) {
+        for (int i = 0; i < length; i++) {
+            if (key[i] == 0) {
+                return i + 1;
+            }
+        }
+        return length;
+    }
+
+    private int floorBlock(byte[] key) {
+        int low = 0;
+        int high = blockKeys.length - 1;
+        int floor = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(blockKeys[mid], key) <= 0) {
+                floor = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return floor;
+    }
+
+    private ByteBuffer block(int blockIndex) {
+        long start = blockOffsets[blockIndex];
+        long end = blockIndex + 1 < blockOffsets.length ? blockOffsets[blockIndex + 1] : dataEnd;
+        MappedByteBuffer window = windows[(int) (start / WINDOW_BYTES)];
+        return window.slice((int) (start % WINDOW_BYTES), (int) (end - start));
+    }
+
+    private static byte[] readKey(ByteBuffer block, byte[] previous) {
+        int shared = readVarInt(block);
+        int rest = readVarInt(block);
+        byte[] key = Arrays.copyOf(previous, shared + rest);
+        block.get(key, shared, rest);
+        return key;
+    }
+
+    private static byte[] readValue(ByteBuffer block) {
+        int length = readVarInt(block) - 1;
+        if (length < 0) {
+            return TOMBSTONE;
+        }
+        byte[] value = new byte[length];
+        block.get(value);
+        return value;
+    }
+
+    private static void skipValue(ByteBuffer block) {
+        int length = readVarInt(block) - 1;
+        if (length > 0) {
+            block.position(block.position() + length);
+        }
+    }
+
+    private static int sharedPrefix(byte[] a, byte[] b) {
+        int mismatch = Arrays.mismatch(a, b);
+        return mismatch < 0 ? a.length : mismatch;
+    }
+
+    private static void addToFilter(long[] bits, int lines, byte[] key, int groupLength) {
+        long hash = hash(key, groupLength);
+        int line = (int) Long.remainderUnsigned(hash, lines);
+        long probes = mix(hash);
+        for (int i = 0; i < FILTER_PROBES; i++) {
+            int bit = (int) ((probes >>> (i * 9)) & (LINE_BYTES * 8 - 1));
+            bits[line * (LINE_BYTES / Long.BYTES) + (bit >>> 6)] |= 1L << (bit & 63);
+        }
+    }
+
+    /** FNV-1a over the group bytes. */
+    private static long hash(byte[] key, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash ^= key[i] & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static int varIntBytes(int value) {
+        int bytes = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Forward iterator over the blocks, starting at the first entry not below {@code from}.
+     */
+    private final class SegmentIterator implements Iterator<SegmentStore.Entry> {
+        private int blockIndex;
+        private ByteBuffer block;
+        private byte[] previous = EMPTY;
+        private SegmentStore.Entry next;
+
+        private SegmentIterator(int blockIndex, byte[] from) {
+            this.blockIndex = blockIndex;
+            this.block = blockKeys.length == 0 ? ByteBuffer.allocate(0) : block(blockIndex);
+            advance();
+            while (next != null && Arrays.compareUnsigned(next.getKey(), from) < 0) {
+                advance();
+            }
+        }
+
+        private void advance() {
+            while (!block.hasRemaining()) {
+                if (++blockIndex >= blockKeys.length) {
+                    next = null;
+                    return;
+                }
+                block = block(blockIndex);
+                previous = EMPTY;
+            }
+            byte[] key = readKey(block, previous);
+            previous = key;
+            next = new SegmentStore.Entry(key, readValue(block));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public SegmentStore.Entry next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            SegmentStore.Entry current = next;
+            advance();
+            return current;
+        }
+    }
+}
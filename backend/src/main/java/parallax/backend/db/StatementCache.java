@@ -0,0 +1,75 @@
+package parallax.backend.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps one {@link PreparedStatement} per SQL string for the lifetime of a connection.
+ * <p>
+ * Repositories issue a small, fixed set of statements, so caching them avoids re-parsing and
+ * re-planning the SQL on every call. The cache is not thread-safe; callers serialize access to the
+ * underlying connection.
+ * </p>
+ */
+class StatementCache implements AutoCloseable {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    /**
+     * Creates a cache bound to the given connection.
+     *
+     * @param connection open connection that prepares and owns the cached statements
+     */
+    StatementCache(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Returns the cached statement for {@code sql}, preparing it on first use. Parameters from a
+     * previous use are cleared.
+     *
+     * @param sql statement text
+     * @return prepared statement ready for parameter binding
+     * @throws SQLException if the statement cannot be prepared
+     */
+    PreparedStatement get(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    /**
+     * Returns the connection the statements belong to.
+     *
+     * @return underlying connection
+     */
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Closes all cached statements and the connection.
+     *
+     * @throws SQLException if closing the connection fails
+     */
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // closing the connection releases it anyway
+            }
+        }
+        statements.clear();
+        connection.close();
+    }
+}
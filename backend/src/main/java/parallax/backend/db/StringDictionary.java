@@ -0,0 +1,69 @@
+package parallax.backend.db;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only dictionary assigning dense {@code int} codes to strings, so records can refer to
+ * frequently repeated values such as vehicle makes and models by code instead of holding their
+ * own copy of the string.
+ * <p>
+ * Code {@code 0} stands for {@code null}. Lookups in either direction do not lock; new strings are
+ * added under the dictionary's monitor. Entries are never removed, so the dictionary holds every
+ * distinct value it has seen.
+ * </p>
+ */
+final class StringDictionary {
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[64];
+    private int size = 1;
+
+    /**
+     * Returns the code of {@code value}, adding it if it is new.
+     *
+     * @param value string to encode, may be {@code null}
+     * @return code of the value
+     */
+    int encode(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    /**
+     * Returns the string for a code returned by {@link #encode(String)}.
+     *
+     * @param code value code
+     * @return the encoded string, or {@code null} for code {@code 0}
+     */
+    String decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * Returns the number of distinct non-null values.
+     *
+     * @return dictionary size
+     */
+    synchronized int size() {
+        return size - 1;
+    }
+
+    private synchronized int add(String value) {
+        Integer existing = codes.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = value;
+        values = current;
+        codes.put(value, size);
+        return size++;
+    }
+}
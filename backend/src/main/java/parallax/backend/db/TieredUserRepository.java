@@ -0,0 +1,382 @@
+package parallax.backend.db;
+
+import parallax.backend.model.User;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link UserRepository} that keeps recently used accounts on the heap and leaves the rest in a
+ * persistent store.
+ * <p>
+ * Hot users live in a cache bounded by an estimate of their heap footprint rather than by count;
+ * once it is full, the least recently used users are evicted. Email and login lookups that miss
+ * the cache load the user from the store and make it resident again, so eviction is invisible to
+ * callers. Mutations are written through to the store first and then applied to the cache.
+ * Phone lookups and {@link #findAllUsers()} always go to the store, which has its own indexes.
+ * </p>
+ * <p>
+ * The cache is split into independently locked stripes keyed by username hash, each holding an
+ * equal share of the byte budget. A user loaded by a lookup is only cached if no mutation
+ * completed while it was being loaded, so a slow read cannot reinstate a stale copy. Like the
+ * in-memory repository, lookups return the cached instance.
+ * </p>
+ */
+public class TieredUserRepository implements UserRepository {
+    private static final int DEFAULT_STRIPES = 16;
+
+    private final UserRepository store;
+    private final Stripe[] stripes;
+    private final long maxResidentBytes;
+    private final AtomicLong mutations = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates the repository in front of {@code store}.
+     *
+     * @param store            persistent repository holding every user
+     * @param maxResidentBytes estimated heap budget for cached users
+     */
+    public TieredUserRepository(UserRepository store, long maxResidentBytes) {
+        this(store, maxResidentBytes, DEFAULT_STRIPES);
+    }
+
+    TieredUserRepository(UserRepository store, long maxResidentBytes, int stripeCount) {
+        this.store = store;
+        this.maxResidentBytes = Math.max(0, maxResidentBytes);
+        this.stripes = new Stripe[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(this.maxResidentBytes / stripes.length);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A resident user whose password matches is returned without touching the store; anything
+     * else, including phone identifiers, is resolved by the store.
+     * </p>
+     */
+    @Override
+    public Optional<User> findByIdentifierAndPassword(String identifier, String password) {
+        if (identifier == null || password == null) {
+            return Optional.empty();
+        }
+        String key = key(identifier);
+        User cached = stripeFor(key).get(key);
+        if (cached != null && password.equals(cached.getPassword())) {
+            hits.incrementAndGet();
+            return Optional.of(cached);
+        }
+        misses.incrementAndGet();
+        long version = mutations.get();
+        return store.findByIdentifierAndPassword(identifier, password).map(user -> admit(user, version));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Users that are not resident are loaded from the store and cached.
+     * </p>
+     */
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        String key = key(email);
+        User cached = stripeFor(key).get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return Optional.of(cached);
+        }
+        misses.incrementAndGet();
+        long version = mutations.get();
+        return store.findByEmail(email).map(user -> admit(user, version));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cache is keyed by username, so id lookups are served by the store and cache the result.
+     * </p>
+     */
+    @Override
+    public Optional<User> findById(long id) {
+        long version = mutations.get();
+        return store.findById(id).map(user -> admit(user, version));
+    }
+
+    @Override
+    public Optional<User> findByPhone(String phoneCountry, String phoneDigits) {
+        long version = mutations.get();
+        return store.findByPhone(phoneCountry, phoneDigits).map(user -> admit(user, version));
+    }
+
+    @Override
+    public User createUser(User user) {
+        User created = store.createUser(user);
+        cache(new User(created));
+        return created;
+    }
+
+    @Override
+    public Optional<User> updateContact(String username, String newEmail, String phoneCountry, String phone) {
+        Optional<User> updated = store.updateContact(username, newEmail, phoneCountry, phone);
+        if (updated.isPresent()) {
+            invalidate(key(username));
+            cache(new User(updated.get()));
+        }
+        return updated;
+    }
+
+    @Override
+    public Optional<User> updatePassword(String username, String newPassword) {
+        Optional<User> updated = store.updatePassword(username, newPassword);
+        if (updated.isPresent()) {
+            cache(new User(updated.get()));
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean deleteUser(String username) {
+        boolean deleted = store.deleteUser(username);
+        if (username != null) {
+            invalidate(key(username));
+        }
+        return deleted;
+    }
+
+    @Override
+    public Map<String, User> findAllUsers() {
+        return store.findAllUsers();
+    }
+
+    /**
+     * Returns the repository behind the cache.
+     *
+     * @return backing store
+     */
+    UserRepository getStore() {
+        return store;
+    }
+
+    /**
+     * Returns a snapshot of cache counters.
+     *
+     * @return current cache metrics
+     */
+    public Metrics getMetrics() {
+        int residentUsers = 0;
+        long residentBytes = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                residentUsers += stripe.users.size();
+                residentBytes += stripe.bytes;
+            }
+        }
+        return new Metrics(hits.get(), misses.get(), evictions.get(), residentUsers, residentBytes, maxResidentBytes);
+    }
+
+    /**
+     * Estimates the heap footprint of a cached user: the object itself, its cache entry and every
+     * non-null string field, assuming compact Latin-1 strings.
+     *
+     * @param user user to measure
+     * @return estimated bytes
+     */
+    static long estimateBytes(User user) {
+        long bytes = 80 + 40 + 24;
+        bytes += stringBytes(user.getUsername()) + stringBytes(user.getEmail()) + stringBytes(user.getDisplayName())
+                + stringBytes(user.getPassword()) + stringBytes(user.getFirstName()) + stringBytes(user.getLastName())
+                + stringBytes(user.getCountry()) + stringBytes(user.getBirthMonth()) + stringBytes(user.getBirthDay())
+                + stringBytes(user.getBirthYear()) + stringBytes(user.getPhoneCountry()) + stringBytes(user.getPhone())
+                + stringBytes(user.getContactMethod()) + stringBytes(user.getCreatedAt());
+        return bytes;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + ((value.length() + 7) & ~7);
+    }
+
+    private User admit(User loaded, long version) {
+        if (loaded.getUsername() == null) {
+            return loaded;
+        }
+        String key = key(loaded.getUsername());
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            if (mutations.get() == version) {
+                stripe.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private void cache(User user) {
+        if (user.getUsername() == null) {
+            return;
+        }
+        String key = key(user.getUsername());
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            mutations.incrementAndGet();
+            stripe.put(key, user);
+        }
+    }
+
+    private void invalidate(String key) {
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            mutations.incrementAndGet();
+            stripe.remove(key);
+        }
+    }
+
+    private Stripe stripeFor(String key) {
+        int hash = key.hashCode();
+        return stripes[((hash ^ (hash >>> 16)) & 0x7fffffff) % stripes.length];
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private final class Stripe {
+        private final LinkedHashMap<String, Resident> users = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        private Stripe(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized User get(String key) {
+            Resident resident = users.get(key);
+            return resident == null ? null : resident.user;
+        }
+
+        // put and remove are called with the stripe lock held.
+        void put(String key, User user) {
+            Resident resident = new Resident(user, estimateBytes(user));
+            Resident previous = users.put(key, resident);
+            bytes += resident.bytes - (previous == null ? 0 : previous.bytes);
+            Iterator<Resident> eldest = users.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().bytes;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+
+        void remove(String key) {
+            Resident previous = users.remove(key);
+            if (previous != null) {
+                bytes -= previous.bytes;
+            }
+        }
+    }
+
+    private static final class Resident {
+        private final User user;
+        private final long bytes;
+
+        private Resident(User user, long bytes) {
+            this.user = user;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Point-in-time cache counters.
+     */
+    public static final class Metrics {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int residentUsers;
+        private final long residentBytes;
+        private final long maxResidentBytes;
+
+        private Metrics(long hits, long misses, long evictions, int residentUsers, long residentBytes,
+                        long maxResidentBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.residentUsers = residentUsers;
+            this.residentBytes = residentBytes;
+            this.maxResidentBytes = maxResidentBytes;
+        }
+
+        /**
+         * Returns how many email and login lookups were served from the heap.
+         *
+         * @return cache hits
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Returns how many email and login lookups had to go to the store.
+         *
+         * @return cache misses
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Returns the share of lookups served from the heap.
+         *
+         * @return hit rate between {@code 0} and {@code 1}, or {@code 0} before the first lookup
+         */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        /**
+         * Returns how many users were evicted to stay within the heap budget.
+         *
+         * @return evictions
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * Returns how many users are currently cached.
+         *
+         * @return resident users
+         */
+        public int getResidentUsers() {
+            return residentUsers;
+        }
+
+        /**
+         * Returns the estimated heap footprint of the cached users.
+         *
+         * @return resident bytes
+         */
+        public long getResidentBytes() {
+            return residentBytes;
+        }
+
+        /**
+         * Returns the heap budget for cached users.
+         *
+         * @return maximum resident bytes
+         */
+        public long getMaxResidentBytes() {
+            return maxResidentBytes;
+        }
+    }
+}
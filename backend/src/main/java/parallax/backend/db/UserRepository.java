@@ -31,6 +31,15 @@ public interface UserRepository {
      */
     Optional<User> findByEmail(String email);
 
+    /**
+     * Looks up a user by the surrogate id assigned when the user was created. Unlike the email,
+     * the id stays the same across {@link #updateContact(String, String, String, String)}.
+     *
+     * @param id user id
+     * @return user if present; otherwise {@link Optional#empty()}
+     */
+    Optional<User> findById(long id);
+
     /**
      * Looks up a user by normalized phone components.
      *
@@ -43,6 +52,7 @@ public interface UserRepository {
     /**
      * Persists a new user record.
      * Implementations may choose to upsert or enforce uniqueness based on the username/email.
+     * A user without an id is assigned the next free one; replacing an existing user keeps its id.
      *
      * @param user user to store
      * @return persisted user instance
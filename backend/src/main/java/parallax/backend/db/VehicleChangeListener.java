@@ -0,0 +1,26 @@
+package parallax.backend.db;
+
+import java.util.Collection;
+
+/**
+ * Receives notice of vehicle changes made through an {@link ObservableVehicleRepository}, so
+ * callers can drop state derived from the affected plates.
+ * <p>
+ * Notifications are delivered on the writing thread after the change has been applied to the
+ * repository, and must therefore be quick.
+ * </p>
+ */
+public interface VehicleChangeListener {
+    /**
+     * Called after vehicles registered under the given plates were added, removed or updated.
+     *
+     * @param plates normalized (trimmed, upper-case) plates
+     */
+    void platesChanged(Collection<String> plates);
+
+    /**
+     * Called after a change whose plates are not known individually, such as removing all vehicles
+     * of a user or replacing the whole blacklist.
+     */
+    void allChanged();
+}
@@ -1,10 +1,17 @@
 package parallax.backend.db;
 
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.BlacklistUpdate;
 import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
 import parallax.backend.model.VehicleWithOwner;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Abstraction for persistence of vehicles and license plate state.
@@ -53,6 +60,15 @@ public interface VehicleRepository {
      */
     Optional<Vehicle> findByPlate(String licenseNumber);
 
+    /**
+     * Resolves many license plates in a single lookup, for callers such as multi-plate image
+     * recognition that would otherwise issue one {@link #findByPlate(String)} call per plate.
+     *
+     * @param licenseNumbers license plate texts (case-insensitive); {@code null} entries are ignored
+     * @return matches keyed by normalized (trimmed, upper-case) plate; plates without a match are absent
+     */
+    Map<String, Vehicle> findByPlates(Collection<String> licenseNumbers);
+
     /**
      * Persists a vehicle for a user. Implementations may enforce uniqueness per owner.
      *
@@ -60,6 +76,30 @@ public interface VehicleRepository {
      */
     void addVehicle(Vehicle vehicle);
 
+    /**
+     * Persists a vehicle without blocking the caller until the write is durable. The default
+     * implementation writes synchronously.
+     *
+     * @param vehicle vehicle to add
+     * @return future completed once the vehicle is stored
+     */
+    default CompletableFuture<Void> addVehicleAsync(Vehicle vehicle) {
+        addVehicle(vehicle);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Persists several vehicles, committing them together where the storage supports
+     * transactions. The default implementation adds them one at a time.
+     *
+     * @param vehicles vehicles to add
+     */
+    default void addVehicles(Collection<Vehicle> vehicles) {
+        for (Vehicle vehicle : vehicles) {
+            addVehicle(vehicle);
+        }
+    }
+
     /**
      * Removes a vehicle tied to the provided user and license plate.
      *
@@ -92,6 +132,52 @@ public interface VehicleRepository {
      */
     Optional<Vehicle> updateBlacklistStatus(String licenseNumber, boolean blacklisted);
 
+    /**
+     * Toggles the blacklist flag without blocking the caller until the write is durable. The
+     * default implementation writes synchronously.
+     *
+     * @param licenseNumber license plate to update
+     * @param blacklisted   desired blacklist status
+     * @return future completed with the updated vehicle, or {@link Optional#empty()} if absent
+     */
+    default CompletableFuture<Optional<Vehicle>> updateBlacklistStatusAsync(String licenseNumber, boolean blacklisted) {
+        return CompletableFuture.completedFuture(updateBlacklistStatus(licenseNumber, blacklisted));
+    }
+
+    /**
+     * Applies a hotlist to the blacklist flags as one operation that publishes a single blacklist
+     * change log version. Unlike {@link #updateBlacklistStatus(String, boolean)}, every vehicle
+     * registered under a plate is updated. With {@code replace}, {@code blacklisted} is the
+     * complete list: its plates are blacklisted and every other blacklisted plate is cleared, and
+     * {@code cleared} is ignored. Otherwise only the listed plates change; a plate in both
+     * collections ends up blacklisted.
+     *
+     * @param blacklisted plates to blacklist (case-insensitive)
+     * @param cleared     plates to clear (case-insensitive)
+     * @param replace     whether {@code blacklisted} replaces the whole blacklist
+     * @return changed plate counts, unmatched plates and the published version
+     */
+    BlacklistUpdate updateBlacklist(Collection<String> blacklisted, Collection<String> cleared, boolean replace);
+
+    /**
+     * Returns the blacklist changes since a previously synchronized version, or a full snapshot of
+     * blacklisted plates when the version is unknown or has fallen out of the retained change
+     * window. Changes are recorded by blacklist updates and by removing blacklisted vehicles.
+     *
+     * @param logId        change log identifier returned by the previous sync, or {@code null}
+     * @param sinceVersion version returned by the previous sync
+     * @return delta or snapshot, carrying the log identifier and version to resume from
+     */
+    BlacklistSync getBlacklistChanges(String logId, long sinceVersion);
+
+    /**
+     * Counts registered vehicles in total, blacklisted, per make and per model year for the admin
+     * dashboard.
+     *
+     * @return registry statistics
+     */
+    VehicleStats getStatistics();
+
     /**
      * Retrieves all vehicles enriched with owner contact details for administrative views.
      *
@@ -99,4 +185,18 @@ public interface VehicleRepository {
      * @return list of vehicles including owner metadata
      */
     List<VehicleWithOwner> findAllWithOwners(UserRepository userRepository);
+
+    /**
+     * Passes every vehicle, enriched like {@link #findAllWithOwners(UserRepository)}, to
+     * {@code action} one at a time, so exports can write the registry out without holding it in
+     * memory. Implementations iterate their storage directly; the default implementation
+     * materializes {@link #findAllWithOwners(UserRepository)}. Exceptions thrown by
+     * {@code action} abort the iteration and propagate to the caller.
+     *
+     * @param userRepository repository used to resolve owner contact data
+     * @param action         receiver of each enriched vehicle
+     */
+    default void forEachWithOwner(UserRepository userRepository, Consumer<? super VehicleWithOwner> action) {
+        findAllWithOwners(userRepository).forEach(action);
+    }
 }
@@ -0,0 +1,278 @@
+package parallax.backend.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bounded queue that applies heap mutations immediately and replays them against a persistent
+ * store on a background thread.
+ * <p>
+ * Used by the write-behind repositories: a request only pays for the in-memory update, while the
+ * matching store write is queued. The queue holds at most {@code capacity} pending store writes;
+ * when it is full, writers block until the background thread catches up. Heap update and enqueue happen under one lock, so the
+ * store sees mutations in exactly the order they were applied in memory, across all repositories
+ * sharing the queue.
+ * </p>
+ * <p>
+ * Store writes may also be asynchronous, such as submissions to a {@link WritePipeline}: the
+ * background thread then only issues them, in order, and does not wait for each commit, so a
+ * group-committing store can absorb the backlog in large batches. At most {@code capacity} issued
+ * writes may be incomplete at a time, so the store never lags the heap by more than twice
+ * {@code capacity} mutations. A store write that fails is
+ * counted and skipped; the heap remains authoritative until restart.
+ * </p>
+ */
+public class WriteBehindQueue implements AutoCloseable {
+    private final BlockingQueue<Supplier<CompletableFuture<?>>> queue;
+    private final ReentrantLock order = new ReentrantLock();
+    private final int capacity;
+    private final Semaphore inFlight;
+    private final Thread worker;
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile CompletableFuture<?> lastIssued = CompletableFuture.completedFuture(null);
+    private volatile String lastError;
+    private volatile boolean closed;
+
+    /**
+     * Starts the background writer.
+     *
+     * @param capacity maximum number of store writes that may be pending
+     */
+    public WriteBehindQueue(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.queue = new ArrayBlockingQueue<>(this.capacity);
+        this.inFlight = new Semaphore(this.capacity);
+        this.worker = new Thread(this::run, "parallax-write-behind");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Applies a heap mutation and queues the corresponding store write.
+     *
+     * @param heapWrite  in-memory mutation, executed on the calling thread
+     * @param storeWrite persistent mutation, executed later on the background thread
+     * @param <T>        result type of the heap mutation
+     * @return result of {@code heapWrite}
+     */
+    public <T> T write(Supplier<T> heapWrite, Runnable storeWrite) {
+        return writeAsync(heapWrite, () -> {
+            storeWrite.run();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Applies a heap mutation and queues an asynchronous store write. The background thread
+     * issues the store write in queue order but does not wait for its future before issuing the
+     * next one.
+     *
+     * @param heapWrite  in-memory mutation, executed on the calling thread
+     * @param storeWrite issues the persistent mutation on the background thread
+     * @param <T>        result type of the heap mutation
+     * @return result of {@code heapWrite}
+     */
+    public <T> T writeAsync(Supplier<T> heapWrite, Supplier<CompletableFuture<?>> storeWrite) {
+        order.lock();
+        try {
+            T result = heapWrite.get();
+            enqueue(storeWrite);
+            return result;
+        } finally {
+            order.unlock();
+        }
+    }
+
+    /**
+     * Blocks until every store write queued before this call has been applied. Asynchronous store
+     * writes are expected to complete in the order they were issued.
+     */
+    public void flush() {
+        if (!worker.isAlive()) {
+            return;
+        }
+        FlushMarker marker = new FlushMarker();
+        order.lock();
+        try {
+            enqueue(marker);
+        } finally {
+            order.unlock();
+        }
+        marker.reached.join();
+        try {
+            lastIssued.join();
+        } catch (CompletionException ignored) {
+            // already counted as a failure
+        }
+    }
+
+    /**
+     * Returns a snapshot of replication counters.
+     *
+     * @return current queue metrics
+     */
+    public Metrics getMetrics() {
+        int pending = queue.size() + capacity - inFlight.availablePermits();
+        return new Metrics(pending, capacity, applied.get(), failures.get(), lastError);
+    }
+
+    /**
+     * Applies all pending store writes and stops the background thread. Intended as the
+     * shutdown hook of the server.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Supplier<CompletableFuture<?>> storeWrite) {
+        if (closed) {
+            throw new IllegalStateException("Write-behind queue is closed");
+        }
+        try {
+            queue.put(storeWrite);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the write-behind queue", e);
+        }
+    }
+
+    private void run() {
+        List<Supplier<CompletableFuture<?>>> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch);
+            for (Supplier<CompletableFuture<?>> storeWrite : batch) {
+                if (storeWrite instanceof FlushMarker) {
+                    ((FlushMarker) storeWrite).reached.complete(null);
+                    continue;
+                }
+                inFlight.acquireUninterruptibly();
+                try {
+                    CompletableFuture<?> issued = storeWrite.get();
+                    if (issued == null) {
+                        inFlight.release();
+                        continue;
+                    }
+                    lastIssued = issued.whenComplete((result, error) -> {
+                        inFlight.release();
+                        if (error == null) {
+                            applied.incrementAndGet();
+                        } else {
+                            recordFailure(error instanceof CompletionException ? error.getCause() : error);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    recordFailure(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void recordFailure(Throwable error) {
+        failures.incrementAndGet();
+        lastError = error.getMessage();
+    }
+
+    /**
+     * Point-in-time replication counters.
+     */
+    public static final class Metrics {
+        private final int pending;
+        private final int capacity;
+        private final long applied;
+        private final long failures;
+        private final String lastError;
+
+        private Metrics(int pending, int capacity, long applied, long failures, String lastError) {
+            this.pending = pending;
+            this.capacity = capacity;
+            this.applied = applied;
+            this.failures = failures;
+            this.lastError = lastError;
+        }
+
+        /**
+         * Returns how many store writes are queued or issued but not yet complete, i.e. how far
+         * the store lags the heap.
+         *
+         * @return pending store writes
+         */
+        public int getPending() {
+            return pending;
+        }
+
+        /**
+         * Returns the maximum number of pending store writes before writers block.
+         *
+         * @return queue capacity
+         */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        /**
+         * Returns the number of store writes applied so far.
+         *
+         * @return applied store writes
+         */
+        public long getApplied() {
+            return applied;
+        }
+
+        /**
+         * Returns the number of store writes that failed and were skipped.
+         *
+         * @return failed store writes
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the message of the most recent failed store write, if any.
+         *
+         * @return last error message or {@code null}
+         */
+        public String getLastError() {
+            return lastError;
+        }
+    }
+
+    /**
+     * Queue entry of {@link #flush()}, completed by the worker without taking an in-flight permit.
+     */
+    private static final class FlushMarker implements Supplier<CompletableFuture<?>> {
+        private final CompletableFuture<Void> reached = new CompletableFuture<>();
+
+        @Override
+        public CompletableFuture<?> get() {
+            return null;
+        }
+    }
+}
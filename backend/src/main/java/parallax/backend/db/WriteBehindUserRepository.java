@@ -0,0 +1,89 @@
+package parallax.backend.db;
+
+import parallax.backend.model.User;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link UserRepository} that serves every read from an {@link InMemoryUserRepository} and
+ * persists mutations asynchronously to a backing store through a {@link WriteBehindQueue}.
+ * <p>
+ * On construction the heap is rebuilt from the store, so users survive a restart as long as the
+ * queue was flushed on shutdown. Mutations return as soon as the heap is updated; the store write
+ * receives a copy of the user so later in-memory changes cannot leak into an earlier write. New
+ * users get their id from the heap before the copy is taken, so both sides store the same id.
+ * </p>
+ */
+public class WriteBehindUserRepository implements UserRepository {
+    private final InMemoryUserRepository memory;
+    private final UserRepository store;
+    private final WriteBehindQueue queue;
+
+    /**
+     * Loads all users from {@code store} into {@code memory} and starts mirroring mutations.
+     *
+     * @param memory heap repository serving reads
+     * @param store  persistent repository receiving queued writes
+     * @param queue  write-behind queue shared with the other write-behind repositories
+     */
+    public WriteBehindUserRepository(InMemoryUserRepository memory, UserRepository store, WriteBehindQueue queue) {
+        this.memory = memory;
+        this.store = store;
+        this.queue = queue;
+        for (User user : store.findAllUsers().values()) {
+            memory.createUser(user);
+        }
+    }
+
+    @Override
+    public Optional<User> findByIdentifierAndPassword(String identifier, String password) {
+        return memory.findByIdentifierAndPassword(identifier, password);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return memory.findByEmail(email);
+    }
+
+    @Override
+    public Optional<User> findById(long id) {
+        return memory.findById(id);
+    }
+
+    @Override
+    public Optional<User> findByPhone(String phoneCountry, String phoneDigits) {
+        return memory.findByPhone(phoneCountry, phoneDigits);
+    }
+
+    @Override
+    public User createUser(User user) {
+        if (user != null && user.getUsername() != null) {
+            memory.assignId(user);
+        }
+        User copy = user == null ? null : new User(user);
+        return queue.write(() -> memory.createUser(user), () -> store.createUser(copy));
+    }
+
+    @Override
+    public Optional<User> updateContact(String username, String newEmail, String phoneCountry, String phone) {
+        return queue.write(() -> memory.updateContact(username, newEmail, phoneCountry, phone),
+                () -> store.updateContact(username, newEmail, phoneCountry, phone));
+    }
+
+    @Override
+    public Optional<User> updatePassword(String username, String newPassword) {
+        return queue.write(() -> memory.updatePassword(username, newPassword),
+                () -> store.updatePassword(username, newPassword));
+    }
+
+    @Override
+    public boolean deleteUser(String username) {
+        return queue.write(() -> memory.deleteUser(username), () -> store.deleteUser(username));
+    }
+
+    @Override
+    public Map<String, User> findAllUsers() {
+        return memory.findAllUsers();
+    }
+}
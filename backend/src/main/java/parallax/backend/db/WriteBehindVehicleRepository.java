@@ -0,0 +1,144 @@
+package parallax.backend.db;
+
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.BlacklistUpdate;
+import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
+import parallax.backend.model.VehicleWithOwner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * {@link VehicleRepository} that serves every read from an {@link InMemoryVehicleRepository} and
+ * persists mutations asynchronously to a backing store through a {@link WriteBehindQueue}.
+ * <p>
+ * On construction the heap is rebuilt from the store in registration order. Blacklist changes are
+ * recorded by the in-memory repository only, so the store should be given its own, otherwise
+ * unused, change log. Mutations are replayed against the store in the order they were applied in
+ * memory; the store write of a new vehicle receives a copy so later in-memory changes cannot leak
+ * into it. Inserts and blacklist updates use the store's asynchronous methods, so with a
+ * {@link WritePipeline} behind the store they are group-committed instead of committed one by one.
+ * </p>
+ */
+public class WriteBehindVehicleRepository implements VehicleRepository {
+    private final InMemoryVehicleRepository memory;
+    private final SQLiteVehicleRepository store;
+    private final WriteBehindQueue queue;
+
+    /**
+     * Loads all vehicles from {@code store} into {@code memory} and starts mirroring mutations.
+     *
+     * @param memory heap repository serving reads
+     * @param store  persistent repository receiving queued writes
+     * @param queue  write-behind queue shared with the other write-behind repositories
+     */
+    public WriteBehindVehicleRepository(InMemoryVehicleRepository memory, SQLiteVehicleRepository store,
+                                        WriteBehindQueue queue) {
+        this.memory = memory;
+        this.store = store;
+        this.queue = queue;
+        for (Vehicle vehicle : store.findAll()) {
+            memory.addVehicle(vehicle);
+        }
+    }
+
+    @Override
+    public List<Vehicle> reassignVehicles(String oldUsername, String newUsername) {
+        return queue.write(() -> memory.reassignVehicles(oldUsername, newUsername),
+                () -> store.reassignVehicles(oldUsername, newUsername));
+    }
+
+    @Override
+    public List<Vehicle> findByUsername(String username) {
+        return memory.findByUsername(username);
+    }
+
+    @Override
+    public Optional<Vehicle> findByUsernameAndLicense(String username, String licenseNumber) {
+        return memory.findByUsernameAndLicense(username, licenseNumber);
+    }
+
+    @Override
+    public Optional<Vehicle> findByLicense(String licenseNumber) {
+        return memory.findByLicense(licenseNumber);
+    }
+
+    @Override
+    public Optional<Vehicle> findByPlate(String licenseNumber) {
+        return memory.findByPlate(licenseNumber);
+    }
+
+    @Override
+    public Map<String, Vehicle> findByPlates(Collection<String> licenseNumbers) {
+        return memory.findByPlates(licenseNumbers);
+    }
+
+    @Override
+    public void addVehicle(Vehicle vehicle) {
+        Vehicle copy = vehicle == null ? null : new Vehicle(vehicle);
+        queue.writeAsync(() -> {
+            memory.addVehicle(vehicle);
+            return null;
+        }, () -> store.addVehicleAsync(copy));
+    }
+
+    @Override
+    public void removeVehicle(String username, String licenseNumber) {
+        queue.write(() -> {
+            memory.removeVehicle(username, licenseNumber);
+            return null;
+        }, () -> store.removeVehicle(username, licenseNumber));
+    }
+
+    @Override
+    public void removeVehiclesForUser(String username) {
+        queue.write(() -> {
+            memory.removeVehiclesForUser(username);
+            return null;
+        }, () -> store.removeVehiclesForUser(username));
+    }
+
+    @Override
+    public boolean removeByLicense(String licenseNumber) {
+        return queue.write(() -> memory.removeByLicense(licenseNumber), () -> store.removeByLicense(licenseNumber));
+    }
+
+    @Override
+    public Optional<Vehicle> updateBlacklistStatus(String licenseNumber, boolean blacklisted) {
+        return queue.writeAsync(() -> memory.updateBlacklistStatus(licenseNumber, blacklisted),
+                () -> store.updateBlacklistStatusAsync(licenseNumber, blacklisted));
+    }
+
+    @Override
+    public BlacklistUpdate updateBlacklist(Collection<String> blacklisted, Collection<String> cleared, boolean replace) {
+        List<String> blacklistedCopy = blacklisted == null ? List.of() : new ArrayList<>(blacklisted);
+        List<String> clearedCopy = cleared == null ? List.of() : new ArrayList<>(cleared);
+        return queue.write(() -> memory.updateBlacklist(blacklistedCopy, clearedCopy, replace),
+                () -> store.updateBlacklist(blacklistedCopy, clearedCopy, replace));
+    }
+
+    @Override
+    public BlacklistSync getBlacklistChanges(String logId, long sinceVersion) {
+        return memory.getBlacklistChanges(logId, sinceVersion);
+    }
+
+    @Override
+    public VehicleStats getStatistics() {
+        return memory.getStatistics();
+    }
+
+    @Override
+    public List<VehicleWithOwner> findAllWithOwners(UserRepository userRepository) {
+        return memory.findAllWithOwners(userRepository);
+    }
+
+    @Override
+    public void forEachWithOwner(UserRepository userRepository, Consumer<? super VehicleWithOwner> action) {
+        memory.forEachWithOwner(userRepository, action);
+    }
+}
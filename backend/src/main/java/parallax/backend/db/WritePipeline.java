@@ -0,0 +1,409 @@
+package parallax.backend.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-writer queue that commits repository mutations in batched transactions.
+ * <p>
+ * SQLite serializes writers, and with one transaction per mutation every write pays its own
+ * journal sync. Mutations submitted here are instead executed by one writer thread, which groups
+ * up to {@code maxBatchSize} queued tasks into a single transaction on the {@link DataSource}
+ * writer connection. Tasks that queued up while the previous batch was committing are taken at
+ * once; a positive {@code maxDelayMillis} additionally lets the writer linger that long for more
+ * tasks before committing a batch that is not yet full. Each task runs inside its own savepoint,
+ * so a failing task is rolled back and reported on its own future while the rest of the batch
+ * still commits. The pipeline switches the writer connection to {@code synchronous=FULL}, including
+ * connections the pool reopens later, so a completed future means the change survives a crash or
+ * power loss.
+ * </p>
+ * <p>
+ * Work that must only happen once a change is durable, such as recording blacklist log entries,
+ * is registered with {@link Transaction#afterCommit(Runnable)} and runs on the writer thread in
+ * commit order.
+ * </p>
+ */
+public class WritePipeline implements AutoCloseable {
+    private static final long CLOSE_POLL_MILLIS = 50;
+
+    private final DataSource dataSource;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Pending<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final Object submitLock = new Object();
+    private volatile boolean closed;
+
+    /**
+     * Starts the writer thread.
+     *
+     * @param dataSource     pool whose writer connection receives all mutations
+     * @param maxBatchSize   maximum number of tasks committed in one transaction
+     * @param maxDelayMillis how long the writer lingers for more tasks before committing a partial
+     *                       batch; {@code 0} commits whatever is queued immediately
+     */
+    public WritePipeline(DataSource dataSource, int maxBatchSize, long maxDelayMillis) {
+        this.dataSource = dataSource;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+        try {
+            dataSource.setWriterSynchronous("FULL");
+        } catch (SQLException e) {
+            throw new RepositoryException("Failed to configure writer connection", e);
+        }
+        this.writer = new Thread(this::run, "parallax-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a mutation for the writer thread.
+     *
+     * @param task work to execute inside the next batch transaction
+     * @param <T>  task result type
+     * @return future completed with the task's result once its batch has committed, or
+     *         exceptionally when the task or the commit fails
+     */
+    public <T> CompletableFuture<T> submit(WriteTask<T> task) {
+        Pending<T> pending = new Pending<>(task);
+        // Holding the lock keeps close() from slipping in between the check and the enqueue, so
+        // every queued task is still seen by the writer before it exits.
+        synchronized (submitLock) {
+            if (!closed) {
+                queue.add(pending);
+                return pending.future;
+            }
+        }
+        pending.fail(new IllegalStateException("Write pipeline is closed"));
+        return pending.future;
+    }
+
+    /**
+     * Returns a snapshot of batching counters.
+     *
+     * @return current pipeline metrics
+     */
+    public Metrics getMetrics() {
+        long batchCount = batches.get();
+        long operationCount = operations.get();
+        return new Metrics(queue.size(), batchCount, operationCount, failures.get(),
+                batchCount == 0 ? 0 : operationCount / (double) batchCount, largestBatch.get());
+    }
+
+    /**
+     * Stops accepting new tasks, commits everything already queued and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        synchronized (submitLock) {
+            closed = true;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs one task in its own transaction on the writer connection, without batching. Used by
+     * repositories that are not attached to a pipeline.
+     *
+     * @param dataSource pool providing the writer connection
+     * @param task       work to execute
+     * @param <T>        task result type
+     * @return the task's result
+     * @throws SQLException if the task or the commit fails
+     */
+    static <T> T runInTransaction(DataSource dataSource, WriteTask<T> task) throws SQLException {
+        try (DataSource.Lease lease = dataSource.acquireWriter()) {
+            Connection connection = lease.getConnection();
+            connection.setAutoCommit(false);
+            Transaction transaction = new Transaction(lease);
+            T result = task.execute(transaction);
+            connection.commit();
+            connection.setAutoCommit(true);
+            transaction.runAfterCommit();
+            return result;
+        }
+    }
+
+    private void run() {
+        try {
+            writeLoop();
+        } finally {
+            synchronized (submitLock) {
+                closed = true;
+            }
+            // Normally empty; tasks are left over only if the loop died, and their callers must
+            // not hang.
+            IllegalStateException stopped = new IllegalStateException("Write pipeline stopped");
+            for (Pending<?> pending = queue.poll(); pending != null; pending = queue.poll()) {
+                pending.fail(stopped);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending<?>> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            try {
+                // Polling instead of take() lets close() stop an idle writer without interrupting
+                // one that is waiting for the writer connection.
+                Pending<?> first = closed ? queue.poll() : queue.poll(CLOSE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                // Everything that queued up during the previous commit joins this batch at once.
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize && maxDelayNanos > 0) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending<?> next = remaining > 0 && !closed
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (batch.isEmpty()) {
+                    continue;
+                }
+            }
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Pending<?>> batch) {
+        List<Pending<?>> succeeded = new ArrayList<>(batch.size());
+        try (DataSource.Lease lease = dataSource.acquireWriter()) {
+            Connection connection = lease.getConnection();
+            connection.setAutoCommit(false);
+            for (Pending<?> pending : batch) {
+                Savepoint savepoint = connection.setSavepoint();
+                try {
+                    pending.execute(new Transaction(lease));
+                    connection.releaseSavepoint(savepoint);
+                    succeeded.add(pending);
+                } catch (Exception e) {
+                    connection.rollback(savepoint);
+                    connection.releaseSavepoint(savepoint);
+                    pending.fail(e);
+                }
+            }
+            connection.commit();
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            // The batch transaction itself failed, so none of its tasks were committed.
+            for (Pending<?> pending : batch) {
+                pending.fail(e);
+            }
+            failures.addAndGet(batch.size());
+            return;
+        }
+
+        batches.incrementAndGet();
+        operations.addAndGet(batch.size());
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+        failures.addAndGet(batch.size() - succeeded.size());
+        for (Pending<?> pending : succeeded) {
+            if (!pending.complete()) {
+                failures.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * A mutation executed by the writer thread.
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface WriteTask<T> {
+        /**
+         * Executes the mutation. The transaction is managed by the caller; the task must not
+         * commit, roll back or change the auto-commit mode.
+         *
+         * @param transaction writer connection and post-commit hooks
+         * @return result handed to the submitter once committed
+         * @throws SQLException if a statement fails
+         */
+        T execute(Transaction transaction) throws SQLException;
+    }
+
+    /**
+     * Context of a task inside a batch transaction.
+     */
+    public static final class Transaction {
+        private final DataSource.Lease lease;
+        private final List<Runnable> afterCommit = new ArrayList<>(1);
+
+        private Transaction(DataSource.Lease lease) {
+            this.lease = lease;
+        }
+
+        /**
+         * Returns the writer lease the task runs on.
+         *
+         * @return writer lease
+         */
+        public DataSource.Lease getLease() {
+            return lease;
+        }
+
+        /**
+         * Registers an action to run once the transaction has committed. Actions of a task that
+         * fails are discarded. An action that throws does not stop the other actions, and the
+         * task still completes with its result, since its mutation is committed.
+         *
+         * @param action post-commit action
+         */
+        public void afterCommit(Runnable action) {
+            afterCommit.add(action);
+        }
+
+        /**
+         * Runs every post-commit action.
+         *
+         * @return {@code false} if an action threw
+         */
+        private boolean runAfterCommit() {
+            boolean ran = true;
+            for (Runnable action : afterCommit) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    ran = false;
+                }
+            }
+            return ran;
+        }
+    }
+
+    /**
+     * Point-in-time batching counters.
+     */
+    public static final class Metrics {
+        private final int queued;
+        private final long batches;
+        private final long operations;
+        private final long failures;
+        private final double averageBatchSize;
+        private final long largestBatch;
+
+        private Metrics(int queued, long batches, long operations, long failures,
+                        double averageBatchSize, long largestBatch) {
+            this.queued = queued;
+            this.batches = batches;
+            this.operations = operations;
+            this.failures = failures;
+            this.averageBatchSize = averageBatchSize;
+            this.largestBatch = largestBatch;
+        }
+
+        /**
+         * Returns the number of tasks waiting for the writer thread.
+         *
+         * @return queued tasks
+         */
+        public int getQueued() {
+            return queued;
+        }
+
+        /**
+         * Returns the number of committed batch transactions.
+         *
+         * @return committed batches
+         */
+        public long getBatches() {
+            return batches;
+        }
+
+        /**
+         * Returns the number of tasks executed in committed batches, including tasks that failed
+         * and were rolled back to their savepoint.
+         *
+         * @return executed tasks
+         */
+        public long getOperations() {
+            return operations;
+        }
+
+        /**
+         * Returns the number of tasks whose future completed exceptionally, plus committed tasks
+         * whose post-commit actions threw.
+         *
+         * @return failed tasks
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the mean number of tasks per committed batch.
+         *
+         * @return average batch size
+         */
+        public double getAverageBatchSize() {
+            return averageBatchSize;
+        }
+
+        /**
+         * Returns the largest number of tasks committed in one batch.
+         *
+         * @return largest batch size
+         */
+        public long getLargestBatch() {
+            return largestBatch;
+        }
+    }
+
+    private static final class Pending<T> {
+        private final WriteTask<T> task;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private Transaction transaction;
+        private T result;
+
+        private Pending(WriteTask<T> task) {
+            this.task = task;
+        }
+
+        private void execute(Transaction transaction) throws SQLException {
+            this.transaction = transaction;
+            this.result = task.execute(transaction);
+        }
+
+        /**
+         * Runs the post-commit actions and completes the future with the task's result.
+         *
+         * @return {@code false} if a post-commit action threw
+         */
+        private boolean complete() {
+            boolean ran = transaction.runAfterCommit();
+            future.complete(result);
+            return ran;
+        }
+
+        private void fail(Throwable error) {
+            future.completeExceptionally(error);
+        }
+    }
+}
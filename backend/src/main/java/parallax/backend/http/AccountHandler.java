@@ -7,6 +7,7 @@ import com.sun.net.httpserver.HttpHandler;
 import parallax.backend.config.AppConfig;
 import parallax.backend.db.UserRepository;
 import parallax.backend.db.VehicleRepository;
+import parallax.backend.model.ModelJson;
 import parallax.backend.model.User;
 
 import java.io.IOException;
@@ -27,7 +28,7 @@ import java.util.regex.Pattern;
  * </p>
  */
 public class AccountHandler implements HttpHandler {
-    private static final Gson gson = new Gson();
+    private static final Gson gson = ModelJson.gson();
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
     private static final Pattern PASSWORD_PATTERN = Pattern.compile("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d)[A-Za-z\\d]{8,20}$");
 
@@ -243,6 +244,7 @@ public class AccountHandler implements HttpHandler {
             return null;
         }
         User sanitized = new User();
+        sanitized.setId(user.getId());
         sanitized.setUsername(user.getUsername());
         sanitized.setEmail(user.getEmail());
         sanitized.setDisplayName(user.getDisplayName());
@@ -267,11 +269,12 @@ public class AccountHandler implements HttpHandler {
     }
 
     private void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
-        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
-        exchange.getResponseHeaders().add("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+        try (BufferPool.Buffer bytes = BufferPool.shared().json(gson, body)) {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(statusCode, bytes.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                bytes.writeTo(os);
+            }
         }
     }
 
@@ -8,6 +8,7 @@ import parallax.backend.config.AppConfig;
 import parallax.backend.db.UserRepository;
 import parallax.backend.model.LoginRequest;
 import parallax.backend.model.LoginResponse;
+import parallax.backend.model.ModelJson;
 import parallax.backend.model.User;
 
 import java.io.IOException;
@@ -26,7 +27,7 @@ import java.util.Optional;
  * </p>
  */
 public class AuthLoginHandler implements HttpHandler {
-    private static final Gson gson = new Gson();
+    private static final Gson gson = ModelJson.gson();
     private final UserRepository userRepository;
     private final AppConfig appConfig;
 
@@ -106,11 +107,12 @@ public class AuthLoginHandler implements HttpHandler {
     }
 
     private void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
-        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
-        exchange.getResponseHeaders().add("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+        try (BufferPool.Buffer bytes = BufferPool.shared().json(gson, body)) {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(statusCode, bytes.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                bytes.writeTo(os);
+            }
         }
     }
 }
@@ -6,6 +6,7 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import parallax.backend.config.AppConfig;
 import parallax.backend.db.UserRepository;
+import parallax.backend.model.ModelJson;
 import parallax.backend.model.RegisterRequest;
 import parallax.backend.model.RegisterResponse;
 import parallax.backend.model.User;
@@ -27,7 +28,7 @@ import java.util.Optional;
  * </p>
  */
 public class AuthRegisterHandler implements HttpHandler {
-    private static final Gson gson = new Gson();
+    private static final Gson gson = ModelJson.gson();
     private final UserRepository userRepository;
     private final AppConfig appConfig;
 
@@ -118,6 +119,7 @@ public class AuthRegisterHandler implements HttpHandler {
             return null;
         }
         User sanitized = new User();
+        sanitized.setId(user.getId());
         sanitized.setUsername(user.getUsername());
         sanitized.setEmail(user.getEmail());
         sanitized.setDisplayName(user.getDisplayName());
@@ -158,11 +160,12 @@ public class AuthRegisterHandler implements HttpHandler {
     }
 
     private void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
-        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
-        exchange.getResponseHeaders().add("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+        try (BufferPool.Buffer bytes = BufferPool.shared().json(gson, body)) {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(statusCode, bytes.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                bytes.writeTo(os);
+            }
         }
     }
 }
@@ -0,0 +1,453 @@
+package parallax.backend.http;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of heap byte arrays for request and response bodies, shared by all handlers.
+ * <p>
+ * Arrays are handed out in power-of-two size classes from {@value #MIN_BUFFER_BYTES} bytes up to
+ * {@value #MAX_BUFFER_BYTES} bytes, so a body of any size within that range reuses an array of at
+ * most twice its length. Larger requests are allocated directly and never retained. Released
+ * arrays are kept only while the total retained size stays within the configured cap; beyond it
+ * they are left to the garbage collector.
+ * </p>
+ * <p>
+ * Callers work through {@link Buffer}, a growable byte sink that returns its array to the pool
+ * when closed. A closed buffer must not be used again, and arrays obtained from it must not be
+ * kept past {@link Buffer#close()}.
+ * </p>
+ */
+public final class BufferPool {
+    /**
+     * Smallest array handed out.
+     */
+    public static final int MIN_BUFFER_BYTES = 4 * 1024;
+
+    /**
+     * Largest array that is pooled.
+     */
+    public static final int MAX_BUFFER_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Default cap on the bytes retained by {@link #shared()}.
+     */
+    public static final long DEFAULT_MAX_RETAINED_BYTES = 32L * 1024 * 1024;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_BUFFER_BYTES);
+    private static final int MAX_SHIFT = Integer.numberOfTrailingZeros(MAX_BUFFER_BYTES);
+    private static final BufferPool SHARED = new BufferPool(DEFAULT_MAX_RETAINED_BYTES);
+
+    private final List<ArrayDeque<byte[]>> free = new ArrayList<>(MAX_SHIFT - MIN_SHIFT + 1);
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private volatile long maxRetainedBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param maxRetainedBytes maximum total size of the arrays kept for reuse; {@code 0} disables reuse
+     */
+    public BufferPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = Math.max(0, maxRetainedBytes);
+        for (int shift = MIN_SHIFT; shift <= MAX_SHIFT; shift++) {
+            free.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Returns the pool used by the HTTP handlers.
+     *
+     * @return process-wide pool
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Changes the retention cap. Arrays retained beyond a lowered cap stay pooled until they are
+     * handed out again.
+     *
+     * @param maxRetainedBytes maximum total size of the arrays kept for reuse; {@code 0} disables reuse
+     */
+    public void setMaxRetainedBytes(long maxRetainedBytes) {
+        this.maxRetainedBytes = Math.max(0, maxRetainedBytes);
+    }
+
+    /**
+     * Creates an empty buffer backed by a pooled array.
+     *
+     * @return buffer to close once its contents are no longer needed
+     */
+    public Buffer buffer() {
+        return new Buffer(acquire(MIN_BUFFER_BYTES));
+    }
+
+    /**
+     * Reads a stream to its end into a pooled buffer. The stream is not closed.
+     *
+     * @param in stream to drain
+     * @return buffer holding every byte read
+     * @throws IOException if reading fails
+     */
+    public Buffer read(InputStream in) throws IOException {
+        Buffer buffer = buffer();
+        try {
+            buffer.readFrom(in);
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            buffer.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Serializes an object as UTF-8 JSON into a pooled buffer, without the intermediate
+     * {@link String} and byte array of {@code gson.toJson(body).getBytes(UTF_8)}.
+     *
+     * @param gson Gson instance to serialize with
+     * @param body object to serialize, possibly {@code null}
+     * @return buffer holding the encoded JSON
+     */
+    public Buffer json(Gson gson, Object body) {
+        Buffer buffer = buffer();
+        try {
+            gson.toJson(body, new Utf8Writer(buffer));
+            return buffer;
+        } catch (RuntimeException e) {
+            buffer.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands out an array of at least {@code minCapacity} bytes.
+     */
+    byte[] acquire(int minCapacity) {
+        int shift = shiftFor(minCapacity);
+        if (shift > MAX_SHIFT) {
+            misses.increment();
+            return new byte[minCapacity];
+        }
+        ArrayDeque<byte[]> queue = free.get(shift - MIN_SHIFT);
+        byte[] array;
+        synchronized (queue) {
+            array = queue.pollFirst();
+        }
+        if (array == null) {
+            misses.increment();
+            return new byte[1 << shift];
+        }
+        retainedBytes.addAndGet(-array.length);
+        hits.increment();
+        return array;
+    }
+
+    /**
+     * Returns an array obtained from {@link #acquire(int)}; arrays outside the size classes are dropped.
+     */
+    void release(byte[] array) {
+        int length = array.length;
+        if (Integer.bitCount(length) != 1 || length < MIN_BUFFER_BYTES || length > MAX_BUFFER_BYTES) {
+            return;
+        }
+        long retained = retainedBytes.addAndGet(length);
+        if (retained > maxRetainedBytes) {
+            retainedBytes.addAndGet(-length);
+            return;
+        }
+        ArrayDeque<byte[]> queue = free.get(Integer.numberOfTrailingZeros(length) - MIN_SHIFT);
+        synchronized (queue) {
+            queue.offerFirst(array);
+        }
+    }
+
+    private static int shiftFor(int capacity) {
+        if (capacity <= MIN_BUFFER_BYTES) {
+            return MIN_SHIFT;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1);
+    }
+
+    /**
+     * Returns the pool counters for the metrics endpoint.
+     *
+     * @return point-in-time counters
+     */
+    public Metrics getMetrics() {
+        return new Metrics(hits.sum(), misses.sum(), retainedBytes.get(), maxRetainedBytes);
+    }
+
+    /**
+     * Growable byte sink backed by pooled arrays. Not thread-safe.
+     */
+    public final class Buffer extends OutputStream {
+        private byte[] array;
+        private int length;
+
+        private Buffer(byte[] array) {
+            this.array = array;
+        }
+
+        /**
+         * Returns the backing array; only the first {@link #length()} bytes are valid, and the
+         * array must not be used after the buffer is closed.
+         *
+         * @return backing array
+         */
+        public byte[] array() {
+            return array;
+        }
+
+        /**
+         * Returns the number of bytes written.
+         *
+         * @return content length
+         */
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Copies the contents into a new, unpooled array.
+         *
+         * @return copy of the contents
+         */
+        public byte[] toByteArray() {
+            return Arrays.copyOf(array, length);
+        }
+
+        /**
+         * Writes the contents to a stream.
+         *
+         * @param out destination
+         * @throws IOException if writing fails
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(array, 0, length);
+        }
+
+        /**
+         * Appends a stream, up to its end, to the contents. The stream is not closed.
+         *
+         * @param in stream to drain
+         * @throws IOException if reading fails
+         */
+        public void readFrom(InputStream in) throws IOException {
+            while (true) {
+                if (length == array.length) {
+                    ensureCapacity(length + 1);
+                }
+                int read = in.read(array, length, array.length - length);
+                if (read < 0) {
+                    return;
+                }
+                length += read;
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(length + 1);
+            array[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(length + len);
+            System.arraycopy(b, off, array, length, len);
+            length += len;
+        }
+
+        /**
+         * Returns the backing array to the pool.
+         */
+        @Override
+        public void close() {
+            byte[] released = array;
+            if (released != null) {
+                array = null;
+                length = 0;
+                release(released);
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity < 0) {
+                throw new OutOfMemoryError("Buffer exceeds the maximum array size");
+            }
+            if (capacity <= array.length) {
+                return;
+            }
+            int doubled = array.length <= Integer.MAX_VALUE / 2 ? array.length * 2 : capacity;
+            byte[] grown = acquire(Math.max(capacity, doubled));
+            System.arraycopy(array, 0, grown, 0, length);
+            release(array);
+            array = grown;
+        }
+    }
+
+    /**
+     * Encodes characters as UTF-8 straight into a {@link Buffer}. Unpaired surrogates are written
+     * as {@code '?'}, as {@link String#getBytes(java.nio.charset.Charset)} does.
+     */
+    private static final class Utf8Writer extends Writer {
+        private static final int CHUNK = 1024;
+
+        private final Buffer out;
+        private char highSurrogate;
+
+        private Utf8Writer(Buffer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int c) {
+            out.ensureCapacity(out.length + 4);
+            encode((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int off, int len) {
+            int end = off + len;
+            while (off < end) {
+                int chunkEnd = Math.min(end, off + CHUNK);
+                out.ensureCapacity(out.length + 3 * (chunkEnd - off) + 1);
+                for (; off < chunkEnd; off++) {
+                    encode(chars[off]);
+                }
+            }
+        }
+
+        @Override
+        public void write(String text, int off, int len) {
+            int end = off + len;
+            while (off < end) {
+                int chunkEnd = Math.min(end, off + CHUNK);
+                out.ensureCapacity(out.length + 3 * (chunkEnd - off) + 1);
+                for (; off < chunkEnd; off++) {
+                    encode(text.charAt(off));
+                }
+            }
+        }
+
+        /**
+         * Encodes one character; the caller has reserved at least three bytes per character plus
+         * one for a pending surrogate.
+         */
+        private void encode(char c) {
+            byte[] bytes = out.array;
+            int n = out.length;
+            if (c < 0x80 && highSurrogate == 0) {
+                bytes[n] = (byte) c;
+                out.length = n + 1;
+                return;
+            }
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    bytes[n++] = (byte) (0xF0 | codePoint >> 18);
+                    bytes[n++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    bytes[n++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    bytes[n++] = (byte) (0x80 | codePoint & 0x3F);
+                    out.length = n;
+                    return;
+                }
+                bytes[n++] = '?';
+            }
+            if (c < 0x80) {
+                bytes[n++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[n++] = (byte) (0xC0 | c >> 6);
+                bytes[n++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                bytes[n++] = '?';
+            } else {
+                bytes[n++] = (byte) (0xE0 | c >> 12);
+                bytes[n++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[n++] = (byte) (0x80 | c & 0x3F);
+            }
+            out.length = n;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                out.write('?');
+            }
+        }
+    }
+
+    /**
+     * Point-in-time pool counters.
+     */
+    public static final class Metrics {
+        private final long hits;
+        private final long misses;
+        private final long retainedBytes;
+        private final long maxRetainedBytes;
+
+        private Metrics(long hits, long misses, long retainedBytes, long maxRetainedBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.retainedBytes = retainedBytes;
+            this.maxRetainedBytes = maxRetainedBytes;
+        }
+
+        /**
+         * Returns how many arrays were reused from the pool.
+         *
+         * @return pool hits
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Returns how many arrays had to be allocated.
+         *
+         * @return pool misses
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Returns the total size of the arrays currently kept for reuse.
+         *
+         * @return retained bytes
+         */
+        public long getRetainedBytes() {
+            return retainedBytes;
+        }
+
+        /**
+         * Returns the retention cap.
+         *
+         * @return maximum retained bytes
+         */
+        public long getMaxRetainedBytes() {
+            return maxRetainedBytes;
+        }
+    }
+}
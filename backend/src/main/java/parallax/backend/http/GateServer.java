@@ -0,0 +1,490 @@
+package parallax.backend.http;
+
+import parallax.backend.db.VehicleRepository;
+import parallax.backend.model.PlateKey;
+import parallax.backend.model.Vehicle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plate lookup listener for barrier gate controllers, speaking a fixed-size binary frame protocol
+ * over persistent TCP connections instead of HTTP.
+ * <p>
+ * A request is {@value #REQUEST_BYTES} bytes: a client-chosen {@code u32} request id followed by
+ * the {@code u64} plate key of {@link PlateBinaryFormat#packPlate(String)}. A response is
+ * {@value #RESPONSE_BYTES} bytes: the request id, a flags byte ({@link #FOUND},
+ * {@link #BLACKLISTED}, {@link #INVALID_PLATE}, {@link #LOOKUP_FAILED}) and three reserved zero
+ * bytes. All integers are big-endian. Clients may pipeline any number of requests without waiting;
+ * responses come back in request order on the same connection.
+ * </p>
+ * <p>
+ * Connections are spread over a fixed set of event loops, each with its own {@link Selector}.
+ * The event loops only move bytes: the complete requests read from a connection are handed as one
+ * batch to a pool of lookup threads, so a slow {@code findByPlate} (a registry scan in memory
+ * mode, a disk read in SQLite mode) never stalls the other connections of its loop. A connection
+ * has at most one batch in flight and is not read from until its responses are written, which
+ * keeps responses in order and stops reading from a client that does not read its responses.
+ * Without lookup threads the event loop answers the batch itself, which saves a thread hand-off
+ * per batch when the repository answers from an index in memory. Blacklisted plates are published
+ * as hits with source {@code gate}, as the HTTP query does.
+ * </p>
+ */
+public final class GateServer implements Closeable {
+    /**
+     * Size of a request frame.
+     */
+    public static final int REQUEST_BYTES = 12;
+
+    /**
+     * Size of a response frame.
+     */
+    public static final int RESPONSE_BYTES = 8;
+
+    /**
+     * Response flag: a vehicle is registered under the plate.
+     */
+    public static final int FOUND = 1;
+
+    /**
+     * Response flag: the plate is blacklisted.
+     */
+    public static final int BLACKLISTED = 2;
+
+    /**
+     * Response flag: the request did not carry a valid plate key.
+     */
+    public static final int INVALID_PLATE = 0x40;
+
+    /**
+     * Response flag: the repository failed to answer; the lookup may be retried.
+     */
+    public static final int LOOKUP_FAILED = 0x80;
+
+    private static final int READ_BUFFER_BYTES = 16 * 1024;
+    private static final int WRITE_BUFFER_BYTES = 8 * 1024;
+    private static final int MAX_BATCH = WRITE_BUFFER_BYTES / RESPONSE_BYTES;
+
+    private final VehicleRepository vehicleRepository;
+    private final PlateEventBroadcaster eventBroadcaster;
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private final ExecutorService lookupPool;
+    private final Thread acceptor;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile String lastError;
+    private volatile boolean closed;
+
+    /**
+     * Binds the listener; call {@link #start()} to begin accepting connections. All threads are
+     * daemon threads, so a listener that is never closed does not keep the JVM alive.
+     *
+     * @param address           address to listen on; port {@code 0} picks a free port
+     * @param threads           number of event loops
+     * @param lookupThreads     number of lookup threads, or {@code 0} to look plates up on the event loops
+     * @param vehicleRepository repository answering the lookups
+     * @param eventBroadcaster  event stream receiving blacklisted-plate hits, or {@code null}
+     * @throws IOException if the address cannot be bound
+     */
+    public GateServer(InetSocketAddress address, int threads, int lookupThreads, VehicleRepository vehicleRepository,
+                      PlateEventBroadcaster eventBroadcaster) throws IOException {
+        this.vehicleRepository = vehicleRepository;
+        this.eventBroadcaster = eventBroadcaster;
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        this.loops = new EventLoop[Math.max(1, threads)];
+        try {
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new EventLoop(i);
+            }
+        } catch (IOException e) {
+            for (EventLoop loop : loops) {
+                if (loop != null) {
+                    loop.selector.close();
+                }
+            }
+            serverChannel.close();
+            throw e;
+        }
+        AtomicInteger lookupCount = new AtomicInteger();
+        this.lookupPool = lookupThreads <= 0 ? null : Executors.newFixedThreadPool(lookupThreads, runnable ->
+                daemon(runnable, "gate-lookup-" + lookupCount.incrementAndGet()));
+        this.acceptor = daemon(this::acceptLoop, "gate-acceptor");
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Starts the event loops and begins accepting connections.
+     */
+    public void start() {
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the listener is bound to.
+     *
+     * @return local port
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections, closes every open connection and stops the lookup threads
+     * once their current batches are answered.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            serverChannel.close();
+        } finally {
+            for (EventLoop loop : loops) {
+                loop.selector.wakeup();
+            }
+            if (lookupPool != null) {
+                lookupPool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Returns the listener counters for the metrics endpoint.
+     *
+     * @return point-in-time counters
+     */
+    public Metrics getMetrics() {
+        return new Metrics(connections.get(), lookups.sum(), failures.sum(), lastError);
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (!closed) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    lastError = "Gate listener stopped accepting: " + e.getMessage();
+                }
+                return;
+            }
+            loops[next].add(channel);
+            next = next + 1 == loops.length ? 0 : next + 1;
+        }
+    }
+
+    /**
+     * Resolves one plate key to its response flags.
+     */
+    private int lookup(long key) {
+        if (!PlateKey.isValid(key)) {
+            return INVALID_PLATE;
+        }
+        lookups.increment();
+        String plate;
+        Optional<Vehicle> match;
+        try {
+            plate = PlateBinaryFormat.unpackPlate(key);
+            match = vehicleRepository.findByPlate(plate);
+        } catch (RuntimeException e) {
+            failures.increment();
+            lastError = e.getMessage();
+            return LOOKUP_FAILED;
+        }
+        if (match.isEmpty()) {
+            return 0;
+        }
+        if (!match.get().isBlacklisted()) {
+            return FOUND;
+        }
+        if (eventBroadcaster != null) {
+            eventBroadcaster.publishBlacklistHit(plate, "gate");
+        }
+        return FOUND | BLACKLISTED;
+    }
+
+    /**
+     * Selector thread serving a share of the connections.
+     */
+    private final class EventLoop {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final Queue<Connection> answered = new ConcurrentLinkedQueue<>();
+
+        private EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = daemon(this::run, "gate-loop-" + index);
+        }
+
+        private void add(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * Hands a connection whose batch the lookup threads answered back to this loop.
+         */
+        private void answered(Connection connection) {
+            answered.add(connection);
+            selector.wakeup();
+        }
+
+        private void run() {
+            try {
+                while (!closed) {
+                    selector.select();
+                    registerPending();
+                    for (Connection connection = answered.poll(); connection != null; connection = answered.poll()) {
+                        connection.respond();
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable() && connection.read() < 0) {
+                                connection.close();
+                            } else {
+                                connection.service();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                lastError = "Gate event loop failed: " + e.getMessage();
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((Connection) key.attachment()).close();
+                }
+                for (SocketChannel channel = pending.poll(); channel != null; channel = pending.poll()) {
+                    closeQuietly(channel);
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // nothing left to release
+                }
+            }
+        }
+
+        private void registerPending() {
+            for (SocketChannel channel = pending.poll(); channel != null; channel = pending.poll()) {
+                try {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    Connection connection = new Connection(this, channel);
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    connections.incrementAndGet();
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                }
+            }
+        }
+    }
+
+    /**
+     * State of one client connection. Only its event loop touches it, except for the batch arrays,
+     * which belong to a lookup thread while {@code busy} is set.
+     */
+    private final class Connection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        private final ByteBuffer out = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        private final int[] ids = new int[MAX_BATCH];
+        private final long[] keys = new long[MAX_BATCH];
+        private final int[] flags = new int[MAX_BATCH];
+        private int batchSize;
+        private boolean busy;
+        private SelectionKey key;
+        private boolean open = true;
+
+        private Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+
+        private int read() throws IOException {
+            return channel.read(in);
+        }
+
+        /**
+         * Writes pending responses and answers the complete requests in the input buffer, batch by
+         * batch, until the socket stops accepting data, the requests run out or a batch is handed
+         * to the lookup threads.
+         */
+        private void service() throws IOException {
+            while (!busy) {
+                out.flip();
+                channel.write(out);
+                boolean blocked = out.hasRemaining();
+                out.compact();
+                if (blocked) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                batchSize = Math.min(in.position() / REQUEST_BYTES, MAX_BATCH);
+                if (batchSize == 0) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+                in.flip();
+                for (int i = 0; i < batchSize; i++) {
+                    ids[i] = in.getInt();
+                    keys[i] = in.getLong();
+                }
+                in.compact();
+                if (lookupPool == null) {
+                    answer();
+                    appendResponses();
+                    continue;
+                }
+                busy = true;
+                key.interestOps(0);
+                try {
+                    lookupPool.execute(() -> {
+                        answer();
+                        loop.answered(this);
+                    });
+                } catch (RejectedExecutionException e) {
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Looks up the current batch; runs on a lookup thread unless there is no pool.
+         */
+        private void answer() {
+            for (int i = 0; i < batchSize; i++) {
+                flags[i] = lookup(keys[i]);
+            }
+        }
+
+        private void appendResponses() {
+            for (int i = 0; i < batchSize; i++) {
+                out.putInt(ids[i]);
+                out.putInt(flags[i] << 24);
+            }
+        }
+
+        /**
+         * Takes back an answered batch on the event loop and carries on serving the connection.
+         */
+        private void respond() {
+            if (!open) {
+                return;
+            }
+            busy = false;
+            appendResponses();
+            try {
+                service();
+            } catch (IOException | RuntimeException e) {
+                close();
+            }
+        }
+
+        private void close() {
+            if (open) {
+                open = false;
+                connections.decrementAndGet();
+                if (key != null) {
+                    key.cancel();
+                }
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // already closed or reset by the peer
+        }
+    }
+
+    /**
+     * Point-in-time listener counters.
+     */
+    public static final class Metrics {
+        private final int connections;
+        private final long lookups;
+        private final long failures;
+        private final String lastError;
+
+        private Metrics(int connections, long lookups, long failures, String lastError) {
+            this.connections = connections;
+            this.lookups = lookups;
+            this.failures = failures;
+            this.lastError = lastError;
+        }
+
+        /**
+         * Returns the number of open gate connections.
+         *
+         * @return open connections
+         */
+        public int getConnections() {
+            return connections;
+        }
+
+        /**
+         * Returns how many plate lookups were answered.
+         *
+         * @return lookups
+         */
+        public long getLookups() {
+            return lookups;
+        }
+
+        /**
+         * Returns how many lookups failed in the repository.
+         *
+         * @return failed lookups
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the message of the most recent failed lookup or listener error, if any.
+         *
+         * @return last error message or {@code null}
+         */
+        public String getLastError() {
+            return lastError;
+        }
+    }
+}
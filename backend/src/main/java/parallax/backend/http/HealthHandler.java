@@ -3,10 +3,10 @@ package parallax.backend.http;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import parallax.backend.model.ModelJson;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -15,7 +15,7 @@ import java.util.Map;
  * Responds with {@code 200 OK} and a JSON payload when reachable.
  */
 public class HealthHandler implements HttpHandler {
-    private static final Gson gson = new Gson();
+    private static final Gson gson = ModelJson.gson();
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
@@ -27,11 +27,12 @@ public class HealthHandler implements HttpHandler {
         Map<String, String> response = new HashMap<>();
         response.put("status", "ok");
 
-        byte[] bytes = gson.toJson(response).getBytes(StandardCharsets.UTF_8);
-        exchange.getResponseHeaders().add("Content-Type", "application/json");
-        exchange.sendResponseHeaders(200, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+        try (BufferPool.Buffer bytes = BufferPool.shared().json(gson, response)) {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                bytes.writeTo(os);
+            }
         }
     }
 }
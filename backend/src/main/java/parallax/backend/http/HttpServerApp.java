@@ -2,22 +2,38 @@ package parallax.backend.http;
 
 import com.sun.net.httpserver.HttpServer;
 import parallax.backend.config.AppConfig;
+import parallax.backend.db.BlacklistChangeLog;
+import parallax.backend.db.DataSource;
 import parallax.backend.db.InMemoryUserRepository;
 import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.db.Journal;
+import parallax.backend.db.JournaledUserRepository;
+import parallax.backend.db.JournaledVehicleRepository;
+import parallax.backend.db.ObservableVehicleRepository;
+import parallax.backend.db.SQLiteUserRepository;
+import parallax.backend.db.SQLiteVehicleRepository;
+import parallax.backend.db.SegmentStore;
+import parallax.backend.db.SegmentedVehicleRepository;
+import parallax.backend.db.TieredUserRepository;
 import parallax.backend.db.UserRepository;
 import parallax.backend.db.VehicleRepository;
+import parallax.backend.db.WriteBehindQueue;
+import parallax.backend.db.WriteBehindUserRepository;
+import parallax.backend.db.WriteBehindVehicleRepository;
+import parallax.backend.db.WritePipeline;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
 import java.util.concurrent.Executors;
 
 /**
  * Main entry point wiring together configuration, repositories, and HTTP handlers.
  * <p>
- * This bootstrap uses in-memory repositories for users and vehicles, registers all REST handlers
- * under the {@code /api} prefix, and starts the embedded {@link HttpServer}. When persistent
- * storage is introduced, the in-memory repositories can be swapped for SQLite-backed versions
- * without altering the routing logic.
+ * This bootstrap selects in-memory, SQLite-backed, write-behind hybrid, journaled or segment-store repositories for
+ * users and vehicles according to {@link AppConfig#getStorageMode()}, registers all REST handlers under the {@code /api}
+ * prefix, and starts the embedded {@link HttpServer}. The routing logic is the same for every
+ * storage mode.
  * </p>
  */
 public class HttpServerApp {
@@ -30,12 +46,95 @@ public class HttpServerApp {
      */
     public static void main(String[] args) throws IOException {
         AppConfig config = new AppConfig();
-        // TODO: when SQLite persistence is ready, replace InMemoryUserRepository / InMemoryVehicleRepository
-        // with SQLiteUserRepository / SQLiteVehicleRepository that implement the same interfaces.
-        UserRepository userRepository = new InMemoryUserRepository();
-        VehicleRepository vehicleRepository = new InMemoryVehicleRepository();
+        BlacklistChangeLog blacklistLog = new BlacklistChangeLog(config.getBlacklistLogRetention());
+        MetricsHandler metrics = new MetricsHandler();
+        UserRepository userRepository;
+        VehicleRepository vehicleRepository;
+        AppConfig.StorageMode storageMode = config.getStorageMode();
+        if (storageMode == AppConfig.StorageMode.HYBRID) {
+            DataSource dataSource = new DataSource(config.getDatabaseUrl(), config.getDatabaseReaders(),
+                    config.getDatabaseAcquireTimeoutMillis());
+            WritePipeline writePipeline = new WritePipeline(dataSource, config.getWriteBatchSize(),
+                    config.getWriteBatchDelayMillis());
+            WriteBehindQueue writeBehind = new WriteBehindQueue(config.getWriteBehindCapacity());
+            metrics.register("dataSource", dataSource::getMetrics);
+            metrics.register("writePipeline", writePipeline::getMetrics);
+            metrics.register("writeBehind", writeBehind::getMetrics);
+            userRepository = new WriteBehindUserRepository(new InMemoryUserRepository(),
+                    new SQLiteUserRepository(dataSource, writePipeline), writeBehind);
+            vehicleRepository = new WriteBehindVehicleRepository(new InMemoryVehicleRepository(blacklistLog),
+                    new SQLiteVehicleRepository(dataSource, new BlacklistChangeLog(), writePipeline), writeBehind);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                writeBehind.close();
+                writePipeline.close();
+                dataSource.close();
+            }, "parallax-write-behind-flush"));
+        } else if (storageMode == AppConfig.StorageMode.JOURNAL) {
+            InMemoryUserRepository users = new InMemoryUserRepository();
+            InMemoryVehicleRepository vehicles = new InMemoryVehicleRepository(blacklistLog);
+            Journal journal = new Journal(Path.of(config.getJournalDirectory()),
+                    Journal.FsyncPolicy.parse(config.getJournalFsync(), Journal.FsyncPolicy.INTERVAL),
+                    config.getJournalFsyncIntervalMillis(), config.getJournalSnapshotRecords(), users, vehicles);
+            metrics.register("journal", journal::getMetrics);
+            userRepository = new JournaledUserRepository(users, journal);
+            vehicleRepository = new JournaledVehicleRepository(vehicles, journal);
+            Runtime.getRuntime().addShutdownHook(new Thread(journal::snapshotAndClose, "parallax-journal-close"));
+        } else if (storageMode == AppConfig.StorageMode.SEGMENTS) {
+            DataSource dataSource = new DataSource(config.getDatabaseUrl(), config.getDatabaseReaders(),
+                    config.getDatabaseAcquireTimeoutMillis());
+            SegmentStore segmentStore = new SegmentStore(Path.of(config.getSegmentDirectory()),
+                    Journal.FsyncPolicy.parse(config.getJournalFsync(), Journal.FsyncPolicy.INTERVAL),
+                    config.getJournalFsyncIntervalMillis(), config.getSegmentMemtableBytes());
+            metrics.register("dataSource", dataSource::getMetrics);
+            metrics.register("segmentStore", segmentStore::getMetrics);
+            userRepository = tieredUsers(config, new SQLiteUserRepository(dataSource), metrics);
+            vehicleRepository = new SegmentedVehicleRepository(segmentStore, blacklistLog);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                segmentStore.close();
+                dataSource.close();
+            }, "parallax-segments-close"));
+        } else if (storageMode == AppConfig.StorageMode.SQLITE) {
+            DataSource dataSource = new DataSource(config.getDatabaseUrl(), config.getDatabaseReaders(),
+                    config.getDatabaseAcquireTimeoutMillis());
+            metrics.register("dataSource", dataSource::getMetrics);
+            WritePipeline writePipeline = null;
+            if (config.getWriteBatchSize() > 1) {
+                writePipeline = new WritePipeline(dataSource, config.getWriteBatchSize(), config.getWriteBatchDelayMillis());
+                metrics.register("writePipeline", writePipeline::getMetrics);
+            }
+            userRepository = tieredUsers(config, new SQLiteUserRepository(dataSource, writePipeline), metrics);
+            vehicleRepository = new SQLiteVehicleRepository(dataSource, blacklistLog, writePipeline);
+            WritePipeline pipeline = writePipeline;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (pipeline != null) {
+                    pipeline.close();
+                }
+                dataSource.close();
+            }, "parallax-sqlite-close"));
+        } else {
+            userRepository = new InMemoryUserRepository();
+            vehicleRepository = new InMemoryVehicleRepository(blacklistLog);
+        }
 
-        startServer(config, userRepository, vehicleRepository);
+        startServer(config, userRepository, vehicleRepository, metrics);
+    }
+
+    /**
+     * Puts a bounded heap cache of recently used accounts in front of a SQLite user repository,
+     * unless the cache is disabled.
+     *
+     * @param config  configuration supplying the cache size
+     * @param store   SQLite repository holding every user
+     * @param metrics metrics endpoint receiving the cache counters
+     * @return repository to serve users from
+     */
+    private static UserRepository tieredUsers(AppConfig config, UserRepository store, MetricsHandler metrics) {
+        if (config.getUserCacheBytes() <= 0) {
+            return store;
+        }
+        TieredUserRepository tiered = new TieredUserRepository(store, config.getUserCacheBytes());
+        metrics.register("userCache", tiered::getMetrics);
+        return tiered;
     }
 
     /**
@@ -48,13 +147,61 @@ public class HttpServerApp {
      * @throws IOException if the server socket cannot be opened
      */
     public static HttpServer startServer(AppConfig config, UserRepository userRepository, VehicleRepository vehicleRepository) throws IOException {
+        return startServer(config, userRepository, vehicleRepository, new MetricsHandler());
+    }
+
+    /**
+     * Creates and starts the HTTP server, exposing the given metrics sources under
+     * {@code /api/metrics}.
+     *
+     * @param config            configuration supplying port and external endpoints
+     * @param userRepository    repository backing authentication and account operations
+     * @param vehicleRepository repository backing vehicle management
+     * @param metrics           metrics endpoint with storage-specific sources already registered
+     * @return the started {@link HttpServer}
+     * @throws IOException if the server socket cannot be opened
+     */
+    public static HttpServer startServer(AppConfig config, UserRepository userRepository, VehicleRepository vehicleRepository,
+                                         MetricsHandler metrics) throws IOException {
         HttpServer server = HttpServer.create(new InetSocketAddress(config.getPort()), 0);
+        PlateEventBroadcaster eventBroadcaster = new PlateEventBroadcaster(config);
+        metrics.register("eventSubscribers", eventBroadcaster::getSubscriberCount);
+        BufferPool.shared().setMaxRetainedBytes(config.getBufferPoolBytes());
+        metrics.register("bufferPool", BufferPool.shared()::getMetrics);
+        PlateQueryCache queryCache = null;
+        if (config.getQueryCacheEntries() > 0) {
+            ObservableVehicleRepository observable = new ObservableVehicleRepository(vehicleRepository);
+            queryCache = new PlateQueryCache(config.getQueryCacheEntries());
+            observable.addListener(queryCache);
+            metrics.register("queryCache", queryCache::getMetrics);
+            vehicleRepository = observable;
+        }
+        if (config.getGatePort() > 0) {
+            GateServer gate = new GateServer(new InetSocketAddress(config.getGatePort()), config.getGateThreads(),
+                    config.getGateLookupThreads(), vehicleRepository, eventBroadcaster);
+            metrics.register("gate", gate::getMetrics);
+            gate.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    gate.close();
+                } catch (IOException ignored) {
+                    // the process is exiting; the sockets go with it
+                }
+            }, "parallax-gate-close"));
+            System.out.println("Started gate lookup listener on port " + gate.getPort());
+        }
         server.createContext("/api/health", new HealthHandler());
+        server.createContext("/api/metrics", metrics);
         server.createContext("/api/auth/login", new AuthLoginHandler(userRepository, config));
         server.createContext("/api/auth/register", new AuthRegisterHandler(userRepository, config));
         server.createContext("/api/account", new AccountHandler(userRepository, vehicleRepository, config));
-        server.createContext("/api/vehicles", new VehiclesHandler(vehicleRepository, userRepository, config));
-        server.createContext("/api/vehicles/query-image", new PlateImageQueryHandler(vehicleRepository, config));
+        server.createContext("/api/vehicles", new VehiclesHandler(vehicleRepository, userRepository, config, eventBroadcaster,
+                queryCache));
+        server.createContext("/api/vehicles/import", new VehicleImportHandler(vehicleRepository, userRepository, config));
+        server.createContext("/api/vehicles/export", new VehicleExportHandler(vehicleRepository, userRepository));
+        server.createContext("/api/vehicles/query-image", new PlateImageQueryHandler(vehicleRepository, config, eventBroadcaster));
+        server.createContext("/api/vehicles/query-burst", new PlateBurstQueryHandler(vehicleRepository, config, eventBroadcaster));
+        server.createContext("/api/vehicles/events", new PlateEventsHandler(eventBroadcaster, config));
         server.setExecutor(Executors.newCachedThreadPool());
 
         System.out.println("Started Parallax backend on port " + config.getPort());
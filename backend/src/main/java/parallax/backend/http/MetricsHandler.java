@@ -0,0 +1,57 @@
+package parallax.backend.http;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import parallax.backend.model.ModelJson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-only endpoint exposing runtime counters of backend components, such as connection pool
+ * usage, for dashboards and troubleshooting.
+ * <p>
+ * Components register a named supplier at startup; {@code GET /api/metrics} responds with one
+ * JSON property per registered name holding the supplier's current value.
+ * </p>
+ */
+public class MetricsHandler implements HttpHandler {
+    private static final Gson gson = ModelJson.gson();
+    private final Map<String, Supplier<?>> sources = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a metrics source, replacing any source with the same name.
+     *
+     * @param name   property name in the response
+     * @param source supplier of a Gson-serializable snapshot
+     */
+    public void register(String name, Supplier<?> source) {
+        sources.put(name, source);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        sources.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> response.put(entry.getKey(), entry.getValue().get()));
+
+        try (BufferPool.Buffer bytes = BufferPool.shared().json(gson, response)) {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                bytes.writeTo(os);
+            }
+        }
+    }
+}
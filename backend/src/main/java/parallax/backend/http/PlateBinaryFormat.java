@@ -0,0 +1,347 @@
+package parallax.backend.http;
+
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.PlateKey;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact binary encoding of plate query results and blacklist sync responses for machine
+ * clients, selected with {@code Accept: application/x-parallax-plates}.
+ * <p>
+ * All integers are big-endian. Every message starts with a four-byte header: the magic bytes
+ * {@code 'P' 'X'}, the format version ({@value #VERSION}) and the message type. A plate is an
+ * eight-byte {@link PlateKey} holding up to twelve characters from {@code 0-9A-Z-} as base-38 digits (digit
+ * {@code 0} is unused, so plates of different lengths never share a key). Any other plate is
+ * written as key {@code 0} followed by a two-byte length and its UTF-8 bytes.
+ * </p>
+ * <pre>
+ * QUERY_RESULT   (1)  plate, flags:u8                 flags bit 0 = found, bit 1 = blacklisted
+ * BATCH_RESULTS  (2)  count:u32, count x (plate, flags:u8)
+ * BLACKLIST_SYNC (3)  flags:u8 (bit 0 = snapshot), version:u64, logId:(u16 length, UTF-8; 0xFFFF = null),
+ *                     snapshot: count:u32, count x plate
+ *                     delta:    added:u32, added x plate, removed:u32, removed x plate
+ * BATCH_REQUEST  (4)  count:u32, count x plate
+ * </pre>
+ * <p>
+ * A typical plate therefore costs eight bytes, and a batch result nine, instead of a JSON object.
+ * Error responses stay JSON.
+ * </p>
+ */
+public final class PlateBinaryFormat {
+    /**
+     * Media type of the binary encoding.
+     */
+    public static final String MEDIA_TYPE = "application/x-parallax-plates";
+
+    /**
+     * Format version written in every header.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Message type of a single plate query response.
+     */
+    public static final int QUERY_RESULT = 1;
+
+    /**
+     * Message type of a batch query response.
+     */
+    public static final int BATCH_RESULTS = 2;
+
+    /**
+     * Message type of a blacklist sync response.
+     */
+    public static final int BLACKLIST_SYNC = 3;
+
+    /**
+     * Message type of a batch query request body.
+     */
+    public static final int BATCH_REQUEST = 4;
+
+    private static final int FOUND = 1;
+    private static final int BLACKLISTED = 2;
+    private static final int SNAPSHOT = 1;
+    private static final int NULL_STRING = 0xFFFF;
+
+    private PlateBinaryFormat() {
+    }
+
+    /**
+     * Packs a plate into its eight-byte key; see {@link PlateKey#pack(String)}.
+     *
+     * @param plate plate to pack
+     * @return key, or {@code 0} if the plate has to be written as text
+     */
+    public static long packPlate(String plate) {
+        return PlateKey.pack(plate);
+    }
+
+    /**
+     * Restores a plate from a non-zero key; see {@link PlateKey#unpack(long)}.
+     *
+     * @param packed key produced by {@link #packPlate(String)}
+     * @return plate
+     * @throws IllegalArgumentException if the key does not stand for a plate
+     */
+    public static String unpackPlate(long packed) {
+        return PlateKey.unpack(packed);
+    }
+
+    /**
+     * Writes a message header.
+     *
+     * @param out  destination
+     * @param type message type
+     * @throws IOException if writing fails
+     */
+    public static void writeHeader(DataOutput out, int type) throws IOException {
+        out.writeByte('P');
+        out.writeByte('X');
+        out.writeByte(VERSION);
+        out.writeByte(type);
+    }
+
+    /**
+     * Reads a message header and returns its type.
+     *
+     * @param in source
+     * @return message type
+     * @throws IOException if the header is missing, malformed or of another version
+     */
+    public static int readHeader(DataInput in) throws IOException {
+        if (in.readUnsignedByte() != 'P' || in.readUnsignedByte() != 'X') {
+            throw new IOException("Not a " + MEDIA_TYPE + " message");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported " + MEDIA_TYPE + " version " + version);
+        }
+        return in.readUnsignedByte();
+    }
+
+    /**
+     * Writes a plate as its key or, if it cannot be packed, as text.
+     *
+     * @param out   destination
+     * @param plate plate to write
+     * @throws IOException if writing fails
+     */
+    public static void writePlate(DataOutput out, String plate) throws IOException {
+        long packed = packPlate(plate);
+        out.writeLong(packed);
+        if (packed == 0) {
+            writeString(out, plate);
+        }
+    }
+
+    /**
+     * Reads a plate written by {@link #writePlate(DataOutput, String)}.
+     *
+     * @param in source
+     * @return plate
+     * @throws IOException if reading fails or the key does not stand for a plate
+     */
+    public static String readPlate(DataInput in) throws IOException {
+        long packed = in.readLong();
+        if (packed == 0) {
+            return readString(in);
+        }
+        if (!PlateKey.isValid(packed)) {
+            throw new IOException("Invalid plate key " + packed);
+        }
+        return unpackPlate(packed);
+    }
+
+    /**
+     * Writes one query result record without a header.
+     *
+     * @param out         destination
+     * @param plate       normalized plate
+     * @param found       whether a vehicle is registered under the plate
+     * @param blacklisted whether the plate is blacklisted
+     * @throws IOException if writing fails
+     */
+    public static void writeResult(DataOutput out, String plate, boolean found, boolean blacklisted)
+            throws IOException {
+        writePlate(out, plate);
+        out.writeByte((found ? FOUND : 0) | (blacklisted ? BLACKLISTED : 0));
+    }
+
+    /**
+     * Reads a {@code QUERY_RESULT} or {@code BATCH_RESULTS} message.
+     *
+     * @param in source positioned at the header
+     * @return results in response order
+     * @throws IOException if the message is malformed
+     */
+    public static List<Result> readResults(DataInput in) throws IOException {
+        int type = readHeader(in);
+        int count;
+        if (type == QUERY_RESULT) {
+            count = 1;
+        } else if (type == BATCH_RESULTS) {
+            count = in.readInt();
+        } else {
+            throw new IOException("Unexpected message type " + type);
+        }
+        List<Result> results = new ArrayList<>(Math.max(0, Math.min(count, 1 << 16)));
+        for (int i = 0; i < count; i++) {
+            String plate = readPlate(in);
+            int flags = in.readUnsignedByte();
+            results.add(new Result(plate, (flags & FOUND) != 0, (flags & BLACKLISTED) != 0));
+        }
+        return results;
+    }
+
+    /**
+     * Writes a {@code BATCH_REQUEST} message.
+     *
+     * @param out    destination
+     * @param plates plates to resolve
+     * @throws IOException if writing fails
+     */
+    public static void writeBatchRequest(DataOutput out, Collection<String> plates) throws IOException {
+        writeHeader(out, BATCH_REQUEST);
+        out.writeInt(plates.size());
+        for (String plate : plates) {
+            writePlate(out, plate);
+        }
+    }
+
+    /**
+     * Writes a {@code BLACKLIST_SYNC} message.
+     *
+     * @param out  destination
+     * @param sync snapshot or delta to encode
+     * @throws IOException if writing fails
+     */
+    public static void writeSync(DataOutput out, BlacklistSync sync) throws IOException {
+        writeHeader(out, BLACKLIST_SYNC);
+        out.writeByte(sync.isSnapshot() ? SNAPSHOT : 0);
+        out.writeLong(sync.getVersion());
+        writeString(out, sync.getLogId());
+        if (sync.isSnapshot()) {
+            writePlates(out, sync.getPlates());
+        } else {
+            writePlates(out, sync.getAdded());
+            writePlates(out, sync.getRemoved());
+        }
+    }
+
+    /**
+     * Reads a {@code BLACKLIST_SYNC} message.
+     *
+     * @param in source positioned at the header
+     * @return decoded snapshot or delta
+     * @throws IOException if the message is malformed
+     */
+    public static BlacklistSync readSync(DataInput in) throws IOException {
+        int type = readHeader(in);
+        if (type != BLACKLIST_SYNC) {
+            throw new IOException("Unexpected message type " + type);
+        }
+        boolean snapshot = (in.readUnsignedByte() & SNAPSHOT) != 0;
+        long version = in.readLong();
+        String logId = readString(in);
+        if (snapshot) {
+            return BlacklistSync.snapshot(logId, version, readPlates(in));
+        }
+        List<String> added = readPlates(in);
+        return BlacklistSync.delta(logId, version, added, readPlates(in));
+    }
+
+    private static void writePlates(DataOutput out, List<String> plates) throws IOException {
+        if (plates == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(plates.size());
+        for (String plate : plates) {
+            writePlate(out, plate);
+        }
+    }
+
+    private static List<String> readPlates(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Negative plate count");
+        }
+        List<String> plates = new ArrayList<>(Math.min(count, 1 << 16));
+        for (int i = 0; i < count; i++) {
+            plates.add(readPlate(in));
+        }
+        return plates;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            throw new IOException("String too long for " + MEDIA_TYPE);
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readUnsignedShort();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One decoded query result.
+     */
+    public static final class Result {
+        private final String licenseNumber;
+        private final boolean found;
+        private final boolean blacklisted;
+
+        private Result(String licenseNumber, boolean found, boolean blacklisted) {
+            this.licenseNumber = licenseNumber;
+            this.found = found;
+            this.blacklisted = blacklisted;
+        }
+
+        /**
+         * Returns the queried plate.
+         *
+         * @return normalized plate
+         */
+        public String getLicenseNumber() {
+            return licenseNumber;
+        }
+
+        /**
+         * Indicates whether a vehicle is registered under the plate.
+         *
+         * @return {@code true} if found
+         */
+        public boolean isFound() {
+            return found;
+        }
+
+        /**
+         * Indicates whether the plate is blacklisted.
+         *
+         * @return {@code true} if blacklisted
+         */
+        public boolean isBlacklisted() {
+            return blacklisted;
+        }
+    }
+}
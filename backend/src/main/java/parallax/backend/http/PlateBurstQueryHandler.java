@@ -0,0 +1,191 @@
+package parallax.backend.http;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import parallax.backend.config.AppConfig;
+import parallax.backend.db.VehicleRepository;
+import parallax.backend.model.Vehicle;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * HTTP handler for gate cameras that upload a short burst of frames for a single vehicle pass.
+ * <p>
+ * Expects {@code POST /api/vehicles/query-burst} with a {@code multipart/form-data} body containing
+ * one or more file fields named {@code frame}, in capture order. Frames are sent to the recognition
+ * service one at a time and the readings are merged per plate: each reading's confidence counts as
+ * independent evidence, so the combined confidence of a plate is {@code 1 - Π(1 - c)} over the
+ * frames in which it was read. As soon as one plate reaches
+ * {@link AppConfig#getBurstConfidenceThreshold()}, the remaining frames are skipped, so a typical
+ * pass costs one or two recognitions instead of one per frame. The best plate is then checked
+ * against {@link VehicleRepository} and returned as a single consolidated result.
+ * </p>
+ */
+public class PlateBurstQueryHandler extends PlateImageQueryHandler {
+    /** Confidence assumed for readings where the recognition service does not report one. */
+    private static final double DEFAULT_READING_CONFIDENCE = 0.5;
+
+    private final VehicleRepository vehicleRepository;
+    private final AppConfig appConfig;
+
+    /**
+     * Creates the handler with the required repository and configuration.
+     *
+     * @param vehicleRepository repository used to resolve blacklist status for the consolidated plate
+     * @param appConfig         configuration providing the recognition service URL and burst limits
+     */
+    public PlateBurstQueryHandler(VehicleRepository vehicleRepository, AppConfig appConfig) {
+        this(vehicleRepository, appConfig, new PlateEventBroadcaster(appConfig));
+    }
+
+    /**
+     * Creates the handler and publishes a consolidated blacklisted plate to the event stream.
+     *
+     * @param vehicleRepository repository used to resolve blacklist status for the consolidated plate
+     * @param appConfig         configuration providing the recognition service URL and burst limits
+     * @param eventBroadcaster  event stream receiving blacklisted-plate detections
+     */
+    public PlateBurstQueryHandler(VehicleRepository vehicleRepository, AppConfig appConfig,
+                                  PlateEventBroadcaster eventBroadcaster) {
+        super(vehicleRepository, appConfig, eventBroadcaster);
+        this.vehicleRepository = vehicleRepository;
+        this.appConfig = appConfig;
+    }
+
+    /**
+     * Processes burst uploads, recognizing frames until a plate is confirmed or the frames run out,
+     * and responds with the consolidated plate and its blacklist status.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        addCorsHeaders(exchange);
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType == null || !contentType.contains("multipart/form-data")) {
+            sendJson(exchange, 400, Map.of("success", false, "message", "INVALID_CONTENT_TYPE"));
+            return;
+        }
+
+        String boundary = extractBoundary(contentType);
+        if (boundary == null || boundary.isBlank()) {
+            sendJson(exchange, 400, Map.of("success", false, "message", "INVALID_BOUNDARY"));
+            return;
+        }
+
+        double threshold = appConfig.getBurstConfidenceThreshold();
+        Map<String, PlateEvidence> evidence = new LinkedHashMap<>();
+        PlateEvidence best = null;
+        int framesReceived;
+        int framesProcessed = 0;
+        int framesRecognized = 0;
+        try (BufferPool.Buffer requestBody = BufferPool.shared().read(exchange.getRequestBody())) {
+            List<Part> frames = extractFiles(requestBody.array(), requestBody.length(), boundary, "frame",
+                    Math.max(1, appConfig.getBurstMaxFrames()));
+            if (frames.isEmpty()) {
+                sendJson(exchange, 400, Map.of("success", false, "message", "FRAMES_REQUIRED"));
+                return;
+            }
+            framesReceived = frames.size();
+            try {
+                for (Part frame : frames) {
+                    framesProcessed++;
+                    List<Detection> detections = recognize(requestBody.array(), frame.offset, frame.length);
+                    if (detections == null) {
+                        continue;
+                    }
+                    framesRecognized++;
+                    for (Detection detection : detections) {
+                        PlateEvidence plate = evidence.computeIfAbsent(detection.licenseNumber, PlateEvidence::new);
+                        plate.addReading(readConfidence(detection.confidence));
+                        if (best == null || plate.combinedConfidence() > best.combinedConfidence()) {
+                            best = plate;
+                        }
+                    }
+                    if (best != null && best.combinedConfidence() >= threshold) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                sendJson(exchange, 500, Map.of("success", false, "message", "Image recognition failed."));
+                return;
+            }
+        }
+
+        if (framesRecognized == 0) {
+            sendJson(exchange, 500, Map.of("success", false, "message", "Image recognition failed."));
+            return;
+        }
+
+        JsonObject responseBody = new JsonObject();
+        responseBody.addProperty("success", true);
+        responseBody.addProperty("framesReceived", framesReceived);
+        responseBody.addProperty("framesProcessed", framesProcessed);
+        if (best == null) {
+            responseBody.addProperty("plateFound", false);
+            responseBody.addProperty("message", "No readable license plate was found in the frames.");
+            sendJson(exchange, 200, responseBody);
+            return;
+        }
+
+        Optional<Vehicle> match = vehicleRepository.findByPlate(best.licenseNumber);
+        if (match.isPresent() && match.get().isBlacklisted()) {
+            publishHit(best.licenseNumber, "burst");
+        }
+        responseBody.addProperty("plateFound", true);
+        responseBody.addProperty("licenseNumber", best.licenseNumber);
+        responseBody.addProperty("foundInSystem", match.isPresent());
+        responseBody.addProperty("blacklisted", match.map(Vehicle::isBlacklisted).orElse(false));
+        responseBody.addProperty("confidence", best.combinedConfidence());
+        responseBody.addProperty("confirmed", best.combinedConfidence() >= threshold);
+        responseBody.addProperty("readings", best.readings);
+        sendJson(exchange, 200, responseBody);
+    }
+
+    private double readConfidence(JsonElement confidence) {
+        if (confidence == null || !confidence.isJsonPrimitive() || !confidence.getAsJsonPrimitive().isNumber()) {
+            return DEFAULT_READING_CONFIDENCE;
+        }
+        double value = confidence.getAsDouble();
+        // Recognizers report either 0..1 or a percentage.
+        if (value > 1.0) {
+            value = value / 100.0;
+        }
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+
+    /**
+     * Accumulated evidence for one plate across the frames of a burst.
+     */
+    private static final class PlateEvidence {
+        private final String licenseNumber;
+        private double missProbability = 1.0;
+        private int readings;
+
+        private PlateEvidence(String licenseNumber) {
+            this.licenseNumber = licenseNumber;
+        }
+
+        private void addReading(double confidence) {
+            missProbability *= 1.0 - confidence;
+            readings++;
+        }
+
+        private double combinedConfidence() {
+            return 1.0 - missProbability;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package parallax.backend.http;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import parallax.backend.config.AppConfig;
+import parallax.backend.model.BlacklistUpdate;
+import parallax.backend.model.ModelJson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans out blacklist changes and blacklisted-plate detections to server-sent-event subscribers.
+ * <p>
+ * Publishing never blocks a request thread: each event is serialized once and offered to a
+ * bounded per-subscriber buffer. A subscriber whose buffer is full is considered too slow and is
+ * disconnected; the client is expected to reconnect and resynchronize through
+ * {@code /api/vehicles/blacklist/sync}. Buffers are drained by a small shared pool, so idle
+ * subscribers hold only their open connection and no thread. A periodic comment line keeps
+ * proxies from timing out idle streams and detects clients that went away.
+ * </p>
+ * <p>
+ * A client that stops reading without disconnecting would otherwise block a drain thread in its
+ * write indefinitely. Each drain pass therefore carries a deadline: a separate timer interrupts a
+ * drain thread whose writes have not completed within {@value #WRITE_TIMEOUT_MILLIS} ms, which
+ * closes the exchange's socket channel, and the subscriber is dropped.
+ * </p>
+ */
+public class PlateEventBroadcaster {
+    private static final Gson gson = ModelJson.gson();
+    private static final int DRAIN_THREADS = 2;
+    private static final long WRITE_TIMEOUT_MILLIS = 10_000;
+    private static final long HEARTBEAT_SECONDS = 15;
+    private static final byte[] HEARTBEAT = ": keep-alive\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final long writeTimeoutNanos;
+    private ExecutorService executor;
+
+    /**
+     * Creates a broadcaster using the buffer size and subscriber limit from configuration.
+     *
+     * @param appConfig configuration providing event stream limits
+     */
+    public PlateEventBroadcaster(AppConfig appConfig) {
+        this(appConfig.getEventBufferSize(), appConfig.getEventMaxSubscribers());
+    }
+
+    /**
+     * Creates a broadcaster with explicit limits.
+     *
+     * @param bufferSize     events buffered per subscriber before it is dropped
+     * @param maxSubscribers maximum number of concurrent subscribers
+     */
+    public PlateEventBroadcaster(int bufferSize, int maxSubscribers) {
+        this(bufferSize, maxSubscribers, WRITE_TIMEOUT_MILLIS);
+    }
+
+    PlateEventBroadcaster(int bufferSize, int maxSubscribers, long writeTimeoutMillis) {
+        this.bufferSize = Math.max(1, bufferSize);
+        this.maxSubscribers = maxSubscribers;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, writeTimeoutMillis));
+    }
+
+    /**
+     * Registers an exchange whose response headers have already been sent as an event stream.
+     * The exchange stays open after the calling handler returns and is closed when the
+     * subscriber is dropped.
+     *
+     * @param exchange exchange to stream events to
+     * @return {@code false} when the subscriber limit has been reached
+     */
+    public boolean subscribe(HttpExchange exchange) {
+        synchronized (subscribers) {
+            if (subscribers.size() >= maxSubscribers) {
+                return false;
+            }
+            ensureStarted();
+            subscribers.add(new Subscriber(exchange, bufferSize));
+        }
+        return true;
+    }
+
+    /**
+     * Publishes a change of a plate's blacklist status.
+     *
+     * @param licenseNumber normalized plate
+     * @param blacklisted   new blacklist status
+     */
+    public void publishBlacklistChange(String licenseNumber, boolean blacklisted) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("licenseNumber", licenseNumber);
+        data.put("blacklisted", blacklisted);
+        data.put("timestamp", Instant.now().toString());
+        publish("blacklist", data);
+    }
+
+    /**
+     * Publishes a bulk blacklist update as a single event instead of one per plate. Subscribers
+     * that track individual plates should resynchronize through the sync endpoint.
+     *
+     * @param update outcome of the bulk update
+     */
+    public void publishBlacklistBulkChange(BlacklistUpdate update) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("logId", update.getLogId());
+        data.put("version", update.getVersion());
+        data.put("listed", update.getListed());
+        data.put("unlisted", update.getUnlisted());
+        data.put("timestamp", Instant.now().toString());
+        publish("blacklist-bulk", data);
+    }
+
+    /**
+     * Publishes a detection of a blacklisted plate.
+     *
+     * @param licenseNumber normalized plate
+     * @param source        where the plate was seen, e.g. {@code query} or {@code image}
+     */
+    public void publishBlacklistHit(String licenseNumber, String source) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("licenseNumber", licenseNumber);
+        data.put("source", source);
+        data.put("timestamp", Instant.now().toString());
+        publish("hit", data);
+    }
+
+    /**
+     * Returns the number of currently connected subscribers.
+     *
+     * @return subscriber count
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Returns how many subscribers have been disconnected for falling behind, stalling a write or
+     * failing to write.
+     *
+     * @return dropped subscriber count
+     */
+    public int getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void publish(String event, Object data) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        byte[] frame = ("event: " + event + "\ndata: " + gson.toJson(data) + "\n\n").getBytes(StandardCharsets.UTF_8);
+        for (Subscriber subscriber : subscribers) {
+            offer(subscriber, frame);
+        }
+    }
+
+    private void offer(Subscriber subscriber, byte[] frame) {
+        if (!subscriber.buffer.offer(frame)) {
+            drop(subscriber);
+            return;
+        }
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        boolean failed = false;
+        boolean closed;
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                subscriber.scheduled.set(false);
+                return;
+            }
+            subscriber.writer = Thread.currentThread();
+            subscriber.writeDeadline = System.nanoTime() + writeTimeoutNanos;
+        }
+        try {
+            byte[] frame;
+            while ((frame = subscriber.buffer.poll()) != null) {
+                subscriber.out.write(frame);
+            }
+            subscriber.out.flush();
+        } catch (IOException e) {
+            failed = true;
+        } finally {
+            synchronized (subscriber) {
+                subscriber.writer = null;
+                // Clear an interrupt aimed at this write so it cannot hit the next subscriber.
+                Thread.interrupted();
+                closed = subscriber.closed;
+            }
+            subscriber.scheduled.set(false);
+        }
+        if (closed) {
+            subscriber.exchange.close();
+            return;
+        }
+        if (failed) {
+            drop(subscriber);
+            return;
+        }
+        // An event may have been offered after the last poll but before the flag was cleared.
+        if (!subscriber.buffer.isEmpty() && subscriber.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            offer(subscriber, HEARTBEAT);
+        }
+    }
+
+    private void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            synchronized (subscriber) {
+                if (subscriber.writer != null && now - subscriber.writeDeadline > 0) {
+                    subscriber.writer.interrupt();
+                }
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        dropped.incrementAndGet();
+        subscriber.buffer.clear();
+        synchronized (subscriber) {
+            subscriber.closed = true;
+            if (subscriber.writer != null) {
+                // Closing here would wait behind the stuck write; the drain thread closes instead.
+                subscriber.writer.interrupt();
+                return;
+            }
+        }
+        subscriber.exchange.close();
+    }
+
+    private void ensureStarted() {
+        if (executor != null) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threads = runnable -> {
+            Thread thread = new Thread(runnable, "parallax-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // The timer has its own thread so it keeps running while every drain thread is stuck.
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(threads);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        long checkNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(10), writeTimeoutNanos / 4);
+        scheduler.scheduleWithFixedDelay(this::evictStalled, checkNanos, checkNanos, TimeUnit.NANOSECONDS);
+        executor = Executors.newFixedThreadPool(DRAIN_THREADS, threads);
+    }
+
+    private static final class Subscriber {
+        private final HttpExchange exchange;
+        private final OutputStream out;
+        private final BlockingQueue<byte[]> buffer;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private Thread writer;
+        private long writeDeadline;
+        private boolean closed;
+
+        private Subscriber(HttpExchange exchange, int bufferSize) {
+            this.exchange = exchange;
+            this.out = exchange.getResponseBody();
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package parallax.backend.http;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import parallax.backend.config.AppConfig;
+import parallax.backend.model.ModelJson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Server-sent-event endpoint streaming blacklist changes and blacklisted-plate detections to
+ * operator consoles.
+ * <p>
+ * Handles {@code GET /api/vehicles/events?username=...} for the admin account. The response is a
+ * {@code text/event-stream} that stays open after this handler returns; events are written by
+ * {@link PlateEventBroadcaster}, so an idle subscriber does not occupy a server thread.
+ * </p>
+ */
+public class PlateEventsHandler implements HttpHandler {
+    private static final Gson gson = ModelJson.gson();
+    private static final byte[] CONNECTED = ": connected\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final PlateEventBroadcaster eventBroadcaster;
+    private final AppConfig appConfig;
+
+    /**
+     * Creates the handler for the given broadcaster.
+     *
+     * @param eventBroadcaster broadcaster that owns the subscriber streams
+     * @param appConfig        configuration providing admin credentials
+     */
+    public PlateEventsHandler(PlateEventBroadcaster eventBroadcaster, AppConfig appConfig) {
+        this.eventBroadcaster = eventBroadcaster;
+        this.appConfig = appConfig;
+    }
+
+    /**
+     * Validates the subscriber, sends the stream headers, and hands the open exchange to the
+     * broadcaster.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        addCorsHeaders(exchange);
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        String username = getQueryParam(exchange.getRequestURI(), "username");
+        if (username == null || username.isBlank()) {
+            sendJson(exchange, 400, Map.of("message", "USERNAME_REQUIRED"));
+            return;
+        }
+
+        if (!(AppConfig.ADMIN_ENABLED && AppConfig.ADMIN_EMAIL.equalsIgnoreCase(username))) {
+            sendJson(exchange, 403, Map.of("message", "ADMIN_ONLY"));
+            return;
+        }
+
+        if (eventBroadcaster.getSubscriberCount() >= appConfig.getEventMaxSubscribers()) {
+            sendJson(exchange, 503, Map.of("message", "TOO_MANY_SUBSCRIBERS"));
+            return;
+        }
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.add("Content-Type", "text/event-stream; charset=utf-8");
+        headers.add("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream os = exchange.getResponseBody();
+        os.write(CONNECTED);
+        os.flush();
+
+        if (!eventBroadcaster.subscribe(exchange)) {
+            exchange.close();
+        }
+    }
+
+    private String getQueryParam(URI uri, String key) {
+        if (uri == null || uri.getQuery() == null) {
+            return null;
+        }
+        String[] pairs = uri.getQuery().split("&");
+        for (String pair : pairs) {
+            String[] kv = pair.split("=", 2);
+            if (kv.length == 2 && key.equalsIgnoreCase(kv[0])) {
+                return java.net.URLDecoder.decode(kv[1], StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private void addCorsHeaders(HttpExchange exchange) {
+        Headers h = exchange.getResponseHeaders();
+        h.add("Access-Control-Allow-Origin", "*");
+        h.add("Access-Control-Allow-Headers", "Content-Type");
+        h.add("Access-Control-Allow-Methods", "GET, OPTIONS");
+    }
+
+    private void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
+        try (BufferPool.Buffer bytes = BufferPool.shared().json(gson, body)) {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(statusCode, bytes.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                bytes.writeTo(os);
+            }
+        }
+    }
+}
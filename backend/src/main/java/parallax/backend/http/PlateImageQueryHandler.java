@@ -1,17 +1,18 @@
 package parallax.backend.http;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import parallax.backend.config.AppConfig;
 import parallax.backend.db.VehicleRepository;
+import parallax.backend.model.ModelJson;
 import parallax.backend.model.Vehicle;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -20,8 +21,10 @@ import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -30,15 +33,17 @@ import java.util.UUID;
  * <p>
  * Expects {@code POST /api/vehicles/query-image} with a {@code multipart/form-data} body containing
  * a file field named {@code image}. The Python service is expected to return JSON with fields such
- * as {@code success}, {@code plateFound}, and {@code licenseNumber}. The handler responds with JSON
- * describing whether a plate was detected and the blacklist status if present in
- * {@link VehicleRepository}.
+ * as {@code success}, {@code plateFound}, and either a {@code detections} array or a single
+ * {@code licenseNumber}. Every detected plate is resolved against {@link VehicleRepository} in one
+ * batched lookup, and the handler responds with per-plate existence and blacklist status.
  * </p>
  */
 public class PlateImageQueryHandler implements HttpHandler {
-    private static final Gson gson = new Gson();
+    private static final Gson gson = ModelJson.gson();
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
     private final VehicleRepository vehicleRepository;
     private final AppConfig appConfig;
+    private final PlateEventBroadcaster eventBroadcaster;
 
     /**
      * Creates the handler with the required repositories and configuration.
@@ -47,8 +52,21 @@ public class PlateImageQueryHandler implements HttpHandler {
      * @param appConfig         configuration providing the external recognition service URL and CORS settings
      */
     public PlateImageQueryHandler(VehicleRepository vehicleRepository, AppConfig appConfig) {
+        this(vehicleRepository, appConfig, new PlateEventBroadcaster(appConfig));
+    }
+
+    /**
+     * Creates the handler and publishes every detected blacklisted plate to the event stream.
+     *
+     * @param vehicleRepository repository used to resolve blacklist status for detected plates
+     * @param appConfig         configuration providing the external recognition service URL and CORS settings
+     * @param eventBroadcaster  event stream receiving blacklisted-plate detections
+     */
+    public PlateImageQueryHandler(VehicleRepository vehicleRepository, AppConfig appConfig,
+                                  PlateEventBroadcaster eventBroadcaster) {
         this.vehicleRepository = vehicleRepository;
         this.appConfig = appConfig;
+        this.eventBroadcaster = eventBroadcaster;
     }
 
     /**
@@ -81,31 +99,33 @@ public class PlateImageQueryHandler implements HttpHandler {
             return;
         }
 
-        byte[] requestBytes = readAllBytes(exchange.getRequestBody());
-        byte[] imageBytes = extractFile(requestBytes, boundary, "image");
-        if (imageBytes == null) {
-            sendJson(exchange, 400, Map.of("success", false, "message", "IMAGE_REQUIRED"));
-            return;
-        }
-
-        Path tempFile = Files.createTempFile("plate-upload-", ".bin");
-        try {
-            Files.write(tempFile, imageBytes);
-            JsonObject detectionResponse = callPythonService(tempFile);
-            if (detectionResponse == null) {
-                sendJson(exchange, 500, Map.of("success", false, "message", "Image recognition failed."));
+        try (BufferPool.Buffer requestBody = BufferPool.shared().read(exchange.getRequestBody())) {
+            List<Part> images = extractFiles(requestBody.array(), requestBody.length(), boundary, "image", 1);
+            if (images.isEmpty()) {
+                sendJson(exchange, 400, Map.of("success", false, "message", "IMAGE_REQUIRED"));
                 return;
             }
+            recognizeAndRespond(exchange, requestBody.array(), images.get(0));
+        }
+    }
 
-            boolean success = detectionResponse.has("success") && detectionResponse.get("success").getAsBoolean();
-            if (!success) {
+    /**
+     * Runs the uploaded image through the recognition service and responds with the existence and
+     * blacklist status of every detected plate.
+     *
+     * @param exchange exchange to respond on
+     * @param body     request body holding the image
+     * @param image    location of the image within {@code body}
+     * @throws IOException if the response cannot be written
+     */
+    private void recognizeAndRespond(HttpExchange exchange, byte[] body, Part image) throws IOException {
+        try {
+            List<Detection> detections = recognize(body, image.offset, image.length);
+            if (detections == null) {
                 sendJson(exchange, 500, Map.of("success", false, "message", "Image recognition failed."));
                 return;
             }
-
-            boolean plateFound = detectionResponse.has("plateFound")
-                    && detectionResponse.get("plateFound").getAsBoolean();
-            if (!plateFound) {
+            if (detections.isEmpty()) {
                 sendJson(exchange, 200, Map.of(
                         "success", true,
                         "plateFound", false,
@@ -113,35 +133,117 @@ public class PlateImageQueryHandler implements HttpHandler {
                 ));
                 return;
             }
-            
-            String plate = detectionResponse.has("licenseNumber")
-                    ? detectionResponse.get("licenseNumber").getAsString()
-                    : null;
-            String normalizedPlate = normalizeLicense(plate);
-            Optional<Vehicle> match = vehicleRepository.findByPlate(normalizedPlate);
-            
-            boolean foundInSystem = match.isPresent();
-            boolean blacklisted = match.map(Vehicle::isBlacklisted).orElse(false);
-            
+
+            List<String> plates = new ArrayList<>();
+            for (Detection detection : detections) {
+                plates.add(detection.licenseNumber);
+            }
+            Map<String, Vehicle> matches = vehicleRepository.findByPlates(plates);
+
+            JsonArray results = new JsonArray();
+            for (Detection detection : detections) {
+                Vehicle match = matches.get(detection.licenseNumber);
+                JsonObject result = new JsonObject();
+                result.addProperty("licenseNumber", detection.licenseNumber);
+                result.addProperty("foundInSystem", match != null);
+                result.addProperty("blacklisted", match != null && match.isBlacklisted());
+                if (match != null && match.isBlacklisted()) {
+                    publishHit(detection.licenseNumber, "image");
+                }
+                if (detection.confidence != null) {
+                    result.add("confidence", detection.confidence);
+                }
+                results.add(result);
+            }
+
+            // The first detection is mirrored at the top level so single-plate clients keep working.
+            JsonObject primary = results.get(0).getAsJsonObject();
             JsonObject responseBody = new JsonObject();
             responseBody.addProperty("success", true);
             responseBody.addProperty("plateFound", true);
-            responseBody.addProperty("licenseNumber", normalizedPlate);
-            responseBody.addProperty("foundInSystem", foundInSystem);
-            responseBody.addProperty("blacklisted", blacklisted);
-            
-            if (detectionResponse.has("confidence")) {
-                responseBody.add("confidence", detectionResponse.get("confidence"));
+            for (String key : primary.keySet()) {
+                responseBody.add(key, primary.get(key));
             }
-            
+            responseBody.addProperty("plateCount", results.size());
+            responseBody.add("plates", results);
+
             sendJson(exchange, 200, responseBody);
         } catch (Exception e) {
             sendJson(exchange, 500, Map.of("success", false, "message", "Image recognition failed."));
+        }
+    }
+
+    /**
+     * Runs one image through the recognition service via a temporary file.
+     *
+     * @param data   array holding the raw image content
+     * @param offset start of the image within {@code data}
+     * @param length image length in bytes
+     * @return detected plates (empty when no plate was readable), or {@code null} when the service
+     *         failed or reported an unsuccessful recognition
+     * @throws IOException          if the temporary file cannot be written or the call fails
+     * @throws InterruptedException if the HTTP client is interrupted while waiting for a response
+     */
+    List<Detection> recognize(byte[] data, int offset, int length) throws IOException, InterruptedException {
+        Path tempFile = Files.createTempFile("plate-upload-", ".bin");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                out.write(data, offset, length);
+            }
+            JsonObject detectionResponse = callPythonService(tempFile);
+            if (detectionResponse == null) {
+                return null;
+            }
+
+            boolean success = detectionResponse.has("success") && detectionResponse.get("success").getAsBoolean();
+            if (!success) {
+                return null;
+            }
+
+            boolean plateFound = detectionResponse.has("plateFound")
+                    && detectionResponse.get("plateFound").getAsBoolean();
+            return plateFound ? readDetections(detectionResponse) : List.of();
         } finally {
             Files.deleteIfExists(tempFile);
         }
     }
-    
+
+    /**
+     * Extracts the plates reported by the recognition service. Multi-plate responses carry a
+     * {@code detections} array of objects with {@code licenseNumber} and optional
+     * {@code confidence}; older single-plate responses only carry a top-level
+     * {@code licenseNumber}. Plates are normalized, blank readings are skipped, and a plate read
+     * more than once keeps its first (highest-ranked) occurrence.
+     *
+     * @param detectionResponse parsed response from the recognition service
+     * @return detections in recognizer order, possibly empty
+     */
+    private List<Detection> readDetections(JsonObject detectionResponse) {
+        Map<String, Detection> byPlate = new LinkedHashMap<>();
+        if (detectionResponse.has("detections") && detectionResponse.get("detections").isJsonArray()) {
+            for (JsonElement element : detectionResponse.getAsJsonArray("detections")) {
+                if (!element.isJsonObject()) {
+                    continue;
+                }
+                JsonObject item = element.getAsJsonObject();
+                String plate = normalizeLicense(getString(item, "licenseNumber"));
+                if (plate != null && !plate.isEmpty()) {
+                    byPlate.putIfAbsent(plate, new Detection(plate, item.get("confidence")));
+                }
+            }
+        } else {
+            String plate = normalizeLicense(getString(detectionResponse, "licenseNumber"));
+            if (plate != null && !plate.isEmpty()) {
+                byPlate.put(plate, new Detection(plate, detectionResponse.get("confidence")));
+            }
+        }
+        return new ArrayList<>(byPlate.values());
+    }
+
+    private String getString(JsonObject object, String key) {
+        JsonElement value = object.get(key);
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
 
     /**
      * Calls the configured Python service with a multipart request containing the temporary image
@@ -154,20 +256,19 @@ public class PlateImageQueryHandler implements HttpHandler {
      */
     protected JsonObject callPythonService(Path imagePath) throws IOException, InterruptedException {
         String boundary = "----Parallax" + UUID.randomUUID();
-        ByteArrayOutputStream body = new ByteArrayOutputStream();
         StringBuilder sb = new StringBuilder();
         sb.append("--").append(boundary).append("\r\n");
         sb.append("Content-Disposition: form-data; name=\"image\"; filename=\"").append(imagePath.getFileName()).append("\"\r\n");
         sb.append("Content-Type: application/octet-stream\r\n\r\n");
-        body.write(sb.toString().getBytes(StandardCharsets.UTF_8));
-        body.write(Files.readAllBytes(imagePath));
-        body.write("\r\n".getBytes(StandardCharsets.UTF_8));
-        body.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
 
+        // The image is streamed from the file rather than copied into the request body.
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(appConfig.getPlateServiceBaseUrl() + "/detect-plate"))
                 .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .POST(HttpRequest.BodyPublishers.concat(
+                        HttpRequest.BodyPublishers.ofString(sb.toString()),
+                        HttpRequest.BodyPublishers.ofFile(imagePath),
+                        HttpRequest.BodyPublishers.ofString("\r\n--" + boundary + "--\r\n")))
                 .build();
 
         HttpClient client = HttpClient.newHttpClient();
@@ -178,7 +279,17 @@ public class PlateImageQueryHandler implements HttpHandler {
         return gson.fromJson(response.body(), JsonObject.class);
     }
 
-    private String extractBoundary(String contentType) {
+    /**
+     * Publishes a detected blacklisted plate to event stream subscribers.
+     *
+     * @param licenseNumber normalized plate
+     * @param source        endpoint that saw the plate
+     */
+    void publishHit(String licenseNumber, String source) {
+        eventBroadcaster.publishBlacklistHit(licenseNumber, source);
+    }
+
+    String extractBoundary(String contentType) {
         for (String part : contentType.split(";")) {
             String trimmed = part.trim();
             if (trimmed.startsWith("boundary=")) {
@@ -188,59 +299,81 @@ public class PlateImageQueryHandler implements HttpHandler {
         return null;
     }
 
-    private byte[] extractFile(byte[] body, String boundary, String fieldName) {
-        String payload = new String(body, StandardCharsets.ISO_8859_1);
-        String marker = "--" + boundary;
+    /**
+     * Locates every multipart part named {@code fieldName}, in request order, without copying
+     * its contents out of the request body.
+     *
+     * @param body      array holding the raw multipart request body
+     * @param length    length of the body within {@code body}
+     * @param boundary  boundary token from the {@code Content-Type} header
+     * @param fieldName form field whose parts should be returned
+     * @param limit     maximum number of parts to return
+     * @return part locations, possibly empty
+     */
+    List<Part> extractFiles(byte[] body, int length, String boundary, String fieldName, int limit) {
+        List<Part> files = new ArrayList<>();
+        byte[] marker = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] nextMarker = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        byte[] closingMarker = ("--" + boundary + "--").getBytes(StandardCharsets.ISO_8859_1);
+        String nameAttribute = "name=\"" + fieldName + "\"";
         int index = 0;
-        while (index < payload.length()) {
-            int start = payload.indexOf(marker, index);
+        while (index < length && files.size() < limit) {
+            int start = indexOf(body, length, marker, index);
             if (start < 0) {
                 break;
             }
-            int headerStart = start + marker.length() + 2; // skip CRLF
-            int headerEnd = payload.indexOf("\r\n\r\n", headerStart);
+            int headerStart = start + marker.length + 2; // skip CRLF
+            int headerEnd = indexOf(body, length, HEADER_END, headerStart);
             if (headerEnd < 0) {
                 break;
             }
-            String headers = payload.substring(headerStart, headerEnd);
-            if (headers.contains("name=\"" + fieldName + "\"")) {
-                int dataStart = headerEnd + 4;
-                int nextBoundary = payload.indexOf("\r\n" + marker, dataStart);
+            String headers = new String(body, headerStart, headerEnd - headerStart, StandardCharsets.ISO_8859_1);
+            int dataStart = headerEnd + HEADER_END.length;
+            int nextBoundary = indexOf(body, length, nextMarker, dataStart);
+            if (nextBoundary < 0) {
+                nextBoundary = indexOf(body, length, closingMarker, dataStart);
                 if (nextBoundary < 0) {
-                    nextBoundary = payload.indexOf(marker + "--", dataStart);
-                    if (nextBoundary < 0) {
-                        nextBoundary = payload.length();
-                    }
+                    nextBoundary = length;
                 }
+            }
+            if (headers.contains(nameAttribute)) {
                 int dataEnd = nextBoundary;
-                if (dataEnd >= 2 && payload.startsWith("\r\n", dataEnd - 2)) {
+                if (dataEnd >= dataStart + 2 && body[dataEnd - 2] == '\r' && body[dataEnd - 1] == '\n') {
                     dataEnd -= 2;
                 }
-                return java.util.Arrays.copyOfRange(body, dataStart, dataEnd);
+                files.add(new Part(dataStart, Math.max(0, dataEnd - dataStart)));
             }
-            index = headerEnd + 4;
+            index = nextBoundary;
         }
-        return null;
+        return files;
     }
 
-    private byte[] readAllBytes(InputStream inputStream) throws IOException {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        byte[] data = new byte[8192];
-        int nRead;
-        while ((nRead = inputStream.read(data, 0, data.length)) != -1) {
-            buffer.write(data, 0, nRead);
+    private static int indexOf(byte[] data, int length, byte[] pattern, int from) {
+        int last = length - pattern.length;
+        byte first = pattern[0];
+        for (int i = Math.max(0, from); i <= last; i++) {
+            if (data[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < pattern.length && data[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
         }
-        return buffer.toByteArray();
+        return -1;
     }
 
-    private String normalizeLicense(String licenseNumber) {
+    String normalizeLicense(String licenseNumber) {
         if (licenseNumber == null) {
             return null;
         }
         return licenseNumber.trim().toUpperCase();
     }
 
-    private void addCorsHeaders(HttpExchange exchange) {
+    void addCorsHeaders(HttpExchange exchange) {
         Headers h = exchange.getResponseHeaders();
         h.add("Access-Control-Allow-Origin", "*");
         h.add("Access-Control-Allow-Headers", "Content-Type");
@@ -262,12 +395,39 @@ public class PlateImageQueryHandler implements HttpHandler {
      * @param body       the response object to serialize as JSON
      * @throws IOException if an I/O error occurs while sending the response
      */
-    private void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
-        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
-        exchange.getResponseHeaders().add("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+    void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
+        try (BufferPool.Buffer bytes = BufferPool.shared().json(gson, body)) {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(statusCode, bytes.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                bytes.writeTo(os);
+            }
+        }
+    }
+
+    /**
+     * Location of one multipart part within the request body.
+     */
+    static final class Part {
+        final int offset;
+        final int length;
+
+        Part(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A single plate reading reported by the recognition service.
+     */
+    static final class Detection {
+        final String licenseNumber;
+        final JsonElement confidence;
+
+        Detection(String licenseNumber, JsonElement confidence) {
+            this.licenseNumber = licenseNumber;
+            this.confidence = confidence;
         }
     }
 }
@@ -0,0 +1,219 @@
+package parallax.backend.http;
+
+import parallax.backend.db.VehicleChangeListener;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of serialized {@code GET /api/vehicles/query} response bodies per normalized plate, so a
+ * repeated query is answered with one map lookup and one write instead of a repository lookup and
+ * a Gson serialization.
+ * <p>
+ * Entries are dropped through {@link VehicleChangeListener} notifications when a plate is added,
+ * removed or changes its blacklist state. A response computed while such a change was in flight
+ * could already be stale, so {@link #put(String, long, byte[], boolean)} only stores it if no
+ * notification arrived since the caller read {@link #stamp()}.
+ * </p>
+ * <p>
+ * Eviction approximates LRU with the CLOCK algorithm: every cached plate holds one of
+ * {@code maxEntries} slots, a hit only sets the entry's reference bit, and when no slot is free
+ * the clock hand clears set bits until it reaches an entry that was not read since its last pass.
+ * Hits stay lock-free; inserts, which only happen after a miss, are serialized so that the bound
+ * holds under concurrent misses.
+ * </p>
+ */
+public final class PlateQueryCache implements VehicleChangeListener {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong stamp = new AtomicLong();
+    private final int maxEntries;
+    private final String[] slots;
+    private int hand;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxEntries maximum number of cached plates
+     */
+    public PlateQueryCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.slots = new String[Math.max(0, maxEntries)];
+    }
+
+    /**
+     * Returns the cached response for a plate.
+     *
+     * @param plate normalized plate
+     * @return cached response, or {@code null}
+     */
+    public Entry get(String plate) {
+        Entry entry = entries.get(plate);
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the current invalidation stamp, to be read before the repository lookup whose
+     * result is passed to {@link #put(String, long, byte[], boolean)}.
+     *
+     * @return invalidation stamp
+     */
+    public long stamp() {
+        return stamp.get();
+    }
+
+    /**
+     * Caches a response unless a change notification arrived after {@code stamp} was read.
+     *
+     * @param plate       normalized plate
+     * @param stamp       value of {@link #stamp()} read before the lookup
+     * @param body        UTF-8 response body
+     * @param blacklisted whether the response reports the plate as blacklisted
+     */
+    public void put(String plate, long stamp, byte[] body, boolean blacklisted) {
+        if (maxEntries <= 0 || this.stamp.get() != stamp) {
+            return;
+        }
+        synchronized (slots) {
+            Entry previous = entries.get(plate);
+            int slot = previous != null ? previous.slot : claimSlot();
+            Entry entry = new Entry(body, blacklisted, slot);
+            if (entries.compute(plate, (key, current) -> this.stamp.get() == stamp ? entry : current) == entry) {
+                slots[slot] = plate;
+            }
+        }
+    }
+
+    /**
+     * Advances the clock hand to a slot that is free or holds an entry not read since the hand
+     * last passed it, evicting that entry. Called with the slots locked.
+     */
+    private int claimSlot() {
+        while (true) {
+            int slot = hand;
+            hand = hand + 1 == slots.length ? 0 : hand + 1;
+            String plate = slots[slot];
+            Entry entry = plate == null ? null : entries.get(plate);
+            if (entry == null || entry.slot != slot) {
+                return slot;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else {
+                entries.remove(plate, entry);
+                return slot;
+            }
+        }
+    }
+
+    @Override
+    public void platesChanged(Collection<String> plates) {
+        stamp.incrementAndGet();
+        for (String plate : plates) {
+            entries.remove(plate);
+        }
+    }
+
+    @Override
+    public void allChanged() {
+        stamp.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Returns the cache counters for the metrics endpoint.
+     *
+     * @return point-in-time counters
+     */
+    public Metrics getMetrics() {
+        return new Metrics(hits.sum(), misses.sum(), entries.size());
+    }
+
+    /**
+     * Cached response of one plate.
+     */
+    public static final class Entry {
+        private final byte[] body;
+        private final boolean blacklisted;
+        private final int slot;
+        private volatile boolean referenced;
+
+        private Entry(byte[] body, boolean blacklisted, int slot) {
+            this.body = body;
+            this.blacklisted = blacklisted;
+            this.slot = slot;
+        }
+
+        /**
+         * Returns the serialized response body; callers must not modify it.
+         *
+         * @return UTF-8 JSON body
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * Indicates whether the response reports the plate as blacklisted.
+         *
+         * @return blacklist flag
+         */
+        public boolean isBlacklisted() {
+            return blacklisted;
+        }
+    }
+
+    /**
+     * Point-in-time cache counters.
+     */
+    public static final class Metrics {
+        private final long hits;
+        private final long misses;
+        private final int entries;
+
+        private Metrics(long hits, long misses, int entries) {
+            this.hits = hits;
+            this.misses = misses;
+            this.entries = entries;
+        }
+
+        /**
+         * Returns how many queries were answered from the cache.
+         *
+         * @return cache hits
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * Returns how many queries had to go to the repository.
+         *
+         * @return cache misses
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Returns the number of cached plates.
+         *
+         * @return cached entries
+         */
+        public int getEntries() {
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package parallax.backend.http;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import parallax.backend.config.AppConfig;
+import parallax.backend.db.UserRepository;
+import parallax.backend.db.VehicleRepository;
+import parallax.backend.model.ModelJson;
+import parallax.backend.model.VehicleWithOwner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP handler for the administrative registry export.
+ * <p>
+ * Serves {@code GET /api/vehicles/export?username=<admin>&format=ndjson|csv} with one vehicle per
+ * line, carrying the same fields as the admin listing of {@code GET /api/vehicles}. Vehicles are
+ * written while {@link VehicleRepository#forEachWithOwner} iterates the storage, into a chunked
+ * response that is gzip-compressed when the client accepts it, so memory use does not grow with
+ * the size of the registry. Errors after the first vehicle has been written cannot be reported
+ * with a status code; the response is then cut short.
+ * </p>
+ */
+public class VehicleExportHandler implements HttpHandler {
+    private static final Gson gson = ModelJson.gson();
+    private static final String CSV_HEADER = "username,licenseNumber,make,model,year,blacklisted,createdAt,"
+            + "ownerUsername,ownerEmail,ownerPhone,ownerPhoneCountry";
+
+    private final VehicleRepository vehicleRepository;
+    private final UserRepository userRepository;
+
+    /**
+     * Creates the handler.
+     *
+     * @param vehicleRepository repository to export
+     * @param userRepository    repository resolving owner contact data
+     */
+    public VehicleExportHandler(VehicleRepository vehicleRepository, UserRepository userRepository) {
+        this.vehicleRepository = vehicleRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Streams the registry to the admin account.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        addCorsHeaders(exchange);
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        String username = getQueryParam(exchange.getRequestURI(), "username");
+        if (username == null || username.isBlank()) {
+            sendJson(exchange, 400, Map.of("success", false, "message", "USERNAME_REQUIRED"));
+            return;
+        }
+        if (!AppConfig.ADMIN_ENABLED || !AppConfig.ADMIN_EMAIL.equalsIgnoreCase(username)) {
+            sendJson(exchange, 403, Map.of("success", false, "message", "ADMIN_ONLY"));
+            return;
+        }
+        String format = getQueryParam(exchange.getRequestURI(), "format");
+        boolean csv;
+        if (format == null || "ndjson".equalsIgnoreCase(format)) {
+            csv = false;
+        } else if ("csv".equalsIgnoreCase(format)) {
+            csv = true;
+        } else {
+            sendJson(exchange, 400, Map.of("success", false, "message", "INVALID_FORMAT"));
+            return;
+        }
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        Headers headers = exchange.getResponseHeaders();
+        headers.add("Content-Type", csv ? "text/csv; charset=utf-8" : "application/x-ndjson");
+        headers.add("Content-Disposition", "attachment; filename=\"vehicles." + (csv ? "csv" : "ndjson") + "\"");
+        if (gzip) {
+            headers.add("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0);
+
+        OutputStream body = exchange.getResponseBody();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                gzip ? new GZIPOutputStream(body, 64 * 1024) : body, StandardCharsets.UTF_8), 64 * 1024)) {
+            if (csv) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            vehicleRepository.forEachWithOwner(userRepository, vehicle -> {
+                try {
+                    if (csv) {
+                        writeCsv(writer, vehicle);
+                    } else {
+                        gson.toJson(vehicle, VehicleWithOwner.class, writer);
+                        writer.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writeCsv(Writer writer, VehicleWithOwner vehicle) throws IOException {
+        writeCsvField(writer, vehicle.getUsername());
+        writer.write(',');
+        writeCsvField(writer, vehicle.getLicenseNumber());
+        writer.write(',');
+        writeCsvField(writer, vehicle.getMake());
+        writer.write(',');
+        writeCsvField(writer, vehicle.getModel());
+        writer.write(',');
+        writeCsvField(writer, vehicle.getYear());
+        writer.write(',');
+        writer.write(vehicle.isBlacklisted() ? "true" : "false");
+        writer.write(',');
+        writeCsvField(writer, vehicle.getCreatedAt());
+        writer.write(',');
+        writeCsvField(writer, vehicle.getOwnerUsername());
+        writer.write(',');
+        writeCsvField(writer, vehicle.getOwnerEmail());
+        writer.write(',');
+        writeCsvField(writer, vehicle.getOwnerPhone());
+        writer.write(',');
+        writeCsvField(writer, vehicle.getOwnerPhoneCountry());
+        writer.write('\n');
+    }
+
+    /**
+     * Writes one CSV field, quoting it when it contains a separator, quote or line break. Missing
+     * values are written as empty fields.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private String getQueryParam(URI uri, String key) {
+        if (uri == null || uri.getQuery() == null) {
+            return null;
+        }
+        String[] pairs = uri.getQuery().split("&");
+        for (String pair : pairs) {
+            String[] kv = pair.split("=", 2);
+            if (kv.length == 2 && key.equalsIgnoreCase(kv[0])) {
+                return java.net.URLDecoder.decode(kv[1], StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private void addCorsHeaders(HttpExchange exchange) {
+        Headers h = exchange.getResponseHeaders();
+        h.add("Access-Control-Allow-Origin", "*");
+        h.add("Access-Control-Allow-Headers", "Content-Type");
+        h.add("Access-Control-Allow-Methods", "GET, OPTIONS");
+    }
+
+    private void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
+        try (BufferPool.Buffer bytes = BufferPool.shared().json(gson, body)) {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(statusCode, bytes.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                bytes.writeTo(os);
+            }
+        }
+    }
+}
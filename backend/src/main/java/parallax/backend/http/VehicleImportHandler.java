@@ -0,0 +1,430 @@
+package parallax.backend.http;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import parallax.backend.config.AppConfig;
+import parallax.backend.db.UserRepository;
+import parallax.backend.db.VehicleRepository;
+import parallax.backend.model.ModelJson;
+import parallax.backend.model.Vehicle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP handler for bulk vehicle registration.
+ * <p>
+ * Expects {@code POST /api/vehicles/import} with one registration per line, either as NDJSON
+ * (each line a vehicle object as accepted by {@code POST /api/vehicles}) or, with a
+ * {@code text/csv} content type, as CSV with a header row naming the {@code username},
+ * {@code licenseNumber}, {@code make}, {@code model} and {@code year} columns. Quoted CSV fields
+ * may not span lines.
+ * </p>
+ * <p>
+ * The body is read as a stream and cut into chunks of lines. Chunks are parsed and validated with
+ * the same rules as single registrations on a pool of worker threads, while the request thread
+ * takes finished chunks in order, rejects plates the owner already registered and stores each
+ * chunk with one {@link VehicleRepository#addVehicles(java.util.Collection)} call. Only a bounded
+ * number of chunks is in flight, so the file is never held in memory as a whole. The response
+ * counts imported and failed rows and lists failures by line number, up to
+ * {@link AppConfig#getImportMaxErrors()} of them. A line longer than {@value #MAX_LINE_CHARS}
+ * characters ends the import with {@code 400 LINE_TOO_LONG}; chunks stored before it stay stored
+ * and are counted in the response.
+ * </p>
+ */
+public class VehicleImportHandler implements HttpHandler {
+    private static final Gson gson = ModelJson.gson();
+    private static final int CHUNK_LINES = 512;
+    private static final int MAX_LINE_CHARS = 16 * 1024;
+    private static final String[] CSV_COLUMNS = {"username", "licenseNumber", "make", "model", "year"};
+
+    private final VehicleRepository vehicleRepository;
+    private final UserRepository userRepository;
+    private final AppConfig appConfig;
+    private final ExecutorService workers;
+    private final int maxChunksInFlight;
+
+    /**
+     * Creates the handler with one parsing worker per available processor.
+     *
+     * @param vehicleRepository repository receiving the imported vehicles
+     * @param userRepository    repository in which placeholder owners are created
+     * @param appConfig         configuration providing the error report limit
+     */
+    public VehicleImportHandler(VehicleRepository vehicleRepository, UserRepository userRepository, AppConfig appConfig) {
+        this.vehicleRepository = vehicleRepository;
+        this.userRepository = userRepository;
+        this.appConfig = appConfig;
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "parallax-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxChunksInFlight = threads * 2;
+    }
+
+    /**
+     * Imports the streamed registrations and responds with the per-row report.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        addCorsHeaders(exchange);
+        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        boolean csv = contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv");
+        Report report = new Report(appConfig.getImportMaxErrors());
+        ArrayDeque<Chunk> inFlight = new ArrayDeque<>();
+        int lineNumber = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            int[] columns = null;
+            List<Line> chunk = new ArrayList<>(CHUNK_LINES);
+            StringBuilder buffer = new StringBuilder();
+            String text;
+            while ((text = readLine(reader, buffer)) != null) {
+                lineNumber++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                if (csv && columns == null) {
+                    columns = csvColumns(text);
+                    if (columns == null) {
+                        sendJson(exchange, 400, Map.of("success", false, "message", "INVALID_HEADER"));
+                        return;
+                    }
+                    continue;
+                }
+                chunk.add(new Line(lineNumber, text));
+                if (chunk.size() == CHUNK_LINES) {
+                    inFlight.add(parse(chunk, columns));
+                    chunk = new ArrayList<>(CHUNK_LINES);
+                    if (inFlight.size() >= maxChunksInFlight) {
+                        store(inFlight.poll().await(), report);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(parse(chunk, columns));
+            }
+        } catch (LineTooLongException e) {
+            inFlight.forEach(Chunk::cancel);
+            sendJson(exchange, 400, Map.of("success", false, "message", "LINE_TOO_LONG",
+                    "line", lineNumber + 1, "imported", report.imported));
+            return;
+        } catch (IOException e) {
+            inFlight.forEach(Chunk::cancel);
+            sendJson(exchange, 400, Map.of("success", false, "message", "INVALID_REQUEST",
+                    "imported", report.imported));
+            return;
+        }
+        while (!inFlight.isEmpty()) {
+            store(inFlight.poll().await(), report);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("imported", report.imported);
+        response.put("failed", report.failed);
+        response.put("errors", report.errors);
+        response.put("errorsTruncated", report.failed > report.errors.size());
+        sendJson(exchange, 200, response);
+    }
+
+    private Chunk parse(List<Line> lines, int[] columns) {
+        return new Chunk(lines, CompletableFuture.supplyAsync(() -> {
+            List<Row> rows = new ArrayList<>(lines.size());
+            for (Line line : lines) {
+                rows.add(parse(line, columns));
+            }
+            return rows;
+        }, workers));
+    }
+
+    /**
+     * Reads one line like {@link BufferedReader#readLine()}, but gives up once it exceeds
+     * {@link #MAX_LINE_CHARS} instead of buffering an unbounded line.
+     *
+     * @return the line without its terminator, or {@code null} at the end of the body
+     * @throws LineTooLongException if the line is longer than {@link #MAX_LINE_CHARS}
+     */
+    private static String readLine(BufferedReader reader, StringBuilder buffer) throws IOException {
+        buffer.setLength(0);
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        while (c >= 0 && c != '\n' && c != '\r') {
+            if (buffer.length() == MAX_LINE_CHARS) {
+                throw new LineTooLongException();
+            }
+            buffer.append((char) c);
+            c = reader.read();
+        }
+        if (c == '\r') {
+            reader.mark(1);
+            if (reader.read() != '\n') {
+                reader.reset();
+            }
+        }
+        return buffer.toString();
+    }
+
+    private static Row parse(Line line, int[] columns) {
+        Vehicle request;
+        try {
+            request = columns == null ? gson.fromJson(line.text, Vehicle.class) : csvVehicle(line.text, columns);
+        } catch (JsonParseException | IllegalArgumentException e) {
+            return new Row(line.number, null, "INVALID_ROW");
+        }
+        String invalid = VehiclesHandler.validateRegistration(request);
+        if (invalid != null) {
+            return new Row(line.number, null, invalid);
+        }
+        return new Row(line.number, VehiclesHandler.newRegistration(request), null);
+    }
+
+    /**
+     * Stores the valid rows of one chunk. Runs on the request thread in chunk order, so the
+     * duplicate check sees every row committed by earlier chunks. Repository failures fail the
+     * affected rows with {@code STORE_FAILED} rather than the whole, partly committed import.
+     */
+    private void store(List<Row> rows, Report report) {
+        List<Vehicle> batch = new ArrayList<>(rows.size());
+        List<Integer> batchLines = new ArrayList<>(rows.size());
+        Set<String> registrations = new HashSet<>();
+        Set<String> owners = new HashSet<>();
+        for (Row row : rows) {
+            if (row.error != null) {
+                report.fail(row.line, row.error);
+                continue;
+            }
+            Vehicle vehicle = row.vehicle;
+            try {
+                if (!registrations.add(vehicle.getUsername() + '\n' + vehicle.getLicenseNumber())
+                        || vehicleRepository.findByUsernameAndLicense(vehicle.getUsername(), vehicle.getLicenseNumber()).isPresent()) {
+                    report.fail(row.line, "LICENSE_EXISTS");
+                    continue;
+                }
+                if (owners.add(vehicle.getUsername())) {
+                    VehiclesHandler.ensureOwner(userRepository, vehicle.getUsername());
+                }
+            } catch (RuntimeException e) {
+                report.fail(row.line, "STORE_FAILED");
+                continue;
+            }
+            batch.add(vehicle);
+            batchLines.add(row.line);
+        }
+        try {
+            vehicleRepository.addVehicles(batch);
+            report.imported += batch.size();
+        } catch (RuntimeException e) {
+            for (int line : batchLines) {
+                report.fail(line, "STORE_FAILED");
+            }
+        }
+    }
+
+    /**
+     * Maps the required columns to their positions in a CSV header row.
+     *
+     * @return column index per entry of {@link #CSV_COLUMNS}, or {@code null} if one is missing
+     */
+    private static int[] csvColumns(String header) {
+        List<String> names;
+        try {
+            names = csvFields(header);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int[] columns = new int[CSV_COLUMNS.length];
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            columns[i] = -1;
+            for (int j = 0; j < names.size(); j++) {
+                if (CSV_COLUMNS[i].equalsIgnoreCase(names.get(j).trim())) {
+                    columns[i] = j;
+                    break;
+                }
+            }
+            if (columns[i] < 0) {
+                return null;
+            }
+        }
+        return columns;
+    }
+
+    private static Vehicle csvVehicle(String text, int[] columns) {
+        List<String> fields = csvFields(text);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername(field(fields, columns[0]));
+        vehicle.setLicenseNumber(field(fields, columns[1]));
+        vehicle.setMake(field(fields, columns[2]));
+        vehicle.setModel(field(fields, columns[3]));
+        vehicle.setYear(field(fields, columns[4]));
+        return vehicle;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index).trim() : null;
+    }
+
+    /**
+     * Splits one CSV line into fields, honouring double-quoted fields with {@code ""} escapes.
+     *
+     * @throws IllegalArgumentException if a quoted field is not terminated
+     */
+    static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private void addCorsHeaders(HttpExchange exchange) {
+        Headers h = exchange.getResponseHeaders();
+        h.add("Access-Control-Allow-Origin", "*");
+        h.add("Access-Control-Allow-Headers", "Content-Type");
+        h.add("Access-Control-Allow-Methods", "POST, OPTIONS");
+    }
+
+    private void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
+        try (BufferPool.Buffer bytes = BufferPool.shared().json(gson, body)) {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(statusCode, bytes.length());
+            try (OutputStream os = exchange.getResponseBody()) {
+                bytes.writeTo(os);
+            }
+        }
+    }
+
+    private static final class Line {
+        private final int number;
+        private final String text;
+
+        private Line(int number, String text) {
+            this.number = number;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Lines of one chunk and the worker parsing them.
+     */
+    private static final class Chunk {
+        private final List<Line> lines;
+        private final CompletableFuture<List<Row>> rows;
+
+        private Chunk(List<Line> lines, CompletableFuture<List<Row>> rows) {
+            this.lines = lines;
+            this.rows = rows;
+        }
+
+        /**
+         * Waits for the parsed rows. A worker that failed outside the per-row checks fails every
+         * line of the chunk with {@code PARSE_FAILED}, so the import goes on and the report
+         * accounts for the lines.
+         */
+        private List<Row> await() {
+            try {
+                return rows.join();
+            } catch (CompletionException e) {
+                List<Row> failed = new ArrayList<>(lines.size());
+                for (Line line : lines) {
+                    failed.add(new Row(line.number, null, "PARSE_FAILED"));
+                }
+                return failed;
+            }
+        }
+
+        private void cancel() {
+            rows.cancel(false);
+        }
+    }
+
+    private static final class Row {
+        private final int line;
+        private final Vehicle vehicle;
+        private final String error;
+
+        private Row(int line, Vehicle vehicle, String error) {
+            this.line = line;
+            this.vehicle = vehicle;
+            this.error = error;
+        }
+    }
+
+    private static final class LineTooLongException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final class Report {
+        private final int maxErrors;
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private int imported;
+        private int failed;
+
+        private Report(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        private void fail(int line, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(Map.of("line", line, "message", message));
+            }
+        }
+    }
+}
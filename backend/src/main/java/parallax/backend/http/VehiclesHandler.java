@@ -1,39 +1,58 @@
 package parallax.backend.http;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import parallax.backend.config.AppConfig;
 import parallax.backend.db.UserRepository;
 import parallax.backend.db.VehicleRepository;
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.BlacklistUpdate;
+import parallax.backend.model.ModelJson;
 import parallax.backend.model.User;
 import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
 import parallax.backend.model.VehicleWithOwner;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * HTTP handler for vehicle management endpoints.
  * <p>
  * Exposes operations for listing vehicles, registering a new vehicle, deleting a vehicle, updating
- * blacklist status, and querying by plate number. Supports both self-service actions and
- * administrative controls when the configured admin user performs the request.
+ * blacklist status, querying by plate number (one plate at a time or in batches), blacklist
+ * delta synchronization for edge caches, and registry statistics. Supports both self-service
+ * actions and administrative controls when the configured admin user performs the request.
  * </p>
  */
 public class VehiclesHandler implements HttpHandler {
-    private static final Gson gson = new Gson();
+    private static final Gson gson = ModelJson.gson();
     private final VehicleRepository vehicleRepository;
     private final UserRepository userRepository;
     private final AppConfig appConfig;
+    private final PlateEventBroadcaster eventBroadcaster;
+    private final PlateQueryCache queryCache;
 
     /**
      * Creates a handler backed by the provided repositories.
@@ -43,9 +62,40 @@ public class VehiclesHandler implements HttpHandler {
      * @param appConfig         configuration providing admin credentials and CORS settings
      */
     public VehiclesHandler(VehicleRepository vehicleRepository, UserRepository userRepository, AppConfig appConfig) {
+        this(vehicleRepository, userRepository, appConfig, new PlateEventBroadcaster(appConfig));
+    }
+
+    /**
+     * Creates a handler that also publishes blacklist changes and blacklisted-plate queries.
+     *
+     * @param vehicleRepository repository for vehicle persistence and blacklist state
+     * @param userRepository    repository used to validate or seed user records
+     * @param appConfig         configuration providing admin credentials and CORS settings
+     * @param eventBroadcaster  event stream receiving blacklist changes and hits
+     */
+    public VehiclesHandler(VehicleRepository vehicleRepository, UserRepository userRepository, AppConfig appConfig,
+                           PlateEventBroadcaster eventBroadcaster) {
+        this(vehicleRepository, userRepository, appConfig, eventBroadcaster, null);
+    }
+
+    /**
+     * Creates a handler that answers repeated plate queries from pre-serialized responses. The
+     * cache must be registered as a listener of the {@link parallax.backend.db.ObservableVehicleRepository}
+     * that all writers go through, otherwise it serves stale answers.
+     *
+     * @param vehicleRepository repository for vehicle persistence and blacklist state
+     * @param userRepository    repository used to validate or seed user records
+     * @param appConfig         configuration providing admin credentials and CORS settings
+     * @param eventBroadcaster  event stream receiving blacklist changes and hits
+     * @param queryCache        cache of plate query responses, or {@code null} to disable it
+     */
+    public VehiclesHandler(VehicleRepository vehicleRepository, UserRepository userRepository, AppConfig appConfig,
+                           PlateEventBroadcaster eventBroadcaster, PlateQueryCache queryCache) {
         this.vehicleRepository = vehicleRepository;
         this.userRepository = userRepository;
         this.appConfig = appConfig;
+        this.eventBroadcaster = eventBroadcaster;
+        this.queryCache = queryCache;
     }
 
     /**
@@ -67,6 +117,10 @@ public class VehiclesHandler implements HttpHandler {
             case "GET" -> {
                 if (path.endsWith("/query")) {
                     handleQuery(exchange);
+                } else if (path.endsWith("/blacklist/sync")) {
+                    handleBlacklistSync(exchange);
+                } else if (path.endsWith("/stats")) {
+                    handleStats(exchange);
                 } else {
                     handleGet(exchange);
                 }
@@ -74,6 +128,10 @@ public class VehiclesHandler implements HttpHandler {
             case "POST" -> {
                 if (path.endsWith("/blacklist")) {
                     handleBlacklist(exchange);
+                } else if (path.endsWith("/blacklist/bulk")) {
+                    handleBlacklistBulk(exchange);
+                } else if (path.endsWith("/query-batch")) {
+                    handleQueryBatch(exchange);
                 } else {
                     handlePost(exchange);
                 }
@@ -115,18 +173,9 @@ public class VehiclesHandler implements HttpHandler {
             request = gson.fromJson(reader, Vehicle.class);
         }
 
-        if (request == null || isBlank(request.getUsername())) {
-            sendJson(exchange, 400, Map.of("message", "USERNAME_REQUIRED"));
-            return;
-        }
-
-        if (!isValidLicense(request.getLicenseNumber())) {
-            sendJson(exchange, 400, Map.of("message", "INVALID_LICENSE"));
-            return;
-        }
-
-        if (isBlank(request.getMake()) || isBlank(request.getModel()) || isBlank(request.getYear())) {
-            sendJson(exchange, 400, Map.of("message", "VEHICLE_DETAILS_REQUIRED"));
+        String invalid = validateRegistration(request);
+        if (invalid != null) {
+            sendJson(exchange, 400, Map.of("message", invalid));
             return;
         }
 
@@ -136,26 +185,8 @@ public class VehiclesHandler implements HttpHandler {
             return;
         }
 
-        // Optional: ensure the user exists in the repository for now
-        Optional<User> user = userRepository.findByEmail(request.getUsername());
-        if (user.isEmpty()) {
-            // For now just create a placeholder user so the vehicle can be associated
-            User placeholder = new User();
-            placeholder.setUsername(request.getUsername().toLowerCase());
-            placeholder.setEmail(request.getUsername().toLowerCase());
-            placeholder.setDisplayName(request.getUsername());
-            userRepository.createUser(placeholder);
-        }
-
-        Vehicle newVehicle = new Vehicle();
-        newVehicle.setUsername(request.getUsername().toLowerCase());
-        newVehicle.setLicenseNumber(normalizeLicense(request.getLicenseNumber()));
-        newVehicle.setMake(request.getMake());
-        newVehicle.setModel(request.getModel());
-        newVehicle.setYear(request.getYear());
-        newVehicle.setBlacklisted(false);
-        newVehicle.setCreatedAt(Instant.now().toString());
-
+        ensureOwner(userRepository, request.getUsername());
+        Vehicle newVehicle = newRegistration(request);
         vehicleRepository.addVehicle(newVehicle);
         sendJson(exchange, 201, newVehicle);
     }
@@ -188,6 +219,7 @@ public class VehiclesHandler implements HttpHandler {
         }
 
         Vehicle vehicle = updated.get();
+        eventBroadcaster.publishBlacklistChange(vehicle.getLicenseNumber(), vehicle.isBlacklisted());
         Map<String, Object> response = Map.of(
                 "licenseNumber", vehicle.getLicenseNumber(),
                 "blacklisted", vehicle.isBlacklisted()
@@ -195,6 +227,84 @@ public class VehiclesHandler implements HttpHandler {
         sendJson(exchange, 200, response);
     }
 
+    /**
+     * Applies a police hotlist in one repository operation. The body is
+     * {@code {"username": admin, "replace": true, "blacklisted": [...]}} for a full list, or
+     * {@code {"username": admin, "blacklisted": [...], "cleared": [...]}} for a diff. The plate
+     * lists are read as a stream, the update publishes a single blacklist version, and the
+     * response reports the changed plate counts and the plates without a registered vehicle. Only
+     * the configured admin account may invoke this operation.
+     */
+    private void handleBlacklistBulk(HttpExchange exchange) throws IOException {
+        int maxPlates = appConfig.getHotlistMaxPlates();
+        String username = null;
+        boolean replace = false;
+        List<String> blacklisted = new ArrayList<>();
+        List<String> cleared = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken token = reader.peek();
+                if ("username".equals(name) && token == JsonToken.STRING) {
+                    username = reader.nextString();
+                } else if ("replace".equals(name) && token == JsonToken.BOOLEAN) {
+                    replace = reader.nextBoolean();
+                } else if ("blacklisted".equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                    if (!readPlates(reader, blacklisted, maxPlates - cleared.size())) {
+                        sendJson(exchange, 400, Map.of("success", false, "message", "TOO_MANY_PLATES"));
+                        return;
+                    }
+                } else if ("cleared".equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                    if (!readPlates(reader, cleared, maxPlates - blacklisted.size())) {
+                        sendJson(exchange, 400, Map.of("success", false, "message", "TOO_MANY_PLATES"));
+                        return;
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException e) {
+            sendJson(exchange, 400, Map.of("success", false, "message", "INVALID_REQUEST"));
+            return;
+        }
+
+        if (isBlank(username)) {
+            sendJson(exchange, 400, Map.of("success", false, "message", "USERNAME_REQUIRED"));
+            return;
+        }
+        if (!isAdminUser(username)) {
+            sendJson(exchange, 403, Map.of("success", false, "message", "ADMIN_ONLY"));
+            return;
+        }
+
+        BlacklistUpdate update = vehicleRepository.updateBlacklist(blacklisted, cleared, replace);
+        eventBroadcaster.publishBlacklistBulkChange(update);
+        sendJson(exchange, 200, update);
+    }
+
+    /**
+     * Reads a JSON array of plates, skipping non-string entries.
+     *
+     * @return {@code false} if the array holds more than {@code limit} plates
+     */
+    private static boolean readPlates(JsonReader reader, List<String> plates, int limit) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.STRING) {
+                reader.skipValue();
+                continue;
+            }
+            if (plates.size() >= limit) {
+                return false;
+            }
+            plates.add(reader.nextString());
+        }
+        reader.endArray();
+        return true;
+    }
+
     /**
      * Deletes a vehicle registration. Admin requests remove by license globally; regular users can
      * only delete their own vehicles.
@@ -234,7 +344,8 @@ public class VehiclesHandler implements HttpHandler {
 
     /**
      * Queries whether a license plate exists in the system and returns its blacklist status without
-     * requiring authentication.
+     * requiring authentication. With a {@link PlateQueryCache}, a cached body is written as is, and
+     * a freshly serialized one is cached for the next query of the plate.
      */
     private void handleQuery(HttpExchange exchange) throws IOException {
         String license = getQueryParam(exchange.getRequestURI(), "license");
@@ -244,28 +355,294 @@ public class VehiclesHandler implements HttpHandler {
         }
 
         String normalizedLicense = normalizeLicense(license);
+        if (acceptsBinary(exchange)) {
+            Optional<Vehicle> match = vehicleRepository.findByPlate(normalizedLicense);
+            boolean blacklisted = match.isPresent() && match.get().isBlacklisted();
+            String plate = match.map(Vehicle::getLicenseNumber).orElse(normalizedLicense);
+            if (blacklisted) {
+                eventBroadcaster.publishBlacklistHit(plate, "query");
+            }
+            try (BufferPool.Buffer bytes = BufferPool.shared().buffer()) {
+                DataOutputStream out = new DataOutputStream(bytes);
+                PlateBinaryFormat.writeHeader(out, PlateBinaryFormat.QUERY_RESULT);
+                PlateBinaryFormat.writeResult(out, plate, match.isPresent(), blacklisted);
+                sendBinary(exchange, bytes);
+            }
+            return;
+        }
+        if (queryCache != null) {
+            PlateQueryCache.Entry cached = queryCache.get(normalizedLicense);
+            if (cached != null) {
+                if (cached.isBlacklisted()) {
+                    eventBroadcaster.publishBlacklistHit(normalizedLicense, "query");
+                }
+                byte[] body = cached.getBody();
+                sendJsonBytes(exchange, 200, body, body.length);
+                return;
+            }
+        }
+        long stamp = queryCache == null ? 0 : queryCache.stamp();
+
         Optional<Vehicle> match = vehicleRepository.findByPlate(normalizedLicense);
+        Map<String, Object> response;
+        boolean blacklisted = false;
         if (match.isEmpty()) {
-            sendJson(exchange, 200, Map.of(
+            response = Map.of(
                     "success", true,
                     "found", false,
                     "licenseNumber", normalizedLicense,
                     "blacklisted", false
-            ));
+            );
+        } else {
+            Vehicle vehicle = match.get();
+            blacklisted = vehicle.isBlacklisted();
+            response = new java.util.HashMap<>();
+            response.put("success", true);
+            response.put("found", true);
+            response.put("licenseNumber", vehicle.getLicenseNumber());
+            response.put("blacklisted", blacklisted);
+            if (blacklisted) {
+                eventBroadcaster.publishBlacklistHit(vehicle.getLicenseNumber(), "query");
+            }
+        }
+
+        try (BufferPool.Buffer body = BufferPool.shared().json(gson, response)) {
+            if (queryCache != null) {
+                queryCache.put(normalizedLicense, stamp, body.toByteArray(), blacklisted);
+            }
+            sendJsonBytes(exchange, 200, body.array(), body.length());
+        }
+    }
+
+    /**
+     * Resolves many plates in one request. The body is {@code {"plates": ["ABC123", ...]}}, or a
+     * {@link PlateBinaryFormat} batch request; plates are normalized and de-duplicated in request
+     * order, resolved with a single {@link VehicleRepository#findByPlates(java.util.Collection)}
+     * pass, and the per-plate results are streamed back as they are written rather than built up
+     * as one response object, unless the client accepts the binary encoding.
+     */
+    private void handleQueryBatch(HttpExchange exchange) throws IOException {
+        int maxPlates = appConfig.getBatchQueryMaxPlates();
+        Set<String> plates = new LinkedHashSet<>();
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String error;
+        try {
+            error = contentType != null && contentType.contains(PlateBinaryFormat.MEDIA_TYPE)
+                    ? readBinaryPlates(exchange, plates, maxPlates)
+                    : readJsonPlates(exchange, plates, maxPlates);
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            error = "INVALID_REQUEST";
+        }
+        if (error != null) {
+            sendJson(exchange, 400, Map.of("success", false, "message", error));
             return;
         }
 
-        Vehicle vehicle = match.get();
-        Map<String, Object> response = new java.util.HashMap<>();
-        response.put("success", true);
-        response.put("found", true);
-        response.put("licenseNumber", vehicle.getLicenseNumber());
-        response.put("blacklisted", vehicle.isBlacklisted());
+        if (plates.isEmpty()) {
+            sendJson(exchange, 400, Map.of("success", false, "message", "PLATES_REQUIRED"));
+            return;
+        }
 
-        sendJson(exchange, 200, response);
+        Map<String, Vehicle> matches = vehicleRepository.findByPlates(plates);
+        if (acceptsBinary(exchange)) {
+            try (BufferPool.Buffer bytes = BufferPool.shared().buffer()) {
+                DataOutputStream out = new DataOutputStream(bytes);
+                PlateBinaryFormat.writeHeader(out, PlateBinaryFormat.BATCH_RESULTS);
+                out.writeInt(plates.size());
+                for (String plate : plates) {
+                    Vehicle match = matches.get(plate);
+                    PlateBinaryFormat.writeResult(out, plate, match != null, match != null && match.isBlacklisted());
+                }
+                sendBinary(exchange, bytes);
+            }
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)))) {
+            writer.beginObject();
+            writer.name("success").value(true);
+            writer.name("count").value(plates.size());
+            writer.name("results").beginArray();
+            for (String plate : plates) {
+                Vehicle match = matches.get(plate);
+                writer.beginObject();
+                writer.name("licenseNumber").value(plate);
+                writer.name("found").value(match != null);
+                writer.name("blacklisted").value(match != null && match.isBlacklisted());
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+
+    /**
+     * Collects the plates of a JSON batch request.
+     *
+     * @return error code for the response, or {@code null} if the plates were read
+     */
+    private String readJsonPlates(HttpExchange exchange, Set<String> plates, int maxPlates) throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"plates".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() != JsonToken.STRING) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    String plate = normalizeLicense(reader.nextString());
+                    if (!isBlank(plate)) {
+                        plates.add(plate);
+                    }
+                    if (plates.size() > maxPlates) {
+                        return "TOO_MANY_PLATES";
+                    }
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        return null;
+    }
+
+    /**
+     * Collects the plates of a {@link PlateBinaryFormat} batch request.
+     *
+     * @return error code for the response, or {@code null} if the plates were read
+     */
+    private String readBinaryPlates(HttpExchange exchange, Set<String> plates, int maxPlates) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(exchange.getRequestBody()))) {
+            if (PlateBinaryFormat.readHeader(in) != PlateBinaryFormat.BATCH_REQUEST) {
+                return "INVALID_REQUEST";
+            }
+            int count = in.readInt();
+            if (count < 0) {
+                return "INVALID_REQUEST";
+            }
+            for (int i = 0; i < count; i++) {
+                String plate = normalizeLicense(PlateBinaryFormat.readPlate(in));
+                if (!isBlank(plate)) {
+                    plates.add(plate);
+                }
+                if (plates.size() > maxPlates) {
+                    return "TOO_MANY_PLATES";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Serves blacklist synchronization for edge caches. Clients pass back the {@code log} and
+     * {@code since} values of their previous response and receive either the delta since then or,
+     * on first contact or after falling out of the retention window, a full snapshot.
+     */
+    private void handleBlacklistSync(HttpExchange exchange) throws IOException {
+        String logId = getQueryParam(exchange.getRequestURI(), "log");
+        String since = getQueryParam(exchange.getRequestURI(), "since");
+        long sinceVersion = -1;
+        if (!isBlank(since)) {
+            try {
+                sinceVersion = Long.parseLong(since.trim());
+            } catch (NumberFormatException e) {
+                sendJson(exchange, 400, Map.of("success", false, "message", "INVALID_VERSION"));
+                return;
+            }
+        }
+        BlacklistSync sync = vehicleRepository.getBlacklistChanges(logId, sinceVersion);
+        if (acceptsBinary(exchange)) {
+            try (BufferPool.Buffer bytes = BufferPool.shared().buffer()) {
+                PlateBinaryFormat.writeSync(new DataOutputStream(bytes), sync);
+                sendBinary(exchange, bytes);
+            }
+            return;
+        }
+        sendJson(exchange, 200, sync);
+    }
+
+    /**
+     * Returns registry statistics: vehicle counts in total, blacklisted, per make and per model
+     * year. Only the configured admin account may invoke this operation.
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        String username = getQueryParam(exchange.getRequestURI(), "username");
+        if (isBlank(username)) {
+            sendJson(exchange, 400, Map.of("success", false, "message", "USERNAME_REQUIRED"));
+            return;
+        }
+        if (!isAdminUser(username)) {
+            sendJson(exchange, 403, Map.of("success", false, "message", "ADMIN_ONLY"));
+            return;
+        }
+        VehicleStats stats = vehicleRepository.getStatistics();
+        sendJson(exchange, 200, stats);
     }
 
-    private boolean isValidLicense(String licenseNumber) {
+    /**
+     * Checks a registration request against the rules for new vehicles, without looking at
+     * existing registrations.
+     *
+     * @param request requested vehicle
+     * @return error code for the response, or {@code null} if the request is valid
+     */
+    static String validateRegistration(Vehicle request) {
+        if (request == null || isBlank(request.getUsername())) {
+            return "USERNAME_REQUIRED";
+        }
+        if (!isValidLicense(request.getLicenseNumber())) {
+            return "INVALID_LICENSE";
+        }
+        if (isBlank(request.getMake()) || isBlank(request.getModel()) || isBlank(request.getYear())) {
+            return "VEHICLE_DETAILS_REQUIRED";
+        }
+        return null;
+    }
+
+    /**
+     * Builds the vehicle stored for a validated registration request: owner lowercased, plate
+     * normalized, not blacklisted and stamped with the current time.
+     *
+     * @param request validated registration request
+     * @return vehicle to store
+     */
+    static Vehicle newRegistration(Vehicle request) {
+        Vehicle newVehicle = new Vehicle();
+        newVehicle.setUsername(request.getUsername().toLowerCase());
+        newVehicle.setLicenseNumber(normalizeLicense(request.getLicenseNumber()));
+        newVehicle.setMake(request.getMake());
+        newVehicle.setModel(request.getModel());
+        newVehicle.setYear(request.getYear());
+        newVehicle.setBlacklisted(false);
+        newVehicle.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS).toString());
+        return newVehicle;
+    }
+
+    /**
+     * Creates a placeholder account for a vehicle owner that has not registered yet, so the
+     * vehicle can be associated with it.
+     *
+     * @param userRepository repository holding accounts
+     * @param username       owner username/email
+     */
+    static void ensureOwner(UserRepository userRepository, String username) {
+        Optional<User> user = userRepository.findByEmail(username);
+        if (user.isEmpty()) {
+            User placeholder = new User();
+            placeholder.setUsername(username.toLowerCase());
+            placeholder.setEmail(username.toLowerCase());
+            placeholder.setDisplayName(username);
+            userRepository.createUser(placeholder);
+        }
+    }
+
+    private static boolean isValidLicense(String licenseNumber) {
         String trimmed = normalizeLicense(licenseNumber);
         if (isBlank(trimmed)) {
             return false;
@@ -273,7 +650,7 @@ public class VehiclesHandler implements HttpHandler {
         return trimmed.length() >= 1 && trimmed.length() <= 7 && trimmed.matches("[A-Z0-9-]+");
     }
 
-    private String normalizeLicense(String licenseNumber) {
+    static String normalizeLicense(String licenseNumber) {
         if (licenseNumber == null) {
             return null;
         }
@@ -294,7 +671,7 @@ public class VehiclesHandler implements HttpHandler {
         return null;
     }
 
-    private boolean isBlank(String value) {
+    private static boolean isBlank(String value) {
         return value == null || value.isBlank();
     }
 
@@ -310,11 +687,32 @@ public class VehiclesHandler implements HttpHandler {
     }
 
     private void sendJson(HttpExchange exchange, int statusCode, Object body) throws IOException {
-        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        try (BufferPool.Buffer bytes = BufferPool.shared().json(gson, body)) {
+            sendJsonBytes(exchange, statusCode, bytes.array(), bytes.length());
+        }
+    }
+
+    /**
+     * Indicates whether the client asked for the {@link PlateBinaryFormat} encoding.
+     */
+    private static boolean acceptsBinary(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        return accept != null && accept.contains(PlateBinaryFormat.MEDIA_TYPE);
+    }
+
+    private void sendBinary(HttpExchange exchange, BufferPool.Buffer bytes) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", PlateBinaryFormat.MEDIA_TYPE);
+        exchange.sendResponseHeaders(200, bytes.length());
+        try (OutputStream os = exchange.getResponseBody()) {
+            bytes.writeTo(os);
+        }
+    }
+
+    private void sendJsonBytes(HttpExchange exchange, int statusCode, byte[] bytes, int length) throws IOException {
         exchange.getResponseHeaders().add("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
+        exchange.sendResponseHeaders(statusCode, length);
         try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+            os.write(bytes, 0, length);
         }
     }
 }
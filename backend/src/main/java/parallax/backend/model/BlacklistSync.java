@@ -0,0 +1,124 @@
+package parallax.backend.model;
+
+import java.util.List;
+
+/**
+ * Response payload for blacklist synchronization by edge caches.
+ * <p>
+ * A snapshot ({@code snapshot == true}) lists every blacklisted plate in {@code plates}; a delta
+ * lists only the plates whose state changed since the requested version in {@code added} and
+ * {@code removed}. In both cases {@code logId} and {@code version} are what the client should send
+ * back on its next request.
+ * </p>
+ */
+public class BlacklistSync {
+    private String logId;
+    private long version;
+    private boolean snapshot;
+    private List<String> plates;
+    private List<String> added;
+    private List<String> removed;
+
+    public BlacklistSync() {
+    }
+
+    BlacklistSync(String logId, long version, boolean snapshot, List<String> plates, List<String> added,
+                  List<String> removed) {
+        this.logId = logId;
+        this.version = version;
+        this.snapshot = snapshot;
+        this.plates = plates;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    /**
+     * Creates a full snapshot of the blacklist.
+     *
+     * @param logId   identifier of the change log the version belongs to
+     * @param version change log version the snapshot is at least as new as
+     * @param plates  every blacklisted plate
+     * @return snapshot payload
+     */
+    public static BlacklistSync snapshot(String logId, long version, List<String> plates) {
+        BlacklistSync sync = new BlacklistSync();
+        sync.logId = logId;
+        sync.version = version;
+        sync.snapshot = true;
+        sync.plates = plates;
+        return sync;
+    }
+
+    /**
+     * Creates a delta relative to a previously applied version.
+     *
+     * @param logId   identifier of the change log the version belongs to
+     * @param version change log version after applying the delta
+     * @param added   plates that became blacklisted
+     * @param removed plates that are no longer blacklisted
+     * @return delta payload
+     */
+    public static BlacklistSync delta(String logId, long version, List<String> added, List<String> removed) {
+        BlacklistSync sync = new BlacklistSync();
+        sync.logId = logId;
+        sync.version = version;
+        sync.snapshot = false;
+        sync.added = added;
+        sync.removed = removed;
+        return sync;
+    }
+
+    /**
+     * Returns the identifier of the change log this payload was produced from.
+     *
+     * @return log identifier
+     */
+    public String getLogId() {
+        return logId;
+    }
+
+    /**
+     * Returns the version the client is at after applying this payload.
+     *
+     * @return change log version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Indicates whether this payload is a full snapshot rather than a delta.
+     *
+     * @return {@code true} for a snapshot
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns every blacklisted plate; only set on snapshots.
+     *
+     * @return blacklisted plates or {@code null} for a delta
+     */
+    public List<String> getPlates() {
+        return plates;
+    }
+
+    /**
+     * Returns plates that became blacklisted; only set on deltas.
+     *
+     * @return newly blacklisted plates or {@code null} for a snapshot
+     */
+    public List<String> getAdded() {
+        return added;
+    }
+
+    /**
+     * Returns plates that are no longer blacklisted; only set on deltas.
+     *
+     * @return plates removed from the blacklist or {@code null} for a snapshot
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+}
@@ -0,0 +1,86 @@
+package parallax.backend.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk blacklist update.
+ * <p>
+ * {@code listed} and {@code unlisted} count the plates whose blacklist state actually changed;
+ * plates that already had the requested state are not counted. {@code unmatched} lists requested
+ * plates that no vehicle is registered under. All changes are published under the single change
+ * log {@code version}, which edge caches can pass back to the sync endpoint together with
+ * {@code logId}.
+ * </p>
+ */
+public class BlacklistUpdate {
+    private String logId;
+    private long version;
+    private int listed;
+    private int unlisted;
+    private List<String> unmatched;
+
+    public BlacklistUpdate() {
+    }
+
+    /**
+     * Creates the outcome of a bulk update.
+     *
+     * @param logId     identifier of the change log the version belongs to
+     * @param version   change log version after the update
+     * @param listed    plates that became blacklisted
+     * @param unlisted  plates that are no longer blacklisted
+     * @param unmatched requested plates without a registered vehicle
+     */
+    public BlacklistUpdate(String logId, long version, int listed, int unlisted, List<String> unmatched) {
+        this.logId = logId;
+        this.version = version;
+        this.listed = listed;
+        this.unlisted = unlisted;
+        this.unmatched = unmatched;
+    }
+
+    /**
+     * Returns the identifier of the change log the version belongs to.
+     *
+     * @return log identifier
+     */
+    public String getLogId() {
+        return logId;
+    }
+
+    /**
+     * Returns the change log version that includes the update.
+     *
+     * @return change log version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns how many plates became blacklisted.
+     *
+     * @return newly blacklisted plates
+     */
+    public int getListed() {
+        return listed;
+    }
+
+    /**
+     * Returns how many plates are no longer blacklisted.
+     *
+     * @return cleared plates
+     */
+    public int getUnlisted() {
+        return unlisted;
+    }
+
+    /**
+     * Returns the requested plates that no vehicle is registered under.
+     *
+     * @return unmatched plates
+     */
+    public List<String> getUnmatched() {
+        return unmatched;
+    }
+}
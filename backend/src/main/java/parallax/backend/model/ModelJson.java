@@ -0,0 +1,561 @@
+package parallax.backend.model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared {@link Gson} configuration with hand-written streaming adapters for the model classes.
+ * <p>
+ * The adapters produce and accept the same JSON as Gson's reflective adapter: fields are written
+ * in declaration order, subclass fields first, {@code null} fields are omitted, transient fields
+ * are skipped, unknown properties are ignored and a JSON {@code null} leaves a primitive field at
+ * its default. They only avoid the reflective field access and per-field bookkeeping, so every
+ * field added to a model class must also be added to its adapter here.
+ * </p>
+ */
+public final class ModelJson {
+    private static final Gson GSON = new GsonBuilder().registerTypeAdapterFactory(new Factory()).create();
+
+    private ModelJson() {
+    }
+
+    /**
+     * Returns the shared Gson instance; it is thread-safe and also handles non-model types.
+     *
+     * @return shared Gson
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    private static final class Factory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            Class<? super T> raw = type.getRawType();
+            TypeAdapter<?> adapter;
+            if (raw == Vehicle.class) {
+                adapter = new VehicleAdapter();
+            } else if (raw == VehicleWithOwner.class) {
+                adapter = new VehicleWithOwnerAdapter();
+            } else if (raw == User.class) {
+                adapter = new UserAdapter();
+            } else if (raw == LoginRequest.class) {
+                adapter = new LoginRequestAdapter();
+            } else if (raw == LoginResponse.class) {
+                adapter = new LoginResponseAdapter();
+            } else if (raw == RegisterRequest.class) {
+                adapter = new RegisterRequestAdapter();
+            } else if (raw == RegisterResponse.class) {
+                adapter = new RegisterResponseAdapter(gson.getAdapter(User.class));
+            } else if (raw == BlacklistSync.class) {
+                adapter = new BlacklistSyncAdapter();
+            } else if (raw == BlacklistUpdate.class) {
+                adapter = new BlacklistUpdateAdapter();
+            } else if (raw == VehicleStats.class) {
+                adapter = new VehicleStatsAdapter();
+            } else {
+                return null;
+            }
+            return (TypeAdapter<T>) adapter.nullSafe();
+        }
+    }
+
+    private static final class VehicleAdapter extends TypeAdapter<Vehicle> {
+        @Override
+        public void write(JsonWriter out, Vehicle value) throws IOException {
+            out.beginObject();
+            writeVehicleFields(out, value);
+            out.endObject();
+        }
+
+        @Override
+        public Vehicle read(JsonReader in) throws IOException {
+            Vehicle vehicle = new Vehicle();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!readVehicleField(in, in.nextName(), vehicle)) {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return vehicle;
+        }
+    }
+
+    private static final class VehicleWithOwnerAdapter extends TypeAdapter<VehicleWithOwner> {
+        @Override
+        public void write(JsonWriter out, VehicleWithOwner value) throws IOException {
+            out.beginObject();
+            writeString(out, "ownerUsername", value.getOwnerUsername());
+            writeString(out, "ownerEmail", value.getOwnerEmail());
+            writeString(out, "ownerPhone", value.getOwnerPhone());
+            writeString(out, "ownerPhoneCountry", value.getOwnerPhoneCountry());
+            writeVehicleFields(out, value);
+            out.endObject();
+        }
+
+        @Override
+        public VehicleWithOwner read(JsonReader in) throws IOException {
+            VehicleWithOwner vehicle = new VehicleWithOwner();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                switch (name) {
+                    case "ownerUsername" -> vehicle.setOwnerUsername(readString(in));
+                    case "ownerEmail" -> vehicle.setOwnerEmail(readString(in));
+                    case "ownerPhone" -> vehicle.setOwnerPhone(readString(in));
+                    case "ownerPhoneCountry" -> vehicle.setOwnerPhoneCountry(readString(in));
+                    default -> {
+                        if (!readVehicleField(in, name, vehicle)) {
+                            in.skipValue();
+                        }
+                    }
+                }
+            }
+            in.endObject();
+            return vehicle;
+        }
+    }
+
+    private static void writeVehicleFields(JsonWriter out, Vehicle value) throws IOException {
+        writeString(out, "username", value.getUsername());
+        writeString(out, "licenseNumber", value.getLicenseNumber());
+        writeString(out, "make", value.getMake());
+        writeString(out, "model", value.getModel());
+        writeString(out, "year", value.getYear());
+        out.name("blacklisted").value(value.isBlacklisted());
+        writeString(out, "createdAt", value.getCreatedAt());
+    }
+
+    private static boolean readVehicleField(JsonReader in, String name, Vehicle vehicle) throws IOException {
+        switch (name) {
+            case "username" -> vehicle.setUsername(readString(in));
+            case "licenseNumber" -> vehicle.setLicenseNumber(readString(in));
+            case "make" -> vehicle.setMake(readString(in));
+            case "model" -> vehicle.setModel(readString(in));
+            case "year" -> vehicle.setYear(readString(in));
+            case "blacklisted" -> vehicle.setBlacklisted(readBoolean(in, vehicle.isBlacklisted()));
+            case "createdAt" -> vehicle.setCreatedAt(readString(in));
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class UserAdapter extends TypeAdapter<User> {
+        @Override
+        public void write(JsonWriter out, User value) throws IOException {
+            out.beginObject();
+            out.name("id").value(value.getId());
+            writeString(out, "username", value.getUsername());
+            writeString(out, "email", value.getEmail());
+            writeString(out, "displayName", value.getDisplayName());
+            writeString(out, "password", value.getPassword());
+            writeString(out, "firstName", value.getFirstName());
+            writeString(out, "lastName", value.getLastName());
+            writeString(out, "country", value.getCountry());
+            writeString(out, "birthMonth", value.getBirthMonth());
+            writeString(out, "birthDay", value.getBirthDay());
+            writeString(out, "birthYear", value.getBirthYear());
+            writeString(out, "phoneCountry", value.getPhoneCountry());
+            writeString(out, "phone", value.getPhone());
+            writeString(out, "contactMethod", value.getContactMethod());
+            writeString(out, "createdAt", value.getCreatedAt());
+            out.endObject();
+        }
+
+        @Override
+        public User read(JsonReader in) throws IOException {
+            User user = new User();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id" -> user.setId(readLong(in, user.getId()));
+                    case "username" -> user.setUsername(readString(in));
+                    case "email" -> user.setEmail(readString(in));
+                    case "displayName" -> user.setDisplayName(readString(in));
+                    case "password" -> user.setPassword(readString(in));
+                    case "firstName" -> user.setFirstName(readString(in));
+                    case "lastName" -> user.setLastName(readString(in));
+                    case "country" -> user.setCountry(readString(in));
+                    case "birthMonth" -> user.setBirthMonth(readString(in));
+                    case "birthDay" -> user.setBirthDay(readString(in));
+                    case "birthYear" -> user.setBirthYear(readString(in));
+                    case "phoneCountry" -> user.setPhoneCountry(readString(in));
+                    case "phone" -> user.setPhone(readString(in));
+                    case "contactMethod" -> user.setContactMethod(readString(in));
+                    case "createdAt" -> user.setCreatedAt(readString(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return user;
+        }
+    }
+
+    private static final class LoginRequestAdapter extends TypeAdapter<LoginRequest> {
+        @Override
+        public void write(JsonWriter out, LoginRequest value) throws IOException {
+            out.beginObject();
+            writeString(out, "identifier", value.getIdentifier());
+            writeString(out, "password", value.getPassword());
+            out.endObject();
+        }
+
+        @Override
+        public LoginRequest read(JsonReader in) throws IOException {
+            LoginRequest request = new LoginRequest();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "identifier" -> request.setIdentifier(readString(in));
+                    case "password" -> request.setPassword(readString(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return request;
+        }
+    }
+
+    private static final class LoginResponseAdapter extends TypeAdapter<LoginResponse> {
+        @Override
+        public void write(JsonWriter out, LoginResponse value) throws IOException {
+            out.beginObject();
+            out.name("success").value(value.isSuccess());
+            writeString(out, "message", value.getMessage());
+            writeString(out, "username", value.getUsername());
+            writeString(out, "displayName", value.getDisplayName());
+            out.name("admin").value(value.isAdmin());
+            out.endObject();
+        }
+
+        @Override
+        public LoginResponse read(JsonReader in) throws IOException {
+            boolean success = false;
+            String message = null;
+            String username = null;
+            String displayName = null;
+            boolean admin = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "success" -> success = readBoolean(in, success);
+                    case "message" -> message = readString(in);
+                    case "username" -> username = readString(in);
+                    case "displayName" -> displayName = readString(in);
+                    case "admin" -> admin = readBoolean(in, admin);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            LoginResponse response = new LoginResponse(success, message, username, displayName);
+            response.setAdmin(admin);
+            return response;
+        }
+    }
+
+    private static final class RegisterRequestAdapter extends TypeAdapter<RegisterRequest> {
+        @Override
+        public void write(JsonWriter out, RegisterRequest value) throws IOException {
+            out.beginObject();
+            writeString(out, "email", value.getEmail());
+            writeString(out, "password", value.getPassword());
+            writeString(out, "firstName", value.getFirstName());
+            writeString(out, "lastName", value.getLastName());
+            writeString(out, "country", value.getCountry());
+            writeString(out, "birthMonth", value.getBirthMonth());
+            writeString(out, "birthDay", value.getBirthDay());
+            writeString(out, "birthYear", value.getBirthYear());
+            writeString(out, "phoneCountry", value.getPhoneCountry());
+            writeString(out, "phone", value.getPhone());
+            writeString(out, "contactMethod", value.getContactMethod());
+            out.endObject();
+        }
+
+        @Override
+        public RegisterRequest read(JsonReader in) throws IOException {
+            RegisterRequest request = new RegisterRequest();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "email" -> request.setEmail(readString(in));
+                    case "password" -> request.setPassword(readString(in));
+                    case "firstName" -> request.setFirstName(readString(in));
+                    case "lastName" -> request.setLastName(readString(in));
+                    case "country" -> request.setCountry(readString(in));
+                    case "birthMonth" -> request.setBirthMonth(readString(in));
+                    case "birthDay" -> request.setBirthDay(readString(in));
+                    case "birthYear" -> request.setBirthYear(readString(in));
+                    case "phoneCountry" -> request.setPhoneCountry(readString(in));
+                    case "phone" -> request.setPhone(readString(in));
+                    case "contactMethod" -> request.setContactMethod(readString(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return request;
+        }
+    }
+
+    private static final class RegisterResponseAdapter extends TypeAdapter<RegisterResponse> {
+        private final TypeAdapter<User> users;
+
+        private RegisterResponseAdapter(TypeAdapter<User> users) {
+            this.users = users;
+        }
+
+        @Override
+        public void write(JsonWriter out, RegisterResponse value) throws IOException {
+            out.beginObject();
+            out.name("success").value(value.isSuccess());
+            writeString(out, "message", value.getMessage());
+            if (value.getUser() != null) {
+                out.name("user");
+                users.write(out, value.getUser());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public RegisterResponse read(JsonReader in) throws IOException {
+            RegisterResponse response = new RegisterResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "success" -> response.setSuccess(readBoolean(in, response.isSuccess()));
+                    case "message" -> response.setMessage(readString(in));
+                    case "user" -> response.setUser(users.read(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return response;
+        }
+    }
+
+    private static final class BlacklistSyncAdapter extends TypeAdapter<BlacklistSync> {
+        @Override
+        public void write(JsonWriter out, BlacklistSync value) throws IOException {
+            out.beginObject();
+            writeString(out, "logId", value.getLogId());
+            out.name("version").value(value.getVersion());
+            out.name("snapshot").value(value.isSnapshot());
+            writeStrings(out, "plates", value.getPlates());
+            writeStrings(out, "added", value.getAdded());
+            writeStrings(out, "removed", value.getRemoved());
+            out.endObject();
+        }
+
+        @Override
+        public BlacklistSync read(JsonReader in) throws IOException {
+            String logId = null;
+            long version = 0;
+            boolean snapshot = false;
+            List<String> plates = null;
+            List<String> added = null;
+            List<String> removed = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "logId" -> logId = readString(in);
+                    case "version" -> version = readLong(in, version);
+                    case "snapshot" -> snapshot = readBoolean(in, snapshot);
+                    case "plates" -> plates = readStrings(in);
+                    case "added" -> added = readStrings(in);
+                    case "removed" -> removed = readStrings(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new BlacklistSync(logId, version, snapshot, plates, added, removed);
+        }
+    }
+
+    private static final class BlacklistUpdateAdapter extends TypeAdapter<BlacklistUpdate> {
+        @Override
+        public void write(JsonWriter out, BlacklistUpdate value) throws IOException {
+            out.beginObject();
+            writeString(out, "logId", value.getLogId());
+            out.name("version").value(value.getVersion());
+            out.name("listed").value(value.getListed());
+            out.name("unlisted").value(value.getUnlisted());
+            writeStrings(out, "unmatched", value.getUnmatched());
+            out.endObject();
+        }
+
+        @Override
+        public BlacklistUpdate read(JsonReader in) throws IOException {
+            String logId = null;
+            long version = 0;
+            int listed = 0;
+            int unlisted = 0;
+            List<String> unmatched = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "logId" -> logId = readString(in);
+                    case "version" -> version = readLong(in, version);
+                    case "listed" -> listed = readInt(in, listed);
+                    case "unlisted" -> unlisted = readInt(in, unlisted);
+                    case "unmatched" -> unmatched = readStrings(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new BlacklistUpdate(logId, version, listed, unlisted, unmatched);
+        }
+    }
+
+    private static final class VehicleStatsAdapter extends TypeAdapter<VehicleStats> {
+        @Override
+        public void write(JsonWriter out, VehicleStats value) throws IOException {
+            out.beginObject();
+            out.name("total").value(value.getTotal());
+            out.name("blacklisted").value(value.getBlacklisted());
+            writeCounts(out, "makes", value.getMakes());
+            writeCounts(out, "years", value.getYears());
+            out.endObject();
+        }
+
+        @Override
+        public VehicleStats read(JsonReader in) throws IOException {
+            long total = 0;
+            long blacklisted = 0;
+            Map<String, Long> makes = null;
+            Map<String, Long> years = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "total" -> total = readLong(in, total);
+                    case "blacklisted" -> blacklisted = readLong(in, blacklisted);
+                    case "makes" -> makes = readCounts(in);
+                    case "years" -> years = readCounts(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new VehicleStats(total, blacklisted, makes, years);
+        }
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    private static void writeStrings(JsonWriter out, String name, List<String> values) throws IOException {
+        if (values == null) {
+            return;
+        }
+        out.name(name).beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    private static void writeCounts(JsonWriter out, String name, Map<String, Long> counts) throws IOException {
+        if (counts == null) {
+            return;
+        }
+        out.name(name).beginObject();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            out.name(String.valueOf(entry.getKey())).value(entry.getValue());
+        }
+        out.endObject();
+    }
+
+    /**
+     * Reads a string the way Gson's built-in adapter does: numbers are taken as their text and
+     * booleans as {@code "true"} or {@code "false"}.
+     */
+    private static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    private static boolean readBoolean(JsonReader in, boolean current) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    private static long readLong(JsonReader in, long current) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        return in.nextLong();
+    }
+
+    private static int readInt(JsonReader in, int current) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        return in.nextInt();
+    }
+
+    private static List<String> readStrings(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(readString(in));
+        }
+        in.endArray();
+        return values;
+    }
+
+    private static Map<String, Long> readCounts(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                counts.put(key, null);
+            } else {
+                counts.put(key, in.nextLong());
+            }
+        }
+        in.endObject();
+        return counts;
+    }
+}
@@ -0,0 +1,101 @@
+package parallax.backend.model;
+
+/**
+ * Packing of plates into {@code long} keys, shared by the binary plate formats and the columnar
+ * vehicle store so that both agree on every key.
+ * <p>
+ * A key holds up to {@value #MAX_LENGTH} characters from {@code 0-9A-Z-} as base-38 digits, most
+ * significant first. Digit {@code 0} is unused, so plates of different lengths never share a key
+ * and key {@code 0} stands for a plate that cannot be packed.
+ * </p>
+ */
+public final class PlateKey {
+    /**
+     * Longest plate that fits in a key.
+     */
+    public static final int MAX_LENGTH = 12;
+
+    private static final int RADIX = 38;
+    private static final long LIMIT = 9_065_737_908_494_995_456L; // RADIX^MAX_LENGTH
+
+    private PlateKey() {
+    }
+
+    /**
+     * Packs a plate into its key.
+     *
+     * @param plate plate to pack
+     * @return key, or {@code 0} if the plate is empty, too long or has other characters
+     */
+    public static long pack(String plate) {
+        if (plate == null || plate.isEmpty() || plate.length() > MAX_LENGTH) {
+            return 0;
+        }
+        long packed = 0;
+        for (int i = 0; i < plate.length(); i++) {
+            char c = plate.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0' + 1;
+            } else if (c >= 'A' && c <= 'Z') {
+                digit = c - 'A' + 11;
+            } else if (c == '-') {
+                digit = 37;
+            } else {
+                return 0;
+            }
+            packed = packed * RADIX + digit;
+        }
+        return packed;
+    }
+
+    /**
+     * Indicates whether {@link #pack(String)} can produce a key: it is positive, has at most
+     * {@value #MAX_LENGTH} digits and none of them is {@code 0}. Keys read from clients should be
+     * checked before they are unpacked.
+     *
+     * @param packed key to check
+     * @return whether the key stands for a plate
+     */
+    public static boolean isValid(long packed) {
+        if (packed <= 0 || packed >= LIMIT) {
+            return false;
+        }
+        for (long rest = packed; rest > 0; rest /= RADIX) {
+            if (rest % RADIX == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Restores a plate from a non-zero key.
+     *
+     * @param packed key produced by {@link #pack(String)}
+     * @return plate
+     * @throws IllegalArgumentException if {@link #isValid(long)} rejects the key
+     */
+    public static String unpack(long packed) {
+        if (packed <= 0 || packed >= LIMIT) {
+            throw new IllegalArgumentException("Invalid plate key " + packed);
+        }
+        char[] plate = new char[MAX_LENGTH];
+        int start = plate.length;
+        for (long rest = packed; rest > 0; rest /= RADIX) {
+            int digit = (int) (rest % RADIX);
+            char c;
+            if (digit == 0) {
+                throw new IllegalArgumentException("Invalid plate key " + packed);
+            } else if (digit == 37) {
+                c = '-';
+            } else if (digit <= 10) {
+                c = (char) ('0' + digit - 1);
+            } else {
+                c = (char) ('A' + digit - 11);
+            }
+            plate[--start] = c;
+        }
+        return new String(plate, start, plate.length - start);
+    }
+}
@@ -5,10 +5,12 @@ package parallax.backend.model;
  * <p>
  * The {@code username} doubles as the canonical email identifier and is associated with profile
  * details, contact preferences, and a plaintext password (to be hashed in production). Vehicles are
- * linked to a user through this username.
+ * linked to a user through this username. The numeric {@code id} is a surrogate key assigned by the
+ * user store; unlike the username it does not change when the user changes their email.
  * </p>
  */
 public class User {
+    private long id;
     private String username;
     private String email;
     private String displayName;
@@ -42,6 +44,47 @@ public class User {
         this.password = password;
     }
 
+    /**
+     * Creates a copy of another user, e.g. to hand a stable snapshot to a background writer.
+     *
+     * @param other user to copy
+     */
+    public User(User other) {
+        this.id = other.id;
+        this.username = other.username;
+        this.email = other.email;
+        this.displayName = other.displayName;
+        this.password = other.password;
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.country = other.country;
+        this.birthMonth = other.birthMonth;
+        this.birthDay = other.birthDay;
+        this.birthYear = other.birthYear;
+        this.phoneCountry = other.phoneCountry;
+        this.phone = other.phone;
+        this.contactMethod = other.contactMethod;
+        this.createdAt = other.createdAt;
+    }
+
+    /**
+     * Returns the surrogate key assigned by the user store.
+     *
+     * @return id, or {@code 0} before the user is stored
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the surrogate key; stores assign one when a user is created without it.
+     *
+     * @param id id
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
     /**
      * Returns the canonical username/email.
      *
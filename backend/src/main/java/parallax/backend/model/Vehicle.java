@@ -2,8 +2,14 @@ package parallax.backend.model;
 
 /**
  * Represents a vehicle registered to a user, including license details and blacklist status.
+ * <p>
+ * The owner is identified by {@code username}. Vehicle stores additionally key owners by a numeric
+ * {@code ownerId} of their own, so that renaming an owner does not touch every vehicle record. The
+ * id is local to the store that assigned it and is not serialized.
+ * </p>
  */
 public class Vehicle {
+    private transient long ownerId;
     private String username;
     private String licenseNumber;
     private String make;
@@ -15,6 +21,40 @@ public class Vehicle {
     public Vehicle() {
     }
 
+    /**
+     * Creates a copy of another vehicle, e.g. to hand a stable snapshot to a background writer.
+     *
+     * @param other vehicle to copy
+     */
+    public Vehicle(Vehicle other) {
+        this.ownerId = other.ownerId;
+        this.username = other.username;
+        this.licenseNumber = other.licenseNumber;
+        this.make = other.make;
+        this.model = other.model;
+        this.year = other.year;
+        this.blacklisted = other.blacklisted;
+        this.createdAt = other.createdAt;
+    }
+
+    /**
+     * Returns the owner id assigned by the vehicle store.
+     *
+     * @return owner id, or {@code 0} when the vehicle is not stored or the store keys owners by name
+     */
+    public long getOwnerId() {
+        return ownerId;
+    }
+
+    /**
+     * Sets the owner id; vehicle stores assign it when the vehicle is stored.
+     *
+     * @param ownerId owner id
+     */
+    public void setOwnerId(long ownerId) {
+        this.ownerId = ownerId;
+    }
+
     /**
      * Returns the username of the vehicle owner.
      *
@@ -0,0 +1,72 @@
+package parallax.backend.model;
+
+import java.util.Map;
+
+/**
+ * Registry-wide vehicle counts for the admin dashboard.
+ * <p>
+ * {@code makes} and {@code years} map each make and model year to the number of vehicles
+ * registered with it, in ascending key order. Vehicles without a make or year are counted in
+ * {@code total} only.
+ * </p>
+ */
+public class VehicleStats {
+    private long total;
+    private long blacklisted;
+    private Map<String, Long> makes;
+    private Map<String, Long> years;
+
+    public VehicleStats() {
+    }
+
+    /**
+     * Creates a set of counts.
+     *
+     * @param total       registered vehicles
+     * @param blacklisted blacklisted vehicles
+     * @param makes       vehicles per make
+     * @param years       vehicles per model year
+     */
+    public VehicleStats(long total, long blacklisted, Map<String, Long> makes, Map<String, Long> years) {
+        this.total = total;
+        this.blacklisted = blacklisted;
+        this.makes = makes;
+        this.years = years;
+    }
+
+    /**
+     * Returns the number of registered vehicles.
+     *
+     * @return vehicle count
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the number of blacklisted vehicles.
+     *
+     * @return blacklisted vehicle count
+     */
+    public long getBlacklisted() {
+        return blacklisted;
+    }
+
+    /**
+     * Returns the vehicle count per make.
+     *
+     * @return counts keyed by make
+     */
+    public Map<String, Long> getMakes() {
+        return makes;
+    }
+
+    /**
+     * Returns the vehicle count per model year.
+     *
+     * @return counts keyed by year
+     */
+    public Map<String, Long> getYears() {
+        return years;
+    }
+}
@@ -0,0 +1,269 @@
+package parallax.backend.bench;
+
+import parallax.backend.db.BlacklistChangeLog;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.db.Journal;
+import parallax.backend.db.SegmentStore;
+import parallax.backend.db.SegmentedVehicleRepository;
+import parallax.backend.db.VehicleRepository;
+import parallax.backend.http.GateServer;
+import parallax.backend.http.PlateBinaryFormat;
+import parallax.backend.model.Vehicle;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for the {@link GateServer} lookup protocol.
+ * <p>
+ * Requests are sent over a few persistent connections on a fixed schedule, whether or not earlier
+ * responses have arrived, and every latency is measured from the time the request was due rather
+ * than the time it was actually written. A generator or server that falls behind therefore shows
+ * up in the percentiles instead of silently lowering the offered rate. Results from the first
+ * {@value #WARMUP_SECONDS} seconds are discarded.
+ * </p>
+ * <p>
+ * The registry holds {@value #VEHICLES} vehicles, either in a {@link SegmentedVehicleRepository},
+ * whose plate index answers each lookup in a few microseconds, or in the
+ * {@link InMemoryVehicleRepository} of the default storage mode, which scans every owner per plate
+ * and therefore needs a far lower rate. Half the requested plates are unknown.
+ * </p>
+ * <p>
+ * Arguments, all optional: lookups per second (default {@value #DEFAULT_RATE}), measured seconds
+ * (default {@value #DEFAULT_SECONDS}), connections (default {@value #DEFAULT_CONNECTIONS}), server
+ * event loops (default {@code 1}), server lookup threads (default {@value #DEFAULT_LOOKUP_THREADS})
+ * and storage, {@code segments} (default) or {@code memory}. Client and server share the machine,
+ * so the numbers are an upper bound on what the listener adds, not a network measurement.
+ * </p>
+ * Run with {@code mvn -Pbench verify -Dbench.main=parallax.backend.bench.GateLoadGenerator -Dbench.include=100000},
+ * or with {@code java} on the test classpath to pass more arguments, e.g. {@code 2000 10 4 1 4 memory}.
+ */
+public final class GateLoadGenerator {
+    private static final int DEFAULT_RATE = 100_000;
+    private static final int DEFAULT_SECONDS = 10;
+    private static final int DEFAULT_CONNECTIONS = 4;
+    private static final int DEFAULT_LOOKUP_THREADS = 4;
+    private static final int WARMUP_SECONDS = 3;
+    private static final int VEHICLES = 100_000;
+    private static final int MAX_BATCH = 4096;
+
+    private GateLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RATE;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CONNECTIONS;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        int lookupThreads = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_LOOKUP_THREADS;
+        boolean memory = args.length > 5 && "memory".equalsIgnoreCase(args[5]);
+
+        List<Vehicle> vehicles = new ArrayList<>(VEHICLES);
+        long[] keys = new long[VEHICLES * 2];
+        for (int i = 0; i < VEHICLES; i++) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setUsername("owner" + (i % 1_000) + "@example.com");
+            vehicle.setLicenseNumber(String.format("GL%06d", i));
+            vehicle.setMake("Volvo");
+            vehicle.setModel("XC60");
+            vehicle.setYear("2023");
+            vehicle.setBlacklisted(i % 100 == 0);
+            vehicles.add(vehicle);
+            keys[2 * i] = PlateBinaryFormat.packPlate(vehicle.getLicenseNumber());
+            keys[2 * i + 1] = PlateBinaryFormat.packPlate(String.format("GM%06d", i));
+        }
+        if (memory) {
+            InMemoryVehicleRepository repository = new InMemoryVehicleRepository();
+            repository.addVehicles(vehicles);
+            run(repository, "memory", keys, rate, seconds, connections, threads, lookupThreads);
+            return;
+        }
+
+        Path directory = Files.createTempDirectory("parallax-gate-bench");
+        SegmentStore store = new SegmentStore(directory, Journal.FsyncPolicy.NEVER, 0, 16L * 1024 * 1024);
+        try {
+            SegmentedVehicleRepository repository = new SegmentedVehicleRepository(store, new BlacklistChangeLog());
+            repository.addVehicles(vehicles);
+            run(repository, "segments", keys, rate, seconds, connections, threads, lookupThreads);
+        } finally {
+            store.close();
+            try (var files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static void run(VehicleRepository repository, String storage, long[] keys, int rate, int seconds,
+                            int connections, int threads, int lookupThreads) throws Exception {
+        try (GateServer server = new GateServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), threads,
+                lookupThreads, repository, null)) {
+            server.start();
+            long interval = TimeUnit.SECONDS.toNanos(1) * connections / rate;
+            int perConnection = (int) ((long) rate * (WARMUP_SECONDS + seconds) / connections);
+            long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            List<Client> clients = new ArrayList<>();
+            for (int c = 0; c < connections; c++) {
+                Client client = new Client(server.getPort(), keys, perConnection, start + c * interval / connections,
+                        interval);
+                clients.add(client);
+                client.start();
+            }
+
+            long measuredFrom = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+            long[] latencies = new long[perConnection * connections];
+            int measured = 0;
+            long maxSendLag = 0;
+            long lastReceived = 0;
+            for (Client client : clients) {
+                client.join();
+                if (client.failure != null) {
+                    throw client.failure;
+                }
+                for (int i = 0; i < perConnection; i++) {
+                    if (client.due(i) >= measuredFrom) {
+                        latencies[measured++] = client.latencies[i];
+                    }
+                }
+                maxSendLag = Math.max(maxSendLag, client.maxSendLag);
+                lastReceived = Math.max(lastReceived, client.lastReceived);
+            }
+            Arrays.sort(latencies, 0, measured);
+            double achieved = measured * 1e9 / (lastReceived - measuredFrom);
+
+            System.out.printf("%s storage: offered %,d lookups/s over %d connections, %d event loop(s), "
+                    + "%d lookup thread(s), %d s measured%n", storage, rate, connections, threads, lookupThreads, seconds);
+            System.out.printf("answered %,d lookups at %,.0f/s; sender fell behind schedule by up to %s%n",
+                    measured, achieved, micros(maxSendLag));
+            System.out.printf("latency p50 %s  p99 %s  p99.9 %s  p99.99 %s  max %s%n",
+                    micros(percentile(latencies, measured, 0.50)), micros(percentile(latencies, measured, 0.99)),
+                    micros(percentile(latencies, measured, 0.999)), micros(percentile(latencies, measured, 0.9999)),
+                    micros(latencies[measured - 1]));
+            System.out.println("server " + server.getMetrics().getLookups() + " lookups, "
+                    + server.getMetrics().getFailures() + " failures");
+        }
+    }
+
+    private static long percentile(long[] sorted, int count, double quantile) {
+        return sorted[Math.min(count - 1, (int) Math.ceil(quantile * count) - 1)];
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f us", nanos / 1e3);
+    }
+
+    /**
+     * One connection: a thread writing requests when they fall due and a thread reading the
+     * responses.
+     */
+    private static final class Client {
+        private final SocketChannel channel;
+        private final long[] keys;
+        private final int requests;
+        private final long start;
+        private final long interval;
+        private final long[] latencies;
+        private final Thread sender;
+        private final Thread receiver;
+        private volatile long maxSendLag;
+        private volatile long lastReceived;
+        private volatile Exception failure;
+
+        private Client(int port, long[] keys, int requests, long start, long interval) throws IOException {
+            this.channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            this.keys = keys;
+            this.requests = requests;
+            this.start = start;
+            this.interval = interval;
+            this.latencies = new long[requests];
+            this.sender = new Thread(this::send, "gate-load-send");
+            this.receiver = new Thread(this::receive, "gate-load-receive");
+        }
+
+        private long due(int id) {
+            return start + id * interval;
+        }
+
+        private void start() {
+            receiver.start();
+            sender.start();
+        }
+
+        private void join() throws InterruptedException, IOException {
+            sender.join();
+            receiver.join();
+            channel.close();
+        }
+
+        private void send() {
+            ByteBuffer out = ByteBuffer.allocateDirect(MAX_BATCH * GateServer.REQUEST_BYTES);
+            int next = 0;
+            long lag = 0;
+            int key = (int) (start % keys.length);
+            try {
+                while (next < requests) {
+                    long now = System.nanoTime();
+                    long wait = due(next) - now;
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                        continue;
+                    }
+                    lag = Math.max(lag, -wait);
+                    int last = (int) Math.min(requests, (now - start) / interval + 1);
+                    last = Math.min(last, next + MAX_BATCH);
+                    out.clear();
+                    for (; next < last; next++) {
+                        out.putInt(next);
+                        out.putLong(keys[key]);
+                        key = key + 1 == keys.length ? 0 : key + 1;
+                    }
+                    out.flip();
+                    while (out.hasRemaining()) {
+                        channel.write(out);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+            maxSendLag = lag;
+        }
+
+        private void receive() {
+            ByteBuffer in = ByteBuffer.allocateDirect(64 * 1024);
+            int received = 0;
+            try {
+                while (received < requests) {
+                    if (channel.read(in) < 0) {
+                        throw new IOException("Gate connection closed after " + received + " responses");
+                    }
+                    long now = System.nanoTime();
+                    in.flip();
+                    while (in.remaining() >= GateServer.RESPONSE_BYTES) {
+                        int id = in.getInt();
+                        in.getInt();
+                        latencies[id] = now - due(id);
+                        received++;
+                    }
+                    in.compact();
+                    lastReceived = now;
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package parallax.backend.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import parallax.backend.db.DataSource;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.db.SQLiteVehicleRepository;
+import parallax.backend.db.VehicleRepository;
+import parallax.backend.model.BlacklistUpdate;
+import parallax.backend.model.Vehicle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares applying a nightly hotlist with one {@code updateBlacklist} call against toggling the
+ * same plates one {@code updateBlacklistStatus} call at a time. Each invocation alternates between
+ * two hotlists that overlap by half, so every run changes the state of {@code hotlist} plates.
+ * <p>
+ * Run with {@code mvn -Pbench verify -Dbench.include=HotlistBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 4)
+@Fork(1)
+public class HotlistBenchmark {
+    @Param({"memory", "sqlite"})
+    public String storage;
+
+    @Param({"500000"})
+    public int vehicles;
+
+    @Param({"500000"})
+    public int hotlist;
+
+    private Path databaseDir;
+    private DataSource dataSource;
+    private VehicleRepository vehicleRepository;
+    private final List<List<String>> lists = new ArrayList<>();
+    private int run;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("sqlite".equals(storage)) {
+            databaseDir = Files.createTempDirectory("parallax-bench");
+            dataSource = new DataSource("jdbc:sqlite:" + databaseDir.resolve("bench.db"));
+            vehicleRepository = new SQLiteVehicleRepository(dataSource);
+        } else {
+            vehicleRepository = new InMemoryVehicleRepository();
+        }
+
+        int total = vehicles + hotlist / 2;
+        List<Vehicle> batch = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            batch.add(vehicle("owner" + (i % 1000) + "@example.com", plate(i)));
+            if (batch.size() == 10_000) {
+                vehicleRepository.addVehicles(batch);
+                batch.clear();
+            }
+        }
+        vehicleRepository.addVehicles(batch);
+        for (int offset : new int[] {0, hotlist / 2}) {
+            List<String> plates = new ArrayList<>(hotlist);
+            for (int i = 0; i < hotlist; i++) {
+                plates.add(plate(offset + i));
+            }
+            lists.add(plates);
+        }
+        vehicleRepository.updateBlacklist(lists.get(1), Collections.emptyList(), true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+        if (databaseDir != null) {
+            try (var files = Files.list(databaseDir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(databaseDir);
+        }
+    }
+
+    @Benchmark
+    public BlacklistUpdate bulkReplace() {
+        return vehicleRepository.updateBlacklist(lists.get(run++ % 2), Collections.emptyList(), true);
+    }
+
+    @Benchmark
+    public int perPlate() {
+        List<String> next = lists.get(run % 2);
+        List<String> previous = lists.get(++run % 2);
+        int updated = 0;
+        for (String plate : previous) {
+            updated += vehicleRepository.updateBlacklistStatus(plate, false).isPresent() ? 1 : 0;
+        }
+        for (String plate : next) {
+            updated += vehicleRepository.updateBlacklistStatus(plate, true).isPresent() ? 1 : 0;
+        }
+        return updated;
+    }
+
+    private static Vehicle vehicle(String username, String licenseNumber) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername(username);
+        vehicle.setLicenseNumber(licenseNumber);
+        vehicle.setMake("Toyota");
+        vehicle.setModel("Corolla");
+        vehicle.setYear("2020");
+        return vehicle;
+    }
+
+    private static String plate(long index) {
+        return "HL" + index;
+    }
+}
@@ -0,0 +1,129 @@
+package parallax.backend.bench;
+
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.Headers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import parallax.backend.config.AppConfig;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.http.BufferPool;
+import parallax.backend.http.PlateEventBroadcaster;
+import parallax.backend.http.PlateImageQueryHandler;
+import parallax.backend.http.TestHttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code POST /api/vehicles/query-image} for a multipart upload with the recognition
+ * service stubbed out, with the shared {@link BufferPool} retaining buffers ({@code poolMb > 0})
+ * and with reuse disabled.
+ * <p>
+ * Besides the throughput reported by JMH, the heap allocated per upload and the number of
+ * collections are printed after each iteration. Run with
+ * {@code mvn -Pbench verify -Dbench.include=ImageUploadBenchmark}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx512m"})
+public class ImageUploadBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final String BOUNDARY = "----ParallaxBench";
+
+    @Param({"0", "32"})
+    public int poolMb;
+
+    @Param({"262144"})
+    public int imageBytes;
+
+    private PlateImageQueryHandler handler;
+    private byte[] upload;
+    private Headers headers;
+    private URI uri;
+    private long operations;
+    private long allocatedAtStart;
+    private long collectionsAtStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BufferPool.shared().setMaxRetainedBytes(poolMb * 1024L * 1024L);
+        JsonObject detection = new JsonObject();
+        detection.addProperty("success", true);
+        detection.addProperty("plateFound", true);
+        detection.addProperty("licenseNumber", "ABC123");
+        detection.addProperty("confidence", 0.93);
+        AppConfig config = new AppConfig();
+        handler = new PlateImageQueryHandler(new InMemoryVehicleRepository(), config,
+                new PlateEventBroadcaster(16, 16)) {
+            @Override
+            protected JsonObject callPythonService(Path imagePath) {
+                return detection;
+            }
+        };
+
+        byte[] image = new byte[imageBytes];
+        new Random(11).nextBytes(image);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"image\"; filename=\"frame.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        body.write(image);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        upload = body.toByteArray();
+        headers = new Headers();
+        headers.add("Content-Type", "multipart/form-data; boundary=" + BOUNDARY);
+        uri = URI.create("/api/vehicles/query-image");
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() {
+        operations = 0;
+        allocatedAtStart = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        collectionsAtStart = collections();
+    }
+
+    @Benchmark
+    public int upload() throws IOException {
+        TestHttpExchange exchange = new TestHttpExchange("POST", uri, headers, upload);
+        handler.handle(exchange);
+        operations++;
+        return exchange.getResponseCode();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedAtStart;
+        System.out.printf("%npool %d MB: %d bytes/op, %d GCs over %d uploads%n",
+                poolMb, allocated / Math.max(1, operations), collections() - collectionsAtStart, operations);
+    }
+
+    private static long collections() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,118 @@
+package parallax.backend.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import parallax.backend.db.InMemoryUserRepository;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.db.Journal;
+import parallax.backend.db.JournaledVehicleRepository;
+import parallax.backend.model.Vehicle;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time of the journal storage mode with {@code vehicles} registrations, recovering from a
+ * snapshot plus a short log tail ({@code snapshot}), by replaying the full log ({@code log}) or from
+ * a clean shutdown with a mapped plate index ({@code mapped}). {@code recover} measures until the
+ * heap is complete, {@code firstLookup} until the first plate lookup is answered.
+ * <p>
+ * Run with {@code mvn -Pbench verify -Dbench.include=JournalRecoveryBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class JournalRecoveryBenchmark {
+    @Param({"1000000"})
+    public int vehicles;
+
+    @Param({"snapshot", "log", "mapped"})
+    public String layout;
+
+    private Path directory;
+    private Journal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("parallax-journal-bench");
+        InMemoryVehicleRepository memory = new InMemoryVehicleRepository();
+        Journal writer = new Journal(directory, Journal.FsyncPolicy.NEVER, 0, Long.MAX_VALUE,
+                new InMemoryUserRepository(), memory);
+        JournaledVehicleRepository repository = new JournaledVehicleRepository(memory, writer);
+        int tail = switch (layout) {
+            case "snapshot" -> Math.min(10_000, vehicles);
+            case "mapped" -> 0;
+            default -> vehicles;
+        };
+        for (int i = 0; i < vehicles; i++) {
+            if (i == vehicles - tail && i > 0 && tail > 0) {
+                writer.snapshot();
+            }
+            Vehicle vehicle = new Vehicle();
+            vehicle.setUsername("owner" + (i % 50_000) + "@example.com");
+            vehicle.setLicenseNumber("JB" + i);
+            vehicle.setMake("Toyota");
+            vehicle.setModel("Corolla");
+            vehicle.setYear("2020");
+            vehicle.setBlacklisted(i % 1_000 == 0);
+            repository.addVehicle(vehicle);
+        }
+        if (tail == 0) {
+            writer.snapshotAndClose();
+        } else {
+            writer.close();
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeJournal() {
+        journal.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Journal.Metrics recover() {
+        journal = open();
+        journal.awaitRecovery();
+        return journal.getMetrics();
+    }
+
+    @Benchmark
+    public Optional<Vehicle> firstLookup() {
+        InMemoryVehicleRepository memory = new InMemoryVehicleRepository();
+        journal = new Journal(directory, Journal.FsyncPolicy.NEVER, 0, Long.MAX_VALUE,
+                new InMemoryUserRepository(), memory);
+        return new JournaledVehicleRepository(memory, journal).findByPlate("JB" + (vehicles / 2));
+    }
+
+    private Journal open() {
+        return new Journal(directory, Journal.FsyncPolicy.NEVER, 0, Long.MAX_VALUE,
+                new InMemoryUserRepository(), new InMemoryVehicleRepository());
+    }
+}
@@ -0,0 +1,116 @@
+package parallax.backend.bench;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import parallax.backend.model.ModelJson;
+import parallax.backend.model.RegisterRequest;
+import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleWithOwner;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Gson's reflective adapters with the hand-written adapters of {@link ModelJson}:
+ * serializing a page of {@link VehicleWithOwner} rows as the export and vehicle list responses
+ * do, and parsing the {@link Vehicle} and {@link RegisterRequest} request bodies.
+ * <p>
+ * Besides the throughput reported by JMH, the heap allocated per operation is printed after each
+ * iteration as {@code bytes/op}. Run with
+ * {@code mvn -Pbench verify -Dbench.include=ModelJsonBenchmark}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelJsonBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Param({"reflective", "adapters"})
+    public String gson;
+
+    @Param({"100"})
+    public int vehicles;
+
+    private Gson instance;
+    private Map<String, Object> page;
+    private String vehicleBody;
+    private String registerBody;
+    private long operations;
+    private long allocatedAtStart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instance = "adapters".equals(gson) ? ModelJson.gson() : new Gson();
+        List<VehicleWithOwner> rows = new ArrayList<>(vehicles);
+        for (int i = 0; i < vehicles; i++) {
+            VehicleWithOwner vehicle = new VehicleWithOwner();
+            vehicle.setUsername("owner" + i + "@example.com");
+            vehicle.setLicenseNumber(String.format("P%07d", i));
+            vehicle.setMake("Toyota");
+            vehicle.setModel("Corolla");
+            vehicle.setYear(Integer.toString(2000 + i % 25));
+            vehicle.setBlacklisted(i % 10 == 0);
+            vehicle.setCreatedAt("2024-05-01T12:00:00.123Z");
+            vehicle.setOwnerUsername("owner" + i);
+            vehicle.setOwnerEmail("owner" + i + "@example.com");
+            vehicle.setOwnerPhone("5550100");
+            vehicle.setOwnerPhoneCountry("+1");
+            rows.add(vehicle);
+        }
+        page = Map.of("success", true, "vehicles", rows);
+        vehicleBody = "{\"licenseNumber\":\"ABC123\",\"make\":\"Honda\",\"model\":\"Civic\",\"year\":\"2019\"}";
+        registerBody = "{\"email\":\"alice@example.com\",\"password\":\"correct horse\",\"firstName\":\"Alice\","
+                + "\"lastName\":\"Smith\",\"country\":\"CA\",\"birthMonth\":\"4\",\"birthDay\":\"12\","
+                + "\"birthYear\":\"1990\",\"phoneCountry\":\"+1\",\"phone\":\"5550100\",\"contactMethod\":\"email\"}";
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() {
+        operations = 0;
+        allocatedAtStart = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Benchmark
+    public String serializeVehicles() {
+        operations++;
+        return instance.toJson(page);
+    }
+
+    @Benchmark
+    public Vehicle parseVehicle() {
+        operations++;
+        return instance.fromJson(vehicleBody, Vehicle.class);
+    }
+
+    @Benchmark
+    public RegisterRequest parseRegisterRequest() {
+        operations++;
+        return instance.fromJson(registerBody, RegisterRequest.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedAtStart;
+        System.out.printf("%ngson %s: %d bytes/op%n", gson, allocated / Math.max(1, operations));
+    }
+}
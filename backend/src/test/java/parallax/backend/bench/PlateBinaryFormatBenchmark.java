@@ -0,0 +1,194 @@
+package parallax.backend.bench;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parallax.backend.http.PlateBinaryFormat;
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.ModelJson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link PlateBinaryFormat} encoding with the JSON responses of the batch plate query
+ * (written with {@link JsonWriter} as {@code VehiclesHandler} does) and the blacklist sync snapshot
+ * (written with the shared Gson). Decoding uses the cheapest JSON path a client has: a streaming
+ * {@link JsonReader} for the batch and the model adapter for the snapshot. The payload sizes are
+ * printed during setup.
+ * <p>
+ * Run with {@code mvn -Pbench verify -Dbench.include=PlateBinaryFormatBenchmark}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlateBinaryFormatBenchmark {
+    private static final Gson GSON = ModelJson.gson();
+
+    @Param({"1000"})
+    public int batchPlates;
+
+    @Param({"10000"})
+    public int snapshotPlates;
+
+    private List<String> plates;
+    private boolean[] found;
+    private boolean[] blacklisted;
+    private BlacklistSync snapshot;
+    private byte[] batchJson;
+    private byte[] batchBinary;
+    private byte[] snapshotJson;
+    private byte[] snapshotBinary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        plates = new ArrayList<>(batchPlates);
+        found = new boolean[batchPlates];
+        blacklisted = new boolean[batchPlates];
+        for (int i = 0; i < batchPlates; i++) {
+            plates.add(String.format("P%06d", i * 7));
+            found[i] = i % 3 != 0;
+            blacklisted[i] = found[i] && i % 50 == 0;
+        }
+        List<String> hotlist = new ArrayList<>(snapshotPlates);
+        for (int i = 0; i < snapshotPlates; i++) {
+            hotlist.add(String.format("H%06d", i));
+        }
+        snapshot = BlacklistSync.snapshot("3f9a1c2e-5b7d-4e8f-9a0b-1c2d3e4f5a6b", 123_456, hotlist);
+        batchJson = encodeBatchJson();
+        batchBinary = encodeBatchBinary();
+        snapshotJson = encodeSnapshotJson();
+        snapshotBinary = encodeSnapshotBinary();
+        System.out.printf("%nbatch of %d: json %d bytes, binary %d bytes; snapshot of %d: json %d bytes, binary %d bytes%n",
+                batchPlates, batchJson.length, batchBinary.length,
+                snapshotPlates, snapshotJson.length, snapshotBinary.length);
+    }
+
+    @Benchmark
+    public byte[] encodeBatchJson() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            writer.name("success").value(true);
+            writer.name("count").value(plates.size());
+            writer.name("results").beginArray();
+            for (int i = 0; i < plates.size(); i++) {
+                writer.beginObject();
+                writer.name("licenseNumber").value(plates.get(i));
+                writer.name("found").value(found[i]);
+                writer.name("blacklisted").value(blacklisted[i]);
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeBatchBinary() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        PlateBinaryFormat.writeHeader(out, PlateBinaryFormat.BATCH_RESULTS);
+        out.writeInt(plates.size());
+        for (int i = 0; i < plates.size(); i++) {
+            PlateBinaryFormat.writeResult(out, plates.get(i), found[i], blacklisted[i]);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public int decodeBatchJson() throws IOException {
+        int hits = 0;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(batchJson),
+                StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"results".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String plate = null;
+                    boolean listed = false;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "licenseNumber" -> plate = reader.nextString();
+                            case "blacklisted" -> listed = reader.nextBoolean();
+                            default -> reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    if (listed && plate != null) {
+                        hits++;
+                    }
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int decodeBatchBinary() throws IOException {
+        int hits = 0;
+        for (PlateBinaryFormat.Result result : PlateBinaryFormat.readResults(
+                new DataInputStream(new ByteArrayInputStream(batchBinary)))) {
+            if (result.isBlacklisted()) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public byte[] encodeSnapshotJson() {
+        return GSON.toJson(snapshot).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeSnapshotBinary() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PlateBinaryFormat.writeSync(new DataOutputStream(bytes), snapshot);
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public BlacklistSync decodeSnapshotJson() {
+        return GSON.fromJson(new InputStreamReader(new ByteArrayInputStream(snapshotJson), StandardCharsets.UTF_8),
+                BlacklistSync.class);
+    }
+
+    @Benchmark
+    public BlacklistSync decodeSnapshotBinary() throws IOException {
+        return PlateBinaryFormat.readSync(new DataInputStream(new ByteArrayInputStream(snapshotBinary)));
+    }
+}
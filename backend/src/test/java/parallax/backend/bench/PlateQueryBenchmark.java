@@ -0,0 +1,115 @@
+package parallax.backend.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import parallax.backend.config.AppConfig;
+import parallax.backend.db.InMemoryUserRepository;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.db.ObservableVehicleRepository;
+import parallax.backend.http.PlateEventBroadcaster;
+import parallax.backend.http.PlateQueryCache;
+import parallax.backend.http.TestHttpExchange;
+import parallax.backend.http.VehiclesHandler;
+import parallax.backend.model.Vehicle;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code GET /api/vehicles/query} for a working set of hot plates, with and without the
+ * {@link PlateQueryCache}. Requests go through {@link VehiclesHandler#handle} on an in-memory
+ * exchange, so the figures exclude the network but include creating the exchange.
+ * <p>
+ * Besides the throughput reported by JMH, the heap allocated per request is printed after each
+ * iteration as {@code bytes/op}. Run with
+ * {@code mvn -Pbench verify -Dbench.include=PlateQueryBenchmark}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlateQueryBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Param({"off", "on"})
+    public String cache;
+
+    @Param({"100000"})
+    public int vehicles;
+
+    @Param({"5000"})
+    public int hotPlates;
+
+    private VehiclesHandler handler;
+    private URI[] queries;
+    private int next;
+    private long operations;
+    private long allocatedAtStart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryVehicleRepository repository = new InMemoryVehicleRepository();
+        List<Vehicle> batch = new ArrayList<>();
+        for (int i = 0; i < vehicles; i++) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setUsername("owner" + (i % 1000) + "@example.com");
+            vehicle.setLicenseNumber(String.format("P%07d", i));
+            vehicle.setBlacklisted(i % 100 == 0);
+            batch.add(vehicle);
+        }
+        repository.addVehicles(batch);
+
+        PlateQueryCache queryCache = null;
+        ObservableVehicleRepository observable = new ObservableVehicleRepository(repository);
+        if ("on".equals(cache)) {
+            queryCache = new PlateQueryCache(hotPlates * 2);
+            observable.addListener(queryCache);
+        }
+        handler = new VehiclesHandler(observable, new InMemoryUserRepository(), new AppConfig(),
+                new PlateEventBroadcaster(16, 16), queryCache);
+        queries = new URI[hotPlates];
+        for (int i = 0; i < hotPlates; i++) {
+            queries[i] = URI.create(String.format("/api/vehicles/query?license=P%07d", (long) i * vehicles / hotPlates));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() {
+        operations = 0;
+        allocatedAtStart = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Benchmark
+    public int query() throws IOException {
+        TestHttpExchange exchange = new TestHttpExchange("GET", queries[next], null, null);
+        next = next + 1 == queries.length ? 0 : next + 1;
+        handler.handle(exchange);
+        operations++;
+        return exchange.getResponseCode();
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedAtStart;
+        System.out.printf("%ncache %s: %d bytes/op%n", cache, allocated / Math.max(1, operations));
+    }
+}
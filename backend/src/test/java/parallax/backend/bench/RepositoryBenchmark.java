@@ -0,0 +1,150 @@
+package parallax.backend.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import parallax.backend.db.BlacklistChangeLog;
+import parallax.backend.db.DataSource;
+import parallax.backend.db.InMemoryUserRepository;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.db.SQLiteUserRepository;
+import parallax.backend.db.SQLiteVehicleRepository;
+import parallax.backend.db.UserRepository;
+import parallax.backend.db.VehicleRepository;
+import parallax.backend.db.WriteBehindQueue;
+import parallax.backend.db.WriteBehindUserRepository;
+import parallax.backend.db.WriteBehindVehicleRepository;
+import parallax.backend.db.WritePipeline;
+import parallax.backend.model.User;
+import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleWithOwner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the in-memory, SQLite and write-behind hybrid repositories on the hot read path ({@code findByPlate}), the
+ * registration write path ({@code addVehicle}) and the admin listing ({@code findAllWithOwners}).
+ * <p>
+ * Run with {@code mvn -Pbench verify -Dbench.include=RepositoryBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+    @Param({"memory", "sqlite", "hybrid"})
+    public String storage;
+
+    @Param({"10000"})
+    public int vehicles;
+
+    private Path databaseDir;
+    private DataSource dataSource;
+    private WritePipeline writePipeline;
+    private WriteBehindQueue writeBehind;
+    private UserRepository userRepository;
+    private VehicleRepository vehicleRepository;
+    private long nextPlate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("sqlite".equals(storage)) {
+            databaseDir = Files.createTempDirectory("parallax-bench");
+            dataSource = new DataSource("jdbc:sqlite:" + databaseDir.resolve("bench.db"));
+            userRepository = new SQLiteUserRepository(dataSource);
+            vehicleRepository = new SQLiteVehicleRepository(dataSource);
+        } else if ("hybrid".equals(storage)) {
+            databaseDir = Files.createTempDirectory("parallax-bench");
+            dataSource = new DataSource("jdbc:sqlite:" + databaseDir.resolve("bench.db"));
+            writePipeline = new WritePipeline(dataSource, 256, 0);
+            writeBehind = new WriteBehindQueue(10_000);
+            userRepository = new WriteBehindUserRepository(new InMemoryUserRepository(),
+                    new SQLiteUserRepository(dataSource, writePipeline), writeBehind);
+            vehicleRepository = new WriteBehindVehicleRepository(new InMemoryVehicleRepository(),
+                    new SQLiteVehicleRepository(dataSource, new BlacklistChangeLog(), writePipeline), writeBehind);
+        } else {
+            userRepository = new InMemoryUserRepository();
+            vehicleRepository = new InMemoryVehicleRepository();
+        }
+
+        int owners = Math.max(1, vehicles / 2);
+        for (int i = 0; i < owners; i++) {
+            User user = new User("owner" + i + "@example.com", "owner" + i + "@example.com", "Owner " + i, "Secret123");
+            user.setPhoneCountry("+1");
+            user.setPhone(String.valueOf(5550000 + i));
+            userRepository.createUser(user);
+        }
+        for (int i = 0; i < vehicles; i++) {
+            vehicleRepository.addVehicle(vehicle("owner" + (i % owners) + "@example.com", plate(i)));
+        }
+        nextPlate = vehicles;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (writeBehind != null) {
+            writeBehind.close();
+            writePipeline.close();
+        }
+        if (dataSource != null) {
+            dataSource.close();
+        }
+        if (databaseDir != null) {
+            try (var files = Files.list(databaseDir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(databaseDir);
+        }
+    }
+
+    @Benchmark
+    public Optional<Vehicle> findByPlate() {
+        return vehicleRepository.findByPlate(plate(ThreadLocalRandom.current().nextInt(vehicles)));
+    }
+
+    @Benchmark
+    public void addVehicle() {
+        vehicleRepository.addVehicle(vehicle("owner0@example.com", plate(nextPlate++)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<VehicleWithOwner> findAllWithOwners() {
+        return vehicleRepository.findAllWithOwners(userRepository);
+    }
+
+    private static Vehicle vehicle(String username, String licenseNumber) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername(username);
+        vehicle.setLicenseNumber(licenseNumber);
+        vehicle.setMake("Toyota");
+        vehicle.setModel("Corolla");
+        vehicle.setYear("2020");
+        return vehicle;
+    }
+
+    private static String plate(long index) {
+        return "BN" + index;
+    }
+}
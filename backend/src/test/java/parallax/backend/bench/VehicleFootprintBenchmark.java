@@ -0,0 +1,113 @@
+package parallax.backend.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.model.Vehicle;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap held per registered vehicle, once as plain {@link Vehicle} objects ({@code dto},
+ * the layout the in-memory store used to keep) and once as stored by
+ * {@link InMemoryVehicleRepository} ({@code compact}). Every vehicle gets its own string instances,
+ * as it would when parsed from a request or read from a database.
+ * <p>
+ * The time reported by JMH is the load time; the footprint is printed after each iteration as
+ * {@code bytes/vehicle}. Run with
+ * {@code mvn -Pbench verify -Dbench.include=VehicleFootprintBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class VehicleFootprintBenchmark {
+    private static final String[] MAKES = {
+            "Toyota", "Honda", "Ford", "Chevrolet", "Nissan", "Hyundai", "Kia", "Subaru", "Mazda", "Tesla",
+            "BMW", "Mercedes-Benz", "Audi", "Volkswagen", "Lexus", "Jeep", "Dodge", "GMC", "Volvo", "Porsche"
+    };
+    private static final long START = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+
+    @Param({"dto", "compact"})
+    public String representation;
+
+    @Param({"1000000"})
+    public int vehicles;
+
+    private Object retained;
+    private long baseline;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        retained = null;
+        baseline = usedHeap();
+    }
+
+    @Benchmark
+    public Object load() {
+        if ("dto".equals(representation)) {
+            List<Vehicle> list = new ArrayList<>(vehicles);
+            for (int i = 0; i < vehicles; i++) {
+                list.add(vehicle(i));
+            }
+            retained = list;
+        } else {
+            InMemoryVehicleRepository repository = new InMemoryVehicleRepository();
+            List<Vehicle> batch = new ArrayList<>();
+            for (int i = 0; i < vehicles; i++) {
+                batch.add(vehicle(i));
+                if (batch.size() == 10_000) {
+                    repository.addVehicles(batch);
+                    batch.clear();
+                }
+            }
+            repository.addVehicles(batch);
+            retained = repository;
+        }
+        return retained;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long used = usedHeap() - baseline;
+        System.out.printf("%n%s: %d bytes/vehicle%n", representation, used / vehicles);
+        retained = null;
+    }
+
+    private static Vehicle vehicle(int i) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner" + (i % 10_000) + "@example.com");
+        vehicle.setLicenseNumber(String.format("P%07d", i));
+        vehicle.setMake(new String(MAKES[i % MAKES.length]));
+        vehicle.setModel(MAKES[i % MAKES.length] + " " + (char) ('A' + i % 5));
+        vehicle.setYear(Integer.toString(1995 + i % 30));
+        vehicle.setCreatedAt(Instant.ofEpochMilli(START + i * 1_000L + i % 1000).toString());
+        vehicle.setBlacklisted(i % 50 == 0);
+        return vehicle;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,113 @@
+package parallax.backend.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parallax.backend.db.ColumnarVehicleStore;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares registry scans over {@code InMemoryVehicleRepository.findAll().stream()} with the
+ * parallel column scans of {@link ColumnarVehicleStore}: counting vehicles per make and year
+ * ({@code statistics}) and finding the vehicles on a hotlist ({@code match}).
+ * <p>
+ * Run with {@code mvn -Pbench verify -Dbench.include=VehicleScanBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class VehicleScanBenchmark {
+    private static final String[] MAKES = {"Toyota", "Honda", "Ford", "Nissan", "Kia", "Mazda", "Tesla", "BMW"};
+
+    @Param({"1000000"})
+    public int vehicles;
+
+    @Param({"10000"})
+    public int hotlist;
+
+    private InMemoryVehicleRepository repository;
+    private ColumnarVehicleStore columns;
+    private List<String> plates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryVehicleRepository();
+        columns = new ColumnarVehicleStore();
+        List<Vehicle> batch = new ArrayList<>();
+        for (int i = 0; i < vehicles; i++) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setUsername("owner" + (i % 10_000) + "@example.com");
+            vehicle.setLicenseNumber(String.format("P%07d", i));
+            vehicle.setMake(MAKES[i % MAKES.length]);
+            vehicle.setModel("Model " + (i % 20));
+            vehicle.setYear(Integer.toString(1995 + i % 30));
+            vehicle.setBlacklisted(i % 100 == 0);
+            vehicle.setOwnerId(i % 10_000 + 1);
+            batch.add(vehicle);
+            if (batch.size() == 10_000) {
+                repository.addVehicles(batch);
+                batch.clear();
+            }
+            columns.append(vehicle);
+        }
+        repository.addVehicles(batch);
+        plates = new ArrayList<>(hotlist);
+        for (int i = 0; i < hotlist; i++) {
+            plates.add(String.format("P%07d", (long) i * vehicles / hotlist));
+        }
+    }
+
+    @Benchmark
+    public Object statisticsStream() {
+        List<Vehicle> all = repository.findAll();
+        long blacklisted = all.stream().filter(Vehicle::isBlacklisted).count();
+        Map<String, Long> makes = all.stream()
+                .collect(Collectors.groupingBy(Vehicle::getMake, TreeMap::new, Collectors.counting()));
+        Map<String, Long> years = all.stream()
+                .collect(Collectors.groupingBy(Vehicle::getYear, TreeMap::new, Collectors.counting()));
+        return new VehicleStats(all.size(), blacklisted, makes, years);
+    }
+
+    @Benchmark
+    public Object statisticsColumns() {
+        return columns.statistics();
+    }
+
+    @Benchmark
+    public Object matchStream() {
+        Set<String> wanted = new HashSet<>(plates);
+        return repository.findAll().stream()
+                .filter(vehicle -> wanted.contains(vehicle.getLicenseNumber()))
+                .mapToLong(Vehicle::getOwnerId)
+                .toArray();
+    }
+
+    @Benchmark
+    public Object matchColumns() {
+        return columns.matchPlates(plates, false);
+    }
+}
@@ -0,0 +1,100 @@
+package parallax.backend.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import parallax.backend.db.BlacklistChangeLog;
+import parallax.backend.db.DataSource;
+import parallax.backend.db.SQLiteVehicleRepository;
+import parallax.backend.db.WritePipeline;
+import parallax.backend.model.Vehicle;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sustained {@code addVehicle} throughput from concurrent request threads, committing either one
+ * durable transaction per call ({@code transaction}) or group-committed batches through the
+ * {@link WritePipeline} ({@code pipeline}). Both modes run the writer with {@code synchronous=FULL}
+ * so every acknowledged write is on disk.
+ * <p>
+ * Run with {@code mvn -Pbench verify -Dbench.include=WritePipelineBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class WritePipelineBenchmark {
+    @Param({"transaction", "pipeline"})
+    public String mode;
+
+    @Param({"256"})
+    public int batchSize;
+
+    @Param({"0"})
+    public long delayMillis;
+
+    private Path databaseDir;
+    private DataSource dataSource;
+    private WritePipeline writePipeline;
+    private SQLiteVehicleRepository repository;
+    private final AtomicLong nextPlate = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        databaseDir = Files.createTempDirectory("parallax-bench");
+        dataSource = new DataSource("jdbc:sqlite:" + databaseDir.resolve("bench.db"));
+        if ("pipeline".equals(mode)) {
+            writePipeline = new WritePipeline(dataSource, batchSize, delayMillis);
+        } else {
+            try (DataSource.Lease lease = dataSource.acquireWriter();
+                 Statement statement = lease.getConnection().createStatement()) {
+                statement.execute("PRAGMA synchronous=FULL");
+            }
+        }
+        repository = new SQLiteVehicleRepository(dataSource, new BlacklistChangeLog(), writePipeline);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (writePipeline != null) {
+            writePipeline.close();
+        }
+        dataSource.close();
+        try (var files = Files.list(databaseDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(databaseDir);
+    }
+
+    @Benchmark
+    public void addVehicle() {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner@example.com");
+        vehicle.setLicenseNumber("WP" + nextPlate.getAndIncrement());
+        vehicle.setMake("Toyota");
+        vehicle.setModel("Corolla");
+        vehicle.setYear("2020");
+        repository.addVehicle(vehicle);
+    }
+}
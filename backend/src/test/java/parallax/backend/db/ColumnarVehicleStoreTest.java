@@ -0,0 +1,78 @@
+package parallax.backend.db;
+
+import org.junit.jupiter.api.Test;
+import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarVehicleStoreTest {
+    private final ColumnarVehicleStore store = new ColumnarVehicleStore();
+
+    private Vehicle vehicle(long ownerId, String licenseNumber, String make, String year, boolean blacklisted) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setOwnerId(ownerId);
+        vehicle.setLicenseNumber(licenseNumber);
+        vehicle.setMake(make);
+        vehicle.setYear(year);
+        vehicle.setBlacklisted(blacklisted);
+        return vehicle;
+    }
+
+    @Test
+    void rows_keepPackedAndIrregularPlates() {
+        int regular = store.append(vehicle(7, "ABC123", "Honda", "2019", false));
+        int empty = store.append(vehicle(7, "", "Honda", "2019", false));
+        int irregular = store.append(vehicle(8, "京A-12345", "Honda", "2019", false));
+        int tooLong = store.append(vehicle(8, "ABCDEFGHIJKLM", "Honda", "2019", false));
+        int dashed = store.append(vehicle(9, "AB-123", "Honda", "2019", false));
+
+        assertEquals("ABC123", store.getPlate(regular));
+        assertEquals("", store.getPlate(empty));
+        assertEquals("京A-12345", store.getPlate(irregular));
+        assertEquals("ABCDEFGHIJKLM", store.getPlate(tooLong));
+        assertEquals("AB-123", store.getPlate(dashed));
+        assertEquals(8, store.getOwnerId(irregular));
+
+        int[] matches = store.matchPlates(List.of("ABC123", "京A-12345", "AB-123", "ZZZ999"), false);
+        assertArrayEquals(new int[] {regular, irregular, dashed}, matches);
+    }
+
+    @Test
+    void removedRows_areSkippedAndReused() {
+        int first = store.append(vehicle(1, "AAA111", "Honda", "2019", true));
+        int second = store.append(vehicle(1, "BBB222", "Honda", "2019", true));
+
+        store.remove(first);
+
+        assertEquals(1, store.size());
+        assertArrayEquals(new int[] {second}, store.matchPlates(List.of("AAA111"), true));
+        assertThrows(IllegalArgumentException.class, () -> store.setBlacklisted(first, false));
+        assertEquals(first, store.append(vehicle(2, "CCC333", "Toyota", "2020", false)));
+        assertEquals("CCC333", store.getPlate(first));
+    }
+
+    @Test
+    void statistics_countLiveRowsAcrossChunks() {
+        int total = 150_000;
+        for (int i = 0; i < total; i++) {
+            store.append(vehicle(i % 100, "P" + i, i % 2 == 0 ? "Honda" : "Toyota",
+                    i % 3 == 0 ? "n/a" : Integer.toString(2000 + i % 3), i % 10 == 0));
+        }
+        store.remove(0);
+        store.setBlacklisted(10, false);
+        store.setBlacklisted(11, true);
+
+        VehicleStats stats = store.statistics();
+
+        assertEquals(total - 1, stats.getTotal());
+        assertEquals(total / 10 - 1, stats.getBlacklisted());
+        assertEquals(Map.of("Honda", (long) total / 2 - 1, "Toyota", (long) total / 2), stats.getMakes());
+        assertEquals(Map.of("2001", (long) total / 3, "2002", (long) total / 3, "n/a", (long) total / 3 - 1),
+                stats.getYears());
+        assertEquals(total / 10 - 1, store.matchPlates(List.of(), true).length);
+    }
+}
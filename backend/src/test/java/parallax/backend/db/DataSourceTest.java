@@ -0,0 +1,70 @@
+package parallax.backend.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parallax.backend.model.Vehicle;
+
+import java.nio.file.Path;
+import java.sql.SQLTransientConnectionException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataSourceTest {
+    @TempDir
+    Path tempDir;
+
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DataSource("jdbc:sqlite:" + tempDir.resolve("pool.db"), 2, 200);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void readsProceedWhileWriterIsLeased() throws Exception {
+        SQLiteVehicleRepository repository = new SQLiteVehicleRepository(dataSource);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner@example.com");
+        vehicle.setLicenseNumber("POOL01");
+        repository.addVehicle(vehicle);
+
+        try (DataSource.Lease writer = dataSource.acquireWriter()) {
+            writer.getConnection().setAutoCommit(false);
+            writer.prepare("UPDATE vehicles SET make = 'Pending'").executeUpdate();
+
+            Optional<Vehicle> found = repository.findByPlate("POOL01");
+            assertTrue(found.isPresent());
+            assertNull(found.get().getMake());
+        }
+
+        DataSource.PoolMetrics metrics = dataSource.getMetrics();
+        assertEquals(1, metrics.getWriter().getCreated());
+        assertEquals(0, metrics.getWriter().getInUse());
+        assertEquals(1, metrics.getReaders().getCreated());
+    }
+
+    @Test
+    void leasesAreReusedAndWriterAcquireTimesOut() throws Exception {
+        try (DataSource.Lease first = dataSource.acquireWriter()) {
+            assertNotNull(first.getConnection());
+            assertThrows(SQLTransientConnectionException.class, dataSource::acquireWriter);
+        }
+        try (DataSource.Lease again = dataSource.acquireWriter()) {
+            assertNotNull(again.getConnection());
+        }
+
+        DataSource.ConnectionMetrics writer = dataSource.getMetrics().getWriter();
+        assertEquals(1, writer.getCreated());
+        assertEquals(2, writer.getAcquired());
+        assertEquals(1, writer.getTimeouts());
+        assertTrue(writer.getMaxWaitMillis() >= 0);
+    }
+}
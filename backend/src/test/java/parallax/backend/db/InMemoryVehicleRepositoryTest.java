@@ -2,9 +2,13 @@ package parallax.backend.db;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.BlacklistUpdate;
 import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -76,4 +80,266 @@ class InMemoryVehicleRepositoryTest {
         assertTrue(found.isPresent());
         assertTrue(found.get().isBlacklisted());
     }
+
+    @Test
+    void updateBlacklistStatus_targetsTheRegistrationLookupsReturn() {
+        for (int n = 0; n < 40; n++) {
+            repository = new InMemoryVehicleRepository();
+            Vehicle late = new Vehicle();
+            late.setUsername("late" + n + "@example.com");
+            late.setLicenseNumber("DUP" + n);
+            late.setCreatedAt("2024-05-01T00:00:00Z");
+            Vehicle early = new Vehicle();
+            early.setUsername("early" + (39 - n) + "@example.com");
+            early.setLicenseNumber("DUP" + n);
+            early.setCreatedAt("2024-01-01T00:00:00Z");
+            repository.addVehicle(n % 2 == 0 ? late : early);
+            repository.addVehicle(n % 2 == 0 ? early : late);
+
+            Vehicle updated = repository.updateBlacklistStatus("DUP" + n, true).orElseThrow();
+
+            assertEquals(early.getUsername(), updated.getUsername());
+            assertTrue(repository.findByPlate("DUP" + n).orElseThrow().isBlacklisted());
+            assertTrue(repository.findByPlates(List.of("DUP" + n)).get("DUP" + n).isBlacklisted());
+            assertFalse(repository.findByUsernameAndLicense(late.getUsername(), "DUP" + n).orElseThrow().isBlacklisted());
+        }
+    }
+
+    @Test
+    void findByPlates_resolvesAllRequestedPlatesAtOnce() {
+        Vehicle first = new Vehicle();
+        first.setUsername("user@example.com");
+        first.setLicenseNumber("AAA111");
+        repository.addVehicle(first);
+
+        Vehicle second = new Vehicle();
+        second.setUsername("other@example.com");
+        second.setLicenseNumber("BBB222");
+        second.setBlacklisted(true);
+        repository.addVehicle(second);
+
+        Map<String, Vehicle> matches = repository.findByPlates(List.of("aaa111", " BBB222 ", "CCC333"));
+
+        assertEquals(2, matches.size());
+        assertEquals("user@example.com", matches.get("AAA111").getUsername());
+        assertTrue(matches.get("BBB222").isBlacklisted());
+        assertFalse(matches.containsKey("CCC333"));
+    }
+
+    @Test
+    void blacklistChanges_deliverDeltaSinceLastSync() {
+        Vehicle first = new Vehicle();
+        first.setUsername("user@example.com");
+        first.setLicenseNumber("AAA111");
+        repository.addVehicle(first);
+        Vehicle second = new Vehicle();
+        second.setUsername("other@example.com");
+        second.setLicenseNumber("BBB222");
+        repository.addVehicle(second);
+        repository.updateBlacklistStatus("AAA111", true);
+
+        BlacklistSync snapshot = repository.getBlacklistChanges(null, -1);
+        assertTrue(snapshot.isSnapshot());
+        assertEquals(List.of("AAA111"), snapshot.getPlates());
+
+        repository.updateBlacklistStatus("BBB222", true);
+        repository.removeVehicle("user@example.com", "AAA111");
+
+        BlacklistSync delta = repository.getBlacklistChanges(snapshot.getLogId(), snapshot.getVersion());
+        assertFalse(delta.isSnapshot());
+        assertEquals(List.of("BBB222"), delta.getAdded());
+        assertEquals(List.of("AAA111"), delta.getRemoved());
+        assertEquals(snapshot.getVersion() + 2, delta.getVersion());
+    }
+
+    @Test
+    void blacklistChanges_fallBackToSnapshotOutsideRetention() {
+        repository = new InMemoryVehicleRepository(new BlacklistChangeLog(2));
+        for (String plate : List.of("AAA111", "BBB222", "CCC333")) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setUsername("user@example.com");
+            vehicle.setLicenseNumber(plate);
+            repository.addVehicle(vehicle);
+        }
+        BlacklistSync initial = repository.getBlacklistChanges(null, -1);
+
+        repository.updateBlacklistStatus("AAA111", true);
+        repository.updateBlacklistStatus("BBB222", true);
+        repository.updateBlacklistStatus("CCC333", true);
+
+        BlacklistSync sync = repository.getBlacklistChanges(initial.getLogId(), initial.getVersion());
+        assertTrue(sync.isSnapshot());
+        assertEquals(List.of("AAA111", "BBB222", "CCC333"), sync.getPlates());
+        assertFalse(repository.getBlacklistChanges(sync.getLogId(), sync.getVersion() - 1).isSnapshot());
+    }
+
+    @Test
+    void updateBlacklist_replacesWholeListUnderOneVersion() {
+        for (String plate : List.of("LST1", "LST2", "LST3")) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setUsername("fleet@example.com");
+            vehicle.setLicenseNumber(plate);
+            repository.addVehicle(vehicle);
+        }
+        repository.updateBlacklistStatus("LST1", true);
+        BlacklistSync before = repository.getBlacklistChanges(null, -1);
+
+        BlacklistUpdate update = repository.updateBlacklist(List.of("lst2", "lst3", "GONE1"), null, true);
+
+        assertEquals(before.getVersion() + 1, update.getVersion());
+        assertEquals(2, update.getListed());
+        assertEquals(1, update.getUnlisted());
+        assertEquals(List.of("GONE1"), update.getUnmatched());
+        BlacklistSync delta = repository.getBlacklistChanges(before.getLogId(), before.getVersion());
+        assertEquals(List.of("LST1"), delta.getRemoved());
+        assertEquals(List.of("LST2", "LST3"), delta.getAdded().stream().sorted().toList());
+    }
+
+    @Test
+    void snapshot_isUnaffectedByLaterWrites() {
+        for (String plate : List.of("SNP1", "SNP2")) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setUsername("fleet@example.com");
+            vehicle.setLicenseNumber(plate);
+            repository.addVehicle(vehicle);
+        }
+
+        try (InMemoryVehicleRepository.Snapshot snapshot = repository.snapshot()) {
+            repository.removeVehiclesForUser("fleet@example.com");
+            repository.updateBlacklist(List.of("SNP1"), null, false);
+            Vehicle added = new Vehicle();
+            added.setUsername("other@example.com");
+            added.setLicenseNumber("SNP3");
+            repository.addVehicle(added);
+
+            assertEquals(2, snapshot.findAll().size());
+            assertEquals(2, snapshot.findByUsername("fleet@example.com").size());
+            assertFalse(snapshot.findAll().get(0).isBlacklisted());
+            assertEquals(List.of("SNP3"), repository.findAll().stream().map(Vehicle::getLicenseNumber).toList());
+        }
+
+        repository.removeVehicle("other@example.com", "SNP3");
+        try (InMemoryVehicleRepository.Snapshot snapshot = repository.snapshot()) {
+            assertTrue(snapshot.findAll().isEmpty());
+        }
+    }
+
+    @Test
+    void snapshot_seesMultiOwnerUpdatesAtomically() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setUsername("owner" + i + "@example.com");
+            vehicle.setLicenseNumber("ATM" + i);
+            repository.addVehicle(vehicle);
+        }
+        List<String> plates = repository.findAll().stream().map(Vehicle::getLicenseNumber).toList();
+
+        Thread writer = new Thread(() -> {
+            for (int round = 0; round < 200; round++) {
+                repository.updateBlacklist(round % 2 == 0 ? plates : List.of(), null, true);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            try (InMemoryVehicleRepository.Snapshot snapshot = repository.snapshot()) {
+                long blacklisted = snapshot.findAll().stream().filter(Vehicle::isBlacklisted).count();
+                assertTrue(blacklisted == 0 || blacklisted == plates.size(), "torn snapshot: " + blacklisted);
+            }
+        }
+        writer.join();
+    }
+
+    @Test
+    void reassignVehicles_renamesOwnerInPlaceOrMerges() {
+        for (String plate : List.of("REN1", "REN2")) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setUsername("old@example.com");
+            vehicle.setLicenseNumber(plate);
+            repository.addVehicle(vehicle);
+        }
+        Vehicle existing = new Vehicle();
+        existing.setUsername("taken@example.com");
+        existing.setLicenseNumber("REN3");
+        repository.addVehicle(existing);
+        long ownerId = repository.findByPlate("REN1").orElseThrow().getOwnerId();
+
+        try (InMemoryVehicleRepository.Snapshot snapshot = repository.snapshot()) {
+            List<Vehicle> moved = repository.reassignVehicles("old@example.com", "new@example.com");
+
+            assertEquals(2, moved.size());
+            assertTrue(repository.findByUsername("old@example.com").isEmpty());
+            List<Vehicle> renamed = repository.findByUsername("new@example.com");
+            assertEquals(2, renamed.size());
+            assertEquals("new@example.com", renamed.get(0).getUsername());
+            assertEquals(ownerId, renamed.get(0).getOwnerId());
+            assertEquals(2, snapshot.findByUsername("old@example.com").size());
+            assertTrue(snapshot.findByUsername("new@example.com").isEmpty());
+        }
+
+        repository.reassignVehicles("new@example.com", "taken@example.com");
+        List<Vehicle> merged = repository.findByUsername("taken@example.com");
+        assertEquals(3, merged.size());
+        assertTrue(merged.stream().allMatch(vehicle -> vehicle.getOwnerId() == existing.getOwnerId()));
+        assertTrue(repository.findByUsername("new@example.com").isEmpty());
+    }
+
+    @Test
+    void storedVehicles_decodeToTheValuesGiven() {
+        Vehicle regular = new Vehicle();
+        regular.setUsername("Owner@Example.com");
+        regular.setLicenseNumber("cmp1");
+        regular.setMake("Toyota");
+        regular.setModel("Corolla");
+        regular.setYear("2019");
+        regular.setCreatedAt("2024-05-01T08:30:00.125Z");
+        regular.setBlacklisted(true);
+        Vehicle irregular = new Vehicle();
+        irregular.setUsername("owner@example.com");
+        irregular.setLicenseNumber("CMP2");
+        irregular.setYear("n/a");
+        irregular.setCreatedAt("2024-05-01T08:30:00.123456789Z");
+        repository.addVehicles(List.of(regular, irregular));
+
+        Vehicle first = repository.findByPlate("CMP1").orElseThrow();
+        assertEquals("Owner@Example.com", first.getUsername());
+        assertEquals("Toyota", first.getMake());
+        assertEquals("Corolla", first.getModel());
+        assertEquals("2019", first.getYear());
+        assertEquals("2024-05-01T08:30:00.125Z", first.getCreatedAt());
+        assertTrue(first.isBlacklisted());
+        assertNotSame(first, repository.findByPlate("CMP1").orElseThrow());
+
+        Vehicle second = repository.findByPlate("CMP2").orElseThrow();
+        assertNull(second.getMake());
+        assertEquals("n/a", second.getYear());
+        assertEquals("2024-05-01T08:30:00.123456789Z", second.getCreatedAt());
+        assertEquals("n/a", repository.updateBlacklistStatus("CMP2", true).orElseThrow().getYear());
+        assertTrue(repository.findByPlate("CMP2").orElseThrow().isBlacklisted());
+    }
+
+    @Test
+    void statistics_followRegistrationsRemovalsAndHotlists() {
+        for (String plate : List.of("ST1", "ST2", "ST3")) {
+            Vehicle vehicle = new Vehicle();
+            vehicle.setUsername("stats@example.com");
+            vehicle.setLicenseNumber(plate);
+            vehicle.setMake("Mazda");
+            vehicle.setYear("2021");
+            repository.addVehicle(vehicle);
+        }
+        repository.removeVehicle("stats@example.com", "ST3");
+        repository.updateBlacklist(List.of("ST1"), List.of(), false);
+
+        VehicleStats stats = repository.getStatistics();
+
+        assertEquals(2, stats.getTotal());
+        assertEquals(1, stats.getBlacklisted());
+        assertEquals(Map.of("Mazda", 2L), stats.getMakes());
+        assertEquals(Map.of("2021", 2L), stats.getYears());
+
+        repository.updateBlacklist(List.of("ST2"), List.of(), true);
+        assertTrue(repository.findByPlate("ST2").orElseThrow().isBlacklisted());
+        assertFalse(repository.findByPlate("ST1").orElseThrow().isBlacklisted());
+        assertEquals(1, repository.getStatistics().getBlacklisted());
+    }
 }
@@ -0,0 +1,201 @@
+package parallax.backend.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parallax.backend.model.User;
+import parallax.backend.model.Vehicle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+    @TempDir
+    Path tempDir;
+
+    private Journal journal;
+    private JournaledUserRepository users;
+    private InMemoryVehicleRepository vehicleMemory;
+    private JournaledVehicleRepository vehicles;
+
+    @BeforeEach
+    void setUp() {
+        open(1_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    private void open(long snapshotEveryRecords) {
+        InMemoryUserRepository userMemory = new InMemoryUserRepository();
+        vehicleMemory = new InMemoryVehicleRepository();
+        journal = new Journal(tempDir, Journal.FsyncPolicy.ALWAYS, 0, snapshotEveryRecords, userMemory, vehicleMemory);
+        users = new JournaledUserRepository(userMemory, journal);
+        vehicles = new JournaledVehicleRepository(vehicleMemory, journal);
+    }
+
+    private void reopen() {
+        journal.close();
+        open(1_000);
+    }
+
+    private Vehicle vehicle(String owner, String licenseNumber) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername(owner);
+        vehicle.setLicenseNumber(licenseNumber);
+        vehicle.setMake("Mazda");
+        return vehicle;
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (var stream = Files.list(tempDir)) {
+            return stream.filter(p -> p.getFileName().toString().startsWith(prefix)).sorted().toList();
+        }
+    }
+
+    @Test
+    void logReplayRestoresMutations() {
+        long userId = users.createUser(new User("Owner@Example.com", "Owner@Example.com", "Owner", "Secret123")).getId();
+        users.updateContact("owner@example.com", "moved@example.com", "+1", "5550100");
+        vehicles.addVehicle(vehicle("owner@example.com", "jr001"));
+        vehicles.addVehicle(vehicle("owner@example.com", "JR002"));
+        vehicles.reassignVehicles("owner@example.com", "moved@example.com");
+        vehicles.updateBlacklistStatus("JR001", true);
+        vehicles.removeVehicle("moved@example.com", "JR002");
+
+        reopen();
+
+        assertEquals("+1", users.findByEmail("moved@example.com").orElseThrow().getPhoneCountry());
+        assertEquals("moved@example.com", users.findById(userId).orElseThrow().getUsername());
+        List<Vehicle> owned = vehicles.findByUsername("moved@example.com");
+        assertEquals(1, owned.size());
+        assertEquals("JR001", owned.get(0).getLicenseNumber());
+        assertEquals("Mazda", owned.get(0).getMake());
+        assertTrue(owned.get(0).isBlacklisted());
+        assertEquals(7, journal.getMetrics().getRecoveredRecords());
+    }
+
+    @Test
+    void snapshotCompactsLogAndSurvivesRestart() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            vehicles.addVehicle(vehicle("owner" + (i % 7) + "@example.com", "SNAP" + i));
+        }
+        journal.snapshot();
+        vehicles.removeByLicense("SNAP0");
+
+        assertEquals(1, files("snapshot-").size());
+        assertEquals(1, files("journal-").size());
+
+        reopen();
+
+        assertEquals(49, vehicleMemory.findAll().size());
+        assertTrue(vehicles.findByPlate("SNAP0").isEmpty());
+        assertEquals(List.of("SNAP3", "SNAP10", "SNAP17", "SNAP24", "SNAP31", "SNAP38", "SNAP45"),
+                vehicles.findByUsername("owner3@example.com").stream().map(Vehicle::getLicenseNumber).toList());
+        assertEquals(1, journal.getMetrics().getRecoveredRecords());
+    }
+
+    @Test
+    void tornTailRecordIsIgnored() throws IOException {
+        vehicles.addVehicle(vehicle("owner@example.com", "TORN01"));
+        Path segment = files("journal-").get(0);
+        Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        reopen();
+
+        assertTrue(vehicles.findByPlate("TORN01").isPresent());
+        vehicles.addVehicle(vehicle("owner@example.com", "TORN02"));
+        reopen();
+        assertTrue(vehicles.findByPlate("TORN02").isPresent());
+    }
+
+    @Test
+    void cleanShutdownRestartsFromMappedPlateIndex() throws IOException {
+        for (int i = 0; i < 200; i++) {
+            vehicles.addVehicle(vehicle("owner" + (i % 5) + "@example.com", "MAPD" + i));
+        }
+        vehicles.updateBlacklistStatus("MAPD7", true);
+        journal.snapshotAndClose();
+        assertEquals(1, files("plates-").size());
+
+        open(1_000);
+
+        assertTrue(journal.getMetrics().isMappedStartup());
+        assertTrue(vehicles.findByPlate("mapd7").orElseThrow().isBlacklisted());
+        assertEquals(3, vehicles.findByPlates(List.of("MAPD1", "MAPD2", "MAPD3")).size());
+        journal.awaitRecovery();
+        assertFalse(journal.getMetrics().isRecovering());
+        assertEquals(40, vehicles.findByUsername("owner2@example.com").size());
+
+        vehicles.removeByLicense("MAPD7");
+        assertTrue(vehicles.findByPlate("MAPD7").isEmpty());
+        reopen();
+        assertFalse(journal.getMetrics().isMappedStartup());
+        assertTrue(vehicles.findByPlate("MAPD7").isEmpty());
+    }
+
+    @Test
+    void duplicatePlateResolvesAlikeFromMappedIndexAndRecoveredHeap() {
+        for (int i = 0; i < 20; i++) {
+            Vehicle late = vehicle("late" + i + "@example.com", "DUP001");
+            late.setCreatedAt("2024-03-0" + (1 + i % 9) + "T10:00:00Z");
+            vehicles.addVehicle(late);
+            Vehicle tie = vehicle("tie" + (19 - i) + "@example.com", "DUP002");
+            tie.setCreatedAt("2024-01-01T00:00:00Z");
+            vehicles.addVehicle(tie);
+        }
+        Vehicle early = vehicle("early@example.com", "DUP001");
+        early.setCreatedAt("2024-02-01T10:00:00.5Z");
+        vehicles.addVehicle(early);
+        assertEquals("early@example.com", vehicles.findByPlate("DUP001").orElseThrow().getUsername());
+        assertEquals("tie0@example.com", vehicles.findByPlate("DUP002").orElseThrow().getUsername());
+        journal.snapshotAndClose();
+
+        open(1_000);
+
+        assertTrue(journal.getMetrics().isMappedStartup());
+        assertEquals("early@example.com", vehicles.findByPlate("DUP001").orElseThrow().getUsername());
+        assertEquals("tie0@example.com", vehicles.findByPlates(List.of("DUP002")).get("DUP002").getUsername());
+        journal.awaitRecovery();
+        assertEquals("early@example.com", vehicles.findByPlate("DUP001").orElseThrow().getUsername());
+        assertEquals("tie0@example.com", vehicles.findByPlates(List.of("DUP002")).get("DUP002").getUsername());
+    }
+
+    @Test
+    void snapshotIsTakenAutomatically() throws Exception {
+        journal.close();
+        open(10);
+        for (int i = 0; i < 25; i++) {
+            vehicles.addVehicle(vehicle("owner@example.com", "AUTO" + i));
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (journal.getMetrics().getSnapshots() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(journal.getMetrics().getSnapshots() > 0);
+
+        reopen();
+        assertEquals(25, vehicles.findByUsername("owner@example.com").size());
+    }
+
+    @Test
+    void bulkBlacklistUpdateIsReplayed() {
+        vehicles.addVehicle(vehicle("owner@example.com", "BULK1"));
+        vehicles.addVehicle(vehicle("owner@example.com", "BULK2"));
+        vehicles.updateBlacklistStatus("BULK1", true);
+        vehicles.updateBlacklist(List.of("BULK2"), List.of("BULK1"), false);
+
+        reopen();
+
+        assertFalse(vehicles.findByPlate("BULK1").orElseThrow().isBlacklisted());
+        assertTrue(vehicles.findByPlate("BULK2").orElseThrow().isBlacklisted());
+    }
+}
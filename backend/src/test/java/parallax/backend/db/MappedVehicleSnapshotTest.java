@@ -0,0 +1,78 @@
+package parallax.backend.db;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parallax.backend.model.Vehicle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedVehicleSnapshotTest {
+    @TempDir
+    Path tempDir;
+
+    private Vehicle vehicle(String owner, String licenseNumber, boolean blacklisted) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername(owner);
+        vehicle.setLicenseNumber(licenseNumber);
+        vehicle.setMake("Honda");
+        vehicle.setModel("思域");
+        vehicle.setYear(null);
+        vehicle.setCreatedAt("2024-01-01T00:00:00Z");
+        vehicle.setBlacklisted(blacklisted);
+        return vehicle;
+    }
+
+    @Test
+    void findsEveryPlateAndDecodesFields() throws IOException {
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            vehicles.add(vehicle("owner" + (i % 13) + "@example.com", "MAP" + i, i % 100 == 0));
+        }
+        Path file = tempDir.resolve("plates.idx");
+        MappedVehicleSnapshot.write(file, vehicles);
+
+        MappedVehicleSnapshot snapshot = MappedVehicleSnapshot.open(file);
+        assertEquals(5_000, snapshot.size());
+        for (int i = 0; i < 5_000; i++) {
+            Vehicle found = snapshot.find("map" + i + " ").orElseThrow();
+            assertEquals("MAP" + i, found.getLicenseNumber());
+            assertEquals("owner" + (i % 13) + "@example.com", found.getUsername());
+            assertEquals(i % 100 == 0, found.isBlacklisted());
+        }
+        Vehicle first = snapshot.find("MAP0").orElseThrow();
+        assertEquals("思域", first.getModel());
+        assertNull(first.getYear());
+        assertEquals("2024-01-01T00:00:00Z", first.getCreatedAt());
+        assertTrue(snapshot.find("MISSING").isEmpty());
+        assertTrue(snapshot.find((String) null).isEmpty());
+
+        Map<String, Vehicle> matches = snapshot.find(List.of("map1", "MAP2", "NOPE"));
+        assertEquals(2, matches.size());
+        assertTrue(matches.containsKey("MAP1"));
+    }
+
+    @Test
+    void firstRegistrationOfDuplicatePlateWins() throws IOException {
+        Path file = tempDir.resolve("plates.idx");
+        MappedVehicleSnapshot.write(file, List.of(vehicle("first@example.com", "DUP1", false),
+                vehicle("second@example.com", "DUP1", true)));
+
+        Vehicle found = MappedVehicleSnapshot.open(file).find("DUP1").orElseThrow();
+        assertEquals("first@example.com", found.getUsername());
+    }
+
+    @Test
+    void rejectsForeignFile() throws IOException {
+        Path file = tempDir.resolve("plates.idx");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> MappedVehicleSnapshot.open(file));
+    }
+}
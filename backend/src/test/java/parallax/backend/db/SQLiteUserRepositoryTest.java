@@ -0,0 +1,133 @@
+package parallax.backend.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parallax.backend.model.User;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SQLiteUserRepositoryTest {
+    @TempDir
+    Path tempDir;
+
+    private DataSource dataSource;
+    private SQLiteUserRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DataSource("jdbc:sqlite:" + tempDir.resolve("parallax.db"));
+        repository = new SQLiteUserRepository(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void createUser_persistsAcrossReopen() {
+        User user = new User();
+        user.setUsername("User@Example.com");
+        user.setEmail("User@Example.com");
+        user.setPassword("Password123");
+        user.setDisplayName("User");
+
+        repository.createUser(user);
+        dataSource.close();
+        dataSource = new DataSource(dataSource.getUrl());
+        repository = new SQLiteUserRepository(dataSource);
+
+        Optional<User> found = repository.findByEmail("user@example.com");
+        assertTrue(found.isPresent());
+        assertEquals("user@example.com", found.get().getUsername());
+        assertEquals("Password123", found.get().getPassword());
+        assertEquals("User", found.get().getDisplayName());
+    }
+
+    @Test
+    void findByIdentifierAndPassword_supportsPhoneLookup() {
+        User user = new User();
+        user.setUsername("phone@example.com");
+        user.setEmail("phone@example.com");
+        user.setPassword("PhonePass1");
+        user.setPhoneCountry("+1");
+        user.setPhone("5551234");
+        repository.createUser(user);
+
+        Optional<User> found = repository.findByIdentifierAndPassword("+1 (555) 1234", "PhonePass1");
+        assertTrue(found.isPresent());
+        assertEquals("phone@example.com", found.get().getUsername());
+        assertTrue(repository.findByIdentifierAndPassword("+1 (555) 1234", "wrong").isEmpty());
+        assertTrue(repository.findByPhone("+1", "5551234").isPresent());
+    }
+
+    @Test
+    void updateContactAndPassword_rekeyUser() {
+        User user = new User();
+        user.setUsername("old@example.com");
+        user.setEmail("old@example.com");
+        user.setPassword("Secret123");
+        repository.createUser(user);
+
+        repository.updateContact("old@example.com", "new@example.com", "+1", "9990000");
+        repository.updatePassword("new@example.com", "Changed123");
+
+        assertTrue(repository.findByEmail("old@example.com").isEmpty());
+        Optional<User> updated = repository.findByEmail("new@example.com");
+        assertTrue(updated.isPresent());
+        assertEquals("Changed123", updated.get().getPassword());
+        assertEquals("+1", updated.get().getPhoneCountry());
+        assertTrue(repository.findByPhone("+1", "9990000").isPresent());
+    }
+
+    @Test
+    void deleteUser_removesEntry() {
+        User user = new User();
+        user.setUsername("delete@example.com");
+        user.setEmail("delete@example.com");
+        repository.createUser(user);
+
+        assertTrue(repository.deleteUser("delete@example.com"));
+        assertFalse(repository.deleteUser("delete@example.com"));
+        assertTrue(repository.findAllUsers().isEmpty());
+    }
+
+    @Test
+    void userIds_areAssignedOnceAndSurviveContactChanges() {
+        User first = repository.createUser(new User("first@example.com", "first@example.com", "First", "Secret123"));
+        User second = repository.createUser(new User("second@example.com", "second@example.com", "Second", "Secret123"));
+        assertTrue(first.getId() > 0);
+        assertNotEquals(first.getId(), second.getId());
+
+        repository.updateContact("first@example.com", "renamed@example.com", null, null);
+        repository.createUser(new User("renamed@example.com", "renamed@example.com", "Renamed", "Secret123"));
+
+        User renamed = repository.findById(first.getId()).orElseThrow();
+        assertEquals("renamed@example.com", renamed.getUsername());
+        assertEquals("Renamed", renamed.getDisplayName());
+        assertEquals(second.getId(), repository.findByEmail("second@example.com").orElseThrow().getId());
+    }
+
+    @Test
+    void userIds_areNeverReusedAfterDeletion() {
+        repository.createUser(new User("first@example.com", "first@example.com", "First", "Secret123"));
+        User last = repository.createUser(new User("last@example.com", "last@example.com", "Last", "Secret123"));
+        User imported = new User("imported@example.com", "imported@example.com", "Imported", "Secret123");
+        imported.setId(last.getId() + 10);
+        repository.createUser(imported);
+        assertTrue(repository.deleteUser("imported@example.com"));
+        assertTrue(repository.deleteUser("last@example.com"));
+
+        dataSource.close();
+        dataSource = new DataSource(dataSource.getUrl());
+        repository = new SQLiteUserRepository(dataSource);
+        User next = repository.createUser(new User("next@example.com", "next@example.com", "Next", "Secret123"));
+
+        assertEquals(imported.getId() + 1, next.getId());
+    }
+}
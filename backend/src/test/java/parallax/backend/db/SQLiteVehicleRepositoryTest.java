@@ -0,0 +1,214 @@
+package parallax.backend.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.BlacklistUpdate;
+import parallax.backend.model.User;
+import parallax.backend.model.Vehicle;
+import parallax.backend.model.VehicleStats;
+import parallax.backend.model.VehicleWithOwner;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SQLiteVehicleRepositoryTest {
+    @TempDir
+    Path tempDir;
+
+    private DataSource dataSource;
+    private SQLiteVehicleRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DataSource("jdbc:sqlite:" + tempDir.resolve("parallax.db"));
+        repository = new SQLiteVehicleRepository(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    private Vehicle vehicle(String username, String licenseNumber) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername(username);
+        vehicle.setLicenseNumber(licenseNumber);
+        vehicle.setMake("Honda");
+        vehicle.setModel("Civic");
+        vehicle.setYear("2019");
+        return vehicle;
+    }
+
+    @Test
+    void addVehicle_normalizesPlateAndSurvivesReopen() {
+        repository.addVehicle(vehicle("Owner@Example.com", " abc123 "));
+        dataSource.close();
+
+        dataSource = new DataSource(dataSource.getUrl());
+        repository = new SQLiteVehicleRepository(dataSource);
+        Optional<Vehicle> found = repository.findByUsernameAndLicense("owner@example.com", "ABC123");
+        assertTrue(found.isPresent());
+        assertEquals("ABC123", found.get().getLicenseNumber());
+        assertEquals("Owner@Example.com", found.get().getUsername());
+        assertEquals("Civic", found.get().getModel());
+    }
+
+    @Test
+    void findByPlates_resolvesMoreThanOneChunk() {
+        List<String> requested = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            repository.addVehicle(vehicle("owner" + (i % 3) + "@example.com", "PLT" + i));
+            requested.add("plt" + i);
+        }
+        requested.add("MISSING");
+
+        Map<String, Vehicle> matches = repository.findByPlates(requested);
+
+        assertEquals(150, matches.size());
+        assertEquals("PLT149", matches.get("PLT149").getLicenseNumber());
+        assertFalse(matches.containsKey("MISSING"));
+    }
+
+    @Test
+    void blacklistChanges_areRecordedForUpdatesAndRemovals() {
+        repository.addVehicle(vehicle("owner@example.com", "BLK001"));
+        BlacklistSync initial = repository.getBlacklistChanges(null, 0);
+        assertTrue(initial.getPlates().isEmpty());
+
+        Optional<Vehicle> updated = repository.updateBlacklistStatus("blk001", true);
+        assertTrue(updated.isPresent());
+        assertTrue(updated.get().isBlacklisted());
+        assertTrue(repository.findByPlate("BLK001").orElseThrow().isBlacklisted());
+
+        BlacklistSync added = repository.getBlacklistChanges(initial.getLogId(), initial.getVersion());
+        assertEquals(List.of("BLK001"), added.getAdded());
+
+        assertTrue(repository.removeByLicense("BLK001"));
+        BlacklistSync removed = repository.getBlacklistChanges(added.getLogId(), added.getVersion());
+        assertEquals(List.of("BLK001"), removed.getRemoved());
+    }
+
+    @Test
+    void reassignAndRemoveVehiclesForUser_moveAndDeleteRows() {
+        repository.addVehicle(vehicle("old@example.com", "MOV001"));
+        repository.addVehicle(vehicle("old@example.com", "MOV002"));
+
+        List<Vehicle> moved = repository.reassignVehicles("old@example.com", "new@example.com");
+        assertEquals(2, moved.size());
+        assertTrue(repository.findByUsername("old@example.com").isEmpty());
+        assertEquals(2, repository.findByUsername("new@example.com").size());
+
+        repository.removeVehiclesForUser("new@example.com");
+        assertTrue(repository.findAll().isEmpty());
+    }
+
+    @Test
+    void reassignVehicles_renamesOwnerRow() throws Exception {
+        repository.addVehicle(vehicle("old@example.com", "REN001"));
+        repository.addVehicle(vehicle("old@example.com", "REN002"));
+        long ownerId = repository.findByPlate("REN001").orElseThrow().getOwnerId();
+
+        repository.reassignVehicles("old@example.com", "New@Example.com");
+
+        List<Vehicle> renamed = repository.findByUsername("new@example.com");
+        assertEquals(2, renamed.size());
+        assertEquals("New@Example.com", renamed.get(0).getUsername());
+        assertEquals(ownerId, renamed.get(0).getOwnerId());
+        try (DataSource.Lease lease = dataSource.acquireReader();
+             ResultSet rs = lease.prepare("SELECT COUNT(*) FROM vehicle_owners").executeQuery()) {
+            assertEquals(1, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void findAllWithOwners_joinsUsersFromSameDatabase() {
+        SQLiteUserRepository users = new SQLiteUserRepository(dataSource);
+        User owner = new User("owner@example.com", "owner@example.com", "Owner", "Secret123");
+        owner.setPhoneCountry("+1");
+        owner.setPhone("5550100");
+        users.createUser(owner);
+        repository.addVehicle(vehicle("owner@example.com", "OWN001"));
+        repository.addVehicle(vehicle("ghost@example.com", "OWN002"));
+
+        List<VehicleWithOwner> vehicles = repository.findAllWithOwners(users);
+
+        assertEquals(2, vehicles.size());
+        assertEquals("owner@example.com", vehicles.get(0).getOwnerEmail());
+        assertEquals("+15550100", vehicles.get(0).getOwnerPhone());
+        assertNull(vehicles.get(1).getOwnerEmail());
+    }
+
+    @Test
+    void forEachWithOwner_streamsJoinedRowsBehindUserCache() {
+        SQLiteUserRepository store = new SQLiteUserRepository(dataSource);
+        store.createUser(new User("owner@example.com", "owner@example.com", "Owner", "Secret123"));
+        TieredUserRepository users = new TieredUserRepository(store, 1024 * 1024);
+        for (int i = 0; i < 50; i++) {
+            repository.addVehicle(vehicle("owner@example.com", "STR" + i));
+        }
+
+        List<String> plates = new ArrayList<>();
+        repository.forEachWithOwner(users, vehicle -> {
+            assertEquals("owner@example.com", vehicle.getOwnerEmail());
+            plates.add(vehicle.getLicenseNumber());
+        });
+
+        assertEquals(50, plates.size());
+        assertEquals("STR0", plates.get(0));
+    }
+
+    @Test
+    void updateBlacklist_appliesDiffAndReplacementAsOneVersion() {
+        repository.addVehicle(vehicle("a@example.com", "HOT1"));
+        repository.addVehicle(vehicle("b@example.com", "HOT1"));
+        repository.addVehicle(vehicle("a@example.com", "HOT2"));
+        repository.addVehicle(vehicle("a@example.com", "OLD1"));
+        repository.updateBlacklistStatus("OLD1", true);
+        long before = repository.getBlacklistChanges(null, -1).getVersion();
+
+        BlacklistUpdate diff = repository.updateBlacklist(List.of("hot1", "HOT2", "NOPE1"), List.of("OLD1"), false);
+
+        assertEquals(before + 1, diff.getVersion());
+        assertEquals(2, diff.getListed());
+        assertEquals(1, diff.getUnlisted());
+        assertEquals(List.of("NOPE1"), diff.getUnmatched());
+        assertTrue(repository.findByUsernameAndLicense("b@example.com", "HOT1").orElseThrow().isBlacklisted());
+        BlacklistSync delta = repository.getBlacklistChanges(diff.getLogId(), before);
+        assertEquals(List.of("OLD1"), delta.getRemoved());
+        assertEquals(2, delta.getAdded().size());
+
+        BlacklistUpdate replacement = repository.updateBlacklist(List.of("HOT2"), List.of(), true);
+
+        assertEquals(diff.getVersion() + 1, replacement.getVersion());
+        assertEquals(0, replacement.getListed());
+        assertEquals(1, replacement.getUnlisted());
+        assertEquals(List.of("HOT2"), repository.getBlacklistChanges(null, -1).getPlates());
+    }
+
+    @Test
+    void statistics_countByMakeAndYear() {
+        repository.addVehicle(vehicle("one@example.com", "SQ1"));
+        repository.addVehicle(vehicle("two@example.com", "SQ2"));
+        Vehicle other = vehicle("two@example.com", "SQ3");
+        other.setMake("Kia");
+        other.setYear("2020");
+        repository.addVehicle(other);
+        repository.updateBlacklistStatus("SQ2", true);
+
+        VehicleStats stats = repository.getStatistics();
+
+        assertEquals(3, stats.getTotal());
+        assertEquals(1, stats.getBlacklisted());
+        assertEquals(Map.of("Honda", 2L, "Kia", 1L), stats.getMakes());
+        assertEquals(Map.of("2019", 2L, "2020", 1L), stats.getYears());
+    }
+}
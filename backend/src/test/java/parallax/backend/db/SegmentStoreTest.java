@@ -0,0 +1,117 @@
+package parallax.backend.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentStoreTest {
+    @TempDir
+    Path tempDir;
+
+    private SegmentStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    private SegmentStore open() {
+        return new SegmentStore(tempDir, Journal.FsyncPolicy.NEVER, 0, 4 * 1024);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    private List<String> scan(String prefix) {
+        List<String> keys = new ArrayList<>();
+        Iterator<SegmentStore.Entry> entries = store.scan(bytes(prefix));
+        while (entries.hasNext()) {
+            keys.add(string(entries.next().getKey()));
+        }
+        return keys;
+    }
+
+    @Test
+    void newestValueWinsAcrossFlushesAndMerges() {
+        for (int round = 0; round < 6; round++) {
+            SegmentStore.Batch batch = new SegmentStore.Batch();
+            for (int i = 0; i < 200; i++) {
+                batch.put(bytes(String.format("k%04d", i)), bytes("v" + round));
+            }
+            store.write(batch);
+            store.flush();
+        }
+        store.write(new SegmentStore.Batch().delete(bytes("k0007")));
+        store.flush();
+
+        assertEquals("v5", string(store.get(bytes("k0100"))));
+        assertNull(store.get(bytes("k0007")));
+        assertNull(store.get(bytes("missing")));
+        assertTrue(store.getMetrics().getMerges() > 0);
+        assertEquals(199, scan("k").size());
+        assertEquals(List.of("k0010", "k0011", "k0012", "k0013", "k0014", "k0015", "k0016", "k0017", "k0018", "k0019"),
+                scan("k001"));
+    }
+
+    @Test
+    void unflushedWritesAreReplayedFromLog() throws IOException {
+        store.write(new SegmentStore.Batch().put(bytes("a\0001"), bytes("one")).put(bytes("a\0002"), bytes("two")));
+        store.flush();
+        store.write(new SegmentStore.Batch().delete(bytes("a\0001")).put(bytes("b\0001"), bytes("three")));
+        // simulate a crash: copy the files before the store flushes on close
+        Path crashed = Files.createDirectory(tempDir.resolve("crashed"));
+        try (var files = Files.list(tempDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    Files.copy(file, crashed.resolve(file.getFileName()));
+                }
+            }
+        }
+
+        SegmentStore recovered = new SegmentStore(crashed, Journal.FsyncPolicy.NEVER, 0, 4 * 1024);
+        try {
+            assertNull(recovered.get(bytes("a\0001")));
+            assertEquals("two", string(recovered.get(bytes("a\0002"))));
+            assertEquals("three", string(recovered.get(bytes("b\0001"))));
+            assertFalse(recovered.scan(bytes("c\0")).hasNext());
+        } finally {
+            recovered.close();
+        }
+    }
+
+    @Test
+    void reopenedStoreServesSegmentsFromManifest() {
+        SegmentStore.Batch batch = new SegmentStore.Batch();
+        for (int i = 0; i < 1_000; i++) {
+            batch.put(bytes("plate" + i + "\0"), bytes("owner" + i));
+        }
+        store.write(batch);
+        store.close();
+
+        store = open();
+        assertEquals("owner42", string(store.get(bytes("plate42\0"))));
+        assertTrue(store.getMetrics().getSegments() > 0);
+        assertEquals(0, store.getMetrics().getMemtableEntries());
+    }
+}
@@ -0,0 +1,106 @@
+package parallax.backend.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.Vehicle;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedVehicleRepositoryTest {
+    @TempDir
+    Path tempDir;
+
+    private SegmentStore store;
+    private BlacklistChangeLog blacklistLog;
+    private SegmentedVehicleRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    private void open() {
+        store = new SegmentStore(tempDir, Journal.FsyncPolicy.NEVER, 0, 16 * 1024);
+        blacklistLog = new BlacklistChangeLog();
+        repository = new SegmentedVehicleRepository(store, blacklistLog);
+    }
+
+    private Vehicle vehicle(String owner, String licenseNumber) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername(owner);
+        vehicle.setLicenseNumber(licenseNumber);
+        vehicle.setMake("Subaru");
+        return vehicle;
+    }
+
+    @Test
+    void lookupsSurviveFlushesAndRestart() {
+        for (int i = 0; i < 2_000; i++) {
+            repository.addVehicle(vehicle("owner" + (i % 10) + "@example.com", "seg" + i));
+        }
+        assertTrue(store.getMetrics().getFlushes() > 0);
+
+        store.close();
+        open();
+
+        assertEquals("owner7@example.com", repository.findByPlate(" SEG1357 ").orElseThrow().getUsername());
+        assertTrue(repository.findByPlate("SEG2000").isEmpty());
+        List<Vehicle> owned = repository.findByUsername("OWNER3@example.com");
+        assertEquals(200, owned.size());
+        assertEquals("SEG3", owned.get(0).getLicenseNumber());
+        assertEquals("SEG13", owned.get(1).getLicenseNumber());
+        assertEquals(2, repository.findByPlates(List.of("seg1", "SEG2", "NOPE")).size());
+
+        repository.addVehicle(vehicle("late@example.com", "SEGLATE"));
+        assertEquals("SEGLATE", repository.findByUsername("late@example.com").get(0).getLicenseNumber());
+    }
+
+    @Test
+    void mutationsUpdateBothIndexes() {
+        repository.addVehicle(vehicle("first@example.com", "DUP1"));
+        repository.addVehicle(vehicle("second@example.com", "DUP1"));
+        repository.addVehicle(vehicle("first@example.com", "OWN2"));
+
+        assertEquals("first@example.com", repository.findByPlate("DUP1").orElseThrow().getUsername());
+        assertTrue(repository.findByUsernameAndLicense("second@example.com", "dup1").isPresent());
+
+        repository.removeVehicle("first@example.com", "DUP1");
+        assertEquals("second@example.com", repository.findByPlate("DUP1").orElseThrow().getUsername());
+        assertEquals(1, repository.findByUsername("first@example.com").size());
+
+        List<Vehicle> moved = repository.reassignVehicles("first@example.com", "renamed@example.com");
+        assertEquals(1, moved.size());
+        assertTrue(repository.findByUsername("first@example.com").isEmpty());
+        assertEquals("renamed@example.com", repository.findByPlate("OWN2").orElseThrow().getUsername());
+
+        assertTrue(repository.removeByLicense("DUP1"));
+        assertTrue(repository.findByUsername("second@example.com").isEmpty());
+        repository.removeVehiclesForUser("renamed@example.com");
+        assertTrue(repository.findByPlate("OWN2").isEmpty());
+    }
+
+    @Test
+    void blacklistChangesAreLoggedAndSnapshotted() {
+        repository.addVehicle(vehicle("owner@example.com", "BL1"));
+        repository.addVehicle(vehicle("owner@example.com", "BL2"));
+
+        assertTrue(repository.updateBlacklistStatus("bl2", true).orElseThrow().isBlacklisted());
+        assertTrue(repository.findByPlate("BL2").orElseThrow().isBlacklisted());
+        BlacklistSync delta = repository.getBlacklistChanges(blacklistLog.getLogId(), 0);
+        assertEquals(List.of("BL2"), delta.getAdded());
+
+        BlacklistSync snapshot = repository.getBlacklistChanges(null, 0);
+        assertEquals(List.of("BL2"), snapshot.getPlates());
+    }
+}
@@ -0,0 +1,82 @@
+package parallax.backend.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parallax.backend.model.User;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredUserRepositoryTest {
+    @TempDir
+    Path tempDir;
+
+    private DataSource dataSource;
+    private SQLiteUserRepository store;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DataSource("jdbc:sqlite:" + tempDir.resolve("parallax.db"));
+        store = new SQLiteUserRepository(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void evictedUsersAreReloadedFromTheStore() {
+        long budget = 3 * TieredUserRepository.estimateBytes(user(0));
+        TieredUserRepository repository = new TieredUserRepository(store, budget, 1);
+        for (int i = 0; i < 10; i++) {
+            repository.createUser(user(i));
+        }
+
+        TieredUserRepository.Metrics afterCreate = repository.getMetrics();
+        assertEquals(3, afterCreate.getResidentUsers());
+        assertEquals(7, afterCreate.getEvictions());
+        assertTrue(afterCreate.getResidentBytes() <= budget);
+
+        assertEquals("User 0", repository.findByEmail("USER0@example.com").orElseThrow().getDisplayName());
+        assertTrue(repository.findByEmail("user0@example.com").isPresent());
+        assertTrue(repository.findByIdentifierAndPassword("user0@example.com", "Password0").isPresent());
+        assertTrue(repository.findByEmail("missing@example.com").isEmpty());
+
+        TieredUserRepository.Metrics metrics = repository.getMetrics();
+        assertEquals(2, metrics.getHits());
+        assertEquals(2, metrics.getMisses());
+        assertEquals(0.5, metrics.getHitRate());
+        assertEquals(3, metrics.getResidentUsers());
+    }
+
+    @Test
+    void mutationsReachTheStoreAndTheCache() {
+        TieredUserRepository repository = new TieredUserRepository(store, 1 << 20);
+        repository.createUser(user(1));
+        repository.findByEmail("user1@example.com");
+
+        repository.updatePassword("user1@example.com", "Changed1");
+        assertEquals("Changed1", repository.findByEmail("user1@example.com").orElseThrow().getPassword());
+        assertEquals("Changed1", store.findByEmail("user1@example.com").orElseThrow().getPassword());
+
+        repository.updateContact("user1@example.com", "renamed@example.com", "+1", "5551234");
+        assertTrue(repository.findByEmail("user1@example.com").isEmpty());
+        assertEquals("5551234", repository.findByEmail("renamed@example.com").orElseThrow().getPhone());
+        assertTrue(repository.findByPhone("+1", "555-1234").isPresent());
+
+        assertTrue(repository.deleteUser("renamed@example.com"));
+        assertTrue(repository.findByEmail("renamed@example.com").isEmpty());
+        assertTrue(store.findAllUsers().isEmpty());
+        assertEquals(0, repository.getMetrics().getResidentUsers());
+    }
+
+    private static User user(int i) {
+        User user = new User("user" + i + "@example.com", "user" + i + "@example.com", "User " + i, "Password" + i);
+        user.setCreatedAt("2024-01-01T00:00:00Z");
+        return user;
+    }
+}
@@ -0,0 +1,92 @@
+package parallax.backend.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parallax.backend.model.User;
+import parallax.backend.model.Vehicle;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindRepositoryTest {
+    @TempDir
+    Path tempDir;
+
+    private DataSource dataSource;
+    private WritePipeline pipeline;
+    private WriteBehindQueue queue;
+    private WriteBehindUserRepository users;
+    private WriteBehindVehicleRepository vehicles;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DataSource("jdbc:sqlite:" + tempDir.resolve("hybrid.db"));
+        open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.close();
+        pipeline.close();
+        dataSource.close();
+    }
+
+    private void open() {
+        pipeline = new WritePipeline(dataSource, 32, 0);
+        queue = new WriteBehindQueue(16);
+        users = new WriteBehindUserRepository(new InMemoryUserRepository(),
+                new SQLiteUserRepository(dataSource, pipeline), queue);
+        vehicles = new WriteBehindVehicleRepository(new InMemoryVehicleRepository(),
+                new SQLiteVehicleRepository(dataSource, new BlacklistChangeLog(), pipeline), queue);
+    }
+
+    private Vehicle vehicle(String licenseNumber) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner@example.com");
+        vehicle.setLicenseNumber(licenseNumber);
+        return vehicle;
+    }
+
+    @Test
+    void mutationsReachStoreAfterFlush() {
+        vehicles.addVehicle(vehicle("wb001"));
+        assertTrue(vehicles.findByPlate("WB001").isPresent());
+
+        queue.flush();
+        SQLiteVehicleRepository store = new SQLiteVehicleRepository(dataSource);
+        assertTrue(store.findByPlate("WB001").isPresent());
+        assertEquals(0, queue.getMetrics().getPending());
+    }
+
+    @Test
+    void heapIsRebuiltFromStoreAfterRestart() {
+        users.createUser(new User("Owner@Example.com", "Owner@Example.com", "Owner", "Secret123"));
+        users.updatePassword("owner@example.com", "Changed123");
+        vehicles.addVehicle(vehicle("WB100"));
+        vehicles.addVehicle(vehicle("WB101"));
+        vehicles.updateBlacklistStatus("WB100", true);
+        vehicles.removeByLicense("WB101");
+
+        queue.close();
+        pipeline.close();
+        open();
+
+        assertEquals("Changed123", users.findByEmail("owner@example.com").orElseThrow().getPassword());
+        assertTrue(vehicles.findByPlate("WB100").orElseThrow().isBlacklisted());
+        assertTrue(vehicles.findByPlate("WB101").isEmpty());
+        assertEquals(1, vehicles.findByUsername("owner@example.com").size());
+    }
+
+    @Test
+    void storeWriteUsesSnapshotOfVehicle() {
+        Vehicle vehicle = vehicle("WB200");
+        vehicles.addVehicle(vehicle);
+        vehicle.setMake("Changed later");
+        queue.flush();
+
+        assertNull(new SQLiteVehicleRepository(dataSource).findByPlate("WB200").orElseThrow().getMake());
+    }
+}
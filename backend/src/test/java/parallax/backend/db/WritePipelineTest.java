@@ -0,0 +1,162 @@
+package parallax.backend.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import parallax.backend.model.BlacklistSync;
+import parallax.backend.model.Vehicle;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WritePipelineTest {
+    @TempDir
+    Path tempDir;
+
+    private DataSource dataSource;
+    private WritePipeline pipeline;
+    private SQLiteVehicleRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DataSource("jdbc:sqlite:" + tempDir.resolve("pipeline.db"));
+        pipeline = new WritePipeline(dataSource, 64, 20);
+        repository = new SQLiteVehicleRepository(dataSource, new BlacklistChangeLog(), pipeline);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.close();
+        dataSource.close();
+    }
+
+    private Vehicle vehicle(String licenseNumber, boolean blacklisted) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner@example.com");
+        vehicle.setLicenseNumber(licenseNumber);
+        vehicle.setBlacklisted(blacklisted);
+        return vehicle;
+    }
+
+    @Test
+    void queuedWritesAreGroupCommitted() {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(repository.addVehicleAsync(vehicle("GRP" + i, i % 2 == 0)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals(200, repository.findAll().size());
+        WritePipeline.Metrics metrics = pipeline.getMetrics();
+        assertEquals(200, metrics.getOperations());
+        assertTrue(metrics.getBatches() < 200);
+        assertTrue(metrics.getLargestBatch() > 1);
+        assertEquals(100, repository.getBlacklistChanges(null, 0).getPlates().size());
+    }
+
+    @Test
+    void failingTaskDoesNotAbortItsBatch() {
+        CompletableFuture<Void> before = repository.addVehicleAsync(vehicle("OK001", false));
+        CompletableFuture<Object> failing = pipeline.submit(transaction -> {
+            transaction.getLease().prepare("INSERT INTO vehicle_owners (owner_key, username) "
+                    + "VALUES ('x', 'x')").executeUpdate();
+            transaction.getLease().prepare("INSERT INTO vehicles (owner_id, license_number) "
+                    + "VALUES (last_insert_rowid(), 'ROLLED')").executeUpdate();
+            throw new SQLException("boom");
+        });
+        CompletableFuture<Void> after = repository.addVehicleAsync(vehicle("OK002", false));
+
+        before.join();
+        after.join();
+        CompletionException error = assertThrows(CompletionException.class, failing::join);
+        assertEquals("boom", error.getCause().getMessage());
+        assertTrue(repository.findByPlate("ROLLED").isEmpty());
+        assertTrue(repository.findByPlate("OK002").isPresent());
+        assertEquals(1, pipeline.getMetrics().getFailures());
+    }
+
+    @Test
+    void failingAfterCommitActionDoesNotStrandItsBatch() throws Exception {
+        CompletableFuture<String> hooked = pipeline.submit(transaction -> {
+            transaction.afterCommit(() -> {
+                throw new IllegalStateException("hook");
+            });
+            return "committed";
+        });
+        CompletableFuture<Void> sameBatch = repository.addVehicleAsync(vehicle("HOOK01", false));
+
+        assertEquals("committed", hooked.get(5, TimeUnit.SECONDS));
+        sameBatch.get(5, TimeUnit.SECONDS);
+        repository.addVehicleAsync(vehicle("HOOK02", false)).get(5, TimeUnit.SECONDS);
+        assertTrue(repository.findByPlate("HOOK02").isPresent());
+        assertEquals(1, pipeline.getMetrics().getFailures());
+    }
+
+    @Test
+    void blacklistLogIsWrittenAfterCommit() {
+        repository.addVehicle(vehicle("LOG001", false));
+        BlacklistSync initial = repository.getBlacklistChanges(null, 0);
+
+        assertTrue(repository.updateBlacklistStatusAsync("log001", true).join().orElseThrow().isBlacklisted());
+
+        BlacklistSync delta = repository.getBlacklistChanges(initial.getLogId(), initial.getVersion());
+        assertEquals(List.of("LOG001"), delta.getAdded());
+    }
+
+    @Test
+    void closeCommitsQueuedWritesAndRejectsNewOnes() {
+        CompletableFuture<Void> queued = repository.addVehicleAsync(vehicle("CLS001", false));
+        pipeline.close();
+
+        queued.join();
+        assertTrue(repository.findByPlate("CLS001").isPresent());
+        assertThrows(CompletionException.class, () -> pipeline.submit(transaction -> null).join());
+    }
+
+    @Test
+    void submissionsRacingCloseAllComplete() throws Exception {
+        List<CompletableFuture<Object>> futures = Collections.synchronizedList(new ArrayList<>());
+        Thread submitter = new Thread(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                futures.add(pipeline.submit(transaction -> null));
+            }
+        });
+        submitter.start();
+        pipeline.close();
+        submitter.join();
+
+        for (CompletableFuture<Object> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException rejected) {
+                assertInstanceOf(IllegalStateException.class, rejected.getCause());
+            }
+        }
+    }
+
+    @Test
+    void reopenedWriterConnectionKeepsFullSync() throws Exception {
+        try (DataSource.Lease lease = dataSource.acquireWriter()) {
+            // A connection that cannot be reset on release is dropped and reopened on demand.
+            lease.getConnection().close();
+        }
+
+        try (DataSource.Lease lease = dataSource.acquireWriter();
+             Statement statement = lease.getConnection().createStatement();
+             ResultSet synchronous = statement.executeQuery("PRAGMA synchronous")) {
+            assertEquals(2, synchronous.getInt(1));
+        }
+    }
+}
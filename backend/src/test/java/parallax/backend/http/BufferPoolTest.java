@@ -0,0 +1,71 @@
+package parallax.backend.http;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+    private final Gson gson = new Gson();
+
+    @Test
+    void json_encodesLikeStringGetBytes() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        List<Object> bodies = Arrays.asList(
+                Map.of("success", true, "message", "OK"),
+                Map.of("plate", "京A-12345", "note", "naïve 🚗 <tag>"),
+                Map.of("broken", "x\uD800y\uDC00z\uD800"),
+                Map.of("long", "Ж".repeat(10_000) + "a".repeat(5_000)),
+                null);
+
+        for (Object body : bodies) {
+            try (BufferPool.Buffer buffer = pool.json(gson, body)) {
+                assertArrayEquals(gson.toJson(body).getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    void read_growsAcrossSizeClassesAndReusesArrays() throws IOException {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        byte[] upload = new byte[100_000];
+        new Random(7).nextBytes(upload);
+
+        try (BufferPool.Buffer buffer = pool.read(new ByteArrayInputStream(upload))) {
+            assertEquals(upload.length, buffer.length());
+            assertArrayEquals(upload, buffer.toByteArray());
+        }
+        long misses = pool.getMetrics().getMisses();
+        assertTrue(pool.getMetrics().getRetainedBytes() > 0);
+
+        try (BufferPool.Buffer buffer = pool.read(new ByteArrayInputStream(upload))) {
+            assertArrayEquals(upload, buffer.toByteArray());
+        }
+        assertEquals(misses, pool.getMetrics().getMisses());
+        assertTrue(pool.getMetrics().getHits() > 0);
+    }
+
+    @Test
+    void release_keepsRetainedBytesWithinCap() {
+        BufferPool pool = new BufferPool(BufferPool.MIN_BUFFER_BYTES);
+        BufferPool.Buffer first = pool.buffer();
+        BufferPool.Buffer second = pool.buffer();
+        first.close();
+        second.close();
+        assertEquals(BufferPool.MIN_BUFFER_BYTES, pool.getMetrics().getRetainedBytes());
+
+        BufferPool disabled = new BufferPool(0);
+        disabled.buffer().close();
+        assertEquals(0, disabled.getMetrics().getRetainedBytes());
+        disabled.buffer().close();
+        assertEquals(0, disabled.getMetrics().getHits());
+    }
+}
@@ -0,0 +1,163 @@
+package parallax.backend.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.model.Vehicle;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GateServerTest {
+    private InMemoryVehicleRepository vehicleRepository;
+    private PlateEventBroadcaster broadcaster;
+    private GateServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        vehicleRepository = new InMemoryVehicleRepository();
+        vehicleRepository.addVehicle(vehicle("GATE01", false));
+        vehicleRepository.addVehicle(vehicle("GATE02", true));
+        broadcaster = new PlateEventBroadcaster(16, 10);
+        server = new GateServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2, 2, vehicleRepository,
+                broadcaster);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void pipelinedRequests_areAnsweredInOrder() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            out.writeInt(7);
+            out.writeLong(PlateBinaryFormat.packPlate("GATE01"));
+            out.writeInt(8);
+            out.writeLong(PlateBinaryFormat.packPlate("GATE02"));
+            out.writeInt(9);
+            out.writeLong(PlateBinaryFormat.packPlate("NOPE99"));
+            out.writeInt(10);
+            out.writeLong(0);
+            out.writeInt(11);
+            out.writeLong(Long.MAX_VALUE);
+            out.writeInt(12);
+            out.writeLong(38);
+            out.writeInt(13);
+            out.writeLong(PlateBinaryFormat.packPlate("GATE01"));
+            out.flush();
+
+            assertResponse(in, 7, GateServer.FOUND);
+            assertResponse(in, 8, GateServer.FOUND | GateServer.BLACKLISTED);
+            assertResponse(in, 9, 0);
+            assertResponse(in, 10, GateServer.INVALID_PLATE);
+            assertResponse(in, 11, GateServer.INVALID_PLATE);
+            assertResponse(in, 12, GateServer.INVALID_PLATE);
+            assertResponse(in, 13, GateServer.FOUND);
+        }
+        assertEquals(4, server.getMetrics().getLookups());
+        assertEquals(0, server.getMetrics().getFailures());
+    }
+
+    @Test
+    void longPipeline_survivesBackpressure() throws Exception {
+        int requests = 50_000;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+                try {
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    for (int i = 0; i < requests; i++) {
+                        out.writeInt(i);
+                        out.writeLong(PlateBinaryFormat.packPlate(i % 2 == 0 ? "GATE01" : "GATE03"));
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            for (int i = 0; i < requests; i++) {
+                assertResponse(in, i, i % 2 == 0 ? GateServer.FOUND : 0);
+            }
+            writer.join();
+        }
+        assertEquals(requests, server.getMetrics().getLookups());
+    }
+
+    @Test
+    void slowLookup_doesNotStallOtherConnectionsOfItsLoop() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryVehicleRepository slowRepository = new InMemoryVehicleRepository() {
+            @Override
+            public Optional<Vehicle> findByPlate(String licenseNumber) {
+                if ("SLOW01".equals(licenseNumber)) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.findByPlate(licenseNumber);
+            }
+        };
+        slowRepository.addVehicle(vehicle("GATE01", false));
+        try (GateServer single = new GateServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, 2,
+                slowRepository, null);
+             Socket slow = new Socket(InetAddress.getLoopbackAddress(), startAndGetPort(single));
+             Socket fast = new Socket(InetAddress.getLoopbackAddress(), single.getPort())) {
+            fast.setSoTimeout(5_000);
+            DataOutputStream slowOut = new DataOutputStream(slow.getOutputStream());
+            slowOut.writeInt(1);
+            slowOut.writeLong(PlateBinaryFormat.packPlate("SLOW01"));
+            slowOut.flush();
+            DataOutputStream fastOut = new DataOutputStream(fast.getOutputStream());
+            fastOut.writeInt(2);
+            fastOut.writeLong(PlateBinaryFormat.packPlate("GATE01"));
+            fastOut.flush();
+
+            assertResponse(new DataInputStream(fast.getInputStream()), 2, GateServer.FOUND);
+            release.countDown();
+            assertResponse(new DataInputStream(slow.getInputStream()), 1, 0);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static int startAndGetPort(GateServer server) {
+        server.start();
+        return server.getPort();
+    }
+
+    private static void assertResponse(DataInputStream in, int id, int flags) throws IOException {
+        assertEquals(id, in.readInt());
+        assertEquals(flags, in.readUnsignedByte());
+        assertEquals(0, in.readUnsignedByte());
+        assertEquals(0, in.readUnsignedShort());
+    }
+
+    private static Vehicle vehicle(String plate, boolean blacklisted) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner@example.com");
+        vehicle.setLicenseNumber(plate);
+        vehicle.setMake("Volvo");
+        vehicle.setModel("XC60");
+        vehicle.setYear("2023");
+        vehicle.setBlacklisted(blacklisted);
+        return vehicle;
+    }
+}
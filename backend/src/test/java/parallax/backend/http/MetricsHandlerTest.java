@@ -0,0 +1,23 @@
+package parallax.backend.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricsHandlerTest {
+    @Test
+    void metricsEndpoint_returnsRegisteredSourcesByName() throws Exception {
+        MetricsHandler handler = new MetricsHandler();
+        handler.register("queue", () -> Map.of("depth", 3));
+        handler.register("cache", () -> 42);
+        TestHttpExchange exchange = new TestHttpExchange("GET", new URI("/api/metrics"), new com.sun.net.httpserver.Headers(), new byte[0]);
+
+        handler.handle(exchange);
+
+        assertEquals(200, exchange.getResponseCode());
+        assertEquals("{\"cache\":42,\"queue\":{\"depth\":3}}", exchange.getResponseBodyText());
+    }
+}
@@ -0,0 +1,118 @@
+package parallax.backend.http;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import parallax.backend.config.AppConfig;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.model.Vehicle;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlateBurstQueryHandlerTest {
+    private final Gson gson = new Gson();
+    private InMemoryVehicleRepository vehicleRepository;
+    private StubBurstHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        vehicleRepository = new InMemoryVehicleRepository();
+        handler = new StubBurstHandler(vehicleRepository, new AppConfig());
+    }
+
+    @Test
+    void stopsRecognizingOnceConfidentAcrossFrames() throws Exception {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("user@example.com");
+        vehicle.setLicenseNumber("ABC123");
+        vehicle.setBlacklisted(true);
+        vehicleRepository.addVehicle(vehicle);
+
+        TestHttpExchange exchange = burstExchange("ABC123:0.8", "ABC123:0.8", "ABC123:0.9", "ABC123:0.9", "ABC123:0.9");
+
+        handler.handle(exchange);
+
+        assertEquals(200, exchange.getResponseCode());
+        assertEquals(2, handler.calls);
+        Map<?, ?> response = gson.fromJson(exchange.getResponseBodyText(), Map.class);
+        assertEquals("ABC123", response.get("licenseNumber"));
+        assertEquals(Boolean.TRUE, response.get("confirmed"));
+        assertEquals(Boolean.TRUE, response.get("blacklisted"));
+        assertEquals(5.0, response.get("framesReceived"));
+        assertEquals(2.0, response.get("framesProcessed"));
+    }
+
+    @Test
+    void consolidatesToStrongestPlateWhenNeverConfirmed() throws Exception {
+        TestHttpExchange exchange = burstExchange("ABC128:0.3", "ABC123:0.6", "none", "ABC123:0.5");
+
+        handler.handle(exchange);
+
+        assertEquals(200, exchange.getResponseCode());
+        assertEquals(4, handler.calls);
+        Map<?, ?> response = gson.fromJson(exchange.getResponseBodyText(), Map.class);
+        assertEquals("ABC123", response.get("licenseNumber"));
+        assertEquals(Boolean.FALSE, response.get("confirmed"));
+        assertEquals(Boolean.FALSE, response.get("foundInSystem"));
+        assertEquals(2.0, response.get("readings"));
+    }
+
+    private TestHttpExchange burstExchange(String... frames) throws Exception {
+        String boundary = "----burst";
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < frames.length; i++) {
+            payload.append("--").append(boundary).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"frame\"; filename=\"frame").append(i).append(".jpg\"\r\n")
+                    .append("Content-Type: application/octet-stream\r\n\r\n")
+                    .append(frames[i]).append("\r\n");
+        }
+        payload.append("--").append(boundary).append("--\r\n");
+        Headers headers = new Headers();
+        headers.add("Content-Type", "multipart/form-data; boundary=" + boundary);
+        return new TestHttpExchange("POST", new URI("/api/vehicles/query-burst"), headers,
+                payload.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Recognizer stub whose frames encode their own reading as {@code PLATE:confidence}, or
+     * {@code none} for a frame without a readable plate.
+     */
+    private static class StubBurstHandler extends PlateBurstQueryHandler {
+        private int calls;
+
+        StubBurstHandler(InMemoryVehicleRepository repository, AppConfig config) {
+            super(repository, config);
+        }
+
+        @Override
+        protected JsonObject callPythonService(Path imagePath) throws IOException {
+            calls++;
+            String frame = Files.readString(imagePath, StandardCharsets.ISO_8859_1);
+            JsonObject response = new JsonObject();
+            response.addProperty("success", true);
+            if ("none".equals(frame)) {
+                response.addProperty("plateFound", false);
+                return response;
+            }
+            String[] reading = frame.split(":");
+            JsonObject detection = new JsonObject();
+            detection.addProperty("licenseNumber", reading[0]);
+            detection.addProperty("confidence", Double.parseDouble(reading[1]));
+            JsonArray detections = new JsonArray();
+            detections.add(detection);
+            response.addProperty("plateFound", true);
+            response.add("detections", detections);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package parallax.backend.http;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import parallax.backend.config.AppConfig;
+import parallax.backend.db.InMemoryUserRepository;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.model.Vehicle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlateEventsHandlerTest {
+    private final Gson gson = new Gson();
+    private final AppConfig config = new AppConfig();
+    private InMemoryVehicleRepository vehicleRepository;
+    private PlateEventBroadcaster broadcaster;
+    private VehiclesHandler vehiclesHandler;
+    private PlateEventsHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        vehicleRepository = new InMemoryVehicleRepository();
+        broadcaster = new PlateEventBroadcaster(16, 10);
+        vehiclesHandler = new VehiclesHandler(vehicleRepository, new InMemoryUserRepository(), config, broadcaster);
+        handler = new PlateEventsHandler(broadcaster, config);
+
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner@example.com");
+        vehicle.setLicenseNumber("EVT123");
+        vehicle.setMake("Mazda");
+        vehicle.setModel("CX-5");
+        vehicle.setYear("2021");
+        vehicleRepository.addVehicle(vehicle);
+    }
+
+    @Test
+    void subscribe_requiresAdmin() throws Exception {
+        TestHttpExchange exchange = new TestHttpExchange("GET",
+                new URI("/api/vehicles/events?username=owner@example.com"), new Headers(), null);
+
+        handler.handle(exchange);
+
+        assertEquals(403, exchange.getResponseCode());
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    void subscriber_receivesBlacklistChangesAndQueryHits() throws Exception {
+        TestHttpExchange stream = new TestHttpExchange("GET",
+                new URI("/api/vehicles/events?username=" + AppConfig.ADMIN_EMAIL), new Headers(), null);
+        handler.handle(stream);
+
+        assertEquals(200, stream.getResponseCode());
+        assertEquals("text/event-stream; charset=utf-8", stream.getResponseHeaders().getFirst("Content-Type"));
+        assertEquals(1, broadcaster.getSubscriberCount());
+
+        byte[] body = gson.toJson(Map.of(
+                "username", AppConfig.ADMIN_EMAIL,
+                "licenseNumber", "EVT123",
+                "blacklisted", true
+        )).getBytes(StandardCharsets.UTF_8);
+        vehiclesHandler.handle(new TestHttpExchange("POST", new URI("/api/vehicles/blacklist"), new Headers(), body));
+        vehiclesHandler.handle(new TestHttpExchange("GET", new URI("/api/vehicles/query?license=evt123"), new Headers(), null));
+
+        String events = awaitText(stream, "event: hit");
+        assertTrue(events.contains("event: blacklist\ndata: {\"licenseNumber\":\"EVT123\",\"blacklisted\":true"));
+        assertTrue(events.contains("\"source\":\"query\""));
+        assertTrue(events.indexOf("event: blacklist") < events.indexOf("event: hit"));
+    }
+
+    @Test
+    void slowSubscriber_isDroppedWithoutBlockingPublisher() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingExchange slow = new BlockingExchange(release);
+        PlateEventBroadcaster small = new PlateEventBroadcaster(1, 10);
+        assertTrue(small.subscribe(slow));
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                small.publishBlacklistChange("SLOW" + i, true);
+            }
+
+            assertEquals(0, small.getSubscriberCount());
+            assertEquals(1, small.getDroppedCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void stalledSubscribers_areEvictedWithoutStarvingOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PlateEventBroadcaster timed = new PlateEventBroadcaster(16, 10, 100);
+        assertTrue(timed.subscribe(new BlockingExchange(release)));
+        assertTrue(timed.subscribe(new BlockingExchange(release)));
+        TestHttpExchange healthy = new TestHttpExchange("GET", new URI("/api/vehicles/events"), new Headers(), null);
+        assertTrue(timed.subscribe(healthy));
+
+        try {
+            timed.publishBlacklistChange("STALL1", true);
+
+            assertTrue(awaitText(healthy, "STALL1").contains("STALL1"));
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (timed.getDroppedCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, timed.getDroppedCount());
+            assertEquals(1, timed.getSubscriberCount());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private String awaitText(TestHttpExchange exchange, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String text = exchange.getResponseBodyText();
+        while (!text.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            text = exchange.getResponseBodyText();
+        }
+        return text;
+    }
+
+    private static final class BlockingExchange extends TestHttpExchange {
+        private final OutputStream blockingBody;
+
+        private BlockingExchange(CountDownLatch release) throws Exception {
+            super("GET", new URI("/api/vehicles/events"), new Headers(), null);
+            this.blockingBody = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return blockingBody;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package parallax.backend.http;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.sun.net.httpserver.Headers;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +12,7 @@ import parallax.backend.model.Vehicle;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -62,6 +64,58 @@ class PlateImageQueryHandlerTest {
         assertEquals(Boolean.FALSE, response.get("plateFound"));
     }
 
+    @Test
+    void whenMultiplePlatesDetected_returnsResultPerPlate() throws Exception {
+        Vehicle blacklisted = new Vehicle();
+        blacklisted.setUsername("user@example.com");
+        blacklisted.setLicenseNumber("ABC123");
+        blacklisted.setBlacklisted(true);
+        vehicleRepository.addVehicle(blacklisted);
+
+        Vehicle registered = new Vehicle();
+        registered.setUsername("other@example.com");
+        registered.setLicenseNumber("XYZ789");
+        vehicleRepository.addVehicle(registered);
+
+        JsonObject detectorResponse = new JsonObject();
+        detectorResponse.addProperty("success", true);
+        detectorResponse.addProperty("plateFound", true);
+        JsonArray detections = new JsonArray();
+        for (String plate : new String[]{"abc123", "XYZ789", "NOPE42", "ABC123"}) {
+            JsonObject detection = new JsonObject();
+            detection.addProperty("licenseNumber", plate);
+            detection.addProperty("confidence", 0.9);
+            detections.add(detection);
+        }
+        detectorResponse.add("detections", detections);
+        handler = new PlateImageQueryHandler(vehicleRepository, new AppConfig()) {
+            @Override
+            protected JsonObject callPythonService(Path imagePath) {
+                return detectorResponse;
+            }
+        };
+
+        byte[] body = buildMultipart("----boundary", "image", "content");
+        Headers headers = new Headers();
+        headers.add("Content-Type", "multipart/form-data; boundary=----boundary");
+        TestHttpExchange exchange = new TestHttpExchange("POST", new URI("/api/vehicles/query-image"), headers, body);
+
+        handler.handle(exchange);
+
+        assertEquals(200, exchange.getResponseCode());
+        Map<?, ?> response = new com.google.gson.Gson().fromJson(exchange.getResponseBodyText(), Map.class);
+        assertEquals("ABC123", response.get("licenseNumber"));
+        assertEquals(3.0, response.get("plateCount"));
+        List<?> plates = (List<?>) response.get("plates");
+        assertEquals(3, plates.size());
+        Map<?, ?> second = (Map<?, ?>) plates.get(1);
+        assertEquals(Boolean.TRUE, second.get("foundInSystem"));
+        assertEquals(Boolean.FALSE, second.get("blacklisted"));
+        Map<?, ?> third = (Map<?, ?>) plates.get(2);
+        assertEquals("NOPE42", third.get("licenseNumber"));
+        assertEquals(Boolean.FALSE, third.get("foundInSystem"));
+    }
+
     private byte[] buildMultipart(String boundary, String fieldName, String content) {
         String payload = "--" + boundary + "\r\n" +
                 "Content-Disposition: form-data; name=\"" + fieldName + "\"; filename=\"file.bin\"\r\n" +
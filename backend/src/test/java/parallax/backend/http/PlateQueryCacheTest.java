@@ -0,0 +1,78 @@
+package parallax.backend.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlateQueryCacheTest {
+    @Test
+    void fullCache_evictsEntriesThatWereNotRead() {
+        PlateQueryCache cache = new PlateQueryCache(3);
+        put(cache, "HOT1");
+        put(cache, "COLD1");
+        put(cache, "HOT2");
+        assertNotNull(cache.get("HOT1"));
+        assertNotNull(cache.get("HOT2"));
+
+        put(cache, "NEW1");
+
+        assertNull(cache.get("COLD1"));
+        assertNotNull(cache.get("HOT1"));
+        assertNotNull(cache.get("HOT2"));
+        assertNotNull(cache.get("NEW1"));
+        assertEquals(3, cache.getMetrics().getEntries());
+    }
+
+    @Test
+    void invalidatedSlots_areReused() {
+        PlateQueryCache cache = new PlateQueryCache(2);
+        put(cache, "KEEP1");
+        put(cache, "GONE1");
+        assertNotNull(cache.get("KEEP1"));
+        cache.platesChanged(Set.of("GONE1"));
+
+        put(cache, "NEXT1");
+
+        assertNotNull(cache.get("KEEP1"));
+        assertNotNull(cache.get("NEXT1"));
+    }
+
+    @Test
+    void concurrentMisses_neverExceedTheBound() throws Exception {
+        PlateQueryCache cache = new PlateQueryCache(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            writers.add(CompletableFuture.runAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 5_000; i++) {
+                    put(cache, "T" + thread + "P" + i);
+                    assertTrue(cache.getMetrics().getEntries() <= 64);
+                }
+            }));
+        }
+        start.countDown();
+        for (CompletableFuture<Void> writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(64, cache.getMetrics().getEntries());
+    }
+
+    private static void put(PlateQueryCache cache, String plate) {
+        cache.put(plate, cache.stamp(), plate.getBytes(StandardCharsets.UTF_8), false);
+    }
+}
@@ -0,0 +1,94 @@
+package parallax.backend.http;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import parallax.backend.config.AppConfig;
+import parallax.backend.db.InMemoryUserRepository;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.model.User;
+import parallax.backend.model.Vehicle;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleExportHandlerTest {
+    private final Gson gson = new Gson();
+    private InMemoryVehicleRepository vehicleRepository;
+    private VehicleExportHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        vehicleRepository = new InMemoryVehicleRepository();
+        InMemoryUserRepository userRepository = new InMemoryUserRepository();
+        User owner = new User("owner@example.com", "owner@example.com", "Owner", "Secret123");
+        owner.setPhoneCountry("+1");
+        owner.setPhone("5550100");
+        userRepository.createUser(owner);
+        for (int i = 0; i < 300; i++) {
+            vehicleRepository.addVehicle(vehicle("owner@example.com", "EXP" + i, "Transit"));
+        }
+        vehicleRepository.addVehicle(vehicle("ghost@example.com", "QUOTE1", "Sprinter, \"long\""));
+        handler = new VehicleExportHandler(vehicleRepository, userRepository);
+    }
+
+    @Test
+    void ndjsonExport_isGzippedWhenAccepted() throws Exception {
+        Headers headers = new Headers();
+        headers.add("Accept-Encoding", "gzip, deflate");
+        TestHttpExchange exchange = get("ndjson", AppConfig.ADMIN_EMAIL, headers);
+
+        assertEquals(200, exchange.getResponseCode());
+        assertEquals("gzip", exchange.getResponseHeaders().getFirst("Content-Encoding"));
+        String body;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(exchange.getResponseBodyBytes()))) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = body.split("\n");
+        assertEquals(301, lines.length);
+        for (String line : lines) {
+            JsonObject vehicle = gson.fromJson(line, JsonObject.class);
+            if ("owner@example.com".equals(vehicle.get("username").getAsString())) {
+                assertEquals("+15550100", vehicle.get("ownerPhone").getAsString());
+            }
+        }
+    }
+
+    @Test
+    void csvExport_quotesFieldsAndRequiresAdmin() throws Exception {
+        TestHttpExchange denied = get("csv", "owner@example.com", new Headers());
+        assertEquals(403, denied.getResponseCode());
+
+        TestHttpExchange exchange = get("csv", AppConfig.ADMIN_EMAIL, new Headers());
+
+        assertEquals(200, exchange.getResponseCode());
+        assertNull(exchange.getResponseHeaders().getFirst("Content-Encoding"));
+        String body = exchange.getResponseBodyText();
+        assertTrue(body.startsWith("username,licenseNumber,make,model,year,blacklisted,"));
+        assertTrue(body.contains("ghost@example.com,QUOTE1,Ford,\"Sprinter, \"\"long\"\"\",2021,false,"));
+        assertEquals(302, body.split("\n").length);
+    }
+
+    private TestHttpExchange get(String format, String username, Headers headers) throws Exception {
+        TestHttpExchange exchange = new TestHttpExchange("GET",
+                new URI("/api/vehicles/export?format=" + format + "&username=" + username), headers, null);
+        handler.handle(exchange);
+        return exchange;
+    }
+
+    private static Vehicle vehicle(String username, String licenseNumber, String model) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername(username);
+        vehicle.setLicenseNumber(licenseNumber);
+        vehicle.setMake("Ford");
+        vehicle.setModel(model);
+        vehicle.setYear("2021");
+        return vehicle;
+    }
+}
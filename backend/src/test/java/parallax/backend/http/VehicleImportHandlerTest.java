@@ -0,0 +1,145 @@
+package parallax.backend.http;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import parallax.backend.config.AppConfig;
+import parallax.backend.db.InMemoryUserRepository;
+import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.model.Vehicle;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleImportHandlerTest {
+    private final Gson gson = new Gson();
+    private InMemoryVehicleRepository vehicleRepository;
+    private InMemoryUserRepository userRepository;
+    private VehicleImportHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        vehicleRepository = new InMemoryVehicleRepository();
+        userRepository = new InMemoryUserRepository();
+        handler = new VehicleImportHandler(vehicleRepository, userRepository, new AppConfig());
+    }
+
+    @Test
+    void ndjsonImport_storesValidRowsAndReportsFailuresByLine() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1200; i++) {
+            body.append("{\"username\":\"fleet@example.com\",\"licenseNumber\":\"f").append(i)
+                    .append("\",\"make\":\"Ford\",\"model\":\"Transit\",\"year\":\"2021\"}\n");
+        }
+        body.append("{\"username\":\"fleet@example.com\",\"licenseNumber\":\"F5\",\"make\":\"Ford\",\"model\":\"Transit\",\"year\":\"2021\"}\n");
+        body.append("\n");
+        body.append("{\"username\":\"fleet@example.com\",\"licenseNumber\":\"TOOLONG99\",\"make\":\"Ford\",\"model\":\"Transit\",\"year\":\"2021\"}\n");
+        body.append("not json\n");
+
+        JsonObject response = post("application/x-ndjson", body.toString());
+
+        assertEquals(1200, response.get("imported").getAsInt());
+        assertEquals(3, response.get("failed").getAsInt());
+        assertEquals(1201, error(response, 0).get("line").getAsInt());
+        assertEquals("LICENSE_EXISTS", error(response, 0).get("message").getAsString());
+        assertEquals(1203, error(response, 1).get("line").getAsInt());
+        assertEquals("INVALID_LICENSE", error(response, 1).get("message").getAsString());
+        assertEquals("INVALID_ROW", error(response, 2).get("message").getAsString());
+
+        List<Vehicle> vehicles = vehicleRepository.findByUsername("fleet@example.com");
+        assertEquals(1200, vehicles.size());
+        assertTrue(userRepository.findByEmail("fleet@example.com").isPresent());
+    }
+
+    @Test
+    void csvImport_mapsColumnsFromHeader() throws Exception {
+        String body = "year,make,model,licenseNumber,username\n"
+                + "2019,\"Mercedes-Benz\",\"Sprinter, long\",csv1,City@Example.com\n"
+                + "2019,Mercedes-Benz,Sprinter,,city@example.com\n";
+
+        JsonObject response = post("text/csv", body);
+
+        assertEquals(1, response.get("imported").getAsInt());
+        assertEquals("INVALID_LICENSE", error(response, 0).get("message").getAsString());
+        Vehicle vehicle = vehicleRepository.findByLicense("CSV1").orElseThrow();
+        assertEquals("city@example.com", vehicle.getUsername());
+        assertEquals("Sprinter, long", vehicle.getModel());
+    }
+
+    @Test
+    void csvImport_rejectsMissingColumns() throws Exception {
+        Headers headers = new Headers();
+        headers.add("Content-Type", "text/csv");
+        TestHttpExchange exchange = new TestHttpExchange("POST", new URI("/api/vehicles/import"), headers,
+                "username,make\nowner@example.com,Ford\n".getBytes(StandardCharsets.UTF_8));
+
+        handler.handle(exchange);
+
+        assertEquals(400, exchange.getResponseCode());
+        assertTrue(exchange.getResponseBodyText().contains("INVALID_HEADER"));
+    }
+
+    @Test
+    void overlongLine_isRejectedAfterEarlierChunks() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            body.append("{\"username\":\"fleet@example.com\",\"licenseNumber\":\"L").append(i)
+                    .append("\",\"make\":\"Ford\",\"model\":\"Transit\",\"year\":\"2021\"}\r\n");
+        }
+        body.append("{\"make\":\"").append("x".repeat(100_000)).append("\"}\n");
+        Headers headers = new Headers();
+        headers.add("Content-Type", "application/x-ndjson");
+        TestHttpExchange exchange = new TestHttpExchange("POST", new URI("/api/vehicles/import"), headers,
+                body.toString().getBytes(StandardCharsets.UTF_8));
+
+        handler.handle(exchange);
+
+        assertEquals(400, exchange.getResponseCode());
+        JsonObject response = gson.fromJson(exchange.getResponseBodyText(), JsonObject.class);
+        assertEquals("LINE_TOO_LONG", response.get("message").getAsString());
+        assertEquals(601, response.get("line").getAsInt());
+        assertEquals(vehicleRepository.findByUsername("fleet@example.com").size(), response.get("imported").getAsInt());
+    }
+
+    @Test
+    void repositoryFailure_failsRowsInsteadOfRequest() throws Exception {
+        handler = new VehicleImportHandler(new InMemoryVehicleRepository() {
+            @Override
+            public Optional<Vehicle> findByUsernameAndLicense(String username, String licenseNumber) {
+                if ("BROKEN1".equals(licenseNumber)) {
+                    throw new IllegalStateException("lookup failed");
+                }
+                return super.findByUsernameAndLicense(username, licenseNumber);
+            }
+        }, userRepository, new AppConfig());
+        String body = "{\"username\":\"fleet@example.com\",\"licenseNumber\":\"OK1\",\"make\":\"Ford\",\"model\":\"Transit\",\"year\":\"2021\"}\n"
+                + "{\"username\":\"fleet@example.com\",\"licenseNumber\":\"BROKEN1\",\"make\":\"Ford\",\"model\":\"Transit\",\"year\":\"2021\"}\n";
+
+        JsonObject response = post("application/x-ndjson", body);
+
+        assertEquals(1, response.get("imported").getAsInt());
+        assertEquals(1, response.get("failed").getAsInt());
+        assertEquals(2, error(response, 0).get("line").getAsInt());
+        assertEquals("STORE_FAILED", error(response, 0).get("message").getAsString());
+    }
+
+    private JsonObject post(String contentType, String body) throws Exception {
+        Headers headers = new Headers();
+        headers.add("Content-Type", contentType);
+        TestHttpExchange exchange = new TestHttpExchange("POST", new URI("/api/vehicles/import"), headers,
+                body.getBytes(StandardCharsets.UTF_8));
+        handler.handle(exchange);
+        assertEquals(200, exchange.getResponseCode());
+        return gson.fromJson(exchange.getResponseBodyText(), JsonObject.class);
+    }
+
+    private static JsonObject error(JsonObject response, int index) {
+        return response.getAsJsonArray("errors").get(index).getAsJsonObject();
+    }
+}
@@ -7,8 +7,14 @@ import org.junit.jupiter.api.Test;
 import parallax.backend.config.AppConfig;
 import parallax.backend.db.InMemoryUserRepository;
 import parallax.backend.db.InMemoryVehicleRepository;
+import parallax.backend.db.ObservableVehicleRepository;
+import parallax.backend.model.BlacklistSync;
 import parallax.backend.model.Vehicle;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -90,4 +96,179 @@ class VehiclesHandlerTest {
         assertEquals(Boolean.TRUE, response.get("found"));
         assertEquals(Boolean.TRUE, response.get("blacklisted"));
     }
+
+    @Test
+    void queryBatch_streamsResultPerDistinctPlate() throws Exception {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner@example.com");
+        vehicle.setLicenseNumber("abc123");
+        vehicle.setBlacklisted(true);
+        vehicleRepository.addVehicle(vehicle);
+
+        byte[] body = gson.toJson(Map.of("plates", List.of("abc123", "ZZZ999", "ABC123 ")))
+                .getBytes(StandardCharsets.UTF_8);
+        TestHttpExchange exchange = new TestHttpExchange("POST", new URI("/api/vehicles/query-batch"), new Headers(), body);
+
+        handler.handle(exchange);
+
+        assertEquals(200, exchange.getResponseCode());
+        Map<?, ?> response = gson.fromJson(exchange.getResponseBodyText(), Map.class);
+        assertEquals(2.0, response.get("count"));
+        List<?> results = (List<?>) response.get("results");
+        Map<?, ?> first = (Map<?, ?>) results.get(0);
+        assertEquals("ABC123", first.get("licenseNumber"));
+        assertEquals(Boolean.TRUE, first.get("found"));
+        assertEquals(Boolean.TRUE, first.get("blacklisted"));
+        Map<?, ?> second = (Map<?, ?>) results.get(1);
+        assertEquals("ZZZ999", second.get("licenseNumber"));
+        assertEquals(Boolean.FALSE, second.get("found"));
+    }
+
+    @Test
+    void binaryAccept_encodesBatchResultsAndSync() throws Exception {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner@example.com");
+        vehicle.setLicenseNumber("abc-12");
+        vehicle.setBlacklisted(true);
+        vehicleRepository.addVehicle(vehicle);
+
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        PlateBinaryFormat.writeBatchRequest(new DataOutputStream(request), List.of("abc-12", "京A12345", "ABC-12"));
+        Headers headers = new Headers();
+        headers.add("Content-Type", PlateBinaryFormat.MEDIA_TYPE);
+        headers.add("Accept", PlateBinaryFormat.MEDIA_TYPE);
+        TestHttpExchange batch = new TestHttpExchange("POST", new URI("/api/vehicles/query-batch"), headers,
+                request.toByteArray());
+        handler.handle(batch);
+
+        assertEquals(200, batch.getResponseCode());
+        assertEquals(PlateBinaryFormat.MEDIA_TYPE, batch.getResponseHeaders().getFirst("Content-Type"));
+        List<PlateBinaryFormat.Result> results = PlateBinaryFormat.readResults(
+                new DataInputStream(new ByteArrayInputStream(batch.getResponseBodyBytes())));
+        assertEquals(2, results.size());
+        assertEquals("ABC-12", results.get(0).getLicenseNumber());
+        assertTrue(results.get(0).isFound());
+        assertTrue(results.get(0).isBlacklisted());
+        assertEquals("京A12345", results.get(1).getLicenseNumber());
+        assertFalse(results.get(1).isFound());
+
+        TestHttpExchange sync = new TestHttpExchange("GET", new URI("/api/vehicles/blacklist/sync"), headers, new byte[0]);
+        handler.handle(sync);
+        BlacklistSync snapshot = PlateBinaryFormat.readSync(
+                new DataInputStream(new ByteArrayInputStream(sync.getResponseBodyBytes())));
+        assertTrue(snapshot.isSnapshot());
+        assertEquals(List.of("ABC-12"), snapshot.getPlates());
+
+        TestHttpExchange json = new TestHttpExchange("GET", new URI("/api/vehicles/query?license=abc-12"), new Headers(),
+                new byte[0]);
+        handler.handle(json);
+        assertEquals(Boolean.TRUE, gson.fromJson(json.getResponseBodyText(), Map.class).get("blacklisted"));
+    }
+
+    @Test
+    void binaryBatch_rejectsKeysThatAreNotPlates() throws Exception {
+        for (long key : new long[] {38, Long.MAX_VALUE, -1}) {
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(request);
+            PlateBinaryFormat.writeHeader(out, PlateBinaryFormat.BATCH_REQUEST);
+            out.writeInt(1);
+            out.writeLong(key);
+            Headers headers = new Headers();
+            headers.add("Content-Type", PlateBinaryFormat.MEDIA_TYPE);
+            TestHttpExchange batch = new TestHttpExchange("POST", new URI("/api/vehicles/query-batch"), headers,
+                    request.toByteArray());
+
+            handler.handle(batch);
+
+            assertEquals(400, batch.getResponseCode(), "key " + key);
+            assertTrue(batch.getResponseBodyText().contains("INVALID_REQUEST"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> PlateBinaryFormat.unpackPlate(38));
+        assertThrows(IllegalArgumentException.class, () -> PlateBinaryFormat.unpackPlate(Long.MAX_VALUE));
+        assertEquals("ZZZZZZZZZZZZ", PlateBinaryFormat.unpackPlate(PlateBinaryFormat.packPlate("ZZZZZZZZZZZZ")));
+        assertEquals("------------", PlateBinaryFormat.unpackPlate(PlateBinaryFormat.packPlate("------------")));
+    }
+
+    @Test
+    void blacklistSync_returnsSnapshotThenDelta() throws Exception {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner@example.com");
+        vehicle.setLicenseNumber("abc123");
+        vehicleRepository.addVehicle(vehicle);
+        vehicleRepository.updateBlacklistStatus("ABC123", true);
+
+        TestHttpExchange first = new TestHttpExchange("GET", new URI("/api/vehicles/blacklist/sync"), new Headers(), new byte[0]);
+        handler.handle(first);
+
+        assertEquals(200, first.getResponseCode());
+        Map<?, ?> snapshot = gson.fromJson(first.getResponseBodyText(), Map.class);
+        assertEquals(Boolean.TRUE, snapshot.get("snapshot"));
+        assertEquals(List.of("ABC123"), snapshot.get("plates"));
+
+        vehicleRepository.updateBlacklistStatus("ABC123", false);
+        String query = "log=" + snapshot.get("logId") + "&since=" + ((Number) snapshot.get("version")).longValue();
+        TestHttpExchange second = new TestHttpExchange("GET", new URI("/api/vehicles/blacklist/sync?" + query), new Headers(), new byte[0]);
+        handler.handle(second);
+
+        Map<?, ?> delta = gson.fromJson(second.getResponseBodyText(), Map.class);
+        assertEquals(Boolean.FALSE, delta.get("snapshot"));
+        assertEquals(List.of("ABC123"), delta.get("removed"));
+        assertEquals(List.of(), delta.get("added"));
+    }
+
+    @Test
+    void blacklistBulk_requiresAdminAndReportsUnmatchedPlates() throws Exception {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner@example.com");
+        vehicle.setLicenseNumber("hot123");
+        vehicleRepository.addVehicle(vehicle);
+
+        String body = "{\"blacklisted\":[\"HOT123\",\"NONE99\"],\"replace\":true,\"username\":\"%s\"}";
+        TestHttpExchange denied = new TestHttpExchange("POST", new URI("/api/vehicles/blacklist/bulk"), new Headers(),
+                String.format(body, "owner@example.com").getBytes(StandardCharsets.UTF_8));
+        handler.handle(denied);
+        assertEquals(403, denied.getResponseCode());
+        assertFalse(vehicleRepository.findByLicense("HOT123").orElseThrow().isBlacklisted());
+
+        TestHttpExchange exchange = new TestHttpExchange("POST", new URI("/api/vehicles/blacklist/bulk"), new Headers(),
+                String.format(body, AppConfig.ADMIN_EMAIL).getBytes(StandardCharsets.UTF_8));
+        handler.handle(exchange);
+
+        assertEquals(200, exchange.getResponseCode());
+        Map<?, ?> response = gson.fromJson(exchange.getResponseBodyText(), Map.class);
+        assertEquals(1.0, response.get("listed"));
+        assertEquals(List.of("NONE99"), response.get("unmatched"));
+        assertTrue(vehicleRepository.findByLicense("HOT123").orElseThrow().isBlacklisted());
+    }
+
+    @Test
+    void queryVehicle_servesCachedBodyUntilPlateChanges() throws Exception {
+        ObservableVehicleRepository observable = new ObservableVehicleRepository(vehicleRepository);
+        PlateQueryCache cache = new PlateQueryCache(100);
+        observable.addListener(cache);
+        VehiclesHandler cachedHandler = new VehiclesHandler(observable, userRepository, new AppConfig(),
+                new PlateEventBroadcaster(16, 16), cache);
+
+        assertEquals(Boolean.FALSE, query(cachedHandler, "cache1").get("found"));
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUsername("owner@example.com");
+        vehicle.setLicenseNumber("cache1");
+        observable.addVehicle(vehicle);
+        assertEquals(Boolean.TRUE, query(cachedHandler, "cache1").get("found"));
+        assertEquals(Boolean.FALSE, query(cachedHandler, " Cache1 ").get("blacklisted"));
+
+        observable.updateBlacklist(List.of("CACHE1"), List.of(), false);
+
+        assertEquals(Boolean.TRUE, query(cachedHandler, "cache1").get("blacklisted"));
+        assertEquals(1, cache.getMetrics().getHits());
+        assertEquals(3, cache.getMetrics().getMisses());
+    }
+
+    private Map<?, ?> query(VehiclesHandler target, String plate) throws Exception {
+        TestHttpExchange exchange = new TestHttpExchange("GET",
+                new URI("/api/vehicles/query?license=" + plate.replace(" ", "%20")), new Headers(), new byte[0]);
+        target.handle(exchange);
+        assertEquals(200, exchange.getResponseCode());
+        return gson.fromJson(exchange.getResponseBodyText(), Map.class);
+    }
 }
@@ -0,0 +1,92 @@
+package parallax.backend.model;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelJsonTest {
+    private final Gson reflective = new Gson();
+    private final Gson adapters = ModelJson.gson();
+
+    private VehicleWithOwner vehicleWithOwner() {
+        VehicleWithOwner vehicle = new VehicleWithOwner();
+        vehicle.setOwnerId(42);
+        vehicle.setUsername("alice@example.com");
+        vehicle.setLicenseNumber("ABC<123>");
+        vehicle.setMake("Tesla");
+        vehicle.setYear("2021");
+        vehicle.setBlacklisted(true);
+        vehicle.setCreatedAt("2024-01-01T00:00:00Z");
+        vehicle.setOwnerUsername("alice");
+        vehicle.setOwnerEmail("alice@example.com");
+        vehicle.setOwnerPhone("5551234");
+        return vehicle;
+    }
+
+    private User user() {
+        User user = new User("alice", "alice@example.com", "Alice \"A\"", "secret");
+        user.setId(7);
+        user.setCountry("CA");
+        user.setBirthYear("1990");
+        user.setContactMethod("email");
+        user.setCreatedAt("2024-01-01T00:00:00Z");
+        return user;
+    }
+
+    @Test
+    void write_matchesReflectiveOutput() {
+        Map<String, Long> makes = new TreeMap<>(Map.of("Honda", 2L, "Tesla", 1L));
+        LoginResponse login = new LoginResponse(true, "OK", "alice", null);
+        login.setAdmin(true);
+        List<Object> models = List.of(
+                vehicleWithOwner(),
+                new Vehicle(vehicleWithOwner()),
+                new Vehicle(),
+                user(),
+                login,
+                new RegisterResponse(true, "REGISTERED", user()),
+                new RegisterResponse(false, "EMAIL_TAKEN"),
+                BlacklistSync.snapshot("log", 12, List.of("ABC123", "XYZ789")),
+                BlacklistSync.delta("log", 13, List.of("NEW1"), List.of()),
+                new BlacklistUpdate("log", 14, 2, 1, List.of("GONE1")),
+                new VehicleStats(3, 1, makes, Map.of()));
+
+        for (Object model : models) {
+            assertEquals(reflective.toJson(model), adapters.toJson(model), model.getClass().getSimpleName());
+        }
+        assertEquals(reflective.toJson(Map.of("vehicles", List.of(vehicleWithOwner()))),
+                adapters.toJson(Map.of("vehicles", List.of(vehicleWithOwner()))));
+        assertEquals("null", adapters.toJson(null, Vehicle.class));
+    }
+
+    @Test
+    void read_matchesReflectiveParsing() {
+        String vehicle = "{\"licenseNumber\":123,\"make\":null,\"year\":true,\"blacklisted\":\"true\","
+                + "\"ownerId\":9,\"unknown\":{\"nested\":[1,2]},\"ownerEmail\":\"a@b.c\"}";
+        assertEquals(reflective.toJson(reflective.fromJson(vehicle, VehicleWithOwner.class)),
+                adapters.toJson(adapters.fromJson(vehicle, VehicleWithOwner.class)));
+        assertEquals(0, adapters.fromJson(vehicle, Vehicle.class).getOwnerId());
+        assertFalse(adapters.fromJson("{\"blacklisted\":null}", Vehicle.class).isBlacklisted());
+
+        String register = reflective.toJson(new RegisterResponse(true, "REGISTERED", user()));
+        assertEquals(register, adapters.toJson(adapters.fromJson(register, RegisterResponse.class)));
+
+        String sync = reflective.toJson(BlacklistSync.delta("log", 13, List.of("NEW1"), List.of("OLD1")));
+        BlacklistSync parsed = adapters.fromJson(sync, BlacklistSync.class);
+        assertEquals(sync, adapters.toJson(parsed));
+        assertFalse(parsed.isSnapshot());
+
+        String request = "{\"email\":\"alice@example.com\",\"password\":\"pw\",\"birthDay\":5,\"extra\":null}";
+        assertEquals(reflective.toJson(reflective.fromJson(request, RegisterRequest.class)),
+                adapters.toJson(adapters.fromJson(request, RegisterRequest.class)));
+
+        String stats = reflective.toJson(new VehicleStats(3, 1, Map.of("Honda", 3L), Map.of("2020", 3L)));
+        assertEquals(stats, adapters.toJson(adapters.fromJson(stats, VehicleStats.class)));
+        assertNull(adapters.fromJson("null", LoginRequest.class));
+    }
+}